@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.app.test;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.app.Application;
+import org.onebusaway.android.app.StartupGraph;
+
+import android.os.Looper;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static androidx.test.InstrumentationRegistry.getInstrumentation;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * Tests the order and threads the startup tasks run on
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupGraphTest {
+
+    @Test
+    public void testStagesAndDependencies() throws InterruptedException {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(1);
+        final StartupGraph graph = new StartupGraph()
+                .add("a", StartupGraph.Stage.CRITICAL, () -> order.add(describe("a")))
+                .add("b", StartupGraph.Stage.BACKGROUND, () -> order.add(describe("b")), "a")
+                .add("c", StartupGraph.Stage.IDLE, () -> order.add(describe("c")), "b")
+                .add("d", StartupGraph.Stage.BACKGROUND, () -> {
+                    order.add(describe("d"));
+                    done.countDown();
+                }, "c");
+
+        getInstrumentation().runOnMainSync(() -> {
+            graph.start();
+            // Critical tasks have run by the time start() returns
+            assertTrue(graph.isFinished("a"));
+            assertFalse(graph.isFinished("c"));
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("a main, b background, c main, d background", TextUtils.join(", ", order));
+        assertEquals(4, graph.getDurations().size());
+    }
+
+    @Test
+    public void testFailedTaskDoesNotBlockDependents() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final StartupGraph graph = new StartupGraph()
+                .add("fails", StartupGraph.Stage.BACKGROUND, () -> {
+                    throw new IllegalStateException("Test");
+                })
+                .add("after", StartupGraph.Stage.BACKGROUND, done::countDown, "fails");
+        getInstrumentation().runOnMainSync(graph::start);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCriticalCantDependOnDeferred() {
+        StartupGraph graph = new StartupGraph()
+                .add("deferred", StartupGraph.Stage.IDLE, () -> {
+                });
+        try {
+            graph.add("critical", StartupGraph.Stage.CRITICAL, () -> {
+            }, "deferred");
+            fail("Critical task depending on a deferred task was added");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            graph.add("unknown", StartupGraph.Stage.BACKGROUND, () -> {
+            }, "missing");
+            fail("Task depending on a missing task was added");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testApplicationStartup() {
+        Map<String, Long> durations = Application.getStartupGraph().getDurations();
+        // The region has to be set before the first activity is created
+        assertNotNull(durations.get("region"));
+    }
+
+    private static String describe(String task) {
+        return task + (Looper.myLooper() == Looper.getMainLooper() ? " main" : " background");
+    }
+}
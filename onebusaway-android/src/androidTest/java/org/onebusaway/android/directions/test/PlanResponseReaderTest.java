@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.directions.test;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.directions.util.JacksonConfig;
+import org.onebusaway.android.directions.util.PlanResponseReader;
+import org.onebusaway.android.mock.Resources;
+import org.opentripplanner.api.model.Itinerary;
+import org.opentripplanner.api.ws.Response;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+/**
+ * Tests reading OTP plan responses an itinerary at a time, and compares the time taken to parse
+ * a plan with a new (cold) reader and with the shared (warm) one
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlanResponseReaderTest {
+
+    private static final String TAG = "PlanResponseReaderTest";
+
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void testStreamsItineraries() throws IOException {
+        byte[] json = readRaw("otp_plan_tampa");
+        final List<Itinerary> streamed = new ArrayList<>();
+        Response response = PlanResponseReader.read(new ByteArrayInputStream(json),
+                (itinerary, index) -> {
+                    assertEquals(streamed.size(), index);
+                    streamed.add(itinerary);
+                });
+
+        assertNotNull(response.getPlan());
+        List<Itinerary> itineraries = response.getPlan().getItinerary();
+        assertEquals(3, streamed.size());
+        assertEquals(3, itineraries.size());
+        for (int i = 0; i < itineraries.size(); i++) {
+            assertSame(streamed.get(i), itineraries.get(i));
+        }
+
+        // Same result as binding the whole response at once
+        Response bound = JacksonConfig.getObjectReaderInstance().readValue(json);
+        List<Itinerary> expected = bound.getPlan().getItinerary();
+        assertEquals(expected.size(), itineraries.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals((long) expected.get(i).duration, (long) itineraries.get(i).duration);
+            assertEquals(expected.get(i).startTime, itineraries.get(i).startTime);
+            assertEquals(expected.get(i).legs.size(), itineraries.get(i).legs.size());
+        }
+        assertEquals(1500L, (long) itineraries.get(0).duration);
+        assertEquals(2, itineraries.get(0).legs.size());
+    }
+
+    @Test
+    public void testNoPath() throws IOException {
+        byte[] json = readRaw("otp_plan_no_path");
+        Response response = PlanResponseReader.read(new ByteArrayInputStream(json), null);
+        assertNull(response.getPlan());
+        assertEquals(404, response.getError().getId());
+    }
+
+    @Test
+    public void testColdAndWarmParse() throws IOException {
+        byte[] json = readRaw("otp_plan_tampa");
+
+        // A new mapper has to build its deserializers before it can parse anything
+        long cold = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            ObjectReader reader = JacksonConfig.createObjectMapper().readerFor(Response.class);
+            Response response = reader.readValue(json);
+            cold += System.nanoTime() - start;
+            assertNotNull(response.getPlan());
+        }
+
+        long warm = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            Response response = JacksonConfig.getObjectReaderInstance().readValue(json);
+            warm += System.nanoTime() - start;
+            assertNotNull(response.getPlan());
+        }
+
+        long streamed = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            Response response = PlanResponseReader.read(new ByteArrayInputStream(json), null);
+            streamed += System.nanoTime() - start;
+            assertNotNull(response.getPlan());
+        }
+
+        Log.d(TAG, "Cold reader: " + (cold / ITERATIONS / 1000) + " us per plan, warm reader: "
+                + (warm / ITERATIONS / 1000) + " us per plan, streamed: "
+                + (streamed / ITERATIONS / 1000) + " us per plan");
+    }
+
+    private static byte[] readRaw(String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = Resources.open(getTargetContext(), Resources.getTestUri(name));
+        try {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.io.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onebusaway.android.app.Application;
+import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.ObaConnectionFactory;
+import org.onebusaway.android.io.ObaDefaultConnectionFactory;
+import org.onebusaway.android.io.ObaOkHttpConnectionFactory;
+import org.onebusaway.android.io.request.ObaRouteRequest;
+import org.onebusaway.android.io.request.ObaRouteResponse;
+import org.onebusaway.android.io.request.ObaStopsForLocationRequest;
+import org.onebusaway.android.io.request.ObaStopsForLocationResponse;
+import org.onebusaway.android.mock.MockConnectionFactory;
+import org.onebusaway.android.mock.Resources;
+import org.onebusaway.android.util.LocationUtils;
+
+import android.location.Location;
+import android.net.Uri;
+import android.net.http.HttpResponseCache;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSink;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Replays the recorded responses in /res/raw from a local HTTP server and compares the latency
+ * of the default and pooled connection factories, and checks that static data is cached
+ */
+public class ConnectionFactoryLatencyTest extends ObaTestCase {
+
+    private static final String TAG = "ConnectionFactoryTest";
+
+    private static final int ITERATIONS = 10;
+
+    private MockWebServer mServer;
+
+    @Before
+    public void startServer() throws IOException {
+        final MockConnectionFactory.UriMap uriMap =
+                new MockConnectionFactory(getTargetContext()).getUriMap();
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String response = uriMap.getUri(Uri.parse(request.getRequestUrl().toString()));
+                if ("__404__".equals(response)) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                try {
+                    return readResponse(response, request.getHeader("Accept-Encoding"));
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        });
+        mServer.start();
+        Application.get().setCustomApiUrl(mServer.url("/").toString());
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void testDefaultConnectionFactory() {
+        long nanos = timeRequests(ObaDefaultConnectionFactory.getInstance());
+        Log.d(TAG, "Default factory: " + (nanos / ITERATIONS / 1000) + " us per request");
+    }
+
+    @Test
+    public void testPooledConnectionFactory() throws InterruptedException {
+        long nanos = timeRequests(ObaOkHttpConnectionFactory.getInstance());
+        Log.d(TAG, "Pooled factory: " + (nanos / ITERATIONS / 1000) + " us per request");
+
+        // Requests after the first should have reused the same connection
+        RecordedRequest last = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            last = mServer.takeRequest();
+        }
+        assertTrue(last.getSequenceNumber() > 0);
+        assertEquals("br,gzip", last.getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void testPooledFactoryCachesStaticResponses() {
+        ObaApi.getDefaultContext().setConnectionFactory(ObaOkHttpConnectionFactory.getInstance());
+        ObaRouteResponse response = ObaRouteRequest.newRequest(getTargetContext(), "1_10").call();
+        assertOK(response);
+        int requestCount = mServer.getRequestCount();
+
+        // The route is static data, so a repeated request should be served from the cache
+        response = ObaRouteRequest.newRequest(getTargetContext(), "1_10").call();
+        assertOK(response);
+        assertEquals("1_10", response.getId());
+        assertEquals(requestCount, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testDefaultFactoryCachesOnlyStaticResponses() {
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        ObaRouteResponse response = ObaRouteRequest.newRequest(getTargetContext(), "1_10").call();
+        assertOK(response);
+        int requestCount = mServer.getRequestCount();
+
+        response = ObaRouteRequest.newRequest(getTargetContext(), "1_10").call();
+        assertOK(response);
+        assertEquals(requestCount, mServer.getRequestCount());
+
+        // Other requests, and other HttpURLConnections in the app, don't use a cache
+        assertNull(HttpResponseCache.getInstalled());
+        timeRequests(ObaDefaultConnectionFactory.getInstance());
+        assertEquals(requestCount + ITERATIONS, mServer.getRequestCount());
+    }
+
+    private long timeRequests(ObaConnectionFactory factory) {
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+        final Location pt = LocationUtils.makeLocation(47.610980, -122.33845);
+        long nanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            ObaStopsForLocationResponse response =
+                    new ObaStopsForLocationRequest.Builder(getTargetContext(), pt)
+                            .build()
+                            .call();
+            nanos += System.nanoTime() - start;
+            assertOK(response);
+            assertTrue(response.getStops().length > 0);
+        }
+        return nanos;
+    }
+
+    private MockResponse readResponse(String name, String acceptEncoding) throws IOException {
+        Buffer body = new Buffer();
+        InputStream in = Resources.open(getTargetContext(), Resources.getTestUri(name));
+        try {
+            body.readFrom(in);
+        } finally {
+            in.close();
+        }
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "application/json;charset=UTF-8");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            Buffer gzipped = new Buffer();
+            GzipSink sink = new GzipSink(gzipped);
+            sink.write(body, body.size());
+            sink.close();
+            return response.setHeader("Content-Encoding", "gzip").setBody(gzipped);
+        }
+        return response.setBody(body);
+    }
+}
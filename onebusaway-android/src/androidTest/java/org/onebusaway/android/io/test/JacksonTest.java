@@ -15,18 +15,27 @@
  */
 package org.onebusaway.android.io.test;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
 
 import org.junit.Test;
 import org.onebusaway.android.io.JacksonSerializer;
 import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.request.ObaArrivalInfoResponse;
 import org.onebusaway.android.io.request.ObaResponse;
 import org.onebusaway.android.io.request.ObaStopsForLocationResponse;
 import org.onebusaway.android.mock.Resources;
 
 import android.util.Log;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
 
 import static androidx.test.InstrumentationRegistry.getTargetContext;
 import static junit.framework.Assert.assertEquals;
@@ -43,6 +52,16 @@ public class JacksonTest extends ObaTestCase {
 
     protected JacksonSerializer mSerializer;
 
+    // Configured like the serializer's mapper, for the tree binding mode used in the benchmark
+    private static final ObjectMapper sTreeMapper = new ObjectMapper();
+
+    static {
+        sTreeMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        sTreeMapper.setVisibilityChecker(
+                VisibilityChecker.Std.defaultInstance()
+                        .withFieldVisibility(JsonAutoDetect.Visibility.ANY));
+    }
+
     @Test
     public void testPrimitive() {
         mSerializer = (JacksonSerializer) JacksonSerializer.getInstance();
@@ -83,6 +102,99 @@ public class JacksonTest extends ObaTestCase {
         assertNotNull(response);
     }
 
+    @Test
+    public void testStopsForLocationInputStream() throws Exception {
+        InputStream in = Resources
+                .open(getTargetContext(), Resources.getTestUri("stops_for_location_downtown_seattle"));
+        ObaApi.SerializationHandler serializer = ObaApi
+                .getSerializer(ObaStopsForLocationResponse.class);
+        ObaStopsForLocationResponse response = serializer
+                .deserialize(in, ObaStopsForLocationResponse.class);
+        assertOK(response);
+    }
+
+    @Test
+    public void testEmptyContent() throws Exception {
+        mSerializer = (JacksonSerializer) JacksonSerializer.getInstance();
+        ObaResponse response = mSerializer
+                .deserialize(new StringReader(""), ObaResponse.class);
+        assertEquals(ObaApi.OBA_INTERNAL_ERROR, response.getCode());
+    }
+
+    /**
+     * Compares the streaming binding mode against the previous readTree() + TreeTraversingParser
+     * mode on the largest recorded responses, and logs the time taken by each
+     */
+    @Test
+    public void testStreamingVsTreeBenchmark() throws Exception {
+        mSerializer = (JacksonSerializer) JacksonSerializer.getInstance();
+        final int iterations = 20;
+
+        String[] stopsForLocation = {"stops_for_location_downtown_seattle",
+                "stops_for_location_downtown_seattle1"};
+        String[] arrivals = {"arrivals_and_departures_for_stop_1_10020",
+                "arrivals_and_departures_for_stop_1_29261",
+                "arrivals_and_departures_for_stop_mts_13353_route_and_stop_alerts"};
+
+        for (String name : stopsForLocation) {
+            ObaStopsForLocationResponse tree = deserializeTree(readTestResource(name),
+                    ObaStopsForLocationResponse.class);
+            ObaStopsForLocationResponse stream = mSerializer.deserialize(readTestResource(name),
+                    ObaStopsForLocationResponse.class);
+            assertOK(tree);
+            assertOK(stream);
+            assertEquals(tree.getStops().length, stream.getStops().length);
+            logBenchmark(name, ObaStopsForLocationResponse.class, iterations);
+        }
+
+        for (String name : arrivals) {
+            ObaArrivalInfoResponse tree = deserializeTree(readTestResource(name),
+                    ObaArrivalInfoResponse.class);
+            ObaArrivalInfoResponse stream = mSerializer.deserialize(readTestResource(name),
+                    ObaArrivalInfoResponse.class);
+            assertOK(tree);
+            assertOK(stream);
+            assertEquals(tree.getArrivalInfo().length, stream.getArrivalInfo().length);
+            assertEquals(tree.getStop().getId(), stream.getStop().getId());
+            logBenchmark(name, ObaArrivalInfoResponse.class, iterations);
+        }
+    }
+
+    /**
+     * Binds the JSON by first reading all of it into a JsonNode tree, as the serializer did
+     * before it streamed responses directly into the POJOs
+     */
+    private static <T> T deserializeTree(Reader reader, Class<T> cls) throws IOException {
+        try {
+            JsonNode node = sTreeMapper.readTree(reader);
+            return sTreeMapper.treeToValue(node, cls);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Reader readTestResource(String name) throws IOException {
+        return Resources.read(getTargetContext(), Resources.getTestUri(name));
+    }
+
+    private <T> void logBenchmark(String name, Class<T> cls, int iterations) throws IOException {
+        long treeNanos = 0;
+        long streamNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            Reader reader = readTestResource(name);
+            long start = System.nanoTime();
+            assertNotNull(deserializeTree(reader, cls));
+            treeNanos += System.nanoTime() - start;
+
+            reader = readTestResource(name);
+            start = System.nanoTime();
+            assertNotNull(mSerializer.deserialize(reader, cls));
+            streamNanos += System.nanoTime() - start;
+        }
+        Log.d("JacksonTest", name + " - tree: " + (treeNanos / iterations / 1000)
+                + " us, streaming: " + (streamNanos / iterations / 1000) + " us");
+    }
+
     @JsonPropertyOrder(value = {"code", "version", "text"})
     public class MockResponse {
 
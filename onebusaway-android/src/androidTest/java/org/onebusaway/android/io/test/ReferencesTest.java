@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.io.test;
+
+import org.junit.Test;
+import org.onebusaway.android.io.JacksonSerializer;
+import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.elements.ObaReferencesElement;
+import org.onebusaway.android.io.elements.ObaRoute;
+import org.onebusaway.android.io.elements.ObaTrip;
+
+import android.util.Log;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * Tests dereferencing ids in the references element of OBA responses, using a large synthetic
+ * references block
+ */
+public class ReferencesTest extends ObaTestCase {
+
+    private static final String TAG = "ReferencesTest";
+
+    private static final int ROUTE_COUNT = 500;
+
+    private static final int TRIP_COUNT = 5000;
+
+    @Test
+    public void testLookups() {
+        ObaReferencesElement refs = buildReferences();
+
+        ObaRoute route = refs.getRoute("1_" + (ROUTE_COUNT - 1));
+        assertNotNull(route);
+        assertEquals("1_" + (ROUTE_COUNT - 1), route.getId());
+        assertNull(refs.getRoute("missing"));
+
+        ObaTrip trip = refs.getTrip("1_trip_0");
+        assertNotNull(trip);
+        assertEquals("1_" + (ROUTE_COUNT - 1), trip.getRouteId());
+
+        List<ObaTrip> trips = refs.getTrips(new String[]{"1_trip_3", "missing", "1_trip_1"});
+        assertEquals(2, trips.size());
+        assertEquals("1_trip_3", trips.get(0).getId());
+        assertEquals("1_trip_1", trips.get(1).getId());
+    }
+
+    /**
+     * Compares resolving every trip and its route through the references element against a
+     * linear search over all routes, which was how references were previously resolved
+     */
+    @Test
+    public void testLookupBenchmark() {
+        ObaReferencesElement refs = buildReferences();
+        List<ObaRoute> allRoutes = refs.getRoutes();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TRIP_COUNT; i++) {
+            ObaTrip trip = refs.getTrip("1_trip_" + i);
+            assertNotNull(refs.getRoute(trip.getRouteId()));
+        }
+        long indexedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < TRIP_COUNT; i++) {
+            ObaTrip trip = refs.getTrip("1_trip_" + i);
+            assertNotNull(findLinear(allRoutes, trip.getRouteId()));
+        }
+        long linearNanos = System.nanoTime() - start;
+
+        Log.d(TAG, TRIP_COUNT + " trips, " + ROUTE_COUNT + " routes - indexed: "
+                + (indexedNanos / 1000) + " us, linear: " + (linearNanos / 1000) + " us");
+    }
+
+    private static ObaRoute findLinear(List<ObaRoute> routes, String id) {
+        for (ObaRoute route : routes) {
+            if (route.getId().equals(id)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static ObaReferencesElement buildReferences() {
+        StringBuilder json = new StringBuilder("{\"routes\":[");
+        for (int i = 0; i < ROUTE_COUNT; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"1_").append(i).append("\",\"shortName\":\"").append(i)
+                    .append("\",\"agencyId\":\"1\",\"type\":3}");
+        }
+        json.append("],\"trips\":[");
+        for (int i = 0; i < TRIP_COUNT; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            // Assign routes starting from the end of the route list, the worst case for a scan
+            json.append("{\"id\":\"1_trip_").append(i).append("\",\"routeId\":\"1_")
+                    .append(ROUTE_COUNT - 1 - (i % ROUTE_COUNT)).append("\"}");
+        }
+        json.append("]}");
+        ObaApi.SerializationHandler serializer = JacksonSerializer.getInstance();
+        return serializer.deserializeFromResponse(json.toString(), ObaReferencesElement.class);
+    }
+}
@@ -17,16 +17,29 @@ package org.onebusaway.android.io.test;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.onebusaway.android.io.elements.ObaShape;
 import org.onebusaway.android.io.elements.ObaShapeElement;
+import org.onebusaway.android.io.elements.ShapeGeometry;
+import org.onebusaway.android.io.request.ObaShapeResponse;
+import org.onebusaway.android.io.request.ObaStopsForRouteResponse;
+import org.onebusaway.android.mock.Resources;
+import org.onebusaway.android.util.LocationUtils;
 
 import android.location.Location;
+import android.util.Log;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import androidx.test.runner.AndroidJUnit4;
 
+import static androidx.test.InstrumentationRegistry.getTargetContext;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * Tests decoding polylines and levels returned by ShapeRequest
@@ -34,6 +47,10 @@ import static junit.framework.Assert.assertNotNull;
 @RunWith(AndroidJUnit4.class)
 public class ShapeTest {
 
+    private static final String TAG = "ShapeTest";
+
+    private static final int ITERATIONS = 200;
+
     @Test
     public void testDecodeLines() {
         List<Location> list = ObaShapeElement.decodeLine("_p~iF~ps|U", 1);
@@ -79,4 +96,127 @@ public class ShapeTest {
         assertEquals(3, (int) list.get(2));
         assertEquals(3, (int) list.get(3));
     }
+
+    @Test
+    public void testDecodeGeometry() {
+        ShapeGeometry geometry = ShapeGeometry.decode("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 3);
+        assertEquals(3, geometry.size());
+        assertEquals(3850000, geometry.getLatitudeE5(0));
+        assertEquals(-12020000, geometry.getLongitudeE5(0));
+        assertEquals(40700000 / 1E6, geometry.getLatitude(1));
+        assertEquals(-120950000 / 1E6, geometry.getLongitude(1));
+        assertEquals(43252000 / 1E6, geometry.getLatitude(2));
+        assertEquals(-126453000 / 1E6, geometry.getLongitude(2));
+
+        // The number of points is only a hint
+        assertEquals(3, ShapeGeometry.decode("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 0).size());
+        assertEquals(3, ShapeGeometry.decode("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 10).size());
+        assertEquals(0, ShapeGeometry.get("", 0).size());
+
+        // Decoded shapes are reused
+        assertSame(ShapeGeometry.get("_p~iF~ps|U_ulLnnqC", 2),
+                ShapeGeometry.get("_p~iF~ps|U_ulLnnqC", 2));
+
+        List<Location> locations = geometry.toLocations();
+        assertEquals(ObaShapeElement.decodeLine("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 3).get(2)
+                .getLatitude(), locations.get(2).getLatitude());
+    }
+
+    /**
+     * Compares decoding real route shapes into Location objects and into packed arrays
+     */
+    @Test
+    public void testDecodeBenchmark() throws IOException {
+        List<ObaShape> shapes = new ArrayList<>();
+        ObaStopsForRouteResponse route = Resources.readAs(getTargetContext(),
+                Resources.getTestUri("stops_for_route_1_44"), ObaStopsForRouteResponse.class);
+        Collections.addAll(shapes, route.getShapes());
+        shapes.add(Resources.readAs(getTargetContext(),
+                Resources.getTestUri("shape_1_40046045"), ObaShapeResponse.class));
+
+        int points = 0;
+        for (ObaShape shape : shapes) {
+            ShapeGeometry geometry = ShapeGeometry.decode(shape.getRawPoints(),
+                    shape.getLength());
+            List<Location> locations = ObaShapeElement.decodeLine(shape.getRawPoints(),
+                    shape.getLength());
+            assertEquals(locations.size(), geometry.size());
+            for (int i = 0; i < geometry.size(); i++) {
+                assertEquals(locations.get(i).getLatitude(), geometry.getLatitude(i));
+                assertEquals(locations.get(i).getLongitude(), geometry.getLongitude(i));
+            }
+            points += geometry.size();
+        }
+        assertTrue(points > 0);
+
+        long locationNanos = 0;
+        long geometryNanos = 0;
+        for (int n = 0; n < ITERATIONS; n++) {
+            long start = System.nanoTime();
+            for (ObaShape shape : shapes) {
+                ObaShapeElement.decodeLine(shape.getRawPoints(), shape.getLength());
+            }
+            locationNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (ObaShape shape : shapes) {
+                ShapeGeometry.decode(shape.getRawPoints(), shape.getLength());
+            }
+            geometryNanos += System.nanoTime() - start;
+        }
+
+        // Decoding to Locations allocates a list and a Location per point, and the packed
+        // geometry allocates a single int array
+        Log.d(TAG, shapes.size() + " shapes, " + points + " points: Locations "
+                + (locationNanos / ITERATIONS / 1000) + " us and " + (points + shapes.size())
+                + " objects, packed " + (geometryNanos / ITERATIONS / 1000) + " us and "
+                + shapes.size() + " arrays of " + (points * 8) + " bytes");
+    }
+
+    @Test
+    public void testSimplify() {
+        // A straight line north with a point every ~11 meters, and a 1 km detour east halfway
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            points.add(LocationUtils.makeLocation(47.6 + i * 0.0001, i == 50 ? -122.3 : -122.31));
+        }
+        ShapeGeometry geometry = ShapeGeometry.fromLocations(points);
+        assertEquals(47.6, geometry.getMinLatitude(), 1E-9);
+        assertEquals(47.61, geometry.getMaxLatitude(), 1E-9);
+        assertEquals(-122.31, geometry.getMinLongitude(), 1E-9);
+        assertEquals(-122.3, geometry.getMaxLongitude(), 1E-9);
+
+        // Only the ends and the detour are left
+        ShapeGeometry simplified = geometry.forZoom(14);
+        assertEquals(5, simplified.size());
+        assertEquals(-122.3, simplified.getLongitude(2), 1E-9);
+        assertEquals(47.61, simplified.getLatitude(4), 1E-9);
+        assertSame(simplified, geometry.forZoom(14.5f));
+
+        // Full detail when zoomed in, and the same simplified shape for all low zoom levels
+        assertSame(geometry, geometry.forZoom(ShapeGeometry.FULL_DETAIL_ZOOM));
+        assertSame(geometry.forZoom(2), geometry.forZoom(8));
+    }
+
+    @Test
+    public void testSimplifyRouteShape() throws IOException {
+        ObaShapeResponse shape = Resources.readAs(getTargetContext(),
+                Resources.getTestUri("shape_1_40046045"), ObaShapeResponse.class);
+        ShapeGeometry geometry = shape.getGeometry();
+        int previous = 0;
+        StringBuilder counts = new StringBuilder();
+        for (int zoom = 8; zoom <= ShapeGeometry.FULL_DETAIL_ZOOM; zoom++) {
+            ShapeGeometry simplified = geometry.forZoom(zoom);
+            // More detail as the map is zoomed in, and always the same ends
+            assertTrue(simplified.size() >= previous);
+            assertEquals(geometry.getLatitudeE5(0), simplified.getLatitudeE5(0));
+            assertEquals(geometry.getLongitudeE5(geometry.size() - 1),
+                    simplified.getLongitudeE5(simplified.size() - 1));
+            previous = simplified.size();
+            counts.append(" z").append(zoom).append('=').append(simplified.size());
+        }
+        assertEquals(geometry.size(), previous);
+        assertTrue(geometry.forZoom(10).size() < geometry.size());
+        Log.d(TAG, "Points by zoom level:" + counts);
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map.test;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.io.elements.ObaStop;
+import org.onebusaway.android.io.elements.ObaStopElement;
+import org.onebusaway.android.map.StopMarkerLayout;
+import org.onebusaway.android.map.StopTileCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests the clustering and eviction of stop markers on the map
+ */
+@RunWith(AndroidJUnit4.class)
+public class StopMarkerLayoutTest {
+
+    // Three stops within a block in downtown Seattle, and one about 5 km north
+    private static final ObaStop STOP_A = new ObaStopElement("1_100", 47.6100, -122.3400, "A", "100");
+
+    private static final ObaStop STOP_B = new ObaStopElement("1_200", 47.6102, -122.3402, "B", "200");
+
+    private static final ObaStop STOP_C = new ObaStopElement("1_300", 47.6098, -122.3398, "C", "300");
+
+    private static final ObaStop STOP_D = new ObaStopElement("1_400", 47.6550, -122.3400, "D", "400");
+
+    @Test
+    public void testNoClustersWhenZoomedIn() {
+        List<StopMarkerLayout.Item> items = StopMarkerLayout.layout(
+                Arrays.asList(STOP_A, STOP_B, STOP_C, STOP_D),
+                StopMarkerLayout.MAX_CLUSTER_ZOOM + 1, null);
+        assertEquals(4, items.size());
+        for (StopMarkerLayout.Item item : items) {
+            assertFalse(item.isCluster());
+            assertEquals(item.getStop().getId(), item.getKey());
+        }
+    }
+
+    @Test
+    public void testClusters() {
+        List<StopMarkerLayout.Item> items = StopMarkerLayout.layout(
+                Arrays.asList(STOP_A, STOP_B, STOP_C, STOP_D), 13.5f, null);
+        assertEquals(2, items.size());
+        StopMarkerLayout.Item cluster = items.get(0);
+        assertTrue(cluster.isCluster());
+        assertEquals(3, cluster.size());
+        assertEquals(47.61, cluster.getLatitude(), 1E-6);
+        assertEquals(-122.34, cluster.getLongitude(), 1E-6);
+        assertEquals(STOP_D.getId(), items.get(1).getKey());
+
+        // The focused stop isn't clustered, and the cluster key changes with its size
+        items = StopMarkerLayout.layout(Arrays.asList(STOP_A, STOP_B, STOP_C, STOP_D), 13.5f,
+                STOP_B.getId());
+        assertEquals(3, items.size());
+        assertEquals(STOP_B.getId(), items.get(0).getKey());
+        assertEquals(2, items.get(1).size());
+        assertFalse(cluster.getKey().equals(items.get(1).getKey()));
+    }
+
+    @Test
+    public void testEvictFarthestStops() {
+        StopTileCache.Bounds viewport = new StopTileCache.Bounds(47.60, -122.35, 47.62, -122.33);
+        List<ObaStop> stops = new ArrayList<>();
+        // Least recently used first
+        stops.add(new ObaStopElement("1_1", 47.70, -122.34, "Far north", "1"));
+        stops.add(new ObaStopElement("1_2", 47.63, -122.34, "Near north", "2"));
+        stops.add(new ObaStopElement("1_3", 47.50, -122.34, "Farthest south", "3"));
+        stops.add(STOP_A);
+        stops.add(STOP_B);
+        stops.add(new ObaStopElement("1_4", 47.61, -122.20, "East", "4"));
+
+        // Under the limit
+        assertTrue(StopMarkerLayout.selectEvictions(stops, viewport, 6, null).isEmpty());
+
+        // Down to 3 of a max of 4 stops, farthest first, skipping the kept stop
+        List<String> evicted = StopMarkerLayout.selectEvictions(stops, viewport, 4, "1_1");
+        assertEquals(Arrays.asList("1_3", "1_4", "1_2"), evicted);
+
+        // Stops in the viewport are never evicted
+        evicted = StopMarkerLayout.selectEvictions(stops, viewport, 1, null);
+        assertEquals(4, evicted.size());
+        assertFalse(evicted.contains(STOP_A.getId()));
+        assertFalse(evicted.contains(STOP_B.getId()));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map.test;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.io.JacksonSerializer;
+import org.onebusaway.android.io.request.ObaStopsForLocationResponse;
+import org.onebusaway.android.map.StopTileCache;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests the spatial stop cache used by the map
+ */
+@RunWith(AndroidJUnit4.class)
+public class StopTileCacheTest {
+
+    // A 4 x 4 tile area in downtown Seattle, aligned to tile edges
+    private static final StopTileCache.Bounds AREA =
+            new StopTileCache.Bounds(47.60, -122.35, 47.64, -122.31);
+
+    @Test
+    public void testEmptyCacheIsIncomplete() {
+        StopTileCache cache = new StopTileCache();
+        StopTileCache.Result result = cache.query(AREA);
+        assertNotNull(result);
+        assertFalse(result.isComplete());
+        assertTrue(result.getStops().isEmpty());
+        assertEquals(AREA.minLat, result.getMissingBounds().minLat, 1E-9);
+        assertEquals(AREA.maxLon, result.getMissingBounds().maxLon, 1E-9);
+    }
+
+    @Test
+    public void testPanWithinCoveredArea() {
+        StopTileCache cache = new StopTileCache();
+        cache.put(AREA, buildResponse(false));
+
+        // Viewport inside the fetched area is served entirely from the cache
+        StopTileCache.Bounds inside = new StopTileCache.Bounds(47.615, -122.345, 47.625, -122.335);
+        StopTileCache.Result result = cache.query(inside);
+        assertTrue(result.isComplete());
+        assertEquals(1, result.getStops().size());
+        assertEquals("1_100", result.getStops().get(0).getId());
+        assertEquals("1_10", result.getRefs().getRoutes().get(0).getId());
+
+        // Panning partially outside only requests the uncovered tiles
+        StopTileCache.Bounds east = new StopTileCache.Bounds(47.615, -122.315, 47.625, -122.305);
+        result = cache.query(east);
+        assertFalse(result.isComplete());
+        assertEquals(-122.31, result.getMissingBounds().minLon, 1E-9);
+        assertEquals(-122.30, result.getMissingBounds().maxLon, 1E-9);
+    }
+
+    @Test
+    public void testLimitExceededIsIncomplete() {
+        StopTileCache cache = new StopTileCache();
+        cache.put(AREA, buildResponse(true));
+        StopTileCache.Result result = cache.query(AREA);
+        assertFalse(result.isComplete());
+        // The stops we did get are still returned
+        assertEquals(2, result.getStops().size());
+    }
+
+    @Test
+    public void testZoomedOut() {
+        StopTileCache cache = new StopTileCache();
+        assertNull(cache.query(new StopTileCache.Bounds(47.0, -123.0, 48.0, -122.0)));
+    }
+
+    @Test
+    public void testServerChangeClearsCache() {
+        StopTileCache cache = new StopTileCache();
+        cache.setServerKey("1");
+        cache.put(AREA, buildResponse(false));
+        assertTrue(cache.query(AREA).isComplete());
+        cache.setServerKey("2");
+        assertFalse(cache.query(AREA).isComplete());
+    }
+
+    private static ObaStopsForLocationResponse buildResponse(boolean limitExceeded) {
+        String json = "{\"code\":200,\"version\":2,\"text\":\"OK\",\"data\":{"
+                + "\"limitExceeded\":" + limitExceeded + ",\"outOfRange\":false,"
+                + "\"list\":["
+                + "{\"id\":\"1_100\",\"lat\":47.62,\"lon\":-122.34,\"name\":\"A\",\"code\":\"100\","
+                + "\"routeIds\":[\"1_10\"]},"
+                + "{\"id\":\"1_200\",\"lat\":47.605,\"lon\":-122.315,\"name\":\"B\",\"code\":\"200\","
+                + "\"routeIds\":[\"1_10\"]}],"
+                + "\"references\":{\"routes\":[{\"id\":\"1_10\",\"shortName\":\"10\","
+                + "\"agencyId\":\"1\",\"type\":3}]}}}";
+        return JacksonSerializer.getInstance()
+                .deserializeFromResponse(json, ObaStopsForLocationResponse.class);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.io.elements.ObaShape;
+import org.onebusaway.android.io.elements.ShapeGeometry;
+import org.onebusaway.android.map.VehiclePositionEstimator;
+import org.onebusaway.android.util.LocationUtils;
+
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests moving vehicles along a route shape between real-time fixes
+ */
+@RunWith(AndroidJUnit4.class)
+public class VehiclePositionEstimatorTest {
+
+    private static final String TRIP_ID = "1_1234";
+
+    private static final double LON = -82.4;
+
+    // About 111 meters of latitude
+    private static final double STEP = 0.001;
+
+    private static final long FIX_TIME = 1700000000000L;
+
+    private static final long ELAPSED = 100000;
+
+    private VehiclePositionEstimator mEstimator;
+
+    @Before
+    public void before() {
+        // A straight shape running north for about 1.1 km
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            points.add(LocationUtils.makeLocation(28.0 + i * STEP, LON));
+        }
+        mEstimator = new VehiclePositionEstimator();
+        mEstimator.setShapes(Collections.singletonList(new TestShape(points)));
+    }
+
+    @Test
+    public void testFirstFixIsNotExtrapolated() {
+        mEstimator.update(TRIP_ID, 28.0, LON + 0.0001, FIX_TIME, FIX_TIME, ELAPSED);
+        VehiclePositionEstimator.Estimate e = mEstimator.estimate(TRIP_ID, ELAPSED + 10000);
+        assertNotNull(e);
+        assertFalse(e.isMoving());
+        // Snapped onto the shape, but not moved along it
+        assertEquals(28.0, e.getLatitude(), 1E-6);
+        assertEquals(LON, e.getLongitude(), 1E-6);
+    }
+
+    @Test
+    public void testExtrapolatesAlongShape() {
+        mEstimator.update(TRIP_ID, 28.0, LON, FIX_TIME, FIX_TIME, ELAPSED);
+        mEstimator.update(TRIP_ID, 28.0 + STEP, LON, FIX_TIME + 10000, FIX_TIME + 10000,
+                ELAPSED + 10000);
+
+        // Half of the distance between the fixes in half of the time
+        VehiclePositionEstimator.Estimate e = mEstimator.estimate(TRIP_ID, ELAPSED + 15000);
+        assertNotNull(e);
+        assertTrue(e.isMoving());
+        assertEquals(28.0 + 1.5 * STEP, e.getLatitude(), 1E-5);
+        assertEquals(LON, e.getLongitude(), 1E-6);
+        // Heading north
+        assertTrue(e.getBearing() < 1 || e.getBearing() > 359);
+
+        // Repeating the same fix doesn't reset the estimate
+        mEstimator.update(TRIP_ID, 28.0 + STEP, LON, FIX_TIME + 10000, FIX_TIME + 20000,
+                ELAPSED + 20000);
+        e = mEstimator.estimate(TRIP_ID, ELAPSED + 15000);
+        assertEquals(28.0 + 1.5 * STEP, e.getLatitude(), 1E-5);
+    }
+
+    @Test
+    public void testFixAgeIsIncluded() {
+        mEstimator.update(TRIP_ID, 28.0, LON, FIX_TIME, FIX_TIME, ELAPSED);
+        // The second fix was already 5 seconds old when the server responded
+        mEstimator.update(TRIP_ID, 28.0 + STEP, LON, FIX_TIME + 10000, FIX_TIME + 15000,
+                ELAPSED + 15000);
+
+        VehiclePositionEstimator.Estimate e = mEstimator.estimate(TRIP_ID, ELAPSED + 15000);
+        assertEquals(28.0 + 1.5 * STEP, e.getLatitude(), 1E-5);
+    }
+
+    @Test
+    public void testExtrapolationIsLimited() {
+        mEstimator.update(TRIP_ID, 28.0, LON, FIX_TIME, FIX_TIME, ELAPSED);
+        mEstimator.update(TRIP_ID, 28.0 + STEP, LON, FIX_TIME + 10000, FIX_TIME + 10000,
+                ELAPSED + 10000);
+
+        // No more than 45 seconds past the last fix, at about 11 m/s
+        VehiclePositionEstimator.Estimate e = mEstimator.estimate(TRIP_ID, ELAPSED + 600000);
+        assertEquals(28.0 + 5.5 * STEP, e.getLatitude(), 1E-5);
+
+        // Never past the end of the shape
+        mEstimator.update(TRIP_ID, 28.0 + 9 * STEP, LON, FIX_TIME + 20000, FIX_TIME + 20000,
+                ELAPSED + 20000);
+        mEstimator.update(TRIP_ID, 28.0 + 9.5 * STEP, LON, FIX_TIME + 25000, FIX_TIME + 25000,
+                ELAPSED + 25000);
+        e = mEstimator.estimate(TRIP_ID, ELAPSED + 60000);
+        assertEquals(28.0 + 10 * STEP, e.getLatitude(), 1E-6);
+        assertFalse(e.isMoving());
+    }
+
+    @Test
+    public void testVehicleOffShape() {
+        // About 1 km east of the shape
+        mEstimator.update(TRIP_ID, 28.005, LON + 0.01, FIX_TIME, FIX_TIME, ELAPSED);
+        assertNull(mEstimator.estimate(TRIP_ID, ELAPSED));
+
+        mEstimator.update(TRIP_ID, 28.005, LON, FIX_TIME + 10000, FIX_TIME + 10000,
+                ELAPSED + 10000);
+        assertNotNull(mEstimator.estimate(TRIP_ID, ELAPSED + 10000));
+        mEstimator.retain(Collections.<String>emptySet());
+        assertNull(mEstimator.estimate(TRIP_ID, ELAPSED + 10000));
+    }
+
+    private static class TestShape implements ObaShape {
+
+        private final List<Location> mPoints;
+
+        TestShape(List<Location> points) {
+            mPoints = points;
+        }
+
+        @Override
+        public int getLength() {
+            return mPoints.size();
+        }
+
+        @Override
+        public String getRawLevels() {
+            return "";
+        }
+
+        @Override
+        public List<Integer> getLevels() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Location> getPoints() {
+            return mPoints;
+        }
+
+        @Override
+        public ShapeGeometry getGeometry() {
+            return ShapeGeometry.fromLocations(mPoints);
+        }
+
+        @Override
+        public String getRawPoints() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map.test;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.io.JacksonSerializer;
+import org.onebusaway.android.io.request.ObaTripsForRouteResponse;
+import org.onebusaway.android.map.VehicleRefreshScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests how the route map decides when to refresh vehicles
+ */
+@RunWith(AndroidJUnit4.class)
+public class VehicleRefreshSchedulerTest {
+
+    private static final long T = 1700000000000L;
+
+    private static final long SEC = TimeUnit.SECONDS.toMillis(1);
+
+    @Test
+    public void testFollowsReportingPeriod() {
+        VehicleRefreshScheduler scheduler = new VehicleRefreshScheduler();
+        assertEquals(VehicleRefreshScheduler.DEFAULT_PERIOD, respond(scheduler, T, T + 5 * SEC));
+        // Both vehicles reported 30 seconds later
+        long period = respond(scheduler, T + 30 * SEC, T + 35 * SEC);
+        assertEquals(32 * SEC, period);
+        assertEquals(period, scheduler.getPeriod());
+
+        // Vehicles reporting very often are still refreshed at most every 10 seconds
+        scheduler.reset();
+        respond(scheduler, T, T);
+        respond(scheduler, T + SEC, T + SEC);
+        assertEquals(10 * SEC, scheduler.getPeriod());
+    }
+
+    @Test
+    public void testBacksOff() {
+        VehicleRefreshScheduler scheduler = new VehicleRefreshScheduler();
+        respond(scheduler, T, T);
+        // Nothing new in the next response
+        assertEquals(2 * VehicleRefreshScheduler.DEFAULT_PERIOD, respond(scheduler, T, T));
+        assertEquals(4 * VehicleRefreshScheduler.DEFAULT_PERIOD, respond(scheduler, T, T));
+        // A new report resets the back off
+        assertEquals(32 * SEC, respond(scheduler, T, T + 30 * SEC));
+
+        // Failures and battery saver back off too, up to two minutes
+        scheduler.startRequest();
+        assertEquals(60 * SEC, scheduler.onError(false));
+        scheduler.startRequest();
+        assertEquals(TimeUnit.MINUTES.toMillis(2), scheduler.onError(true));
+
+        // No real-time vehicles
+        scheduler.reset();
+        scheduler.startRequest();
+        assertEquals(TimeUnit.SECONDS.toMillis(60),
+                scheduler.onResponse(buildResponse(false, T, T), 0, false));
+    }
+
+    @Test
+    public void testCoalescesAndCounts() {
+        VehicleRefreshScheduler scheduler = new VehicleRefreshScheduler();
+        assertTrue(scheduler.startRequest());
+        assertFalse(scheduler.startRequest());
+        assertFalse(scheduler.startRequest());
+        scheduler.onResponse(buildResponse(true, T, T), 1000, false);
+        assertTrue(scheduler.startRequest());
+        scheduler.onResponse(buildResponse(true, T, T), 500, false);
+
+        assertEquals(2, scheduler.getRequestsIssued());
+        assertEquals(2, scheduler.getRequestsSkipped());
+        assertEquals(1500, scheduler.getBytesReceived());
+    }
+
+    private static long respond(VehicleRefreshScheduler scheduler, long update1, long update2) {
+        assertTrue(scheduler.startRequest());
+        return scheduler.onResponse(buildResponse(true, update1, update2), 0, false);
+    }
+
+    private static ObaTripsForRouteResponse buildResponse(boolean predicted, long update1,
+            long update2) {
+        String json = "{\"code\":200,\"version\":2,\"text\":\"OK\",\"data\":{"
+                + "\"limitExceeded\":false,\"outOfRange\":false,\"list\":["
+                + trip("1_1", predicted, update1) + ","
+                + trip("1_2", predicted, update2) + "],"
+                + "\"references\":{}}}";
+        return JacksonSerializer.getInstance()
+                .deserializeFromResponse(json, ObaTripsForRouteResponse.class);
+    }
+
+    private static String trip(String tripId, boolean predicted, long lastUpdateTime) {
+        return "{\"tripId\":\"" + tripId + "\",\"status\":{\"activeTripId\":\"" + tripId + "\","
+                + "\"predicted\":" + predicted + ",\"status\":\"default\","
+                + "\"lastUpdateTime\":" + lastUpdateTime + "}}";
+    }
+}
@@ -23,6 +23,8 @@ import android.util.Log;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.HttpURLConnection;
 
@@ -52,6 +54,16 @@ public class MockConnection implements ObaConnection {
 
     @Override
     public Reader get() throws IOException {
+        return new InputStreamReader(getInputStream(), "UTF-8");
+    }
+
+    @Override
+    public Reader post(String string) throws IOException {
+        throw new RuntimeException("Not implemented");
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
         Log.d(TAG, "Get URI: " + mUri);
         // Find a mock response for this URI.
         String response = mUriMap.getUri(mUri);
@@ -59,11 +71,11 @@ public class MockConnection implements ObaConnection {
             mResponseCode = HttpURLConnection.HTTP_NOT_FOUND;
             throw new FileNotFoundException();
         }
-        return Resources.read(mContext, Resources.getTestUri(response));
+        return Resources.open(mContext, Resources.getTestUri(response));
     }
 
     @Override
-    public Reader post(String string) throws IOException {
+    public InputStream postForInputStream(String string) throws IOException {
         throw new RuntimeException("Not implemented");
     }
 
@@ -71,4 +83,8 @@ public class MockConnection implements ObaConnection {
     public int getResponseCode() throws IOException {
         return mResponseCode;
     }
+
+    @Override
+    public void setCacheMaxStale(int maxStaleSeconds) {
+    }
 }
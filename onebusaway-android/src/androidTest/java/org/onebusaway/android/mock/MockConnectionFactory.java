@@ -43,6 +43,10 @@ public class MockConnectionFactory implements ObaConnectionFactory {
         }
     }
 
+    public UriMap getUriMap() {
+        return mUriMap;
+    }
+
     @Override
     public ObaConnection newConnection(Uri uri) throws IOException {
         return new MockConnection(mContext, mUriMap, uri);
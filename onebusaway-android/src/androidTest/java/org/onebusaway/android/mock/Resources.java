@@ -39,11 +39,18 @@ public class Resources {
         return Uri.withAppendedPath(TEST_RAW_URI, path);
     }
 
+    /**
+     * Open the raw bytes of a resource by Uri
+     */
+    public static InputStream open(Context context, Uri uri) throws IOException {
+        return context.getContentResolver().openInputStream(uri);
+    }
+
     /**
      * Read a resource by Uri
      */
     public static Reader read(Context context, Uri uri) throws IOException {
-        InputStream stream = context.getContentResolver().openInputStream(uri);
+        InputStream stream = open(context, uri);
         InputStreamReader reader = new InputStreamReader(stream, "UTF-8");
         return reader;
     }
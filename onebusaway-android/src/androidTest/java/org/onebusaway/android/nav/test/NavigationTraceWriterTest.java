@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.nav.test;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import android.location.Location;
+import android.util.Log;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.nav.NavigationTraceWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the buffered GPS trace writer used for destination reminder logs
+ */
+@RunWith(AndroidJUnit4.class)
+public class NavigationTraceWriterTest {
+
+    private static final String TAG = "NavTraceWriterTest";
+
+    private static final String HEADER = "1_123,1_456,28.0,-82.0,1_455,28.1,-82.1\n";
+
+    // One hour of 1 Hz fixes
+    private static final int FIX_COUNT = 3600;
+
+    @Test
+    public void testTraceMatchesCsvFormat() throws Exception {
+        File csv = createLog("trace-test.csv");
+        NavigationTraceWriter writer = new NavigationTraceWriter(csv);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FIX_COUNT; i++) {
+            writer.append(i, i > 100, i > 200, makeLocation(i), 7);
+        }
+        long elapsed = System.nanoTime() - start;
+        Log.d(TAG, "Appended " + FIX_COUNT + " fixes in " + (elapsed / 1000) + "us");
+
+        writer.finish();
+        assertTrue(writer.awaitFinish(10, TimeUnit.SECONDS));
+
+        // Appends after the trip ended are ignored
+        writer.append(FIX_COUNT, true, true, makeLocation(FIX_COUNT), 7);
+
+        List<String> lines = FileUtils.readLines(csv, "UTF-8");
+        assertEquals(FIX_COUNT + 1, lines.size());
+        assertEquals(HEADER.trim(), lines.get(0));
+        for (int i = 0; i < FIX_COUNT; i++) {
+            assertEquals(expectedLine(i, i > 100, i > 200, makeLocation(i), 7),
+                    lines.get(i + 1));
+        }
+        assertFalse(new File(csv.getParentFile(),
+                csv.getName() + NavigationTraceWriter.TRACE_EXTENSION).exists());
+    }
+
+    @Test
+    public void testRecoverTrace() throws Exception {
+        File csv = createLog("active.csv");
+        File trace = new File(csv.getParentFile(),
+                csv.getName() + NavigationTraceWriter.TRACE_EXTENSION);
+        NavigationTraceWriter writer = new NavigationTraceWriter(csv);
+        for (int i = 0; i < 1000; i++) {
+            writer.append(i, false, false, makeLocation(i), 7);
+        }
+        // Wait for the buffer to be written to the trace
+        for (int i = 0; i < 50 && trace.length() == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(trace.length() > 0);
+
+        // Leave a copy of the trace behind, as if the app was killed while writing it
+        File killedCsv = new File(csv.getParentFile(), "killed.csv");
+        FileUtils.write(killedCsv, HEADER, false);
+        File killedTrace = new File(csv.getParentFile(),
+                killedCsv.getName() + NavigationTraceWriter.TRACE_EXTENSION);
+        FileUtils.copyFile(trace, killedTrace);
+        RandomAccessFile raf = new RandomAccessFile(killedTrace, "rw");
+        raf.setLength(raf.length() - 5);
+        raf.close();
+
+        NavigationTraceWriter.recoverTraces(csv.getParentFile());
+
+        // The trace that is still being written is left alone
+        assertTrue(trace.exists());
+        assertEquals(1, FileUtils.readLines(csv, "UTF-8").size());
+
+        // The other trace is converted, without its truncated last record
+        assertFalse(killedTrace.exists());
+        List<String> lines = FileUtils.readLines(killedCsv, "UTF-8");
+        assertTrue(lines.size() > 1);
+        assertEquals(HEADER.trim(), lines.get(0));
+        for (int i = 0; i < lines.size() - 1; i++) {
+            assertEquals(expectedLine(i, false, false, makeLocation(i), 7), lines.get(i + 1));
+        }
+
+        writer.finish();
+        assertTrue(writer.awaitFinish(10, TimeUnit.SECONDS));
+        assertEquals(1001, FileUtils.readLines(csv, "UTF-8").size());
+    }
+
+    private static File createLog(String name) throws IOException {
+        File dir = new File(getTargetContext().getCacheDir(), "nav-trace-test");
+        FileUtils.deleteQuietly(dir);
+        dir.mkdirs();
+        File csv = new File(dir, name);
+        FileUtils.write(csv, HEADER, false);
+        return csv;
+    }
+
+    private static Location makeLocation(int i) {
+        Location l = new Location(i % 2 == 0 ? "gps" : "fused");
+        l.setTime(1700000000000L + i * 1000L);
+        l.setElapsedRealtimeNanos(5000000000L + i * 1000000000L);
+        l.setLatitude(28.0 + i * 0.0001);
+        l.setLongitude(-82.0 - i * 0.0001);
+        l.setAltitude(10 + i % 7);
+        l.setSpeed(8.5f);
+        l.setBearing(i % 360);
+        l.setAccuracy(4.0f);
+        return l;
+    }
+
+    /**
+     * Line in the format NavigationService previously wrote for each fix
+     */
+    private static String expectedLine(int coordId, boolean getReady, boolean finished,
+            Location l, int satellites) {
+        return String.format(Locale.US, "%d,%s,%s,%s,%d,%f,%f,%f,%f,%f,%f,%d,%s",
+                coordId, getReady, finished, Long.toString(l.getElapsedRealtimeNanos()),
+                l.getTime(), l.getLatitude(), l.getLongitude(), l.getAltitude(), l.getSpeed(),
+                l.getBearing(), l.getAccuracy(), satellites, l.getProvider());
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.provider.test;
+
+import org.onebusaway.android.io.elements.ObaRegion;
+import org.onebusaway.android.mock.MockRegion;
+import org.onebusaway.android.provider.ObaContract;
+import org.onebusaway.android.provider.ObaProvider;
+import org.onebusaway.android.ui.QueryUtils;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.test.ProviderTestCase2;
+import android.text.format.DateUtils;
+
+import java.util.Arrays;
+
+/**
+ * Tests that the lookups made by ObaContract and the lists of stops and routes are answered with
+ * an index, and that the database uses write-ahead logging
+ */
+public class ProviderIndexTest extends ProviderTestCase2<ObaProvider> {
+
+    private SQLiteDatabase mDb;
+
+    public ProviderIndexTest() {
+        super(ObaProvider.class, ObaContract.AUTHORITY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Create the database through the provider, then read its schema directly
+        Cursor c = getMockContentResolver().query(ObaContract.Stops.CONTENT_URI,
+                new String[]{ObaContract.Stops._ID}, null, null, null);
+        assertNotNull(c);
+        c.close();
+        mDb = SQLiteDatabase.openDatabase(
+                ObaProvider.getDatabasePath(getMockContext()).getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDb.close();
+        super.tearDown();
+    }
+
+    public void testWriteAheadLogging() {
+        Cursor c = mDb.rawQuery("PRAGMA journal_mode", null);
+        assertTrue(c.moveToFirst());
+        assertEquals("wal", c.getString(0).toLowerCase());
+        c.close();
+    }
+
+    public void testStopsAndRoutes() {
+        assertUsesIndex(ObaContract.Stops.CONTENT_URI, new String[]{ObaContract.Stops.FAVORITE},
+                ObaContract.Stops.ID_WHERE, null);
+        assertUsesIndex(Uri.withAppendedPath(ObaContract.Stops.CONTENT_URI, "1_1"),
+                QueryUtils.StopList.Columns.PROJECTION, null, null);
+        assertUsesIndex(Uri.withAppendedPath(ObaContract.Routes.CONTENT_URI, "1_1"),
+                QueryUtils.RouteList.Columns.PROJECTION, null, null);
+        assertUsesIndex(ObaContract.StopRouteFilters.CONTENT_URI,
+                new String[]{ObaContract.StopRouteFilters.ROUTE_ID},
+                ObaContract.StopRouteFilters.FILTER_WHERE, null);
+    }
+
+    public void testRecentStopsAndRoutes() {
+        long since = System.currentTimeMillis() - 7 * DateUtils.DAY_IN_MILLIS;
+        String stopsWhere = QueryUtils.getRecentWhere(ObaContract.Stops.ACCESS_TIME,
+                ObaContract.Stops.USE_COUNT, since);
+        String stopsOrder = QueryUtils.getRecentSortOrder(ObaContract.Stops.ACCESS_TIME,
+                ObaContract.Stops.USE_COUNT);
+        Uri stopsUri = ObaContract.Stops.CONTENT_URI.buildUpon()
+                .appendQueryParameter("limit", QueryUtils.RECENT_LIMIT).build();
+        assertUsesIndex(stopsUri, QueryUtils.StopList.Columns.PROJECTION, stopsWhere,
+                stopsOrder);
+        assertUsesIndex(stopsUri, QueryUtils.StopList.Columns.PROJECTION,
+                stopsWhere + " AND " + QueryUtils.getRegionWhere(ObaContract.Stops.REGION_ID, 1),
+                stopsOrder);
+
+        String routesWhere = QueryUtils.getRecentWhere(ObaContract.Routes.ACCESS_TIME,
+                ObaContract.Routes.USE_COUNT, since);
+        String routesOrder = QueryUtils.getRecentSortOrder(ObaContract.Routes.ACCESS_TIME,
+                ObaContract.Routes.USE_COUNT);
+        Uri routesUri = ObaContract.Routes.CONTENT_URI.buildUpon()
+                .appendQueryParameter("limit", QueryUtils.RECENT_LIMIT).build();
+        assertUsesIndex(routesUri, QueryUtils.RouteList.Columns.PROJECTION, routesWhere,
+                routesOrder);
+        assertUsesIndex(routesUri, QueryUtils.RouteList.Columns.PROJECTION,
+                routesWhere + " AND " + QueryUtils.getRegionWhere(ObaContract.Routes.REGION_ID, 1),
+                routesOrder);
+    }
+
+    public void testStarredStopsAndRoutes() {
+        // The starred lists are sorted by name or use count, which no index can cover, so only
+        // their selection is checked
+        ObaRegion region = MockRegion.getRegionWithHttps();
+        assertUsesIndex(ObaContract.Stops.CONTENT_URI, QueryUtils.StopList.Columns.PROJECTION,
+                QueryUtils.getStarredWhere(ObaContract.Stops.FAVORITE,
+                        ObaContract.Stops.REGION_ID, region), null);
+        assertUsesIndex(ObaContract.Stops.CONTENT_URI, QueryUtils.StopList.Columns.PROJECTION,
+                QueryUtils.getStarredWhere(ObaContract.Stops.FAVORITE,
+                        ObaContract.Stops.REGION_ID, null), null);
+        assertUsesIndex(ObaContract.Routes.CONTENT_URI, QueryUtils.RouteList.Columns.PROJECTION,
+                QueryUtils.getStarredWhere(ObaContract.Routes.FAVORITE,
+                        ObaContract.Routes.REGION_ID, region), null);
+        assertUsesIndex(ObaContract.Routes.CONTENT_URI, QueryUtils.RouteList.Columns.PROJECTION,
+                QueryUtils.getStarredWhere(ObaContract.Routes.FAVORITE,
+                        ObaContract.Routes.REGION_ID, null), null);
+    }
+
+    public void testTripsAndAlerts() {
+        assertUsesIndex(ObaContract.Trips.buildUri("1_1", "1_1"),
+                new String[]{ObaContract.Trips._ID}, null, null);
+        assertUsesIndex(ObaContract.Trips.CONTENT_URI, new String[]{ObaContract.Trips._ID},
+                ObaContract.Trips.STOP_WHERE, null);
+        assertUsesIndex(ObaContract.TripAlerts.CONTENT_URI,
+                new String[]{ObaContract.TripAlerts._ID}, ObaContract.TripAlerts.TRIP_WHERE,
+                null);
+        assertUsesIndex(ObaContract.ServiceAlerts.CONTENT_URI,
+                new String[]{ObaContract.ServiceAlerts._ID},
+                ObaContract.ServiceAlerts.getHiddenWhere(3), null);
+    }
+
+    public void testRouteHeadsignFavorites() {
+        Uri uri = ObaContract.RouteHeadsignFavorites.CONTENT_URI;
+        String[] projection = {ObaContract.RouteHeadsignFavorites.ROUTE_ID};
+        assertUsesIndex(uri, projection,
+                ObaContract.RouteHeadsignFavorites.ROUTE_STOP_WHERE, null);
+        assertUsesIndex(uri, projection,
+                ObaContract.RouteHeadsignFavorites.ROUTE_HEADSIGN_STOP_WHERE, null);
+        assertUsesIndex(uri, projection, ObaContract.RouteHeadsignFavorites.ROUTE_WHERE, null);
+        assertUsesIndex(uri, projection,
+                ObaContract.RouteHeadsignFavorites.ROUTE_HEADSIGN_WHERE, null);
+        assertUsesIndex(uri, projection,
+                ObaContract.RouteHeadsignFavorites.ROUTE_EXCLUDE_WHERE, null);
+    }
+
+    public void testRegionsAndNavigation() {
+        assertUsesIndex(ObaContract.Regions.buildUri(1),
+                new String[]{ObaContract.Regions.NAME}, null, null);
+        assertUsesIndex(ObaContract.RegionBounds.CONTENT_URI,
+                new String[]{ObaContract.RegionBounds.LATITUDE},
+                ObaContract.RegionBounds.REGION_WHERE, null);
+        assertUsesIndex(ObaContract.RegionOpen311Servers.CONTENT_URI,
+                new String[]{ObaContract.RegionOpen311Servers.BASE_URL},
+                ObaContract.RegionOpen311Servers.REGION_WHERE, null);
+        assertUsesIndex(ObaContract.NavStops.CONTENT_URI,
+                new String[]{ObaContract.NavStops.TRIP_ID}, ObaContract.NavStops.NAV_WHERE,
+                ObaContract.NavStops.SEQUENCE_ORDER);
+    }
+
+    /**
+     * Asserts that SQLite answers the query that the provider runs for the given URI with an
+     * index, without scanning the table or sorting the rows in a temporary b-tree
+     */
+    private void assertUsesIndex(Uri uri, String[] projection, String selection,
+            String sortOrder) {
+        String sql = ObaProvider.buildQuery(uri, projection, selection, sortOrder);
+        String[] args = new String[sql.length() - sql.replace("?", "").length()];
+        Arrays.fill(args, "1");
+        Cursor c = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detailColumn = c.getColumnIndexOrThrow("detail");
+        StringBuilder plan = new StringBuilder();
+        boolean usesIndex = false;
+        boolean scansTable = false;
+        boolean sorts = false;
+        while (c.moveToNext()) {
+            String detail = c.getString(detailColumn);
+            plan.append(detail).append('\n');
+            if (detail.startsWith("SEARCH") && detail.contains("USING")) {
+                usesIndex = true;
+            } else if (detail.startsWith("SCAN") && detail.contains("USING")
+                    && detail.contains("INDEX")) {
+                // An ordered scan of an index, as for the LIMIT of the recent lists
+                usesIndex = true;
+            } else if (detail.startsWith("SCAN")) {
+                scansTable = true;
+            } else if (detail.contains("USE TEMP B-TREE")) {
+                sorts = true;
+            }
+        }
+        c.close();
+        assertTrue(sql + " doesn't use an index:\n" + plan, usesIndex && !scansTable);
+        assertFalse(sql + " sorts in a temporary b-tree:\n" + plan, sorts);
+    }
+}
@@ -16,15 +16,29 @@
 package org.onebusaway.android.provider.test;
 
 import org.junit.Test;
+import org.onebusaway.android.R;
+import org.onebusaway.android.app.Application;
 import org.onebusaway.android.provider.ObaContract;
 import org.onebusaway.android.provider.ObaProvider;
 
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.test.ProviderTestCase2;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Tests the provider that stores and reads persistent OBA data on the device
  */
@@ -149,4 +163,192 @@ public class ProviderTest extends ProviderTestCase2<ObaProvider> {
 
         c.close();
     }
+
+    @Test
+    public void testCopyDB() throws IOException {
+        ContentResolver cr = getMockContentResolver();
+        ContentValues values = new ContentValues();
+        values.put(ObaContract.Stops._ID, "1_11060-TEST");
+        values.put(ObaContract.Stops.CODE, "11060");
+        values.put(ObaContract.Stops.NAME, "Broadway & E Denny Way");
+        values.put(ObaContract.Stops.DIRECTION, "S");
+        values.put(ObaContract.Stops.USE_COUNT, 0);
+        values.put(ObaContract.Stops.LATITUDE, 47.617676);
+        values.put(ObaContract.Stops.LONGITUDE, -122.314523);
+        assertNotNull(cr.insert(ObaContract.Stops.CONTENT_URI, values));
+
+        Cursor c = cr.query(ObaContract.Stops.CONTENT_URI,
+                new String[]{ObaContract.Stops._ID}, null, null, null);
+        assertNotNull(c);
+
+        File copy = new File(getContext().getCacheDir(), "copy.db");
+        OutputStream out = new FileOutputStream(copy);
+        try {
+            getProvider().copyDB(out);
+        } finally {
+            out.close();
+        }
+
+        // The database stays open, so cursors can still be used
+        assertTrue(c.moveToFirst());
+        assertEquals("1_11060-TEST", c.getString(0));
+        c.close();
+
+        // The copy has the change, although it may only have been in the write-ahead log
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(copy.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            assertEquals(1, DatabaseUtils.queryNumEntries(db, ObaContract.Stops.PATH));
+        } finally {
+            db.close();
+            copy.delete();
+        }
+    }
+
+    @Test
+    public void testBulkInsert() {
+        ContentResolver cr = getMockContentResolver();
+        ContentValues[] values = new ContentValues[3];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new ContentValues();
+            values[i].put(ObaContract.StopRouteFilters.STOP_ID, "1_11060-TEST");
+            values[i].put(ObaContract.StopRouteFilters.ROUTE_ID, "1_10" + i);
+        }
+        assertEquals(3, cr.bulkInsert(ObaContract.StopRouteFilters.CONTENT_URI, values));
+
+        Cursor c = cr.query(ObaContract.StopRouteFilters.CONTENT_URI,
+                new String[]{ObaContract.StopRouteFilters.ROUTE_ID},
+                ObaContract.StopRouteFilters.STOP_ID + "=?",
+                new String[]{"1_11060-TEST"}, null);
+        assertNotNull(c);
+        assertEquals(3, c.getCount());
+        c.close();
+
+        int result = cr.delete(ObaContract.StopRouteFilters.CONTENT_URI, null, null);
+        assertEquals(3, result);
+    }
+
+    @Test
+    public void testUpsertInsert() {
+        ContentValues values = new ContentValues();
+        values.put(ObaContract.Routes.SHORTNAME, "10");
+        ObaContract.Routes.insertOrUpdate(getMockContext(), "1_100-TEST", values, false);
+        values.put(ObaContract.Routes.SHORTNAME, "11");
+        ObaContract.Routes.insertOrUpdate(getMockContext(), "1_101-TEST", values, true);
+
+        Cursor c = getMockContentResolver().query(ObaContract.Routes.CONTENT_URI,
+                new String[]{ObaContract.Routes._ID, ObaContract.Routes.USE_COUNT},
+                null, null, ObaContract.Routes._ID);
+        assertNotNull(c);
+        assertEquals(2, c.getCount());
+        c.moveToNext();
+        assertEquals("1_100-TEST", c.getString(0));
+        assertEquals(0, c.getInt(1));
+        c.moveToNext();
+        assertEquals("1_101-TEST", c.getString(0));
+        assertEquals(1, c.getInt(1));
+        c.close();
+    }
+
+    @Test
+    public void testUpsertUpdate() {
+        final String routeId = "1_100-TEST";
+        ContentValues values = new ContentValues();
+        values.put(ObaContract.Routes.SHORTNAME, "10");
+        ObaContract.Routes.insertOrUpdate(getMockContext(), routeId, values, true);
+
+        long before = System.currentTimeMillis();
+        values.put(ObaContract.Routes.SHORTNAME, "10X");
+        ObaContract.Routes.insertOrUpdate(getMockContext(), routeId, values, true);
+
+        Cursor c = getMockContentResolver().query(ObaContract.Routes.CONTENT_URI,
+                new String[]{ObaContract.Routes.SHORTNAME, ObaContract.Routes.USE_COUNT,
+                        ObaContract.Routes.ACCESS_TIME},
+                null, null, null);
+        assertNotNull(c);
+        assertEquals(1, c.getCount());
+        c.moveToNext();
+        assertEquals("10X", c.getString(0));
+        assertEquals(2, c.getInt(1));
+        assertTrue(c.getLong(2) >= before);
+        c.close();
+
+        // Updating without marking as used leaves the use count alone
+        values.put(ObaContract.Routes.SHORTNAME, "10");
+        ObaContract.Routes.insertOrUpdate(getMockContext(), routeId, values, false);
+        c = getMockContentResolver().query(ObaContract.Routes.CONTENT_URI,
+                new String[]{ObaContract.Routes.USE_COUNT}, null, null, null);
+        assertNotNull(c);
+        c.moveToNext();
+        assertEquals(2, c.getInt(0));
+        c.close();
+    }
+
+    @Test
+    public void testUpsertHideAllAlerts() {
+        insertOrUpdateAlerts(Collections.singletonList("1_ALERT1-TEST"), false);
+        // Only the new alert is hidden by default
+        insertOrUpdateAlerts(Arrays.asList("1_ALERT1-TEST", "1_ALERT2-TEST"), true);
+
+        Cursor c = getMockContentResolver().query(ObaContract.ServiceAlerts.CONTENT_URI,
+                new String[]{ObaContract.ServiceAlerts._ID, ObaContract.ServiceAlerts.HIDDEN},
+                null, null, ObaContract.ServiceAlerts._ID);
+        assertNotNull(c);
+        assertEquals(2, c.getCount());
+        c.moveToNext();
+        assertEquals("1_ALERT1-TEST", c.getString(0));
+        assertTrue(c.isNull(1));
+        c.moveToNext();
+        assertEquals("1_ALERT2-TEST", c.getString(0));
+        assertEquals(1, c.getInt(1));
+        c.close();
+    }
+
+    @Test
+    public void testUpsertEmptyValues() {
+        final String alertId = "1_ALERT1-TEST";
+        ObaContract.ServiceAlerts.insertOrUpdate(getMockContext(),
+                Collections.singletonList(alertId), null, false, true);
+
+        // With nothing to update, an existing alert is left alone instead of inserted again
+        insertOrUpdateAlerts(Collections.singletonList(alertId), false);
+
+        Cursor c = getMockContentResolver().query(ObaContract.ServiceAlerts.CONTENT_URI,
+                new String[]{ObaContract.ServiceAlerts.HIDDEN}, null, null, null);
+        assertNotNull(c);
+        assertEquals(1, c.getCount());
+        c.moveToNext();
+        assertEquals(1, c.getInt(0));
+        c.close();
+    }
+
+    @Test
+    public void testGetHiddenAlerts() {
+        ObaContract.ServiceAlerts.insertOrUpdate(getMockContext(),
+                Arrays.asList("1_ALERT1-TEST", "1_ALERT3-TEST"), null, false, true);
+        ObaContract.ServiceAlerts.insertOrUpdate(getMockContext(),
+                Collections.singletonList("1_ALERT2-TEST"), null, false, false);
+
+        Set<String> hidden = ObaContract.ServiceAlerts.getHidden(getMockContext(),
+                Arrays.asList("1_ALERT1-TEST", "1_ALERT2-TEST", "1_ALERT4-TEST"));
+        assertEquals(Collections.singleton("1_ALERT1-TEST"), hidden);
+        assertTrue(ObaContract.ServiceAlerts.getHidden(getMockContext(),
+                Collections.<String>emptyList()).isEmpty());
+    }
+
+    /**
+     * Inserts or updates alerts without changing whether they are hidden, with the "hide all
+     * alerts" preference temporarily set to the given value
+     */
+    private void insertOrUpdateAlerts(List<String> ids, boolean hideAllAlerts) {
+        SharedPreferences prefs = Application.getPrefs();
+        String key = getContext().getString(R.string.preference_key_hide_alerts);
+        boolean oldValue = prefs.getBoolean(key, false);
+        try {
+            prefs.edit().putBoolean(key, hideAllAlerts).commit();
+            ObaContract.ServiceAlerts.insertOrUpdate(getMockContext(), ids, null, false, null);
+        } finally {
+            prefs.edit().putBoolean(key, oldValue).commit();
+        }
+    }
 }
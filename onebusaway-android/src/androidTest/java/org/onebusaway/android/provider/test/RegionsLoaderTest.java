@@ -51,6 +51,35 @@ public class RegionsLoaderTest extends ObaLoaderTestCase {
         _assertPugetSound(regions.get(1));
     }
 
+    @Test
+    public void testSaveOnlyChangedRegions() {
+        ArrayList<ObaRegion> regionsFromResources = RegionUtils
+                .getRegionsFromResources(getTargetContext());
+        RegionUtils.saveToProvider(getTargetContext(), regionsFromResources);
+
+        // Saving the same list again shouldn't change anything
+        RegionUtils.saveToProvider(getTargetContext(), regionsFromResources);
+        ArrayList<ObaRegion> regions = RegionUtils.getRegionsFromProvider(getTargetContext());
+        assertNotNull(regions);
+        assertEquals(6, regions.size());
+        _assertTampa(regions.get(0));
+
+        // Regions that are no longer in the list are removed along with their bounds
+        ArrayList<ObaRegion> withoutTampa = new ArrayList<>(regionsFromResources);
+        withoutTampa.remove(0);
+        RegionUtils.saveToProvider(getTargetContext(), withoutTampa);
+        regions = RegionUtils.getRegionsFromProvider(getTargetContext());
+        assertNotNull(regions);
+        assertEquals(5, regions.size());
+        _assertPugetSound(regions.get(0));
+
+        // And restored when they come back
+        RegionUtils.saveToProvider(getTargetContext(), regionsFromResources);
+        regions = RegionUtils.getRegionsFromProvider(getTargetContext());
+        assertEquals(6, regions.size());
+        _assertTampa(regions.get(0));
+    }
+
     private void assertBounds(ObaRegion.Bounds bound,
                               double lat, double lon, double latSpan, double lonSpan) {
         assertEquals(lat, bound.getLat());
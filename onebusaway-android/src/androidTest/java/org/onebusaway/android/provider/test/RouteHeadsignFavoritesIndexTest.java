@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.provider.test;
+
+import android.util.Log;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.app.Application;
+import org.onebusaway.android.io.elements.ObaArrivalInfo;
+import org.onebusaway.android.io.request.ObaArrivalInfoRequest;
+import org.onebusaway.android.io.request.ObaArrivalInfoResponse;
+import org.onebusaway.android.io.test.ObaTestCase;
+import org.onebusaway.android.mock.MockRegion;
+import org.onebusaway.android.provider.ObaContract;
+import org.onebusaway.android.ui.ArrivalInfo;
+import org.onebusaway.android.util.ArrivalInfoUtils;
+
+import java.util.ArrayList;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests the in-memory index used to look up route/headsign favorites for arrivals
+ */
+@RunWith(AndroidJUnit4.class)
+public class RouteHeadsignFavoritesIndexTest extends ObaTestCase {
+
+    private static final String TAG = "FavoritesIndexTest";
+
+    private static final String STOP_ID = "Hillsborough Area Regional Transit_6497";
+
+    private static final String OTHER_STOP_ID = "Hillsborough Area Regional Transit_1234";
+
+    private static final String ROUTE_ID = "Hillsborough Area Regional Transit_6";
+
+    private static final String HEADSIGN = "North to University Area TC";
+
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void testFavoriteSemantics() {
+        ObaContract.RouteHeadsignFavorites.clearAllFavorites(getTargetContext());
+        assertFalse(isFavorite(STOP_ID));
+
+        // Star a single stop
+        mark(STOP_ID, true);
+        assertTrue(isFavorite(STOP_ID));
+        assertFalse(isFavorite(OTHER_STOP_ID));
+        assertFalse(ObaContract.RouteHeadsignFavorites.isFavorite(ROUTE_ID, "Other", STOP_ID));
+
+        // Star all stops, then unstar one of them
+        mark(null, true);
+        assertTrue(isFavorite(OTHER_STOP_ID));
+        mark(OTHER_STOP_ID, false);
+        assertFalse(isFavorite(OTHER_STOP_ID));
+        assertTrue(isFavorite(STOP_ID));
+
+        // Starring the excluded stop again removes the exclusion
+        mark(OTHER_STOP_ID, true);
+        assertTrue(isFavorite(OTHER_STOP_ID));
+
+        // Unstarring all stops removes every record for the route/headsign
+        mark(null, false);
+        assertFalse(isFavorite(STOP_ID));
+        assertFalse(isFavorite(OTHER_STOP_ID));
+
+        mark(STOP_ID, true);
+        ObaContract.RouteHeadsignFavorites.clearAllFavorites(getTargetContext());
+        assertFalse(isFavorite(STOP_ID));
+    }
+
+    @Test
+    public void testArrivalsBenchmark() {
+        Application.get().setCurrentRegion(MockRegion.getTampa(getTargetContext()));
+        ObaArrivalInfoResponse response =
+                new ObaArrivalInfoRequest.Builder(getTargetContext(), STOP_ID).build().call();
+        assertOK(response);
+        ObaArrivalInfo[] arrivals = response.getArrivalInfo();
+        assertNotNull(arrivals);
+
+        ObaContract.RouteHeadsignFavorites.clearAllFavorites(getTargetContext());
+        mark(STOP_ID, true);
+
+        ArrayList<ArrivalInfo> arrivalInfo = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            arrivalInfo = ArrivalInfoUtils.convertObaArrivalInfo(getTargetContext(), arrivals,
+                    null, response.getCurrentTime(), true);
+        }
+        long elapsed = System.nanoTime() - start;
+        Log.d(TAG, "Converted " + arrivals.length + " arrivals " + ITERATIONS + " times in "
+                + (elapsed / 1000000) + "ms");
+
+        boolean foundFavorite = false;
+        for (ArrivalInfo info : arrivalInfo) {
+            boolean expected = ROUTE_ID.equals(info.getInfo().getRouteId())
+                    && HEADSIGN.equals(info.getInfo().getHeadsign());
+            assertTrue(expected == info.isRouteAndHeadsignFavorite());
+            foundFavorite |= expected;
+        }
+        assertTrue(foundFavorite);
+
+        ObaContract.RouteHeadsignFavorites.clearAllFavorites(getTargetContext());
+    }
+
+    private static void mark(String stopId, boolean favorite) {
+        ObaContract.RouteHeadsignFavorites.markAsFavorite(getTargetContext(), ROUTE_ID, HEADSIGN,
+                stopId, favorite);
+    }
+
+    private static boolean isFavorite(String stopId) {
+        return ObaContract.RouteHeadsignFavorites.isFavorite(ROUTE_ID, HEADSIGN, stopId);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.travelbehavior.test;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.travelbehavior.io.TravelBehaviorSpool;
+import org.onebusaway.android.travelbehavior.io.worker.SpoolReaderWorker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * Tests the append-only spool used to queue travel behavior data for upload
+ */
+@RunWith(AndroidJUnit4.class)
+public class TravelBehaviorSpoolTest {
+
+    private File mDir;
+
+    private TravelBehaviorSpool mSpool;
+
+    @Before
+    public void before() {
+        mDir = new File(getTargetContext().getCacheDir(), "spool-test");
+        FileUtils.deleteQuietly(mDir);
+        mDir.mkdirs();
+        mSpool = new TravelBehaviorSpool(new File(mDir, "test.spool"));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertTrue(mSpool.read(10, 1024).isEmpty());
+    }
+
+    @Test
+    public void testChunkedReadAndAcknowledge() throws IOException {
+        for (int i = 0; i < 25; i++) {
+            mSpool.append(record(i));
+        }
+
+        TravelBehaviorSpool.Chunk chunk = mSpool.read(10, Integer.MAX_VALUE);
+        assertEquals(10, chunk.getRecords().size());
+        assertEquals(record(0), chunk.getRecords().get(0));
+
+        // Reading again without acknowledging returns the same records
+        assertEquals(record(0), mSpool.read(10, Integer.MAX_VALUE).getRecords().get(0));
+
+        mSpool.acknowledge(chunk);
+        chunk = mSpool.read(10, Integer.MAX_VALUE);
+        assertEquals(record(10), chunk.getRecords().get(0));
+
+        // Records appended while a chunk is being uploaded aren't lost
+        mSpool.append(record(25));
+        mSpool.acknowledge(chunk);
+        chunk = mSpool.read(100, Integer.MAX_VALUE);
+        assertEquals(6, chunk.getRecords().size());
+        assertEquals(record(25), chunk.getRecords().get(5));
+
+        // Acknowledging everything empties the file
+        mSpool.acknowledge(chunk);
+        assertTrue(mSpool.read(10, 1024).isEmpty());
+        assertEquals(24, mSpool.size());
+    }
+
+    @Test
+    public void testChunkIds() throws IOException {
+        mSpool.append(record(0));
+        mSpool.append(record(1));
+        TravelBehaviorSpool.Chunk chunk = mSpool.read(1, Integer.MAX_VALUE);
+        String id = chunk.getId();
+
+        // The same chunk read again, also after a restart, has the same ID
+        assertEquals(id, mSpool.read(1, Integer.MAX_VALUE).getId());
+        TravelBehaviorSpool restarted = new TravelBehaviorSpool(new File(mDir, "test.spool"));
+        assertEquals(id, restarted.read(1, Integer.MAX_VALUE).getId());
+
+        // Chunk IDs aren't reused, also after the spool has been emptied
+        Set<String> ids = new HashSet<>();
+        ids.add(id);
+        mSpool.acknowledge(chunk);
+        chunk = mSpool.read(1, Integer.MAX_VALUE);
+        assertTrue(ids.add(chunk.getId()));
+        mSpool.acknowledge(chunk);
+        assertTrue(mSpool.read(1, Integer.MAX_VALUE).isEmpty());
+        mSpool.append(record(2));
+        assertTrue(ids.add(mSpool.read(1, Integer.MAX_VALUE).getId()));
+    }
+
+    @Test
+    public void testRetryAfterPartialUpload() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            mSpool.append(record(i));
+        }
+        // Uploaded documents by ID, as Firebase would store them
+        final Map<String, List<String>> uploaded = new LinkedHashMap<>();
+
+        // The first chunk is uploaded, the second fails after Firebase queued it anyway
+        try {
+            SpoolReaderWorker.uploadAll(mSpool, 10, Integer.MAX_VALUE,
+                    (documentId, records) -> {
+                        uploaded.put(documentId, records);
+                        if (uploaded.size() == 2) {
+                            throw new IOException("Timed out");
+                        }
+                    });
+            fail("Upload should have failed");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(2, uploaded.size());
+
+        // The retry, after a restart, replaces the second chunk and adds the third
+        TravelBehaviorSpool restarted = new TravelBehaviorSpool(new File(mDir, "test.spool"));
+        SpoolReaderWorker.uploadAll(restarted, 10, Integer.MAX_VALUE,
+                (documentId, records) -> uploaded.put(documentId, records));
+        assertEquals(3, uploaded.size());
+        List<String> all = new ArrayList<>();
+        for (List<String> records : uploaded.values()) {
+            all.addAll(records);
+        }
+        assertEquals(25, all.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(record(i), all.get(i));
+        }
+        assertTrue(restarted.read(10, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        StringBuilder json = new StringBuilder("{\"arrivals\":[");
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"stopId\":\"1_1234\",\"routeId\":\"1_100\",\"tripId\":\"1_5000\"},");
+        }
+        json.append("{}]}");
+        mSpool.append(json.toString());
+        assertTrue(mSpool.size() < json.length() / 5);
+        assertEquals(json.toString(), mSpool.read(1, 1).getRecords().get(0));
+    }
+
+    @Test
+    public void testTruncatedRecordIsDropped() throws IOException {
+        mSpool.append(record(0));
+        mSpool.append(record(1));
+        File file = new File(mDir, "test.spool");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        TravelBehaviorSpool.Chunk chunk = mSpool.read(10, Integer.MAX_VALUE);
+        assertEquals(1, chunk.getRecords().size());
+        mSpool.acknowledge(chunk);
+
+        // The spool is usable again after the broken record is acknowledged
+        mSpool.append(record(2));
+        chunk = mSpool.read(10, Integer.MAX_VALUE);
+        assertEquals(1, chunk.getRecords().size());
+        assertEquals(record(2), chunk.getRecords().get(0));
+    }
+
+    @Test
+    public void testImportLegacyFiles() throws IOException {
+        File legacy = new File(mDir, "trip-plans");
+        legacy.mkdirs();
+        FileUtils.write(new File(legacy, "1-Mon, Jan 1 2024, 10:00 AM.json"), record(0));
+        FileUtils.write(new File(legacy, "2-Mon, Jan 1 2024, 10:05 AM.json"), record(1));
+
+        mSpool.importLegacyFiles(legacy);
+        assertFalse(legacy.exists());
+        assertEquals(2, mSpool.read(10, Integer.MAX_VALUE).getRecords().size());
+    }
+
+    private static String record(int i) {
+        return "{\"id\":" + i + ",\"stopId\":\"1_" + i + "\"}";
+    }
+}
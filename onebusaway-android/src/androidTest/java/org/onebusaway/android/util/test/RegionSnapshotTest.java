@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.util.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.io.elements.ObaRegion;
+import org.onebusaway.android.mock.MockRegion;
+import org.onebusaway.android.util.RegionSnapshot;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests saving and restoring the current region from the preferences
+ */
+@RunWith(AndroidJUnit4.class)
+public class RegionSnapshotTest {
+
+    private SharedPreferences mPrefs;
+
+    @Before
+    public void before() {
+        mPrefs = getTargetContext().getSharedPreferences("region_snapshot_test",
+                Context.MODE_PRIVATE);
+    }
+
+    @After
+    public void after() {
+        mPrefs.edit().clear().commit();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ObaRegion tampa = MockRegion.getTampa(getTargetContext());
+        assertNull(RegionSnapshot.load(mPrefs, tampa.getId()));
+
+        RegionSnapshot.save(mPrefs, tampa);
+        ObaRegion region = RegionSnapshot.load(mPrefs, tampa.getId());
+        assertNotNull(region);
+        assertEquals(tampa.getId(), region.getId());
+        assertEquals(tampa.getName(), region.getName());
+        assertEquals(tampa.getObaBaseUrl(), region.getObaBaseUrl());
+        assertEquals(tampa.getOtpBaseUrl(), region.getOtpBaseUrl());
+        assertEquals(tampa.getBounds().length, region.getBounds().length);
+        assertEquals(tampa.getBounds()[0].getLat(), region.getBounds()[0].getLat());
+        assertEquals(tampa.getBounds()[0].getLonSpan(), region.getBounds()[0].getLonSpan());
+        assertEquals(tampa.getOpen311Servers().length, region.getOpen311Servers().length);
+        assertTrue(RegionSnapshot.matches(mPrefs, region));
+
+        // A snapshot of a different region isn't used
+        assertNull(RegionSnapshot.load(mPrefs, tampa.getId() + 1));
+
+        RegionSnapshot.clear(mPrefs);
+        assertNull(RegionSnapshot.load(mPrefs, tampa.getId()));
+    }
+
+    @Test
+    public void testMatches() {
+        ObaRegion tampa = MockRegion.getTampa(getTargetContext());
+        ObaRegion pugetSound = MockRegion.getPugetSound(getTargetContext());
+        RegionSnapshot.save(mPrefs, tampa);
+        assertTrue(RegionSnapshot.matches(mPrefs, tampa));
+        assertFalse(RegionSnapshot.matches(mPrefs, pugetSound));
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.runner.RunWith;
 import org.onebusaway.android.io.elements.ObaRegion;
 import org.onebusaway.android.mock.MockRegion;
 import org.onebusaway.android.util.LocationUtils;
+import org.onebusaway.android.util.RegionIndex;
 import org.onebusaway.android.util.RegionUtils;
 
 import android.location.Location;
@@ -160,6 +161,40 @@ public class RegionUtilTest {
         assertFalse(RegionUtils.isLocationWithinRegion(mTampaLoc, mAtlantaRegion));
     }
 
+    @Test
+    public void testRegionIndex() {
+        ArrayList<ObaRegion> list = new ArrayList<>();
+        list.add(mPsRegion);
+        list.add(mTampaRegion);
+        list.add(mAtlantaRegion);
+        RegionIndex index = new RegionIndex(list);
+
+        // The indexed span must match the span computed from the region bounds
+        double[] expected = new double[4];
+        double[] actual = new double[4];
+        for (ObaRegion region : list) {
+            RegionUtils.getRegionSpan(region, expected);
+            assertTrue(index.getSpan(region, actual));
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 1E-9);
+            }
+        }
+        assertFalse(index.getSpan(MockRegion.getInactiveRegion(getTargetContext()), actual));
+
+        // Distances must match the per-region computation
+        RegionIndex.Match match = index.findClosest(mTampaLoc.getLatitude(),
+                mTampaLoc.getLongitude(), true);
+        assertEquals(mTampaRegion, match.getRegion());
+        assertApproximateEquals(RegionUtils.getDistanceAway(mTampaRegion, mTampaLoc),
+                match.getDistance());
+
+        // Atlanta isn't usable, so it's skipped unless asked not to check
+        match = index.findClosest(mAtlantaLoc.getLatitude(), mAtlantaLoc.getLongitude(), true);
+        assertEquals(mTampaRegion, match.getRegion());
+        match = index.findClosest(mAtlantaLoc.getLatitude(), mAtlantaLoc.getLongitude(), false);
+        assertEquals(mAtlantaRegion, match.getRegion());
+    }
+
     @Test
     public void testIsRegionUsable() {
         assertTrue(RegionUtils.isRegionUsable(mPsRegion));
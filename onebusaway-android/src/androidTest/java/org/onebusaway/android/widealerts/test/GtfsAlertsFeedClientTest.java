@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.widealerts.test;
+
+import com.google.transit.realtime.GtfsRealtime;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.onebusaway.android.widealerts.GtfsAlertsFeedClient;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import androidx.test.runner.AndroidJUnit4;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * Serves alerts feeds from a local HTTP server to test conditional and differential fetches
+ */
+@RunWith(AndroidJUnit4.class)
+public class GtfsAlertsFeedClientTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private static final String LAST_MODIFIED = "Mon, 01 Jan 2024 10:00:00 GMT";
+
+    private MockWebServer mServer;
+
+    private GtfsAlertsFeedClient mClient;
+
+    private String mUrl;
+
+    private SharedPreferences mPrefs;
+
+    private File mDir;
+
+    @Before
+    public void before() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mUrl = mServer.url("/alerts").toString();
+
+        mPrefs = getTargetContext().getSharedPreferences(
+                "gtfs_alerts_feed_test", Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+        mDir = new File(getTargetContext().getCacheDir(), "gtfs_alerts_feed_test");
+        FileUtils.deleteQuietly(mDir);
+        mClient = newClient();
+    }
+
+    @After
+    public void after() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void testConditionalRequest() throws Exception {
+        mServer.enqueue(feedResponse(feed(1000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "a", "b"))
+                .setHeader("ETag", ETAG)
+                .setHeader("Last-Modified", LAST_MODIFIED));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        List<GtfsRealtime.FeedEntity> alerts = mClient.fetch(mUrl);
+        assertNotNull(alerts);
+        assertEquals(2, alerts.size());
+        RecordedRequest first = mServer.takeRequest();
+        assertNull(first.getHeader("If-None-Match"));
+
+        // The unchanged feed still returns the alerts, as some may not have been shown yet
+        assertEquals(2, mClient.fetch(mUrl).size());
+        RecordedRequest second = mServer.takeRequest();
+        assertEquals(ETAG, second.getHeader("If-None-Match"));
+        assertEquals(LAST_MODIFIED, second.getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        mServer.enqueue(feedResponse(feed(1000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "a", "b"))
+                .setHeader("ETag", ETAG));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+        GtfsRealtime.FeedMessage.Builder diff = feed(2000,
+                GtfsRealtime.FeedHeader.Incrementality.DIFFERENTIAL, "c").toBuilder();
+        diff.addEntity(GtfsRealtime.FeedEntity.newBuilder().setId("a").setIsDeleted(true));
+        mServer.enqueue(feedResponse(diff.build()));
+
+        assertEquals(2, mClient.fetch(mUrl).size());
+        mServer.takeRequest();
+
+        // After a restart, an unchanged feed returns the saved alerts
+        List<GtfsRealtime.FeedEntity> alerts = newClient().fetch(mUrl);
+        assertEquals(ETAG, mServer.takeRequest().getHeader("If-None-Match"));
+        assertEquals(2, alerts.size());
+        assertEquals("a", alerts.get(0).getId());
+        assertEquals("b", alerts.get(1).getId());
+
+        // and a differential feed is applied to them
+        alerts = newClient().fetch(mUrl);
+        assertEquals(2, alerts.size());
+        assertEquals("b", alerts.get(0).getId());
+        assertEquals("c", alerts.get(1).getId());
+    }
+
+    @Test
+    public void testSavedAlertsMissing() throws Exception {
+        mServer.enqueue(feedResponse(feed(1000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "a"))
+                .setHeader("ETag", ETAG));
+        mServer.enqueue(feedResponse(feed(1000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "a"))
+                .setHeader("ETag", ETAG));
+
+        assertEquals(1, mClient.fetch(mUrl).size());
+        mServer.takeRequest();
+
+        // If the saved alerts are gone, e.g. because the cache was cleared, the feed is fetched
+        // and parsed again
+        FileUtils.deleteQuietly(mDir);
+        assertEquals(1, newClient().fetch(mUrl).size());
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void testUnchangedTimestamp() throws Exception {
+        GtfsRealtime.FeedMessage feed = feed(1000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "a");
+        mServer.enqueue(feedResponse(feed));
+        mServer.enqueue(feedResponse(feed));
+        mServer.enqueue(feedResponse(feed(2000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "c")));
+
+        assertEquals(1, mClient.fetch(mUrl).size());
+        // The server doesn't support conditional requests, but the feed hasn't changed
+        List<GtfsRealtime.FeedEntity> alerts = mClient.fetch(mUrl);
+        assertEquals(1, alerts.size());
+        assertEquals("a", alerts.get(0).getId());
+
+        alerts = mClient.fetch(mUrl);
+        assertEquals(1, alerts.size());
+        assertEquals("c", alerts.get(0).getId());
+    }
+
+    @Test
+    public void testDifferentialFeed() throws Exception {
+        mServer.enqueue(feedResponse(feed(1000,
+                GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, "a", "b")));
+        GtfsRealtime.FeedMessage.Builder diff = feed(2000,
+                GtfsRealtime.FeedHeader.Incrementality.DIFFERENTIAL, "c").toBuilder();
+        diff.addEntity(GtfsRealtime.FeedEntity.newBuilder().setId("a").setIsDeleted(true));
+        mServer.enqueue(feedResponse(diff.build()));
+
+        assertEquals(2, mClient.fetch(mUrl).size());
+
+        List<GtfsRealtime.FeedEntity> alerts = mClient.fetch(mUrl);
+        assertEquals(2, alerts.size());
+        assertEquals("b", alerts.get(0).getId());
+        assertEquals("c", alerts.get(1).getId());
+    }
+
+    private GtfsAlertsFeedClient newClient() {
+        return new GtfsAlertsFeedClient(new OkHttpClient(), mPrefs, mDir);
+    }
+
+    private static MockResponse feedResponse(GtfsRealtime.FeedMessage feed) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/x-protobuf")
+                .setBody(new Buffer().write(feed.toByteArray()));
+    }
+
+    private static GtfsRealtime.FeedMessage feed(long timestamp,
+            GtfsRealtime.FeedHeader.Incrementality incrementality, String... ids) {
+        GtfsRealtime.FeedMessage.Builder feed = GtfsRealtime.FeedMessage.newBuilder()
+                .setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                        .setGtfsRealtimeVersion("2.0")
+                        .setIncrementality(incrementality)
+                        .setTimestamp(timestamp));
+        for (String id : ids) {
+            feed.addEntity(GtfsRealtime.FeedEntity.newBuilder()
+                    .setId(id)
+                    .setAlert(GtfsRealtime.Alert.newBuilder()
+                            .setSeverityLevel(GtfsRealtime.Alert.SeverityLevel.SEVERE)
+                            .addActivePeriod(GtfsRealtime.TimeRange.newBuilder()
+                                    .setStart(timestamp))
+                            .addInformedEntity(GtfsRealtime.EntitySelector.newBuilder()
+                                    .setAgencyId("1"))));
+        }
+        return feed.build();
+    }
+}
@@ -28,6 +28,11 @@ import android.view.animation.Interpolator;
  */
 public class AnimationUtil {
 
+    /**
+     * Duration of marker animations, in milliseconds
+     */
+    public static final long MARKER_ANIMATION_DURATION_MS = 3000;
+
     /**
      * Animates a marker from it's current position to the provided finalPosition
      *
@@ -51,7 +56,7 @@ public class AnimationUtil {
         final Handler handler = new Handler();
         final long start = SystemClock.uptimeMillis();
         final Interpolator interpolator = new AccelerateDecelerateInterpolator();
-        final float durationInMs = 3000;
+        final float durationInMs = MARKER_ANIMATION_DURATION_MS;
 
         handler.post(new Runnable() {
             long elapsed;
@@ -94,7 +99,7 @@ public class AnimationUtil {
             }
         });
         valueAnimator.setFloatValues(0, 1); // Ignored.
-        valueAnimator.setDuration(3000);
+        valueAnimator.setDuration(MARKER_ANIMATION_DURATION_MS);
         valueAnimator.start();
     }
 
@@ -110,7 +115,7 @@ public class AnimationUtil {
         Property<Marker, LatLng> property = Property.of(Marker.class, LatLng.class, "position");
         ObjectAnimator animator = ObjectAnimator
                 .ofObject(marker, property, typeEvaluator, finalPosition);
-        animator.setDuration(3000);
+        animator.setDuration(MARKER_ANIMATION_DURATION_MS);
         animator.start();
     }
 
@@ -48,6 +48,7 @@ import org.onebusaway.android.io.elements.ObaRegion;
 import org.onebusaway.android.io.elements.ObaRoute;
 import org.onebusaway.android.io.elements.ObaShape;
 import org.onebusaway.android.io.elements.ObaStop;
+import org.onebusaway.android.io.elements.ShapeGeometry;
 import org.onebusaway.android.io.request.ObaResponse;
 import org.onebusaway.android.io.request.ObaTripsForRouteResponse;
 import org.onebusaway.android.map.DirectionsMapController;
@@ -91,6 +92,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -174,6 +176,16 @@ public class BaseMapFragment extends SupportMapFragment
 
     private ArrayList<Polyline> mLineOverlay = new ArrayList<Polyline>();
 
+    // Shapes of the route overlay, which vehicles are moved along between refreshes, in the
+    // same order as their polylines in mLineOverlay
+    private ArrayList<ObaShape> mRouteShapes = new ArrayList<>();
+
+    // Bounds of the route overlay, or null if it has no points
+    private LatLngBounds mRouteBounds;
+
+    // Zoom level that the route overlay was simplified for
+    private int mRouteZoomLevel;
+
     // Markers that are added to the map by classes external to this map package
     private SimpleMarkerOverlay mSimpleMarkerOverlay;
 
@@ -477,6 +489,9 @@ public class BaseMapFragment extends SupportMapFragment
                 controller.onPause();
             }
         }
+        if (mVehicleOverlay != null) {
+            mVehicleOverlay.onPause();
+        }
 
         Location center = getMapCenterAsLocation();
         if (center != null) {
@@ -511,6 +526,9 @@ public class BaseMapFragment extends SupportMapFragment
         }
         mRunning = true;
 
+        if (mVehicleOverlay != null) {
+            mVehicleOverlay.onResume();
+        }
         if (mControllers != null) {
             for (MapModeController controller : mControllers) {
                 controller.onResume();
@@ -580,6 +598,7 @@ public class BaseMapFragment extends SupportMapFragment
         if (mVehicleOverlay == null && a != null) {
             mVehicleOverlay = new VehicleOverlay(a, mMap);
             mVehicleOverlay.setController(this);
+            mVehicleOverlay.setRouteShapes(mRouteShapes);
         }
     }
 
@@ -1079,27 +1098,82 @@ public class BaseMapFragment extends SupportMapFragment
         if (mMap != null) {
             if (clear) {
                 mLineOverlay.clear();
+                mRouteShapes.clear();
+                mRouteBounds = null;
             }
             PolylineOptions lineOptions;
             StampStyle polylineArrow = TextureStyle.newBuilder(BitmapDescriptorFactory.fromResource(R.drawable.ic_navigation_expand_more)).build();
             StyleSpan polylineArrowSpan = new StyleSpan(StrokeStyle.colorBuilder(lineOverlayColor).stamp(polylineArrow).build());
 
             int totalPoints = 0;
+            int drawnPoints = 0;
+            mRouteZoomLevel = getRouteZoomLevel();
 
             for (ObaShape s : shapes) {
                 lineOptions = new PolylineOptions();
                 lineOptions.addSpan(polylineArrowSpan);
 
-                for (Location l : s.getPoints()) {
-                    lineOptions.add(MapHelpV2.makeLatLng(l));
-                }
+                ShapeGeometry geometry = s.getGeometry();
+                lineOptions.addAll(MapHelpV2.makeLatLngs(geometry.forZoom(mRouteZoomLevel)));
                 // Add the line to the map, and keep a reference in the ArrayList
                 mLineOverlay.add(mMap.addPolyline(lineOptions));
+                includeBounds(geometry);
 
-                totalPoints += lineOptions.getPoints().size();
+                totalPoints += geometry.size();
+                drawnPoints += lineOptions.getPoints().size();
             }
 
-            Log.d(TAG, "Total points for route polylines = " + totalPoints);
+            Log.d(TAG, "Total points for route polylines = " + totalPoints + ", drawn = "
+                    + drawnPoints);
+
+            Collections.addAll(mRouteShapes, shapes);
+            if (mVehicleOverlay != null) {
+                mVehicleOverlay.setRouteShapes(mRouteShapes);
+            }
+        }
+    }
+
+    /**
+     * Adds the bounds of a shape to the bounds of the route overlay, so the camera can be fit to
+     * the route without going through the points again
+     */
+    private void includeBounds(ShapeGeometry geometry) {
+        if (geometry.size() == 0) {
+            return;
+        }
+        LatLngBounds.Builder builder = new LatLngBounds.Builder()
+                .include(new LatLng(geometry.getMinLatitude(), geometry.getMinLongitude()))
+                .include(new LatLng(geometry.getMaxLatitude(), geometry.getMaxLongitude()));
+        if (mRouteBounds != null) {
+            builder.include(mRouteBounds.southwest).include(mRouteBounds.northeast);
+        }
+        mRouteBounds = builder.build();
+    }
+
+    /**
+     * @return the zoom level to simplify the route overlay for
+     */
+    private int getRouteZoomLevel() {
+        return Math.min((int) getZoomLevelAsFloat(), ShapeGeometry.FULL_DETAIL_ZOOM);
+    }
+
+    /**
+     * Redraws the route overlay with the detail needed at the current zoom level, if the zoom
+     * level has changed enough since it was drawn
+     */
+    private void updateRouteDetail() {
+        if (mMap == null || mLineOverlay.isEmpty()
+                || mLineOverlay.size() != mRouteShapes.size()) {
+            return;
+        }
+        int zoomLevel = getRouteZoomLevel();
+        if (zoomLevel == mRouteZoomLevel) {
+            return;
+        }
+        mRouteZoomLevel = zoomLevel;
+        for (int i = 0; i < mLineOverlay.size(); i++) {
+            ShapeGeometry geometry = mRouteShapes.get(i).getGeometry().forZoom(zoomLevel);
+            mLineOverlay.get(i).setPoints(MapHelpV2.makeLatLngs(geometry));
         }
     }
 
@@ -1134,19 +1208,12 @@ public class BaseMapFragment extends SupportMapFragment
     @Override
     public void zoomToRoute() {
         if (mMap != null) {
-            if (!mLineOverlay.isEmpty()) {
-                LatLngBounds.Builder builder = new LatLngBounds.Builder();
-                for (Polyline p : mLineOverlay) {
-                    for (LatLng l : p.getPoints()) {
-                        builder.include(l);
-                    }
-                }
-
+            if (!mLineOverlay.isEmpty() && mRouteBounds != null) {
                 Activity a = getActivity();
                 if (a != null) {
                     int padding = UIUtils.dpToPixels(a, DEFAULT_MAP_PADDING_DP);
                     mMap.moveCamera(
-                            (CameraUpdateFactory.newLatLngBounds(builder.build(), padding)));
+                            (CameraUpdateFactory.newLatLngBounds(mRouteBounds, padding)));
                 }
             } else {
                 Toast.makeText(getActivity(), getString(R.string.route_info_no_shape_data),
@@ -1158,19 +1225,12 @@ public class BaseMapFragment extends SupportMapFragment
     @Override
     public void zoomToItinerary() {
         if (mMap != null) {
-            if (!mLineOverlay.isEmpty()) {
-                LatLngBounds.Builder builder = new LatLngBounds.Builder();
-                for (Polyline p : mLineOverlay) {
-                    for (LatLng l : p.getPoints()) {
-                        builder.include(l);
-                    }
-                }
-
+            if (!mLineOverlay.isEmpty() && mRouteBounds != null) {
                 Activity a = getActivity();
                 if (a != null) {
                     int padding = UIUtils.dpToPixels(a, DEFAULT_MAP_PADDING_DP);
                     mMap.moveCamera(
-                            (CameraUpdateFactory.newLatLngBounds(builder.build(),
+                            (CameraUpdateFactory.newLatLngBounds(mRouteBounds,
                                     getResources().getDisplayMetrics().widthPixels,
                                     getResources().getDisplayMetrics().heightPixels,
                                     padding)));
@@ -1223,6 +1283,11 @@ public class BaseMapFragment extends SupportMapFragment
         }
 
         mLineOverlay.clear();
+        mRouteShapes.clear();
+        mRouteBounds = null;
+        if (mVehicleOverlay != null) {
+            mVehicleOverlay.setRouteShapes(mRouteShapes);
+        }
     }
 
     /**
@@ -1261,6 +1326,10 @@ public class BaseMapFragment extends SupportMapFragment
     @Override
     public void onCameraChange(CameraPosition cameraPosition) {
         Log.d(TAG, "onCameraChange");
+        updateRouteDetail();
+        if (mStopOverlay != null) {
+            mStopOverlay.onCameraChange();
+        }
         if (mControllers != null) {
             for (MapModeController controller : mControllers) {
                 controller.notifyMapChanged();
@@ -21,13 +21,16 @@ import com.google.android.gms.maps.model.LatLngBounds;
 import org.onebusaway.android.io.elements.ObaRegion;
 import org.onebusaway.android.io.elements.ObaTripDetails;
 import org.onebusaway.android.io.elements.ObaTripStatus;
+import org.onebusaway.android.io.elements.ShapeGeometry;
 import org.onebusaway.android.io.request.ObaTripsForRouteResponse;
 
 import android.content.Context;
 import android.location.Location;
 import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * Utilities to help process data for Android Maps API v1
@@ -57,6 +60,21 @@ public class MapHelpV2 {
         return makeLatLng(l.getLatitude(), l.getLongitude());
     }
 
+    /**
+     * Converts the points of a shape to LatLngs, e.g. for a Polyline.
+     *
+     * @param geometry points to convert
+     * @return A list of LatLngs representing the points.
+     */
+    public static List<LatLng> makeLatLngs(ShapeGeometry geometry) {
+        int size = geometry.size();
+        ArrayList<LatLng> latLngs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            latLngs.add(new LatLng(geometry.getLatitude(i), geometry.getLongitude(i)));
+        }
+        return latLngs;
+    }
+
     /**
      * Converts a LatLng to a Location.
      *
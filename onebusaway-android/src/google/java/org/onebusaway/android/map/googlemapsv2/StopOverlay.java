@@ -15,11 +15,13 @@
  */
 package org.onebusaway.android.map.googlemapsv2;
 
+import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.Projection;
 import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
@@ -29,6 +31,8 @@ import org.onebusaway.android.app.Application;
 import org.onebusaway.android.io.elements.ObaReferences;
 import org.onebusaway.android.io.elements.ObaRoute;
 import org.onebusaway.android.io.elements.ObaStop;
+import org.onebusaway.android.map.StopMarkerLayout;
+import org.onebusaway.android.map.StopTileCache;
 
 import android.app.Activity;
 import android.content.Context;
@@ -54,6 +58,8 @@ import android.widget.Toast;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -112,6 +118,15 @@ public class StopOverlay implements MarkerListeners {
 
     private static final float FOCUS_ICON_SCALE = 1.5f;
 
+    // Cluster icons by label
+    private static final Map<String, BitmapDescriptor> cluster_icons = new HashMap<>();
+
+    // Cluster icons are larger than stop icons by this factor
+    private static final float CLUSTER_ICON_SCALE = 1.25f;
+
+    // Zoom levels to zoom in by when a cluster is tapped
+    private static final int CLUSTER_ZOOM_STEP = 2;
+
     private static int mPx; // Bus stop icon size
 
     // Bus icon arrow attributes - by default assume we're not going to add a direction arrow
@@ -136,6 +151,16 @@ public class StopOverlay implements MarkerListeners {
             startTime = SystemClock.elapsedRealtimeNanos();
         }
 
+        StopMarkerLayout.Item cluster = mMarkerData.getClusterFromMarker(marker);
+        if (cluster != null) {
+            // Zoom in on the cluster, at least far enough that its stops aren't clustered
+            int zoom = Math.min((int) mMap.getCameraPosition().zoom + CLUSTER_ZOOM_STEP,
+                    StopMarkerLayout.MAX_CLUSTER_ZOOM + 1);
+            mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(
+                    new LatLng(cluster.getLatitude(), cluster.getLongitude()), zoom));
+            return true;
+        }
+
         ObaStop stop = mMarkerData.getStopFromMarker(marker);
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
@@ -227,6 +252,32 @@ public class StopOverlay implements MarkerListeners {
         }
     }
 
+    /**
+     * Updates the stop markers for the current zoom level, which changes how stops are
+     * clustered.  Should be called when the map camera has moved.
+     */
+    public synchronized void onCameraChange() {
+        if (mMarkerData != null) {
+            mMarkerData.onZoomChanged();
+        }
+    }
+
+    /**
+     * @return the number of stop and cluster markers added to the map since this overlay was
+     * created
+     */
+    public synchronized int getMarkersAdded() {
+        return mMarkerData != null ? mMarkerData.getMarkersAdded() : 0;
+    }
+
+    /**
+     * @return the number of stop and cluster markers removed from the map since this overlay
+     * was created
+     */
+    public synchronized int getMarkersRemoved() {
+        return mMarkerData != null ? mMarkerData.getMarkersRemoved() : 0;
+    }
+
     /**
      * Cache the BitmapDescriptors that hold the images used for icons
      */
@@ -614,6 +665,52 @@ public class StopOverlay implements MarkerListeners {
         return BitmapDescriptorFactory.fromBitmap(bus_stop_icons_focused[index]);
     }
 
+    /**
+     * Returns the icon for a cluster of stops, showing the number of stops in the cluster
+     *
+     * @param count the number of stops in the cluster
+     * @return the cluster icon
+     */
+    private static BitmapDescriptor getClusterBitmapDescriptor(int count) {
+        String label = count < 100 ? String.valueOf(count) : "99+";
+        BitmapDescriptor icon = cluster_icons.get(label);
+        if (icon == null) {
+            icon = BitmapDescriptorFactory.fromBitmap(createClusterIcon(label));
+            cluster_icons.put(label, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * Creates a cluster icon - a circle in the theme color with the given label
+     *
+     * @param label the label, normally the number of stops in the cluster
+     * @return a cluster icon bitmap
+     */
+    private static Bitmap createClusterIcon(String label) {
+        Resources r = Application.get().getResources();
+        int size = (int) (mPx * CLUSTER_ICON_SCALE);
+        Bitmap bm = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas c = new Canvas(bm);
+        float radius = size / 2f;
+
+        Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fill.setStyle(Paint.Style.FILL);
+        fill.setColor(r.getColor(R.color.theme_primary));
+        c.drawCircle(radius, radius, radius - 1, fill);
+        c.drawCircle(radius, radius, radius - 1, mArrowPaintStroke);
+
+        Paint text = new Paint(Paint.ANTI_ALIAS_FLAG);
+        text.setColor(Color.WHITE);
+        text.setTextAlign(Paint.Align.CENTER);
+        text.setFakeBoldText(true);
+        text.setTextSize(size * (label.length() > 2 ? 0.35f : 0.45f));
+        // Center the text vertically on the circle
+        float y = radius - (text.descent() + text.ascent()) / 2;
+        c.drawText(label, radius, y, text);
+        return bm;
+    }
+
     /**
      * Returns the currently focused stop, or null if no stop is in focus
      *
@@ -715,31 +812,43 @@ public class StopOverlay implements MarkerListeners {
 
         /**
          * Stops-for-location REST API endpoint returns 100 markers per call by default
-         * (see http://goo.gl/tzvrLb), so we'll support showing max results of around 2 calls
-         * before
-         * we completely clear the map and start over.  Note that this is a fuzzy max, since we
-         * don't
-         * want to clear the overlay in the middle of processing an API response and remove markers
-         * in
-         * the current view
+         * (see http://goo.gl/tzvrLb), so we'll hold around 2 calls worth of stops before we
+         * start dropping the stops farthest from the viewport.  Note that this is a fuzzy max,
+         * since stops within the current view are never dropped.
          */
         private static final int FUZZY_MAX_MARKER_COUNT = 200;
 
         /**
-         * A cached set of markers currently shown on the map, up to roughly
-         * FUZZY_MAX_MARKER_COUNT in size.  This is needed to add/remove markers from the map.
-         * StopId is the key.
+         * The stops the overlay holds, up to roughly FUZZY_MAX_MARKER_COUNT in size, in order of
+         * access so the least recently received stops come first.  Each stop is shown either by
+         * its own marker or as part of a cluster.  StopId is the key.
+         */
+        private LinkedHashMap<String, ObaStop> mKnownStops;
+
+        /**
+         * A cached set of markers for single stops currently shown on the map.  This is needed to
+         * add/remove markers from the map.  StopId is the key.
          */
         private HashMap<String, Marker> mStopMarkers;
 
         /**
-         * A cached set of ObaStops that are currently shown on the map, up to roughly
-         * FUZZY_MAX_MARKER_COUNT in size.  Since onMarkerClick() provides a marker, we need a
-         * mapping of that marker to the ObaStop.
-         * Marker that represents an ObaStop is the key.
+         * A cached set of ObaStops that are currently shown with their own markers on the map.
+         * Since onMarkerClick() provides a marker, we need a mapping of that marker to the
+         * ObaStop.  Marker that represents an ObaStop is the key.
          */
         private HashMap<Marker, ObaStop> mStops;
 
+        /**
+         * Markers for clusters of stops currently shown on the map.  The cluster key from
+         * StopMarkerLayout is the key.
+         */
+        private HashMap<String, Marker> mClusterMarkers;
+
+        /**
+         * The clusters shown by each cluster marker, so a tapped cluster can be zoomed into
+         */
+        private HashMap<Marker, StopMarkerLayout.Item> mClusters;
+
         /**
          * A cached set of ObaRoutes that serve the currently cached ObaStops.  This is
          * needed to retrieve the route display names that serve a particular stop.
@@ -761,48 +870,136 @@ public class StopOverlay implements MarkerListeners {
          */
         private List<ObaRoute> mFocusedRoutes;
 
+        /**
+         * Integer zoom level the markers were last laid out for
+         */
+        private int mLayoutZoom = -1;
+
+        /**
+         * Number of markers added to and removed from the map since the overlay was created
+         */
+        private int mMarkersAdded;
+
+        private int mMarkersRemoved;
+
         MarkerData() {
+            mKnownStops = new LinkedHashMap<String, ObaStop>(16, 0.75f, true);
             mStopMarkers = new HashMap<String, Marker>();
             mStops = new HashMap<Marker, ObaStop>();
+            mClusterMarkers = new HashMap<String, Marker>();
+            mClusters = new HashMap<Marker, StopMarkerLayout.Item>();
             mStopRoutes = new HashMap<String, ObaRoute>();
             mFocusedRoutes = new LinkedList<ObaRoute>();
         }
 
         synchronized void populate(List<ObaStop> stops, List<ObaRoute> routes) {
-            int count = 0;
+            int added = mMarkersAdded;
+            int removed = mMarkersRemoved;
 
-            if (mStopMarkers.size() >= FUZZY_MAX_MARKER_COUNT) {
-                // We've exceed our max, so clear the current marker cache and start over
-                Log.d(TAG, "Exceed max marker cache of " + FUZZY_MAX_MARKER_COUNT
-                        + ", clearing cache");
-                removeMarkersFromMap();
-                mStopMarkers.clear();
-                mStops.clear();
+            for (ObaStop stop : stops) {
+                // Also moves stops that were already known to the most recently used end
+                mKnownStops.put(stop.getId(), stop);
+            }
+            for (ObaRoute route : routes) {
+                // ObaRoutes may have already been added for other stops, so check before adding
+                if (!mStopRoutes.containsKey(route.getId())) {
+                    mStopRoutes.put(route.getId(), route);
+                }
+            }
 
-                // Make sure the currently focused stop still exists on the map
-                if (mCurrentFocusStop != null && mFocusedRoutes != null) {
-                    addMarkerToMap(mCurrentFocusStop, mFocusedRoutes);
-                    count++;
+            if (mKnownStops.size() > FUZZY_MAX_MARKER_COUNT) {
+                List<String> evicted = StopMarkerLayout.selectEvictions(mKnownStops.values(),
+                        getViewport(), FUZZY_MAX_MARKER_COUNT, getFocusId());
+                for (String stopId : evicted) {
+                    mKnownStops.remove(stopId);
                 }
+                Log.d(TAG, "Exceeded max marker cache of " + FUZZY_MAX_MARKER_COUNT
+                        + ", dropped " + evicted.size() + " stops outside the viewport");
             }
 
-            for (ObaStop stop : stops) {
-                if (!mStopMarkers.containsKey(stop.getId())) {
-                    addMarkerToMap(stop, routes);
-                    count++;
+            updateMarkers();
+
+            Log.d(TAG, "Added " + (mMarkersAdded - added) + " markers, removed "
+                    + (mMarkersRemoved - removed) + ", total markers = " + markerCount()
+                    + " for " + mKnownStops.size() + " stops");
+        }
+
+        /**
+         * Lays the markers out again if the map has been zoomed to another level since they
+         * were last laid out, which changes how stops are clustered
+         */
+        synchronized void onZoomChanged() {
+            if ((int) mMap.getCameraPosition().zoom != mLayoutZoom) {
+                updateMarkers();
+            }
+        }
+
+        /**
+         * Lays out the markers for the known stops at the current zoom level, and adds and
+         * removes markers on the map so it matches the layout.  Markers that are already shown
+         * stay on the map.
+         */
+        private void updateMarkers() {
+            float zoom = mMap.getCameraPosition().zoom;
+            mLayoutZoom = (int) zoom;
+            List<StopMarkerLayout.Item> items = StopMarkerLayout.layout(mKnownStops.values(),
+                    zoom, getFocusId());
+
+            HashMap<String, StopMarkerLayout.Item> stopItems = new HashMap<>();
+            HashMap<String, StopMarkerLayout.Item> clusterItems = new HashMap<>();
+            for (StopMarkerLayout.Item item : items) {
+                (item.isCluster() ? clusterItems : stopItems).put(item.getKey(), item);
+            }
+
+            // Remove the markers that aren't in the new layout
+            Iterator<Map.Entry<String, Marker>> it = mStopMarkers.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Marker> entry = it.next();
+                StopMarkerLayout.Item item = stopItems.remove(entry.getKey());
+                if (item == null) {
+                    mStops.remove(entry.getValue());
+                    removeMarker(entry.getValue());
+                    it.remove();
+                } else {
+                    // Keep the marker, with the latest copy of the stop
+                    mStops.put(entry.getValue(), item.getStop());
+                }
+            }
+            it = mClusterMarkers.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Marker> entry = it.next();
+                StopMarkerLayout.Item item = clusterItems.remove(entry.getKey());
+                if (item == null) {
+                    mClusters.remove(entry.getValue());
+                    removeMarker(entry.getValue());
+                    it.remove();
+                } else {
+                    // The key only holds the cell and the number of stops, so the stops in the
+                    // cluster, and with them its position, may have changed
+                    StopMarkerLayout.Item old = mClusters.put(entry.getValue(), item);
+                    if (old == null || old.getLatitude() != item.getLatitude()
+                            || old.getLongitude() != item.getLongitude()) {
+                        entry.getValue().setPosition(
+                                new LatLng(item.getLatitude(), item.getLongitude()));
+                    }
                 }
             }
 
-            Log.d(TAG, "Added " + count + " markers, total markers = " + mStopMarkers.size());
+            // Add the markers that aren't on the map yet
+            for (StopMarkerLayout.Item item : stopItems.values()) {
+                addMarkerToMap(item.getStop());
+            }
+            for (StopMarkerLayout.Item item : clusterItems.values()) {
+                addClusterMarkerToMap(item);
+            }
         }
 
         /**
          * Places a marker on the map for this stop, and adds it to our marker HashMap
          *
-         * @param stop   ObaStop that should be shown on the map
-         * @param routes A list of ObaRoutes that serve this stop
+         * @param stop ObaStop that should be shown on the map
          */
-        private synchronized void addMarkerToMap(ObaStop stop, List<ObaRoute> routes) {
+        private synchronized void addMarkerToMap(ObaStop stop) {
             // Determine icon within synchronized block to prevent race condition with focus changes
             BitmapDescriptor icon = getBitmapDescriptorForBusStopDirection(stop.getDirection());
             if (mCurrentFocusStop != null && stop.getId().equals(mCurrentFocusStop.getId())) {
@@ -818,18 +1015,52 @@ public class StopOverlay implements MarkerListeners {
             );
             mStopMarkers.put(stop.getId(), m);
             mStops.put(m, stop);
-            for (ObaRoute route : routes) {
-                // ObaRoutes may have already been added for other stops, so check before adding
-                if (!mStopRoutes.containsKey(route.getId())) {
-                    mStopRoutes.put(route.getId(), route);
-                }
-            }
+            mMarkersAdded++;
+        }
+
+        /**
+         * Places a marker on the map for a cluster of stops
+         *
+         * @param cluster the stops that should be shown by the marker
+         */
+        private void addClusterMarkerToMap(StopMarkerLayout.Item cluster) {
+            Marker m = mMap.addMarker(new MarkerOptions()
+                    .position(new LatLng(cluster.getLatitude(), cluster.getLongitude()))
+                    .icon(getClusterBitmapDescriptor(cluster.size()))
+                    .anchor(0.5f, 0.5f)
+            );
+            mClusterMarkers.put(cluster.getKey(), m);
+            mClusters.put(m, cluster);
+            mMarkersAdded++;
+        }
+
+        private void removeMarker(Marker marker) {
+            marker.remove();
+            mMarkersRemoved++;
+        }
+
+        /**
+         * @return the visible area of the map
+         */
+        private StopTileCache.Bounds getViewport() {
+            LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+            return new StopTileCache.Bounds(bounds.southwest.latitude,
+                    bounds.southwest.longitude, bounds.northeast.latitude,
+                    bounds.northeast.longitude);
+        }
+
+        private String getFocusId() {
+            return mCurrentFocusStop != null ? mCurrentFocusStop.getId() : null;
         }
 
         synchronized ObaStop getStopFromMarker(Marker marker) {
             return mStops.get(marker);
         }
 
+        synchronized StopMarkerLayout.Item getClusterFromMarker(Marker marker) {
+            return mClusters.get(marker);
+        }
+
         /**
          * Returns true if this overlay contains the provided ObaStop
          *
@@ -851,8 +1082,8 @@ public class StopOverlay implements MarkerListeners {
          * @return true if this overlay contains the provided stopId, false if it does not
          */
         synchronized boolean containsStop(String stopId) {
-            if (mStopMarkers != null) {
-                return mStopMarkers.containsKey(stopId);
+            if (mKnownStops != null) {
+                return mKnownStops.containsKey(stopId);
             } else {
                 return false;
             }
@@ -889,6 +1120,8 @@ public class StopOverlay implements MarkerListeners {
                 }
             }
             mCurrentFocusStop = stop;
+            // The focused stop is never clustered, so make sure it has its own marker
+            updateMarkers();
             mCurrentFocusMarker = mStopMarkers.get(stop.getId());
 
             // Check if the marker exists in our cache before proceeding
@@ -970,12 +1203,19 @@ public class StopOverlay implements MarkerListeners {
                 mCurrentFocusMarker = null;
             }
             mFocusedRoutes.clear();
-            mCurrentFocusStop = null;
+            if (mCurrentFocusStop != null) {
+                mCurrentFocusStop = null;
+                // The stop that had focus can be clustered again
+                updateMarkers();
+            }
         }
 
         private void removeMarkersFromMap() {
             for (Map.Entry<String, Marker> entry : mStopMarkers.entrySet()) {
-                entry.getValue().remove();
+                removeMarker(entry.getValue());
+            }
+            for (Map.Entry<String, Marker> entry : mClusterMarkers.entrySet()) {
+                removeMarker(entry.getValue());
             }
         }
 
@@ -985,31 +1225,50 @@ public class StopOverlay implements MarkerListeners {
          * @param clearFocusedStop true to clear the currently focused stop, false to leave it on map
          */
         synchronized void clear(boolean clearFocusedStop) {
-            if (mStopMarkers != null) {
-                // Clear all markers from the map
-                removeMarkersFromMap();
-
-                // Clear the data structures
-                mStopMarkers.clear();
-            }
-            if (mStops != null) {
-                mStops.clear();
-            }
-            if (mStopRoutes != null) {
-                mStopRoutes.clear();
-            }
+            // Clear all markers from the map
+            removeMarkersFromMap();
+
+            // Clear the data structures
+            mKnownStops.clear();
+            mStopMarkers.clear();
+            mStops.clear();
+            mClusterMarkers.clear();
+            mClusters.clear();
+            mStopRoutes.clear();
             if (clearFocusedStop) {
                 removeFocus();
             } else {
                 // Make sure the currently focused stop still exists on the map
                 if (mCurrentFocusStop != null && mFocusedRoutes != null) {
-                    addMarkerToMap(mCurrentFocusStop, mFocusedRoutes);
+                    mKnownStops.put(mCurrentFocusStop.getId(), mCurrentFocusStop);
+                    for (ObaRoute route : mFocusedRoutes) {
+                        mStopRoutes.put(route.getId(), route);
+                    }
+                    addMarkerToMap(mCurrentFocusStop);
                 }
             }
         }
 
+        /**
+         * @return the number of stops the overlay holds
+         */
         synchronized int size() {
-            return mStopMarkers.size();
+            return mKnownStops.size();
+        }
+
+        /**
+         * @return the number of markers, for stops and clusters, currently on the map
+         */
+        synchronized int markerCount() {
+            return mStopMarkers.size() + mClusterMarkers.size();
+        }
+
+        synchronized int getMarkersAdded() {
+            return mMarkersAdded;
+        }
+
+        synchronized int getMarkersRemoved() {
+            return mMarkersRemoved;
         }
     }
 
@@ -23,6 +23,7 @@ import android.graphics.BitmapFactory;
 import android.graphics.drawable.GradientDrawable;
 import android.location.Location;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -34,7 +35,6 @@ import androidx.collection.LruCache;
 import androidx.core.content.ContextCompat;
 
 import com.google.android.gms.maps.GoogleMap;
-import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
@@ -43,21 +43,25 @@ import com.google.android.gms.maps.model.MarkerOptions;
 import org.onebusaway.android.R;
 import org.onebusaway.android.app.Application;
 import org.onebusaway.android.io.elements.ObaRoute;
+import org.onebusaway.android.io.elements.ObaShape;
 import org.onebusaway.android.io.elements.ObaTrip;
 import org.onebusaway.android.io.elements.ObaTripDetails;
 import org.onebusaway.android.io.elements.ObaTripStatus;
 import org.onebusaway.android.io.elements.OccupancyState;
 import org.onebusaway.android.io.elements.Status;
 import org.onebusaway.android.io.request.ObaTripsForRouteResponse;
+import org.onebusaway.android.map.VehiclePositionEstimator;
 import org.onebusaway.android.ui.TripDetailsActivity;
 import org.onebusaway.android.ui.TripDetailsListFragment;
 import org.onebusaway.android.util.ArrivalInfoUtils;
 import org.onebusaway.android.util.MathUtils;
 import org.onebusaway.android.util.UIUtils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -123,6 +127,31 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
      */
     private static final float VEHICLE_MARKER_Z_INDEX = 1;
 
+    /**
+     * How often vehicles with real-time positions are moved along the route between refreshes
+     */
+    private static final long EXTRAPOLATION_PERIOD_MS = 1000;
+
+    /**
+     * Markers aren't moved for changes smaller than this (in degrees, roughly a meter)
+     */
+    private static final double MIN_MARKER_MOVE_DEGREES = 0.00001;
+
+    private final VehiclePositionEstimator mEstimator = new VehiclePositionEstimator();
+
+    private final Handler mExtrapolationHandler = new Handler();
+
+    private boolean mPaused;
+
+    private final Runnable mExtrapolation = new Runnable() {
+        @Override
+        public void run() {
+            if (mMarkerData != null && !mPaused && mMarkerData.moveEstimatedMarkers()) {
+                mExtrapolationHandler.postDelayed(this, EXTRAPOLATION_PERIOD_MS);
+            }
+        }
+    };
+
     public VehicleOverlay(Activity activity, GoogleMap map) {
         mActivity = activity;
         mMap = map;
@@ -157,6 +186,37 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
         mLastResponse = response;
         // Show the markers on the map
         mMarkerData.populate(routeIds, response);
+        scheduleExtrapolation();
+    }
+
+    /**
+     * Sets the route shapes that vehicles with real-time positions are moved along between
+     * refreshes
+     *
+     * @param shapes shapes of the route shown on the map, or an empty list if there isn't one
+     */
+    public void setRouteShapes(List<? extends ObaShape> shapes) {
+        mEstimator.setShapes(shapes);
+    }
+
+    /**
+     * Stops moving vehicles between refreshes while the map isn't visible
+     */
+    public void onPause() {
+        mPaused = true;
+        mExtrapolationHandler.removeCallbacks(mExtrapolation);
+    }
+
+    public void onResume() {
+        mPaused = false;
+        scheduleExtrapolation();
+    }
+
+    private void scheduleExtrapolation() {
+        mExtrapolationHandler.removeCallbacks(mExtrapolation);
+        if (!mPaused) {
+            mExtrapolationHandler.postDelayed(mExtrapolation, EXTRAPOLATION_PERIOD_MS);
+        }
     }
 
     public synchronized int size() {
@@ -171,6 +231,8 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
      * Clears any vehicle markers from the map
      */
     public synchronized void clear() {
+        mExtrapolationHandler.removeCallbacks(mExtrapolation);
+        mEstimator.retain(Collections.<String>emptySet());
         if (mMarkerData != null) {
             mMarkerData.clear();
             mMarkerData = null;
@@ -569,6 +631,25 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
 
     }
 
+    /**
+     * What is currently shown for a vehicle marker, so the map is only updated when something
+     * changes
+     */
+    private static class MarkerState {
+
+        int vehicleType;
+
+        int colorResource;
+
+        String iconKey;
+
+        // The position the marker was last moved or animated to
+        LatLng position;
+
+        // elapsedRealtime() when the last animation of the marker ends
+        long animationEnd;
+    }
+
     /**
      * Data structures to track what vehicles are currently shown on the map
      */
@@ -590,11 +671,17 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
          */
         private HashMap<String, Marker> mVehicleMarkers;
 
+        /**
+         * The state of each vehicle marker currently shown on the map, keyed by activeTripId
+         */
+        private HashMap<String, MarkerState> mMarkerStates;
+
         private static final int INITIAL_HASHMAP_SIZE = 5;
 
         MarkerData() {
             mVehicles = new HashMap<>(INITIAL_HASHMAP_SIZE);
             mVehicleMarkers = new HashMap<>(INITIAL_HASHMAP_SIZE);
+            mMarkerStates = new HashMap<>(INITIAL_HASHMAP_SIZE);
         }
 
         /**
@@ -611,6 +698,7 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
             int added = 0;
             int updated = 0;
             ObaTripDetails[] trips = response.getTrips();
+            long elapsed = SystemClock.elapsedRealtime();
 
             // Keep track of the activeTripIds that should be shown on the map, so we don't need
             // to iterate again later for this same info
@@ -635,14 +723,21 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
                             isRealtime = false;
                         }
 
+                        if (isRealtime) {
+                            mEstimator.update(status.getActiveTripId(), l.getLatitude(),
+                                    l.getLongitude(), getFixTime(status),
+                                    response.getCurrentTime(), elapsed);
+                        } else {
+                            mEstimator.remove(status.getActiveTripId());
+                        }
+
                         Marker m = mVehicleMarkers.get(status.getActiveTripId());
 
                         if (m == null) {
                             // New activeTripId
-                            addMarkerToMap(l, isRealtime, status, response);
+                            addMarkerToMap(l, isRealtime, status, response, elapsed);
                             added++;
-                        } else {
-                            updateMarker(m, l, isRealtime, status, response);
+                        } else if (updateMarker(m, l, isRealtime, status, elapsed)) {
                             updated++;
                         }
                         activeTripIds.add(status.getActiveTripId());
@@ -651,6 +746,7 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
             }
             // Remove markers for any previously added tripIds that aren't in the current response
             int removed = removeInactiveMarkers(activeTripIds);
+            mEstimator.retain(activeTripIds);
 
             Log.d(TAG,
                     "Added " + added + ", updated " + updated + ", removed " + removed
@@ -673,18 +769,30 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
          * @param isRealtime true if the marker shown indicate real-time info, false if it should indicate schedule
          * @param status     the vehicles status to add to the map
          * @param response   the response which contained the provided status
+         * @param elapsed    elapsedRealtime() when the response was received
          */
         private void addMarkerToMap(Location l, boolean isRealtime, ObaTripStatus status,
-                                    ObaTripsForRouteResponse response) {
+                                    ObaTripsForRouteResponse response, long elapsed) {
+            MarkerState state = new MarkerState();
+            state.vehicleType = getVehicleType(status, response);
+            state.colorResource = getColorResource(isRealtime, status);
+
+            VehiclePositionEstimator.Estimate e =
+                    mEstimator.estimate(status.getActiveTripId(), elapsed);
+            state.position = e != null ? makeLatLng(e) : MapHelpV2.makeLatLng(l);
+            int halfWind = getHalfWind(status, e);
+            state.iconKey = createBitmapCacheKey(state.vehicleType, halfWind, state.colorResource);
 
             Marker m = mMap.addMarker(new MarkerOptions()
-                    .position(MapHelpV2.makeLatLng(l))
+                    .position(state.position)
                     .title(status.getVehicleId())
-                    .icon(getVehicleIcon(isRealtime, status, response))
+                    .icon(BitmapDescriptorFactory.fromBitmap(
+                            getBitmap(state.vehicleType, state.colorResource, halfWind)))
             );
             ProprietaryMapHelpV2.setZIndex(m, VEHICLE_MARKER_Z_INDEX);
             mVehicleMarkers.put(status.getActiveTripId(), m);
             mVehicles.put(m, status);
+            mMarkerStates.put(status.getActiveTripId(), state);
         }
 
         /**
@@ -695,27 +803,101 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
          * @param isRealtime true if the marker shown indicate real-time info, false if it should
          *                   indicate schedule
          * @param status     real-time status of the vehicle
-         * @param response   response containing the provided status
+         * @param elapsed    elapsedRealtime() when the response was received
+         * @return true if the icon or position of the marker changed, false if it didn't
          */
-        private void updateMarker(Marker m, Location l, boolean isRealtime, ObaTripStatus status,
-                                  ObaTripsForRouteResponse response) {
+        private boolean updateMarker(Marker m, Location l, boolean isRealtime,
+                                     ObaTripStatus status, long elapsed) {
+            String tripId = status.getActiveTripId();
+            MarkerState state = mMarkerStates.get(tripId);
             boolean showInfo = m.isInfoWindowShown();
-            m.setIcon(getVehicleIcon(isRealtime, status, response));
             // Update Hashmap with newest status - needed to show info when tapping on marker
             mVehicles.put(m, status);
-            // Update vehicle position
-            Location markerLoc = MapHelpV2.makeLocation(m.getPosition());
-            // If its a small distance, animate the movement
-            if (l.distanceTo(markerLoc) < MAX_VEHICLE_ANIMATION_DISTANCE) {
-                AnimationUtil.animateMarkerTo(m, MapHelpV2.makeLatLng(l));
+
+            VehiclePositionEstimator.Estimate e = mEstimator.estimate(tripId, elapsed);
+            state.colorResource = getColorResource(isRealtime, status);
+            boolean changed = setIconIfChanged(m, state, getHalfWind(status, e));
+
+            LatLng position;
+            if (e != null && e.isMoving()) {
+                // Animate to where the vehicle will be when the animation ends, so it keeps
+                // moving smoothly afterwards
+                position = makeLatLng(mEstimator.estimate(tripId,
+                        elapsed + AnimationUtil.MARKER_ANIMATION_DURATION_MS));
+            } else if (e != null) {
+                position = makeLatLng(e);
             } else {
-                // Just snap the marker to the new location - large animations look weird
-                m.setPosition(MapHelpV2.makeLatLng(l));
+                position = MapHelpV2.makeLatLng(l);
             }
-            // If the info window was shown, make sure its open (changing the icon could have closed it)
+            // Update vehicle position
+            if (hasMoved(state.position, position)) {
+                Location markerLoc = MapHelpV2.makeLocation(state.position);
+                // If its a small distance, animate the movement
+                if (MapHelpV2.makeLocation(position).distanceTo(markerLoc)
+                        < MAX_VEHICLE_ANIMATION_DISTANCE) {
+                    AnimationUtil.animateMarkerTo(m, position);
+                    state.animationEnd = elapsed + AnimationUtil.MARKER_ANIMATION_DURATION_MS;
+                } else {
+                    // Just snap the marker to the new location - large animations look weird
+                    m.setPosition(position);
+                    state.animationEnd = 0;
+                }
+                state.position = position;
+                changed = true;
+            }
+            // If the info window was shown, make sure its open (changing the icon could have
+            // closed it) and shows the latest status
             if (showInfo) {
                 m.showInfoWindow();
             }
+            return changed;
+        }
+
+        /**
+         * Moves the markers of vehicles with real-time positions to where they are estimated to
+         * be now
+         *
+         * @return true if any vehicles are still moving, false if none are
+         */
+        synchronized boolean moveEstimatedMarkers() {
+            long elapsed = SystemClock.elapsedRealtime();
+            boolean moving = false;
+            for (Map.Entry<String, Marker> entry : mVehicleMarkers.entrySet()) {
+                VehiclePositionEstimator.Estimate e = mEstimator.estimate(entry.getKey(), elapsed);
+                if (e == null || !e.isMoving()) {
+                    continue;
+                }
+                moving = true;
+                MarkerState state = mMarkerStates.get(entry.getKey());
+                if (elapsed < state.animationEnd) {
+                    // Let the animation to the latest fix finish
+                    continue;
+                }
+                Marker m = entry.getValue();
+                LatLng position = makeLatLng(e);
+                if (hasMoved(state.position, position)) {
+                    m.setPosition(position);
+                    state.position = position;
+                }
+                setIconIfChanged(m, state, getHalfWind(mVehicles.get(m), e));
+            }
+            return moving;
+        }
+
+        /**
+         * Sets the icon of a marker, if it's different from the icon that is already shown
+         *
+         * @return true if the icon was changed, false if it wasn't
+         */
+        private boolean setIconIfChanged(Marker m, MarkerState state, int halfWind) {
+            String key = createBitmapCacheKey(state.vehicleType, halfWind, state.colorResource);
+            if (key.equals(state.iconKey)) {
+                return false;
+            }
+            m.setIcon(BitmapDescriptorFactory.fromBitmap(
+                    getBitmap(state.vehicleType, state.colorResource, halfWind)));
+            state.iconKey = key;
+            return true;
         }
 
         /**
@@ -742,6 +924,7 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
                         // Remove the marker from map and data structures
                         entry.getValue().remove();
                         mVehicles.remove(m);
+                        mMarkerStates.remove(tripId);
                         iterator.remove();
                         removed++;
                     }
@@ -759,6 +942,7 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
                         entry.getValue().remove();
                         mVehicles.remove(m);
                         mVehicleMarkers.remove(tripId);
+                        mMarkerStates.remove(tripId);
                         removed++;
                     }
                 }
@@ -767,34 +951,48 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
         }
 
         /**
-         * Returns an icon for the vehicle that should be shown on the map
+         * Returns the GTFS route type of the vehicle, used to pick its icon
          *
-         * @param isRealtime true if the marker shown indicate real-time info, false if it should
-         *                   indicate schedule
-         * @param status     the vehicles status to add to the map
-         * @param response   the response which contained the provided status
-         * @return an icon for the vehicle that should be shown on the map
+         * @param status   the vehicles status to add to the map
+         * @param response the response which contained the provided status
          */
-        private BitmapDescriptor getVehicleIcon(boolean isRealtime, ObaTripStatus status,
-                                                ObaTripsForRouteResponse response) {
+        private int getVehicleType(ObaTripStatus status, ObaTripsForRouteResponse response) {
             String routeId = response.getTrip(status.getActiveTripId()).getRouteId();
             ObaRoute route = response.getRoute(routeId);
-            int vehicleType = route.getType();
-
-            int colorResource;
+            return route.getType();
+        }
 
+        /**
+         * Returns the color resource for the vehicle icon
+         *
+         * @param isRealtime true if the marker shown indicate real-time info, false if it should
+         *                   indicate schedule
+         * @param status     the vehicles status to add to the map
+         */
+        private int getColorResource(boolean isRealtime, ObaTripStatus status) {
             if (isRealtime) {
                 long deviationMin = TimeUnit.SECONDS.toMinutes(status.getScheduleDeviation());
-                colorResource = ArrivalInfoUtils.computeColorFromDeviation(deviationMin);
+                return ArrivalInfoUtils.computeColorFromDeviation(deviationMin);
             } else {
-                colorResource = R.color.stop_info_scheduled_time;
+                return R.color.stop_info_scheduled_time;
             }
-            double direction = MathUtils.toDirection(status.getOrientation());
-            int halfWind = MathUtils.getHalfWindIndex((float) direction, NUM_DIRECTIONS - 1);
-            //Log.d(TAG, "VehicleId=" + status.getVehicleId() + ", orientation= " + status.getOrientation() + ", direction=" + direction + ", halfWind= " + halfWind + ", deviation=" + status.getScheduleDeviation());
+        }
 
-            Bitmap b = getBitmap(vehicleType, colorResource, halfWind);
-            return BitmapDescriptorFactory.fromBitmap(b);
+        /**
+         * Returns the direction the vehicle icon should point - along the route shape if the
+         * vehicle is being moved along it, otherwise the orientation from the status
+         *
+         * @param status the vehicles status
+         * @param e      the estimated position of the vehicle, or null if there isn't one
+         */
+        private int getHalfWind(ObaTripStatus status, VehiclePositionEstimator.Estimate e) {
+            double direction;
+            if (e != null && e.isMoving()) {
+                direction = e.getBearing();
+            } else {
+                direction = MathUtils.toDirection(status.getOrientation());
+            }
+            return MathUtils.getHalfWindIndex((float) direction, NUM_DIRECTIONS - 1);
         }
 
         synchronized ObaTripStatus getStatusFromMarker(Marker marker) {
@@ -819,6 +1017,10 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
                 mVehicleMarkers.clear();
                 mVehicleMarkers = null;
             }
+            if (mMarkerStates != null) {
+                mMarkerStates.clear();
+                mMarkerStates = null;
+            }
             if (mVehicles != null) {
                 mVehicles.clear();
                 mVehicles = null;
@@ -830,6 +1032,27 @@ public class VehicleOverlay implements GoogleMap.OnInfoWindowClickListener, Mark
         }
     }
 
+    /**
+     * Returns the time of the vehicle position in the given status, in milliseconds since the epoch
+     */
+    private static long getFixTime(ObaTripStatus status) {
+        // Use the last updated time for the position itself, if its available
+        if (status.getLastLocationUpdateTime() != 0) {
+            return status.getLastLocationUpdateTime();
+        }
+        return status.getLastUpdateTime();
+    }
+
+    private static LatLng makeLatLng(VehiclePositionEstimator.Estimate e) {
+        return new LatLng(e.getLatitude(), e.getLongitude());
+    }
+
+    private static boolean hasMoved(LatLng from, LatLng to) {
+        return from == null
+                || Math.abs(from.latitude - to.latitude) > MIN_MARKER_MOVE_DEGREES
+                || Math.abs(from.longitude - to.longitude) > MIN_MARKER_MOVE_DEGREES;
+    }
+
     /**
      * Returns true if there is real-time location information for the given status, false if there
      * is not
@@ -49,12 +49,15 @@ import org.onebusaway.android.R;
 import org.onebusaway.android.donations.DonationsManager;
 import org.onebusaway.android.io.ObaAnalytics;
 import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.ObaDefaultConnectionFactory;
+import org.onebusaway.android.io.ObaOkHttpConnectionFactory;
 import org.onebusaway.android.io.elements.ObaRegion;
 import org.onebusaway.android.provider.ObaContract;
 import org.onebusaway.android.travelbehavior.TravelBehaviorManager;
 import org.onebusaway.android.util.BuildFlavorUtils;
 import org.onebusaway.android.util.LocationUtils;
 import org.onebusaway.android.util.PreferenceUtils;
+import org.onebusaway.android.util.RegionSnapshot;
 import org.onebusaway.android.util.ReminderUtils;
 import org.onebusaway.android.widealerts.GtfsAlerts;
 
@@ -106,32 +109,70 @@ public class Application extends MultiDexApplication {
 
     private FirebaseAnalytics mFirebaseAnalytics;
 
-    private Plausible mPlausible;
+    private volatile Plausible mPlausible;
 
-    @Override
-    public void onCreate() {
-        super.onCreate();
+    private StartupGraph mStartupGraph;
 
-        mApp = this;
-        mPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+    // True if the region was restored from its snapshot at startup, and still has to be checked
+    private boolean mRegionFromSnapshot;
+
+    // Names of the startup tasks, which are also used for their trace sections
+    private static final String STARTUP_OBA = "oba";
 
-        initOba();
-        initObaRegion();
-        initOpen311(getCurrentRegion());
+    private static final String STARTUP_REGION = "region";
 
-        reportAnalytics();
+    private static final String STARTUP_VALIDATE_REGION = "validateRegion";
 
-        createNotificationChannels();
+    private static final String STARTUP_NOTIFICATION_CHANNELS = "notificationChannels";
 
-        TravelBehaviorManager.startCollectingData(getApplicationContext());
+    private static final String STARTUP_LAUNCH_COUNT = "launchCount";
 
-        incrementAppLaunchCount();
+    private static final String STARTUP_DONATIONS = "donations";
 
-        initOneSignal();
+    private static final String STARTUP_GTFS_ALERTS = "gtfsAlerts";
 
-        mDonationsManager = new DonationsManager(mPrefs, mFirebaseAnalytics, getResources(), getAppLaunchCount());
+    private static final String STARTUP_OPEN311 = "open311";
 
-        mGtfsAlerts = new GtfsAlerts(getApplicationContext());
+    private static final String STARTUP_ANALYTICS = "analytics";
+
+    private static final String STARTUP_TRAVEL_BEHAVIOR = "travelBehavior";
+
+    private static final String STARTUP_ONESIGNAL = "oneSignal";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        mApp = this;
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+
+        mStartupGraph = new StartupGraph()
+                // Needed before the first activity is drawn
+                .add(STARTUP_OBA, StartupGraph.Stage.CRITICAL, this::initOba)
+                .add(STARTUP_REGION, StartupGraph.Stage.CRITICAL, this::initObaRegion,
+                        STARTUP_OBA)
+                .add(STARTUP_NOTIFICATION_CHANNELS, StartupGraph.Stage.CRITICAL,
+                        this::createNotificationChannels)
+                .add(STARTUP_LAUNCH_COUNT, StartupGraph.Stage.CRITICAL,
+                        this::incrementAppLaunchCount)
+                .add(STARTUP_DONATIONS, StartupGraph.Stage.CRITICAL, () -> {
+                    mFirebaseAnalytics = FirebaseAnalytics.getInstance(this);
+                    mDonationsManager = new DonationsManager(mPrefs, mFirebaseAnalytics,
+                            getResources(), getAppLaunchCount());
+                }, STARTUP_LAUNCH_COUNT)
+                .add(STARTUP_GTFS_ALERTS, StartupGraph.Stage.CRITICAL,
+                        () -> mGtfsAlerts = new GtfsAlerts(getApplicationContext()))
+                // Only needed once the user does something with them
+                .add(STARTUP_VALIDATE_REGION, StartupGraph.Stage.BACKGROUND,
+                        this::validateRegionSnapshot, STARTUP_REGION)
+                .add(STARTUP_OPEN311, StartupGraph.Stage.BACKGROUND,
+                        () -> initOpen311(getCurrentRegion()), STARTUP_VALIDATE_REGION)
+                .add(STARTUP_ANALYTICS, StartupGraph.Stage.BACKGROUND, this::reportAnalytics,
+                        STARTUP_REGION, STARTUP_DONATIONS)
+                .add(STARTUP_TRAVEL_BEHAVIOR, StartupGraph.Stage.BACKGROUND,
+                        () -> TravelBehaviorManager.startCollectingData(getApplicationContext()))
+                .add(STARTUP_ONESIGNAL, StartupGraph.Stage.IDLE, this::initOneSignal);
+        mStartupGraph.start();
     }
 
     /**
@@ -162,6 +203,13 @@ public class Application extends MultiDexApplication {
         return get().mGtfsAlerts;
     }
 
+    /**
+     * @return the tasks run when the app process started, e.g. to check how long they took
+     */
+    public static StartupGraph getStartupGraph() {
+        return get().mStartupGraph;
+    }
+
     private static String appLaunchCountPreferencesKey = "appLaunchCountPreferencesKey";
 
     private void incrementAppLaunchCount() {
@@ -347,6 +395,7 @@ public class Application extends MultiDexApplication {
             ObaApi.getDefaultContext().setRegion(region);
             PreferenceUtils
                     .saveLong(mPrefs, getString(R.string.preference_key_region), region.getId());
+            RegionSnapshot.save(mPrefs, region);
             //We're using a region, so clear the custom API URL preference
             setCustomApiUrl(null);
             if (regionChanged && region.getOtpBaseUrl() != null) {
@@ -358,6 +407,7 @@ public class Application extends MultiDexApplication {
             //User must have just entered a custom API URL via Preferences, so clear the region info
             ObaApi.getDefaultContext().setRegion(null);
             PreferenceUtils.saveLong(mPrefs, getString(R.string.preference_key_region), -1);
+            RegionSnapshot.clear(mPrefs);
         }
         // Init the reporting with the new endpoints
         initOpen311(region);
@@ -520,6 +570,23 @@ public class Application extends MultiDexApplication {
             return;
         }
         ObaApi.getDefaultContext().setAppInfo(appInfo.versionCode, uuid);
+        initConnectionFactory();
+    }
+
+    /**
+     * Sets the connection factory used for OBA REST API requests based on the "use pooled HTTP
+     * client" preference - should be called again after this preference changes
+     */
+    public void initConnectionFactory() {
+        boolean usePooledClient = mPrefs.getBoolean(
+                getString(R.string.preference_key_use_pooled_http_client), false);
+        if (usePooledClient) {
+            ObaApi.getDefaultContext()
+                    .setConnectionFactory(ObaOkHttpConnectionFactory.getInstance());
+        } else {
+            ObaApi.getDefaultContext()
+                    .setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        }
     }
 
     private void checkArrivalStylePreferenceDefault() {
@@ -564,24 +631,58 @@ public class Application extends MultiDexApplication {
     }
 
     private void initObaRegion() {
-        // Read the region preference, look it up in the DB, then set the region.
+        // Read the region preference, restore the region from its snapshot (or look it up in
+        // the DB if there isn't one), then set the region.
         long id = mPrefs.getLong(getString(R.string.preference_key_region), -1);
         if (id < 0) {
             Log.d(TAG, "Regions preference ID is less than 0, returning...");
             return;
         }
 
-        ObaRegion region = ObaContract.Regions.get(this, (int) id);
-        if (region == null) {
-            Log.d(TAG, "Regions preference is null, returning...");
-            return;
+        ObaRegion region = RegionSnapshot.load(mPrefs, id);
+        if (region != null) {
+            mRegionFromSnapshot = true;
+        } else {
+            region = ObaContract.Regions.get(this, (int) id);
+            if (region == null) {
+                Log.d(TAG, "Regions preference is null, returning...");
+                return;
+            }
+            RegionSnapshot.save(mPrefs, region);
         }
 
-
         ObaApi.getDefaultContext().setRegion(region);
     }
 
-    private void initOpen311(ObaRegion region) {
+    /**
+     * Checks the region restored from its snapshot at startup against the regions DB, and
+     * updates the region if it has changed since the snapshot was saved
+     */
+    private void validateRegionSnapshot() {
+        if (!mRegionFromSnapshot) {
+            return;
+        }
+        ObaRegion snapshot = getCurrentRegion();
+        if (snapshot == null) {
+            return;
+        }
+        ObaRegion region = ObaContract.Regions.get(this, (int) snapshot.getId());
+        if (region == null) {
+            // Not in the DB anymore - the next regions refresh will pick a new region
+            return;
+        }
+        synchronized (this) {
+            if (getCurrentRegion() != snapshot || RegionSnapshot.matches(mPrefs, region)) {
+                // The region was already changed since startup, or the snapshot is up to date
+                return;
+            }
+            Log.d(TAG, "Region snapshot is out of date, updating region " + region.getId());
+            ObaApi.getDefaultContext().setRegion(region);
+            RegionSnapshot.save(mPrefs, region);
+        }
+    }
+
+    private synchronized void initOpen311(ObaRegion region) {
         if (BuildConfig.DEBUG) {
             Open311Manager.getSettings().setDebugMode(true);
             Open311Manager.getSettings().setDryRun(true);
@@ -606,7 +707,6 @@ public class Application extends MultiDexApplication {
     }
 
     private void reportAnalytics() {
-        mFirebaseAnalytics = FirebaseAnalytics.getInstance(this);
         if (getCustomApiUrl() == null && getCurrentRegion() != null) {
             buildPlausibleInstance(getCurrentRegion());
             ObaAnalytics.setRegion(mPlausible, mFirebaseAnalytics, getCurrentRegion().getName());
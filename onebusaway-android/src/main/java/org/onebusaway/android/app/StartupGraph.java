@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The work done when the app process starts, as a graph of named tasks.
+ *
+ * Each task runs in one of three stages:
+ * <ul>
+ * <li>{@link Stage#CRITICAL} tasks run on the main thread when {@link #start()} is called, in
+ * the order they were added, and must finish before the first activity can be created</li>
+ * <li>{@link Stage#BACKGROUND} tasks run one at a time on a background thread</li>
+ * <li>{@link Stage#IDLE} tasks run on the main thread once it is idle, which is after the first
+ * frame has been drawn when the process is started for an activity</li>
+ * </ul>
+ * A task isn't started until the tasks it depends on have finished, so deferred tasks can depend
+ * on each other across stages.  Critical tasks may only depend on critical tasks added before
+ * them.
+ *
+ * Each task is wrapped in a trace section named "startup:" followed by the task name, so cold
+ * start can be measured with systrace or Perfetto, and its duration is logged.
+ */
+public class StartupGraph {
+
+    private static final String TAG = "StartupGraph";
+
+    private static final String TRACE_PREFIX = "startup:";
+
+    public enum Stage {CRITICAL, BACKGROUND, IDLE}
+
+    private static class Task {
+
+        final String name;
+
+        final Stage stage;
+
+        final Runnable runnable;
+
+        final List<String> dependencies;
+
+        boolean dispatched;
+
+        Task(String name, Stage stage, Runnable runnable, List<String> dependencies) {
+            this.name = name;
+            this.stage = stage;
+            this.runnable = runnable;
+            this.dependencies = dependencies;
+        }
+    }
+
+    // Task name -> task, in the order the tasks were added
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+
+    // Task name -> how long the task took to run, in milliseconds
+    private final Map<String, Long> mDurations = new LinkedHashMap<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Idle tasks that are ready to run, one per idle pass of the main thread
+    private final ArrayDeque<Task> mIdleTasks = new ArrayDeque<>();
+
+    private ExecutorService mExecutor;
+
+    private long mStartTime;
+
+    private boolean mStarted;
+
+    /**
+     * Adds a task to the graph
+     *
+     * @param name         a name for the task, unique in the graph
+     * @param stage        when the task is run
+     * @param runnable     the task
+     * @param dependencies names of the tasks that must finish before this one starts
+     * @return this graph
+     */
+    public synchronized StartupGraph add(String name, Stage stage, Runnable runnable,
+            String... dependencies) {
+        if (mStarted) {
+            throw new IllegalStateException("Startup has already started");
+        }
+        if (mTasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup task " + name);
+        }
+        for (String dependency : dependencies) {
+            Task task = mTasks.get(dependency);
+            if (task == null) {
+                // Requiring dependencies to be added first also rules out cycles
+                throw new IllegalArgumentException(
+                        "Startup task " + name + " depends on unknown task " + dependency);
+            }
+            if (stage == Stage.CRITICAL && task.stage != Stage.CRITICAL) {
+                throw new IllegalArgumentException("Critical startup task " + name
+                        + " can't depend on deferred task " + dependency);
+            }
+        }
+        mTasks.put(name, new Task(name, stage, runnable, Arrays.asList(dependencies)));
+        return this;
+    }
+
+    /**
+     * Runs the critical tasks, and schedules the deferred tasks.  Must be called on the main
+     * thread.
+     */
+    public void start() {
+        List<Task> critical = new ArrayList<>();
+        synchronized (this) {
+            if (mStarted) {
+                throw new IllegalStateException("Startup has already started");
+            }
+            mStarted = true;
+            mStartTime = SystemClock.elapsedRealtime();
+            for (Task task : mTasks.values()) {
+                if (task.stage == Stage.CRITICAL) {
+                    task.dispatched = true;
+                    critical.add(task);
+                }
+            }
+        }
+        for (Task task : critical) {
+            run(task);
+        }
+        Log.d(TAG, "Critical startup tasks finished in "
+                + (SystemClock.elapsedRealtime() - mStartTime) + " ms");
+        dispatchReadyTasks();
+    }
+
+    /**
+     * @return true if the named task has finished
+     */
+    public synchronized boolean isFinished(String name) {
+        return mDurations.containsKey(name);
+    }
+
+    /**
+     * @return task name -> how long the task took to run in milliseconds, for the tasks that
+     * have finished, in the order they finished
+     */
+    public synchronized Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(mDurations));
+    }
+
+    private void run(Task task) {
+        long start = SystemClock.elapsedRealtime();
+        Trace.beginSection(TRACE_PREFIX + task.name);
+        try {
+            task.runnable.run();
+        } catch (RuntimeException e) {
+            // A failed deferred task shouldn't take the app down, or hold back the tasks after it
+            if (task.stage == Stage.CRITICAL) {
+                throw e;
+            }
+            Log.e(TAG, "Startup task " + task.name + " failed: " + e);
+        } finally {
+            Trace.endSection();
+        }
+        long duration = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, task.name + " (" + task.stage + ") took " + duration + " ms");
+
+        boolean finished;
+        synchronized (this) {
+            mDurations.put(task.name, duration);
+            finished = mDurations.size() == mTasks.size();
+            if (finished && mExecutor != null) {
+                // Let the background thread end once it runs out of work
+                mExecutor.shutdown();
+            }
+        }
+        if (finished) {
+            Log.d(TAG, "All startup tasks finished "
+                    + (SystemClock.elapsedRealtime() - mStartTime) + " ms after start");
+        }
+        if (task.stage != Stage.CRITICAL) {
+            dispatchReadyTasks();
+        }
+    }
+
+    /**
+     * Hands the deferred tasks whose dependencies have all finished to their stage
+     */
+    private void dispatchReadyTasks() {
+        List<Task> background = new ArrayList<>();
+        List<Task> idle = new ArrayList<>();
+        synchronized (this) {
+            for (Task task : mTasks.values()) {
+                if (task.dispatched || !mDurations.keySet().containsAll(task.dependencies)) {
+                    continue;
+                }
+                task.dispatched = true;
+                if (task.stage == Stage.BACKGROUND) {
+                    background.add(task);
+                } else {
+                    idle.add(task);
+                }
+            }
+            if (!background.isEmpty() && mExecutor == null) {
+                mExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, TAG));
+            }
+        }
+        for (final Task task : background) {
+            mExecutor.execute(() -> run(task));
+        }
+        if (!idle.isEmpty()) {
+            mMainHandler.post(() -> scheduleIdleTasks(idle));
+        }
+    }
+
+    /**
+     * Runs the given tasks on the main thread, one per idle pass so input and drawing can be
+     * handled in between
+     */
+    private void scheduleIdleTasks(List<Task> tasks) {
+        boolean wasEmpty = mIdleTasks.isEmpty();
+        mIdleTasks.addAll(tasks);
+        if (!wasEmpty) {
+            // Already waiting for the main thread to be idle
+            return;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                Task task = mIdleTasks.poll();
+                if (task != null) {
+                    run(task);
+                }
+                return !mIdleTasks.isEmpty();
+            }
+        });
+    }
+}
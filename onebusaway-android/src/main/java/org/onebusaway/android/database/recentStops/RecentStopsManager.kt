@@ -1,45 +1,46 @@
 package org.onebusaway.android.database.recentStops
 
 import android.content.Context
+import android.os.Handler
+import android.os.Looper
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.withContext
 import org.onebusaway.android.app.Application
 import org.onebusaway.android.database.DatabaseProvider
-import org.onebusaway.android.database.recentStops.entity.RegionEntity
 import org.onebusaway.android.database.recentStops.entity.StopEntity
 import org.onebusaway.android.io.elements.ObaStop
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Manages recent stops data by interacting with the database.
  * Handles saving new stops, and retrieving recent stops.
+ *
+ * The recent stops for each region are cached in memory after they are first read, and updated
+ * when a stop is saved, so callers don't need to wait on the database again.
  */
 object RecentStopsManager {
 
     // Maximum stops count to save
     private var MAX_STOP_COUNT = 5
 
-    /**
-     * Inserts a region into the database if it does not already exist.
-     *
-     * @param regionId The ID of the region to insert.
-     */
-    private suspend fun insertRegion(context: Context, regionId: Int) {
-        val db = DatabaseProvider.getDatabase(context)
-        val regionDao = db.regionDao()
+    private val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
 
-        withContext(Dispatchers.IO) {
-            val existingRegion = regionDao.getRegionByID(regionId)
-            if (existingRegion == null) {
-                regionDao.insertRegion(RegionEntity(regionId))
-            }
-        }
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    // Region ID -> recent stop IDs, most recent first
+    private val recentStops = ConcurrentHashMap<Int, List<String>>()
+
+    /** Receives the recent stop IDs, for callers written in Java. */
+    fun interface RecentStopsCallback {
+        fun onRecentStops(stopIds: List<String>)
     }
 
     /**
      * Saves a new stop to the database. If the maximum number of stops is exceeded, deletes the oldest stop.
+     * The stop is saved and the oldest stops deleted in a single transaction.
      *
      * @param stop The `ObaStop` object to save.
      */
@@ -50,35 +51,48 @@ object RecentStopsManager {
         val db = DatabaseProvider.getDatabase(context)
         val stopDao = db.stopDao()
 
-        CoroutineScope(Dispatchers.IO).launch {
+        coroutineScope.launch {
             val currentTime = System.currentTimeMillis()
-            val stopCount = stopDao.getStopCount(regionId)
-
-            if (stopCount >= MAX_STOP_COUNT) {
-                // Delete the oldest stop and insert the new one
-                stopDao.deleteOldestStop(regionId)
-            }
-
-            insertRegion(context, regionId)
-            stopDao.insertStop(StopEntity(stop.id, stop.name, regionId, currentTime))
+            recentStops[regionId] = stopDao.insertAndTrim(
+                StopEntity(stop.id, stop.name, regionId, currentTime), MAX_STOP_COUNT
+            )
         }
     }
 
     /**
-     * Retrieves a list of recent stop IDs for the current region.
+     * Retrieves a list of recent stop IDs for a region, most recent first.
      *
+     * @param regionId The ID of the region.
      * @return A list of recent stop IDs or an empty list if none are found.
      */
-    fun getRecentStops(context: Context): List<String> {
-        return runBlocking {
-            val db = DatabaseProvider.getDatabase(context)
-            val stopDao = db.stopDao()
+    suspend fun getRecentStops(context: Context, regionId: Int): List<String> {
+        recentStops[regionId]?.let { return it }
 
-            withContext(Dispatchers.IO) {
-                val regionId = Application.get().currentRegion.id.toInt()
-                val stops = stopDao.getRecentStopsForRegion(regionId)
-                stops.map { it.stop_id }
-            }
+        val stopDao = DatabaseProvider.getDatabase(context).stopDao()
+        val stops = withContext(Dispatchers.IO) {
+            stopDao.getRecentStopIds(regionId)
+        }
+        // A stop saved while this was loading is newer, so keep it
+        return recentStops.putIfAbsent(regionId, stops) ?: stops
+    }
+
+    /**
+     * Retrieves a list of recent stop IDs for the current region without blocking the calling
+     * thread.
+     *
+     * @param callback Called on the main thread with the recent stop IDs, most recent first, or
+     * an empty list if none are found.
+     */
+    @JvmStatic
+    fun getRecentStops(context: Context, callback: RecentStopsCallback) {
+        val regionId = Application.get().currentRegion?.id?.toInt()
+        if (regionId == null) {
+            callback.onRecentStops(emptyList())
+            return
+        }
+        coroutineScope.launch {
+            val stops = getRecentStops(context, regionId)
+            mainHandler.post { callback.onRecentStops(stops) }
         }
     }
 }
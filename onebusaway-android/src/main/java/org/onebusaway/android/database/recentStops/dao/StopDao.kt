@@ -4,21 +4,45 @@ import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
+import androidx.room.Transaction
+import org.onebusaway.android.database.recentStops.entity.RegionEntity
 import org.onebusaway.android.database.recentStops.entity.StopEntity
 /**
- * DAO interface for accessing and managing the `stops` table in the database.
+ * DAO for accessing and managing the `stops` table in the database.
  */
 @Dao
-interface StopDao {
+abstract class StopDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    suspend fun insertStop(stop: StopEntity): Long
+    abstract suspend fun insertStop(stop: StopEntity): Long
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract suspend fun insertRegionIfMissing(region: RegionEntity)
 
     @Query("SELECT * FROM stops WHERE regionId = :regionId")
-    suspend fun getRecentStopsForRegion(regionId: Int): List<StopEntity>
+    abstract suspend fun getRecentStopsForRegion(regionId: Int): List<StopEntity>
+
+    @Query("SELECT stop_id FROM stops WHERE regionId = :regionId ORDER BY timestamp DESC")
+    abstract suspend fun getRecentStopIds(regionId: Int): List<String>
 
     @Query("SELECT COUNT(*) FROM stops WHERE regionId = :regionId")
-    suspend fun getStopCount(regionId: Int): Int
+    abstract suspend fun getStopCount(regionId: Int): Int
 
     @Query("DELETE FROM stops WHERE stop_id = (SELECT stop_id FROM stops WHERE regionId = :regionId ORDER BY timestamp ASC LIMIT 1)")
-    suspend fun deleteOldestStop(regionId: Int)
+    abstract suspend fun deleteOldestStop(regionId: Int)
+
+    @Query("DELETE FROM stops WHERE regionId = :regionId AND stop_id NOT IN (SELECT stop_id FROM stops WHERE regionId = :regionId ORDER BY timestamp DESC LIMIT :maxCount)")
+    abstract suspend fun trimStops(regionId: Int, maxCount: Int)
+
+    /**
+     * Saves a stop and deletes the oldest stops in its region beyond maxCount, in one transaction.
+     *
+     * @return The stop IDs now saved for the region, most recent first.
+     */
+    @Transaction
+    open suspend fun insertAndTrim(stop: StopEntity, maxCount: Int): List<String> {
+        insertRegionIfMissing(RegionEntity(stop.regionId))
+        insertStop(stop)
+        trimStops(stop.regionId, maxCount)
+        return getRecentStopIds(stop.regionId)
+    }
 }
@@ -4,31 +4,64 @@ import android.content.Context
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 import org.onebusaway.android.database.DatabaseProvider
 import org.onebusaway.android.database.widealerts.entity.AlertEntity
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
 
 /** Provides methods to interact with the alerts database. */
 object AlertsRepository {
 
+    /** Receives the IDs of the alerts that have been read, for callers written in Java. */
+    fun interface ReadAlertIdsCallback {
+        fun onReadAlertIds(readAlertIds: Set<String>)
+    }
+
+    // IDs of every alert in the database, loaded once and then kept up to date by insertAlert()
+    private val readAlertIds: MutableSet<String> =
+        Collections.newSetFromMap(ConcurrentHashMap<String, Boolean>())
+
+    @Volatile
+    private var readAlertIdsLoaded = false
+
+    private val loadMutex = Mutex()
+
     /**
-     * Checks if an alert exists in the database.
+     * Returns the IDs of all alerts in the database, reading them with a single query the first
+     * time this is called.
      *
      * @param context The context to access the database.
-     * @param alertId The ID of the alert to check.
-     * @return True if the alert exists, false otherwise.
+     * @return A read-only view of the alert IDs, which reflects later calls to insertAlert().
      */
-    @JvmStatic
-     fun isAlertExists(context: Context, alertId: String): Boolean {
-        val db = DatabaseProvider.getDatabase(context)
-        val alertDao = db.alertsDao()
-
-        return runBlocking {
-            withContext(Dispatchers.IO) {
-                alertDao.getAlertById(alertId) != null
+    suspend fun getReadAlertIds(context: Context): Set<String> {
+        if (!readAlertIdsLoaded) {
+            loadMutex.withLock {
+                if (!readAlertIdsLoaded) {
+                    val alertDao = DatabaseProvider.getDatabase(context).alertsDao()
+                    withContext(Dispatchers.IO) {
+                        readAlertIds.addAll(alertDao.getAllAlertIds())
+                    }
+                    readAlertIdsLoaded = true
+                }
             }
         }
+        return Collections.unmodifiableSet(readAlertIds)
+    }
+
+    /**
+     * Loads the IDs of all alerts in the database without blocking the calling thread.
+     *
+     * @param context The context to access the database.
+     * @param callback Called on a background thread with the alert IDs.
+     */
+    @JvmStatic
+    fun getReadAlertIds(context: Context, callback: ReadAlertIdsCallback) {
+        CoroutineScope(Dispatchers.IO).launch {
+            callback.onReadAlertIds(getReadAlertIds(context))
+        }
     }
 
     /**
@@ -42,8 +75,10 @@ object AlertsRepository {
         val db = DatabaseProvider.getDatabase(context)
         val alertDao = db.alertsDao()
 
+        // Update the cached IDs right away, so the alert isn't shown again before the insert runs
+        readAlertIds.add(alert.id)
         CoroutineScope(Dispatchers.IO).launch {
             alertDao.insertAlert(alert)
         }
     }
-}
\ No newline at end of file
+}
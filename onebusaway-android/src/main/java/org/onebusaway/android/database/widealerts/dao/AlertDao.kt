@@ -18,4 +18,7 @@ interface AlertDao {
 
     @Query("SELECT * FROM alerts")
     suspend fun getAllAlerts(): List<AlertEntity>
+
+    @Query("SELECT id FROM alerts")
+    suspend fun getAllAlertIds(): List<String>
 }
\ No newline at end of file
@@ -20,7 +20,9 @@ import android.os.AsyncTask;
 import android.util.Log;
 
 import org.onebusaway.android.app.Application;
-import org.onebusaway.android.directions.util.JacksonConfig;
+import org.onebusaway.android.directions.util.PlanResponseReader;
+import org.onebusaway.android.io.ObaOkHttpConnectionFactory;
+import org.opentripplanner.api.model.Itinerary;
 import org.opentripplanner.api.model.TripPlan;
 import org.opentripplanner.api.ws.Message;
 import org.opentripplanner.api.ws.Request;
@@ -29,11 +31,15 @@ import org.opentripplanner.routing.core.TraverseMode;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
 
 /**
  * AsyncTask that invokes a trip planning request to the OTP Server
@@ -50,6 +56,14 @@ public class TripRequest extends AsyncTask<Request, Integer, Long> {
         void onTripRequestFailure(int errorCode, String url);
     }
 
+    /**
+     * Callbacks that also want each itinerary as soon as it has been read, before the whole
+     * plan has been received
+     */
+    public interface ItineraryCallback extends Callback {
+        void onItineraryReceived(Itinerary itinerary, int index);
+    }
+
     public static int NO_SERVER_SELECTED = 1000;
 
     // Constants that are defined in OTPApp in CUTR OTP Android app
@@ -68,6 +82,9 @@ public class TripRequest extends AsyncTask<Request, Integer, Long> {
 
     private Callback mCallback;
 
+    // Itineraries read so far, handed to onProgressUpdate() by index
+    private final List<Itinerary> mItineraries = new ArrayList<>();
+
     // change Server object to baseUrl string.
     public TripRequest(String baseUrl, Callback callback) {
         mBaseUrl = baseUrl;
@@ -95,6 +112,20 @@ public class TripRequest extends AsyncTask<Request, Integer, Long> {
         return totalSize;
     }
 
+    @Override
+    protected void onProgressUpdate(Integer... indexes) {
+        if (!(mCallback instanceof ItineraryCallback)) {
+            return;
+        }
+        for (int index : indexes) {
+            Itinerary itinerary;
+            synchronized (mItineraries) {
+                itinerary = mItineraries.get(index);
+            }
+            ((ItineraryCallback) mCallback).onItineraryReceived(itinerary, index);
+        }
+    }
+
     protected void onCancelled(Long result) {
         mCallback.onTripRequestFailure(Message.REQUEST_TIMEOUT.getId(), mRequestUrl);
     }
@@ -119,21 +150,14 @@ public class TripRequest extends AsyncTask<Request, Integer, Long> {
 
     protected Response requestPlan(Request requestParams, String prefix, String baseURL,
                                    boolean useOldUrlStructure) {
-        HashMap<String, String> tmp = requestParams.getParameters();
-
-        Collection c = tmp.entrySet();
-        Iterator itr = c.iterator();
-
-        String params = "";
-        boolean first = true;
-        while (itr.hasNext()) {
-            if (first) {
-                params += "?" + itr.next();
-                first = false;
-            } else {
-                params += "&" + itr.next();
-            }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> param : requestParams.getParameters().entrySet()) {
+            builder.append(builder.length() == 0 ? '?' : '&')
+                    .append(param.getKey())
+                    .append('=')
+                    .append(param.getValue());
         }
+        String params = builder.toString();
 
         if (requestParams.getBikeRental()) {
             String updatedString;
@@ -160,18 +184,31 @@ public class TripRequest extends AsyncTask<Request, Integer, Long> {
 
         Log.d(TAG, "URL: " + u);
 
-        HttpURLConnection urlConnection = null;
-        URL url;
         Response plan = null;
+        synchronized (mItineraries) {
+            mItineraries.clear();
+        }
 
-        try {
-            url = new URL(u);
-
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setConnectTimeout(HTTP_CONNECTION_TIMEOUT);
-            urlConnection.setReadTimeout(HTTP_SOCKET_TIMEOUT);
-            plan = JacksonConfig.getObjectReaderInstance()
-                    .readValue(urlConnection.getInputStream());
+        // The shared client negotiates gzip (and brotli) with the server, which plan responses
+        // full of encoded polylines compress well with
+        okhttp3.Request request = new okhttp3.Request.Builder().url(u).build();
+        try (okhttp3.Response response = getClient().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                if (response.code() == HttpURLConnection.HTTP_NOT_FOUND
+                        || response.code() == HttpURLConnection.HTTP_GONE) {
+                    throw new FileNotFoundException(u);
+                }
+                throw new IOException("HTTP " + response.code() + " for " + u);
+            }
+            ResponseBody body = response.body();
+            try (InputStream in = body.byteStream()) {
+                plan = PlanResponseReader.read(in, (itinerary, index) -> {
+                    synchronized (mItineraries) {
+                        mItineraries.add(itinerary);
+                    }
+                    publishProgress(index);
+                });
+            }
 
             if (useOldUrlStructure) {
                 // If the old url structure is successful then cache it
@@ -184,27 +221,34 @@ public class TripRequest extends AsyncTask<Request, Integer, Long> {
         } catch (FileNotFoundException e) {
             if (!useOldUrlStructure) {
                 Log.v(TAG, "The OTP url might be old, trying  old url structure");
-                if (urlConnection != null) {
-                    urlConnection.disconnect();
-                }
                 return requestPlan(requestParams, prefix, baseURL, true);
             } else {
                 Log.e(TAG, "Error fetching JSON or XML: " + e);
                 e.printStackTrace();
                 cancel(true);
             }
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
+            // IllegalArgumentException is thrown for malformed URLs
             Log.e(TAG, "Error fetching JSON or XML: " + e);
             e.printStackTrace();
             cancel(true);
-            // Reset timestamps to show there was an error
-            // requestStartTime = 0;
-            // requestEndTime = 0;
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
         }
         return plan;
     }
+
+    private static OkHttpClient getClient() {
+        return ClientHolder.CLIENT;
+    }
+
+    private static class ClientHolder {
+
+        // Shares the connection pool of the OBA client, with the timeouts used for OTP.  Plans
+        // depend on the current time, so they aren't written to the OBA client's disk cache.
+        static final OkHttpClient CLIENT = ObaOkHttpConnectionFactory.getInstance().getClient()
+                .newBuilder()
+                .cache(null)
+                .connectTimeout(HTTP_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(HTTP_SOCKET_TIMEOUT, TimeUnit.MILLISECONDS)
+                .build();
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.directions.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import org.opentripplanner.api.model.Itinerary;
+import org.opentripplanner.api.ws.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads an OTP plan response from a stream, binding each itinerary as soon as it has been read
+ * so it can be used before the rest of the response arrives.  Itineraries (and their leg
+ * geometries) are most of a plan response, so they are bound straight from the stream; the
+ * remaining, small part of the response is buffered and bound at the end.
+ */
+public class PlanResponseReader {
+
+    public interface ItineraryListener {
+
+        /**
+         * Called on the reading thread for each itinerary, in the order of the response
+         *
+         * @param itinerary the itinerary
+         * @param index     the position of the itinerary in the plan
+         */
+        void onItineraryRead(Itinerary itinerary, int index);
+    }
+
+    private static final String PLAN = "plan";
+
+    // Newer OTP versions use the first name
+    private static final String ITINERARIES = "itineraries";
+
+    private static final String ITINERARY = "itinerary";
+
+    private PlanResponseReader() {
+    }
+
+    /**
+     * Reads a plan response.  The stream isn't closed.
+     *
+     * @param in       the response body
+     * @param listener notified of each itinerary as it is read, or null
+     * @return the response, including all itineraries
+     */
+    public static Response read(InputStream in, ItineraryListener listener)
+            throws IOException {
+        ObjectReader responseReader = JacksonConfig.getObjectReaderInstance();
+        ObjectReader itineraryReader = JacksonConfig.getItineraryReaderInstance();
+        List<Itinerary> itineraries = new ArrayList<>();
+
+        TokenBuffer rest;
+        try (JsonParser parser = responseReader.getFactory().createParser(in)) {
+            rest = new TokenBuffer(parser);
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                rest.copyCurrentEvent(parser);
+                if (token != JsonToken.FIELD_NAME || !isPlanItineraries(parser)) {
+                    continue;
+                }
+                // Leave an empty list in place of the itineraries, and bind them here instead
+                token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        readItinerary(parser, itineraryReader, itineraries, listener);
+                    }
+                } else if (token == JsonToken.START_OBJECT) {
+                    readItinerary(parser, itineraryReader, itineraries, listener);
+                } else {
+                    rest.copyCurrentEvent(parser);
+                    continue;
+                }
+                rest.writeStartArray();
+                rest.writeEndArray();
+            }
+        }
+
+        Response response;
+        try (JsonParser restParser = rest.asParser()) {
+            response = responseReader.readValue(restParser);
+        }
+        if (response != null && response.getPlan() != null
+                && response.getPlan().getItinerary() != null) {
+            response.getPlan().getItinerary().addAll(itineraries);
+        }
+        return response;
+    }
+
+    private static void readItinerary(JsonParser parser, ObjectReader itineraryReader,
+            List<Itinerary> itineraries, ItineraryListener listener) throws IOException {
+        Itinerary itinerary = itineraryReader.readValue(parser);
+        if (itinerary == null) {
+            return;
+        }
+        itineraries.add(itinerary);
+        if (listener != null) {
+            listener.onItineraryRead(itinerary, itineraries.size() - 1);
+        }
+    }
+
+    /**
+     * @return true if the parser is at the name of the itineraries field of the plan object
+     */
+    private static boolean isPlanItineraries(JsonParser parser) throws IOException {
+        String name = parser.getCurrentName();
+        if (!ITINERARIES.equals(name) && !ITINERARY.equals(name)) {
+            return false;
+        }
+        JsonStreamContext plan = parser.getParsingContext();
+        JsonStreamContext root = plan.getParent();
+        return root != null && root.inObject() && PLAN.equals(root.getCurrentName())
+                && root.getParent() != null && root.getParent().inRoot();
+    }
+}
@@ -26,16 +26,15 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.TextNode;
-import com.fasterxml.jackson.databind.node.TreeTraversingParser;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 
@@ -67,20 +66,20 @@ public class JacksonSerializer implements ObaApi.SerializationHandler {
     }
 
     /**
-     * Returns the JsonParser if the reader has valid content, null if it does not
-     * @param reader
-     * @return the JsonParser if the reader has valid content, null if it does not
+     * Returns the given streaming JsonParser positioned at the first token if the input has valid
+     * content, null if it does not.  The parser reads directly from the input, so the response
+     * is only parsed once and never materialized as a JsonNode tree.
+     * @param parser a newly created parser over the response
+     * @return the JsonParser if the input has valid content, null if it does not
      * @throws IOException
      */
-    private static JsonParser getJsonParser(Reader reader)
+    private static JsonParser getJsonParser(JsonParser parser)
             throws IOException {
-        JsonNode node = mMapper.readTree(reader);
-        if (node == null) {
+        if (parser.nextToken() == null) {
             // According to Jackson docs, the "input has no content to bind", so return null (error)
+            parser.close();
             return null;
         }
-        TreeTraversingParser parser = new TreeTraversingParser(node);
-        parser.setCodec(mMapper);
         return parser;
     }
 
@@ -115,20 +114,50 @@ public class JacksonSerializer implements ObaApi.SerializationHandler {
 
     public <T> T deserialize(Reader reader, Class<T> cls) {
         try {
-            T t = null;
-            JsonParser parser = getJsonParser(reader);
-            if (parser != null) {
-                t = parser.readValueAs(cls);
-            }
-            if (t == null) {
-                t = createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, "Json error");
+            return readValue(getJsonParser(mMapper.getFactory().createParser(reader)), cls);
+        } catch (IOException e) {
+            return createFromException(cls, e);
+        }
+    }
+
+    /**
+     * Deserializes the raw bytes of the input stream to the given class.  The parser detects
+     * the encoding and decodes UTF-8 itself using its own recycled buffers, so callers should
+     * pass the raw stream rather than wrapping it in a Reader.
+     * @param in the JSON to read
+     * @param cls the class to bind the JSON to
+     * @return the deserialized object, or an error response if it couldn't be deserialized
+     */
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> cls) {
+        try {
+            return readValue(getJsonParser(mMapper.getFactory().createParser(in)), cls);
+        } catch (IOException e) {
+            return createFromException(cls, e);
+        }
+    }
+
+    private <T> T readValue(JsonParser parser, Class<T> cls) throws IOException {
+        T t = null;
+        if (parser != null) {
+            try {
+                t = mMapper.readValue(parser, cls);
+            } finally {
+                parser.close();
             }
-            return t;
-        } catch (FileNotFoundException e) {
+        }
+        if (t == null) {
+            t = createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, "Json error");
+        }
+        return t;
+    }
+
+    private <T> T createFromException(Class<T> cls, IOException e) {
+        if (e instanceof FileNotFoundException) {
             return createFromError(cls, ObaApi.OBA_NOT_FOUND, e.toString());
-        } catch (JsonProcessingException e) {
+        } else if (e instanceof JsonProcessingException) {
             return createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, e.toString());
-        } catch (IOException e) {
+        } else {
             return createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
         }
     }
@@ -15,6 +15,7 @@
  */
 package org.onebusaway.android.io;
 
+import java.io.InputStream;
 import java.io.Reader;
 
 public final class ObaApi {
@@ -55,6 +56,8 @@ public final class ObaApi {
 
         <T> T deserialize(Reader reader, Class<T> cls);
 
+        <T> T deserialize(InputStream in, Class<T> cls);
+
         <T> T deserializeFromResponse(String response, Class<T> cls);
 
         String serialize(Object obj);
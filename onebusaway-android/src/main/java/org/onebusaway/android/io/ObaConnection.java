@@ -16,6 +16,7 @@
 package org.onebusaway.android.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 
 /**
@@ -36,5 +37,28 @@ public interface ObaConnection {
 
     public Reader post(String string) throws IOException;
 
+    /**
+     * Like get(), but returns the raw response bytes so that the caller (e.g., the
+     * JSON parser) can decode them itself without an intermediate Reader.
+     */
+    public InputStream getInputStream() throws IOException;
+
+    /**
+     * Like post(), but returns the raw response bytes so that the caller (e.g., the
+     * JSON parser) can decode them itself without an intermediate Reader.
+     */
+    public InputStream postForInputStream(String string) throws IOException;
+
     public int getResponseCode() throws IOException;
+
+    /**
+     * Allows this GET request to be answered from the HTTP response cache, and the response to be
+     * stored there.  A cached response up to maxStaleSeconds past its server-provided expiration
+     * is returned without contacting the server - after that it is revalidated with a
+     * conditional GET using its ETag or Last-Modified validators.  Responses to connections
+     * where this isn't called are neither read from nor written to the cache.
+     *
+     * @param maxStaleSeconds how long a cached response may be used without revalidation
+     */
+    public void setCacheMaxStale(int maxStaleSeconds);
 }
@@ -21,5 +21,10 @@ import java.io.IOException;
 
 public interface ObaConnectionFactory {
 
+    /**
+     * Maximum size of the disk-backed HTTP response cache, in bytes
+     */
+    public static final long RESPONSE_CACHE_SIZE = 10 * 1024 * 1024;
+
     public ObaConnection newConnection(Uri uri) throws IOException;
 }
@@ -20,20 +20,30 @@ import android.util.Log;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
 
 public final class ObaDefaultConnection implements ObaConnection {
 
     private static final String TAG = "ObaDefaultConnection";
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Uri mUri;
+
     private HttpURLConnection mConnection;
 
+    // The connection used instead of mConnection for requests that may be cached
+    private ObaConnection mCachedConnection;
+
     ObaDefaultConnection(Uri uri) throws IOException {
         Log.d(TAG, uri.toString());
+        mUri = uri;
         URL url = new URL(uri.toString());
         mConnection = (HttpURLConnection) url.openConnection();
         mConnection.setReadTimeout(30 * 1000);
@@ -41,18 +51,45 @@ public final class ObaDefaultConnection implements ObaConnection {
 
     @Override
     public void disconnect() {
+        if (mCachedConnection != null) {
+            mCachedConnection.disconnect();
+            return;
+        }
         mConnection.disconnect();
     }
 
     @Override
     public Reader get() throws IOException {
-        return new InputStreamReader(
-                new BufferedInputStream(mConnection.getInputStream(), 8 * 1024));
+        if (mCachedConnection != null) {
+            return mCachedConnection.get();
+        }
+        return new InputStreamReader(new BufferedInputStream(getInputStream(), 8 * 1024),
+                UTF_8);
     }
 
     @Override
     public Reader post(String string) throws IOException {
-        byte[] data = string.getBytes();
+        if (mCachedConnection != null) {
+            return mCachedConnection.post(string);
+        }
+        return new InputStreamReader(new BufferedInputStream(postForInputStream(string), 8 * 1024),
+                UTF_8);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (mCachedConnection != null) {
+            return mCachedConnection.getInputStream();
+        }
+        return mConnection.getInputStream();
+    }
+
+    @Override
+    public InputStream postForInputStream(String string) throws IOException {
+        if (mCachedConnection != null) {
+            return mCachedConnection.postForInputStream(string);
+        }
+        byte[] data = string.getBytes(UTF_8);
 
         mConnection.setDoOutput(true);
         mConnection.setFixedLengthStreamingMode(data.length);
@@ -64,12 +101,29 @@ public final class ObaDefaultConnection implements ObaConnection {
         stream.flush();
         stream.close();
 
-        return new InputStreamReader(
-                new BufferedInputStream(mConnection.getInputStream(), 8 * 1024));
+        return mConnection.getInputStream();
     }
 
     @Override
     public int getResponseCode() throws IOException {
+        if (mCachedConnection != null) {
+            return mCachedConnection.getResponseCode();
+        }
         return mConnection.getResponseCode();
     }
+
+    /**
+     * HttpURLConnection can only cache responses in a process-wide ResponseCache, which every
+     * other HttpURLConnection in the app would use as well, so requests that may be cached are
+     * made with the OkHttp client and its own cache instead.  mConnection isn't connected until
+     * it is used, so it is simply dropped.
+     */
+    @Override
+    public void setCacheMaxStale(int maxStaleSeconds) {
+        if (mCachedConnection == null) {
+            mCachedConnection = new ObaOkHttpConnection(
+                    ObaOkHttpConnectionFactory.getInstance().getClient(), mUri);
+        }
+        mCachedConnection.setCacheMaxStale(maxStaleSeconds);
+    }
 }
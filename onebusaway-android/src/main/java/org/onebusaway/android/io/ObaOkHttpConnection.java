@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.io;
+
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * An ObaConnection backed by a shared OkHttpClient.  Unlike ObaDefaultConnection, disconnect()
+ * only releases the response so the underlying socket is returned to the client's connection
+ * pool and can be reused by the next request to the same server.
+ */
+public final class ObaOkHttpConnection implements ObaConnection {
+
+    private static final String TAG = "ObaOkHttpConnection";
+
+    private static final MediaType FORM_URLENCODED =
+            MediaType.parse("application/x-www-form-urlencoded");
+
+    private final OkHttpClient mClient;
+
+    private final Request.Builder mRequest;
+
+    private Response mResponse;
+
+    ObaOkHttpConnection(OkHttpClient client, Uri uri) {
+        Log.d(TAG, uri.toString());
+        mClient = client;
+        mRequest = new Request.Builder().url(uri.toString())
+                // Only requests for static data opt in to the response cache via setCacheMaxStale()
+                .cacheControl(new CacheControl.Builder().noStore().build());
+    }
+
+    /**
+     * Executes the request the first time it's called, and returns the same response afterwards
+     */
+    private Response execute() throws IOException {
+        if (mResponse == null) {
+            mResponse = mClient.newCall(mRequest.build()).execute();
+        }
+        return mResponse;
+    }
+
+    @Override
+    public void disconnect() {
+        if (mResponse != null) {
+            mResponse.close();
+        }
+    }
+
+    @Override
+    public Reader get() throws IOException {
+        checkResponse(execute());
+        return mResponse.body().charStream();
+    }
+
+    @Override
+    public Reader post(String string) throws IOException {
+        mRequest.post(RequestBody.create(string, FORM_URLENCODED));
+        return get();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        checkResponse(execute());
+        return mResponse.body().byteStream();
+    }
+
+    @Override
+    public InputStream postForInputStream(String string) throws IOException {
+        mRequest.post(RequestBody.create(string, FORM_URLENCODED));
+        return getInputStream();
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        return execute().code();
+    }
+
+    @Override
+    public void setCacheMaxStale(int maxStaleSeconds) {
+        mRequest.cacheControl(new CacheControl.Builder()
+                .maxStale(maxStaleSeconds, TimeUnit.SECONDS)
+                .build());
+    }
+
+    /**
+     * Throws the same exceptions HttpURLConnection.getInputStream() does for error responses, so
+     * callers can handle both connection types the same way
+     */
+    private static void checkResponse(Response response) throws IOException {
+        int code = response.code();
+        if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+            throw new FileNotFoundException(response.request().url().toString());
+        }
+        if (code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            throw new IOException("Server returned HTTP response code: " + code + " for URL: "
+                    + response.request().url());
+        }
+    }
+}
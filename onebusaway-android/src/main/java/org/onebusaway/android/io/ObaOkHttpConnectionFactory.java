@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.io;
+
+import org.onebusaway.android.app.Application;
+
+import android.net.Uri;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.brotli.BrotliInterceptor;
+
+/**
+ * Creates connections that share a single OkHttpClient, which keeps idle connections alive
+ * between the periodic arrival and vehicle refreshes, negotiates HTTP/2 with servers that
+ * support it, and transparently requests and decodes gzip and brotli response bodies.  Responses
+ * for static data are kept in a disk-backed LRU cache, which ObaDefaultConnection also uses for
+ * these requests.  Only OBA requests that opt in with ObaConnection.setCacheMaxStale() use it.
+ */
+public class ObaOkHttpConnectionFactory implements ObaConnectionFactory {
+
+    /**
+     * Idle connections are kept for longer than the slowest periodic refresh (30 seconds)
+     */
+    private static final int KEEP_ALIVE_MINUTES = 5;
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    private static final String CACHE_DIR = "oba-okhttp-cache";
+
+    private final OkHttpClient mClient;
+
+    private ObaOkHttpConnectionFactory() {
+        mClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES,
+                        TimeUnit.MINUTES))
+                .readTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                .cache(new Cache(new File(Application.get().getCacheDir(), CACHE_DIR),
+                        RESPONSE_CACHE_SIZE))
+                .build();
+    }
+
+    private static class SingletonHolder {
+
+        public static final ObaOkHttpConnectionFactory INSTANCE
+                = new ObaOkHttpConnectionFactory();
+    }
+
+    public static ObaOkHttpConnectionFactory getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the shared client, for requests that aren't made through an ObaConnection
+     */
+    public OkHttpClient getClient() {
+        return mClient;
+    }
+
+    @Override
+    public ObaConnection newConnection(Uri uri) throws IOException {
+        return new ObaOkHttpConnection(mClient, uri);
+    }
+}
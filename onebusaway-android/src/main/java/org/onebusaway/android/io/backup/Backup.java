@@ -27,11 +27,10 @@ import org.apache.commons.io.FileUtils;
 import org.onebusaway.android.R;
 import org.onebusaway.android.provider.ObaContract;
 import org.onebusaway.android.provider.ObaProvider;
+import org.onebusaway.android.provider.RouteHeadsignFavoritesIndex;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 
 /**
@@ -57,18 +56,18 @@ public final class Backup {
      * (such as the Documents directory) to save the backup file.
      */
     public static void backup(Context context,Uri uri) throws IOException{
-        try (InputStream inputStream = new FileInputStream(getDB(context));
-             OutputStream outputStream = context.getContentResolver().openOutputStream(uri)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                if (outputStream != null) {
-                    outputStream.write(buffer, 0, length);
-                }
-            }
-            if (outputStream != null) {
-                outputStream.flush();
+        ContentProviderClient client = null;
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri)) {
+            if (outputStream == null) {
+                throw new IOException("Couldn't open " + uri);
             }
+            // The database uses write-ahead logging, so recent changes may only be in the log
+            // file.  The provider writes them back to the database file before copying it.
+            client = context.getContentResolver()
+                    .acquireContentProviderClient(ObaContract.AUTHORITY);
+            ObaProvider provider = (ObaProvider) client.getLocalContentProvider();
+            provider.copyDB(outputStream);
+            outputStream.flush();
             Toast.makeText(context,
                     context.getString(R.string.preferences_db_saved),
                     Toast.LENGTH_LONG).show();
@@ -78,6 +77,10 @@ public final class Backup {
                     context.getString(R.string.preferences_db_save_error, e.getMessage()),
                     Toast.LENGTH_LONG).show();
             Log.e("Backup", "Error saving database backup", e);
+        } finally {
+            if (client != null) {
+                client.release();
+            }
         }
     }
 
@@ -91,22 +94,38 @@ public final class Backup {
         File backupPath = uriToTempFile(context, uri);
 
         // At least here we can decide that the database is closed.
+        try {
+            closeDB(context);
+
+            // A write-ahead log left next to the database file would be applied to the restored
+            // database when it is opened
+            new File(dbPath.getPath() + "-wal").delete();
+            new File(dbPath.getPath() + "-shm").delete();
+            FileUtils.copyFile(backupPath, dbPath);
+            // Replacing the file doesn't send any provider notifications
+            RouteHeadsignFavoritesIndex.getInstance().invalidate();
+
+        } finally {
+            if (backupPath != null) {
+                backupPath.delete();
+            }
+        }
+    }
+
+    /**
+     * Closes the provider's database, which is opened again on the next provider call
+     */
+    private static void closeDB(Context context) {
         ContentProviderClient client = null;
         try {
             client = context.getContentResolver()
                     .acquireContentProviderClient(ObaContract.AUTHORITY);
             ObaProvider provider = (ObaProvider) client.getLocalContentProvider();
             provider.closeDB();
-
-            FileUtils.copyFile(backupPath, dbPath);
-
         } finally {
             if (client != null) {
                 client.release();
             }
-            if (backupPath != null) {
-                backupPath.delete();
-            }
         }
     }
 
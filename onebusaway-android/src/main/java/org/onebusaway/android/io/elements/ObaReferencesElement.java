@@ -17,7 +17,10 @@ package org.onebusaway.android.io.elements;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class ObaReferencesElement implements ObaReferences {
 
@@ -33,6 +36,21 @@ public final class ObaReferencesElement implements ObaReferences {
 
     private final ObaSituationElement[] situations;
 
+    /**
+     * Id to element indexes, built lazily the first time each element type is dereferenced.
+     * Each index is immutable once built, so if two threads race to build one they simply
+     * produce equivalent maps.  These are transient so they aren't (de)serialized.
+     */
+    private transient volatile Map<String, ObaStopElement> stopIndex;
+
+    private transient volatile Map<String, ObaRouteElement> routeIndex;
+
+    private transient volatile Map<String, ObaTripElement> tripIndex;
+
+    private transient volatile Map<String, ObaAgencyElement> agencyIndex;
+
+    private transient volatile Map<String, ObaSituationElement> situationIndex;
+
     public ObaReferencesElement() {
         stops = ObaStopElement.EMPTY_ARRAY;
         routes = ObaRouteElement.EMPTY_ARRAY;
@@ -41,24 +59,35 @@ public final class ObaReferencesElement implements ObaReferences {
         situations = ObaSituationElement.EMPTY_ARRAY;
     }
 
+    /**
+     * Creates references that only contain the given stops and routes
+     */
+    public ObaReferencesElement(ObaStopElement[] stops, ObaRouteElement[] routes) {
+        this.stops = stops;
+        this.routes = routes;
+        trips = ObaTripElement.EMPTY_ARRAY;
+        agencies = ObaAgencyElement.EMPTY_ARRAY;
+        situations = ObaSituationElement.EMPTY_ARRAY;
+    }
+
     @Override
     public ObaStop getStop(String id) {
-        return findById(stops, id);
+        return getStopIndex().get(id);
     }
 
     @Override
     public List<ObaStop> getStops(String[] ids) {
-        return findList(ObaStop.class, stops, ids);
+        return findList(ObaStop.class, getStopIndex(), ids);
     }
 
     @Override
     public ObaRoute getRoute(String id) {
-        return findById(routes, id);
+        return getRouteIndex().get(id);
     }
 
     @Override
     public List<ObaRoute> getRoutes(String[] ids) {
-        return findList(ObaRoute.class, routes, ids);
+        return findList(ObaRoute.class, getRouteIndex(), ids);
     }
 
     @Override
@@ -68,55 +97,98 @@ public final class ObaReferencesElement implements ObaReferences {
 
     @Override
     public ObaTrip getTrip(String id) {
-        return findById(trips, id);
+        return getTripIndex().get(id);
     }
 
     @Override
     public List<ObaTrip> getTrips(String[] ids) {
-        return findList(ObaTrip.class, trips, ids);
+        return findList(ObaTrip.class, getTripIndex(), ids);
     }
 
     @Override
     public ObaAgency getAgency(String id) {
-        return findById(agencies, id);
+        return getAgencyIndex().get(id);
     }
 
     @Override
     public List<ObaAgency> getAgencies(String[] ids) {
-        return findList(ObaAgency.class, agencies, ids);
+        return findList(ObaAgency.class, getAgencyIndex(), ids);
     }
 
     @Override
     public ObaSituation getSituation(String id) {
-        return findById(situations, id);
+        return getSituationIndex().get(id);
     }
 
     @Override
     public List<ObaSituation> getSituations(String[] ids) {
-        return findList(ObaSituation.class, situations, ids);
+        return findList(ObaSituation.class, getSituationIndex(), ids);
     }
 
-    //
-    // TODO: This will be much easier when we convert to HashMap storage.
-    //
-    private static <T extends ObaElement> T findById(T[] objects, String id) {
-        final int len = objects.length;
-        for (int i = 0; i < len; ++i) {
+    private Map<String, ObaStopElement> getStopIndex() {
+        Map<String, ObaStopElement> index = stopIndex;
+        if (index == null) {
+            index = buildIndex(stops);
+            stopIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaRouteElement> getRouteIndex() {
+        Map<String, ObaRouteElement> index = routeIndex;
+        if (index == null) {
+            index = buildIndex(routes);
+            routeIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaTripElement> getTripIndex() {
+        Map<String, ObaTripElement> index = tripIndex;
+        if (index == null) {
+            index = buildIndex(trips);
+            tripIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaAgencyElement> getAgencyIndex() {
+        Map<String, ObaAgencyElement> index = agencyIndex;
+        if (index == null) {
+            index = buildIndex(agencies);
+            agencyIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaSituationElement> getSituationIndex() {
+        Map<String, ObaSituationElement> index = situationIndex;
+        if (index == null) {
+            index = buildIndex(situations);
+            situationIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Builds an immutable id to element index.  If an id appears more than once, the first
+     * element with that id wins, matching the previous linear search behavior.
+     */
+    private static <T extends ObaElement> Map<String, T> buildIndex(T[] objects) {
+        HashMap<String, T> index = new HashMap<String, T>(objects.length * 2);
+        for (int i = objects.length - 1; i >= 0; --i) {
             final T obj = objects[i];
-            if (obj.getId().equals(id)) {
-                return obj;
-            }
+            index.put(obj.getId(), obj);
         }
-        return null;
+        return Collections.unmodifiableMap(index);
     }
 
     private static <E extends ObaElement, T extends E> List<E> findList(
-            Class<E> cls, T[] objects, String[] ids) {
-        ArrayList<E> result = new ArrayList<E>();
+            Class<E> cls, Map<String, T> index, String[] ids) {
+        ArrayList<E> result = new ArrayList<E>(ids.length);
         final int len = ids.length;
         for (int i = 0; i < len; ++i) {
-            final String id = ids[i];
-            final T obj = findById(objects, id);
+            final T obj = index.get(ids[i]);
             if (obj != null) {
                 result.add(obj);
             }
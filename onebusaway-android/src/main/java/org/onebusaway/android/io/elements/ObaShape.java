@@ -49,6 +49,14 @@ public interface ObaShape {
      */
     public List<Location> getPoints();
 
+    /**
+     * Returns the points in this line, without allocating an object for each point.  Callers
+     * that go through all of the points should use this instead of getPoints().
+     *
+     * @return The points in this line.
+     */
+    public ShapeGeometry getGeometry();
+
     /**
      * Returns the string encoding of the points in this line.
      *
@@ -15,6 +15,8 @@
  */
 package org.onebusaway.android.io.elements;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import org.onebusaway.android.util.LocationUtils;
 
 import android.location.Location;
@@ -34,6 +36,9 @@ public final class ObaShapeElement implements ObaShape {
 
     private final String levels;
 
+    // Decoded on first use
+    private transient volatile ShapeGeometry geometry;
+
     private ObaShapeElement() {
         points = "";
         length = 0;
@@ -57,7 +62,18 @@ public final class ObaShapeElement implements ObaShape {
 
     @Override
     public List<Location> getPoints() {
-        return decodeLine(points, length);
+        return getGeometry().toLocations();
+    }
+
+    @Override
+    @JsonIgnore
+    public ShapeGeometry getGeometry() {
+        ShapeGeometry result = geometry;
+        if (result == null) {
+            result = ShapeGeometry.get(points, length);
+            geometry = result;
+        }
+        return result;
     }
 
     @Override
@@ -76,6 +92,7 @@ public final class ObaShapeElement implements ObaShape {
      *                  to allocate memory; the function will always return the number
      *                  of points that are contained in the encoded string.
      * @return A list of points from the encoded string.
+     * @see ShapeGeometry#decode(String, int)
      */
     public static List<Location> decodeLine(String encoded, int numPoints) {
         if (numPoints < 0) {
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.io.elements;
+
+import org.onebusaway.android.util.LocationUtils;
+
+import android.location.Location;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The points of a decoded polyline, packed into a single int array of latitude/longitude pairs
+ * in degrees * 1E5 (the precision of the polyline encoding), so decoding a shape allocates one
+ * array instead of an object per point.
+ *
+ * Decoded shapes are cached by their encoded string (OBA shapes in route responses don't have
+ * IDs), so shapes that are received again, e.g. when a route is shown again or its stops are
+ * reloaded, aren't decoded again.  Instances are immutable.
+ *
+ * The bounding box of the points is computed when the shape is decoded, and simplified versions
+ * of the shape for lower zoom levels (see {@link #forZoom(float)}) are kept with the shape once
+ * they have been computed.
+ */
+public final class ShapeGeometry {
+
+    public static final ShapeGeometry EMPTY = new ShapeGeometry(new int[0], 0);
+
+    /**
+     * Maximum number of points kept in the cache - about 800KB
+     */
+    private static final int MAX_CACHED_POINTS = 100000;
+
+    /**
+     * Zoom level from which the points are drawn without simplification
+     */
+    public static final int FULL_DETAIL_ZOOM = 17;
+
+    /**
+     * Shapes are simplified to the same level for this zoom level and all lower ones
+     */
+    static final int MIN_SIMPLIFIED_ZOOM = 8;
+
+    private static final LruCache<String, ShapeGeometry> sCache =
+            new LruCache<String, ShapeGeometry>(MAX_CACHED_POINTS) {
+                @Override
+                protected int sizeOf(String key, ShapeGeometry value) {
+                    return value.size() + 1;
+                }
+            };
+
+    // lat0, lon0, lat1, lon1, ... in degrees * 1E5
+    private final int[] mCoordinates;
+
+    private final int mSize;
+
+    private final int mMinLatE5;
+
+    private final int mMinLonE5;
+
+    private final int mMaxLatE5;
+
+    private final int mMaxLonE5;
+
+    // Simplified shapes by zoom level - MIN_SIMPLIFIED_ZOOM, built on first use
+    private final ShapeGeometry[] mSimplified =
+            new ShapeGeometry[FULL_DETAIL_ZOOM - MIN_SIMPLIFIED_ZOOM];
+
+    private ShapeGeometry(int[] coordinates, int size) {
+        mCoordinates = coordinates;
+        mSize = size;
+        int minLat = Integer.MAX_VALUE, minLon = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minLat = Math.min(minLat, coordinates[2 * i]);
+            maxLat = Math.max(maxLat, coordinates[2 * i]);
+            minLon = Math.min(minLon, coordinates[2 * i + 1]);
+            maxLon = Math.max(maxLon, coordinates[2 * i + 1]);
+        }
+        mMinLatE5 = minLat;
+        mMinLonE5 = minLon;
+        mMaxLatE5 = maxLat;
+        mMaxLonE5 = maxLon;
+    }
+
+    /**
+     * Returns the decoded points of an encoded polyline, from the cache if it was decoded before
+     *
+     * @param encoded   The encoded string.
+     * @param numPoints The number of points. This is purely used as a hint
+     *                  to allocate memory.
+     * @return The points from the encoded string.
+     */
+    public static ShapeGeometry get(String encoded, int numPoints) {
+        if (encoded == null || encoded.isEmpty()) {
+            return EMPTY;
+        }
+        ShapeGeometry geometry = sCache.get(encoded);
+        if (geometry == null) {
+            geometry = decode(encoded, numPoints);
+            sCache.put(encoded, geometry);
+        }
+        return geometry;
+    }
+
+    /**
+     * Decodes an encoded polyline, without using the cache.
+     * For the exact algorithm:
+     * http://code.google.com/apis/maps/documentation/polylinealgorithm.html
+     *
+     * @param encoded   The encoded string.
+     * @param numPoints The number of points. This is purely used as a hint
+     *                  to allocate memory; all of the points that are contained in the encoded
+     *                  string are always returned.
+     * @return The points from the encoded string.
+     */
+    public static ShapeGeometry decode(String encoded, int numPoints) {
+        if (numPoints < 0) {
+            throw new IllegalArgumentException("numPoints must be >= 0");
+        }
+        final int len = encoded.length();
+        int[] coordinates = new int[2 * Math.max(numPoints, 1)];
+        int size = 0;
+        int i = 0;
+        int lat = 0, lon = 0;
+
+        while (i < len) {
+            int shift = 0;
+            int result = 0;
+
+            int b;
+            do {
+                b = encoded.charAt(i) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+                ++i;
+            } while (b >= 0x20);
+            lat += ((result & 1) == 1 ? ~(result >> 1) : (result >> 1));
+
+            shift = 0;
+            result = 0;
+            do {
+                b = encoded.charAt(i) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+                ++i;
+            } while (b >= 0x20);
+            lon += ((result & 1) == 1 ? ~(result >> 1) : (result >> 1));
+
+            if (2 * size == coordinates.length) {
+                // The hint was wrong.  Each point takes at least two characters, so no more
+                // than len coordinates are needed.
+                int[] grown = new int[Math.max(coordinates.length * 2, len)];
+                System.arraycopy(coordinates, 0, grown, 0, coordinates.length);
+                coordinates = grown;
+            }
+            coordinates[2 * size] = lat;
+            coordinates[2 * size + 1] = lon;
+            size++;
+        }
+        if (coordinates.length != 2 * size) {
+            coordinates = Arrays.copyOf(coordinates, 2 * size);
+        }
+        return new ShapeGeometry(coordinates, size);
+    }
+
+    /**
+     * Packs the given points, rounded to the precision of the polyline encoding
+     *
+     * @param points the points
+     * @return the packed points
+     */
+    public static ShapeGeometry fromLocations(List<Location> points) {
+        int[] coordinates = new int[2 * points.size()];
+        int i = 0;
+        for (Location l : points) {
+            coordinates[i++] = (int) Math.round(l.getLatitude() * 1E5);
+            coordinates[i++] = (int) Math.round(l.getLongitude() * 1E5);
+        }
+        return new ShapeGeometry(coordinates, points.size());
+    }
+
+    /**
+     * @return the number of points
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public int getLatitudeE5(int index) {
+        return mCoordinates[2 * index];
+    }
+
+    public int getLongitudeE5(int index) {
+        return mCoordinates[2 * index + 1];
+    }
+
+    public double getLatitude(int index) {
+        return mCoordinates[2 * index] / 1E5;
+    }
+
+    public double getLongitude(int index) {
+        return mCoordinates[2 * index + 1] / 1E5;
+    }
+
+    /**
+     * @return the points as new Location objects
+     */
+    public List<Location> toLocations() {
+        ArrayList<Location> locations = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            locations.add(LocationUtils.makeLocation(getLatitude(i), getLongitude(i)));
+        }
+        return locations;
+    }
+
+    /**
+     * The bounding box of the points.  Only valid if the shape has points.
+     */
+    public double getMinLatitude() {
+        return mMinLatE5 / 1E5;
+    }
+
+    public double getMinLongitude() {
+        return mMinLonE5 / 1E5;
+    }
+
+    public double getMaxLatitude() {
+        return mMaxLatE5 / 1E5;
+    }
+
+    public double getMaxLongitude() {
+        return mMaxLonE5 / 1E5;
+    }
+
+    /**
+     * Returns the shape simplified to what can be seen at the given zoom level - points are
+     * dropped if the shape moves less than half a pixel without them.  The simplified shape keeps
+     * the first and last points.
+     *
+     * @param zoom the map zoom level
+     * @return the simplified shape, or this shape at FULL_DETAIL_ZOOM and above
+     */
+    public ShapeGeometry forZoom(float zoom) {
+        if (zoom >= FULL_DETAIL_ZOOM || mSize <= 2) {
+            return this;
+        }
+        int level = Math.max((int) zoom, MIN_SIMPLIFIED_ZOOM);
+        synchronized (mSimplified) {
+            ShapeGeometry simplified = mSimplified[level - MIN_SIMPLIFIED_ZOOM];
+            if (simplified == null) {
+                // Degrees of longitude in half a 256 pixel map tile pixel at this zoom level
+                double tolerance = 360.0 / (512 << level) * 1E5;
+                simplified = simplify(tolerance);
+                mSimplified[level - MIN_SIMPLIFIED_ZOOM] = simplified;
+            }
+            return simplified;
+        }
+    }
+
+    /**
+     * Simplifies the shape with the Douglas-Peucker algorithm
+     *
+     * @param toleranceE5 the largest distance a dropped point can be from the simplified
+     *                    shape, in degrees of longitude * 1E5
+     * @return the simplified shape
+     */
+    ShapeGeometry simplify(double toleranceE5) {
+        // Measure distances with longitude scaled to the same length as latitude (as on the
+        // map), and the tolerance scaled to match
+        double lonScale = Math.cos(Math.toRadians((mMinLatE5 + mMaxLatE5) / 2 / 1E5));
+        double toleranceSquared = toleranceE5 * lonScale * toleranceE5 * lonScale;
+
+        boolean[] keep = new boolean[mSize];
+        keep[0] = true;
+        keep[mSize - 1] = true;
+        int kept = 2;
+        // Ranges of points still to simplify, as pairs of start and end indexes
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = mSize - 1;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            double x1 = mCoordinates[2 * start + 1] * lonScale;
+            double y1 = mCoordinates[2 * start];
+            double dx = mCoordinates[2 * end + 1] * lonScale - x1;
+            double dy = mCoordinates[2 * end] - y1;
+            double lengthSquared = dx * dx + dy * dy;
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = start + 1; i < end; i++) {
+                double px = mCoordinates[2 * i + 1] * lonScale - x1;
+                double py = mCoordinates[2 * i] - y1;
+                double distance;
+                if (lengthSquared == 0) {
+                    distance = px * px + py * py;
+                } else {
+                    // Distance from the segment between start and end
+                    double t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+                    double ex = px - t * dx;
+                    double ey = py - t * dy;
+                    distance = ex * ex + ey * ey;
+                }
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0 || maxDistance <= toleranceSquared) {
+                continue;
+            }
+            keep[farthest] = true;
+            kept++;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = start;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = end;
+        }
+
+        if (kept == mSize) {
+            return this;
+        }
+        int[] coordinates = new int[2 * kept];
+        int j = 0;
+        for (int i = 0; i < mSize; i++) {
+            if (keep[i]) {
+                coordinates[j++] = mCoordinates[2 * i];
+                coordinates[j++] = mCoordinates[2 * i + 1];
+            }
+        }
+        return new ShapeGeometry(coordinates, kept);
+    }
+}
@@ -56,7 +56,7 @@ public final class ObaAgenciesWithCoverageRequest extends RequestBase implements
 
     @Override
     public ObaAgenciesWithCoverageResponse call() {
-        return call(ObaAgenciesWithCoverageResponse.class);
+        return call(ObaAgenciesWithCoverageResponse.class, CACHE_ONE_DAY);
     }
 
     @Override
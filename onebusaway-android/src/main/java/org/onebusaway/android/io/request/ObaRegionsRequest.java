@@ -25,7 +25,6 @@ import android.content.Context;
 import android.net.Uri;
 
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.concurrent.Callable;
 
 /**
@@ -90,7 +89,7 @@ public final class ObaRegionsRequest extends RequestBase implements
         if (mUri.getScheme().equals(ContentResolver.SCHEME_ANDROID_RESOURCE)) {
             return getRegionFromResource();
         } else {
-            return call(ObaRegionsResponse.class);
+            return call(ObaRegionsResponse.class, CACHE_ONE_HOUR);
         }
     }
 
@@ -105,7 +104,7 @@ public final class ObaRegionsRequest extends RequestBase implements
         InputStream is = Application.get().getApplicationContext().getResources()
                 .openRawResource(R.raw.regions_v3);
         ObaApi.SerializationHandler handler = ObaApi.getSerializer(ObaRegionsResponse.class);
-        response = handler.deserialize(new InputStreamReader(is), ObaRegionsResponse.class);
+        response = handler.deserialize(is, ObaRegionsResponse.class);
         if (response == null) {
             response = handler.createFromError(ObaRegionsResponse.class, ObaApi.OBA_INTERNAL_ERROR,
                     "Json error");
@@ -56,7 +56,7 @@ public final class ObaRouteRequest extends RequestBase implements Callable<ObaRo
 
     @Override
     public ObaRouteResponse call() {
-        return call(ObaRouteResponse.class);
+        return call(ObaRouteResponse.class, CACHE_ONE_DAY);
     }
 
     @Override
@@ -56,7 +56,7 @@ public final class ObaShapeRequest extends RequestBase implements Callable<ObaSh
 
     @Override
     public ObaShapeResponse call() {
-        return call(ObaShapeResponse.class);
+        return call(ObaShapeResponse.class, CACHE_ONE_DAY);
     }
 
     @Override
@@ -52,7 +52,7 @@ public final class ObaStopsForRouteRequest extends RequestBase
 
     @Override
     public ObaStopsForRouteResponse call() {
-        return call(ObaStopsForRouteResponse.class);
+        return call(ObaStopsForRouteResponse.class, CACHE_ONE_DAY);
     }
 
     @Override
@@ -26,8 +26,9 @@ import android.os.Build;
 import android.util.Log;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 
 /**
@@ -39,10 +40,22 @@ public class RequestBase {
 
     private static final String TAG = "RequestBase";
 
+    /**
+     * Per-endpoint policies for how long a cached response may be used without revalidating it
+     * with the server (see {@link ObaConnection#setCacheMaxStale(int)})
+     */
+    protected static final int CACHE_NONE = 0;
+
+    protected static final int CACHE_ONE_HOUR = 60 * 60;
+
+    protected static final int CACHE_ONE_DAY = 24 * CACHE_ONE_HOUR;
+
     protected final Uri mUri;
 
     protected final String mPostData;
 
+    private volatile long mBytesRead;
+
     protected RequestBase(Uri uri) {
         mUri = uri;
         mPostData = null;
@@ -57,6 +70,14 @@ public class RequestBase {
         return mUri;
     }
 
+    /**
+     * @return the number of bytes of the response body (after decompression) read by the last
+     * call to this request
+     */
+    public long getBytesRead() {
+        return mBytesRead;
+    }
+
     public static class BuilderBase {
 
         protected static final String BASE_PATH = "api/where";
@@ -133,13 +154,28 @@ public class RequestBase {
     }
 
     protected <T> T call(Class<T> cls) {
+        return call(cls, CACHE_NONE);
+    }
+
+    /**
+     * Executes the request, allowing GET responses to be served from the HTTP response cache
+     *
+     * @param cls the response class
+     * @param cacheMaxStale how long in seconds a cached response may be used without revalidating
+     *                      it with the server, or CACHE_NONE if the response shouldn't be cached
+     */
+    protected <T> T call(Class<T> cls, int cacheMaxStale) {
         ObaApi.SerializationHandler handler = ObaApi.getSerializer(cls);
         ObaConnection conn = null;
+        CountingInputStream counter = null;
         try {
             conn = ObaApi.getDefaultContext().getConnectionFactory().newConnection(mUri);
-            Reader reader;
+            if (cacheMaxStale != CACHE_NONE && mPostData == null) {
+                conn.setCacheMaxStale(cacheMaxStale);
+            }
+            InputStream in;
             if (mPostData != null) {
-                reader = conn.post(mPostData);
+                in = conn.postForInputStream(mPostData);
             } else {
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
                     // Theoretically you can't call ResponseCode before calling
@@ -151,9 +187,11 @@ public class RequestBase {
                     }
                 }
 
-                reader = conn.get();
+                in = conn.getInputStream();
             }
-            T t = handler.deserialize(reader, cls);
+            counter = new CountingInputStream(in);
+            // Pass the raw bytes so the parser decodes UTF-8 itself
+            T t = handler.deserialize(counter, cls);
             if (t == null) {
                 t = handler.createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, "Json error");
             }
@@ -165,10 +203,55 @@ public class RequestBase {
             Log.e(TAG, e.toString());
             return handler.createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
         } finally {
+            mBytesRead = counter != null ? counter.mCount : 0;
             if (conn != null) {
                 conn.disconnect();
             }
         }
     }
 
+    /**
+     * Counts the bytes read from a response, so callers can measure the load they put on the
+     * server
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                mCount += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // Re-reading after reset() would count bytes twice
+            return false;
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ package org.onebusaway.android.map;
 import org.onebusaway.android.directions.util.OTPConstants;
 import org.onebusaway.android.io.elements.ObaShape;
 import org.onebusaway.android.io.elements.ObaShapeElement;
+import org.onebusaway.android.io.elements.ShapeGeometry;
 import org.onebusaway.android.util.LocationUtils;
 import org.opentripplanner.api.model.EncodedPolylineBean;
 import org.opentripplanner.api.model.Itinerary;
@@ -235,7 +236,12 @@ public class DirectionsMapController implements MapModeController {
 
         @Override
         public List<Location> getPoints() {
-            return ObaShapeElement.decodeLine(bean.getPoints(), bean.getLength());
+            return getGeometry().toLocations();
+        }
+
+        @Override
+        public ShapeGeometry getGeometry() {
+            return ShapeGeometry.get(bean.getPoints(), bean.getLength());
         }
 
         @Override
@@ -34,6 +34,7 @@ import android.content.Context;
 import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.PowerManager;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.View;
@@ -82,6 +83,11 @@ public class RouteMapController implements MapModeController {
 
     private long mLastUpdatedTimeVehicles;
 
+    private final VehicleRefreshScheduler mRefreshScheduler = new VehicleRefreshScheduler();
+
+    // True while the app is in the background or the map is hidden
+    private boolean mRefreshPaused;
+
     public RouteMapController(Callback callback) {
         mFragment = callback;
         mLineOverlayColor = mFragment.getActivity()
@@ -124,6 +130,8 @@ public class RouteMapController implements MapModeController {
             mRouteLoader.registerListener(0, mRouteLoaderListener);
             mRouteLoader.startLoading();
 
+            mRefreshScheduler.reset();
+            mRefreshScheduler.startRequest();
             mVehiclesLoader = mVehicleLoaderListener.onCreateLoader(VEHICLES_LOADER, null);
             mVehiclesLoader.registerListener(0, mVehicleLoaderListener);
             mVehiclesLoader.startLoading();
@@ -167,6 +175,7 @@ public class RouteMapController implements MapModeController {
 
     @Override
     public void onPause() {
+        mRefreshPaused = true;
         mVehicleRefreshHandler.removeCallbacks(mVehicleRefresh);
     }
 
@@ -180,32 +189,46 @@ public class RouteMapController implements MapModeController {
         // If the fragment is no longer visible, hide the route header - otherwise, show it
         if (hidden) {
             mRoutePopup.hide();
+            // Nobody is looking at the vehicles, so stop refreshing them
+            mRefreshPaused = true;
+            mVehicleRefreshHandler.removeCallbacks(mVehicleRefresh);
         } else {
             mRoutePopup.show();
+            scheduleVehicleRefresh();
         }
     }
 
     @Override
     public void onResume() {
+        scheduleVehicleRefresh();
+    }
+
+    /**
+     * Schedules the next vehicle refresh after the app returns to the foreground or the map is
+     * shown again
+     */
+    private void scheduleVehicleRefresh() {
+        mRefreshPaused = false;
         // Make sure we schedule a future update for vehicles
         mVehicleRefreshHandler.removeCallbacks(mVehicleRefresh);
+        long period = mRefreshScheduler.getPeriod();
 
         if (mLastUpdatedTimeVehicles == 0) {
             // We haven't loaded any vehicles yet - schedule the refresh for the full period and defer
             // to the loader to reschedule when load is complete
-            mVehicleRefreshHandler.postDelayed(mVehicleRefresh, VEHICLE_REFRESH_PERIOD);
+            mVehicleRefreshHandler.postDelayed(mVehicleRefresh, period);
             return;
         }
 
         long elapsedTimeMillis = TimeUnit.NANOSECONDS.toMillis(UIUtils.getCurrentTimeForComparison()
                 - mLastUpdatedTimeVehicles);
         long refreshPeriod;
-        if (elapsedTimeMillis > VEHICLE_REFRESH_PERIOD) {
+        if (elapsedTimeMillis > period) {
             // Schedule an immediate update, if we're past the normal period after a load
             refreshPeriod = 100;
         } else {
-            // Schedule an update so a total of VEHICLE_REFRESH_PERIOD has elapsed since the last update
-            refreshPeriod = VEHICLE_REFRESH_PERIOD - elapsedTimeMillis;
+            // Schedule an update so a total of the refresh period has elapsed since the last update
+            refreshPeriod = period - elapsedTimeMillis;
         }
         mVehicleRefreshHandler.postDelayed(mVehicleRefresh, refreshPeriod);
     }
@@ -354,8 +377,6 @@ public class RouteMapController implements MapModeController {
         }
     }
 
-    private static final long VEHICLE_REFRESH_PERIOD = TimeUnit.SECONDS.toMillis(10);
-
     private final Handler mVehicleRefreshHandler = new Handler();
 
     private final Runnable mVehicleRefresh = new Runnable() {
@@ -368,11 +389,24 @@ public class RouteMapController implements MapModeController {
      * Refresh vehicle data from the OBA server
      */
     private void refresh() {
-        if (mVehiclesLoader != null) {
+        if (mVehiclesLoader == null || !mVehiclesLoader.isStarted()) {
+            return;
+        }
+        // Don't start another request while one is in progress - its result will schedule the
+        // next refresh
+        if (mRefreshScheduler.startRequest()) {
             mVehiclesLoader.onContentChanged();
+        } else {
+            Log.d(TAG, "Vehicle refresh already in progress, skipping");
         }
     }
 
+    private boolean isPowerSaveMode() {
+        PowerManager pm = (PowerManager) Application.get()
+                .getSystemService(Context.POWER_SERVICE);
+        return pm != null && pm.isPowerSaveMode();
+    }
+
     //
     // Loaders
     //
@@ -475,11 +509,20 @@ public class RouteMapController implements MapModeController {
 
         private final String mRouteId;
 
+        private volatile long mLastResponseBytes;
+
         public VehiclesLoader(Context context, String routeId) {
             super(context);
             mRouteId = routeId;
         }
 
+        /**
+         * @return the size of the last response, in bytes
+         */
+        long getLastResponseBytes() {
+            return mLastResponseBytes;
+        }
+
         @Override
         public ObaTripsForRouteResponse loadInBackground() {
             if (Application.get().getCurrentRegion() == null &&
@@ -490,10 +533,13 @@ public class RouteMapController implements MapModeController {
                 return null;
             }
             //Make OBA REST API call to the server and return result
-            return new ObaTripsForRouteRequest.Builder(getContext(), mRouteId)
-                    .setIncludeStatus(true)
-                    .build()
-                    .call();
+            ObaTripsForRouteRequest request =
+                    new ObaTripsForRouteRequest.Builder(getContext(), mRouteId)
+                            .setIncludeStatus(true)
+                            .build();
+            ObaTripsForRouteResponse response = request.call();
+            mLastResponseBytes = request.getBytesRead();
+            return response;
         }
 
         @Override
@@ -524,8 +570,16 @@ public class RouteMapController implements MapModeController {
 
             ObaMapView obaMapView = mFragment.getMapView();
 
+            // Clear any pending refreshes
+            mVehicleRefreshHandler.removeCallbacks(mVehicleRefresh);
+
             if (response == null || response.getCode() != ObaApi.OBA_OK) {
                 BaseMapFragment.showMapError(response);
+                // Try again later, backing off if the server keeps failing
+                long period = mRefreshScheduler.onError(isPowerSaveMode());
+                if (!mRefreshPaused) {
+                    mVehicleRefreshHandler.postDelayed(mVehicleRefresh, period);
+                }
                 return;
             }
 
@@ -541,11 +595,13 @@ public class RouteMapController implements MapModeController {
 
             mLastUpdatedTimeVehicles = UIUtils.getCurrentTimeForComparison();
 
-            // Clear any pending refreshes
-            mVehicleRefreshHandler.removeCallbacks(mVehicleRefresh);
-
-            // Post an update
-            mVehicleRefreshHandler.postDelayed(mVehicleRefresh, VEHICLE_REFRESH_PERIOD);
+            // Post an update, when the vehicles are likely to have reported again
+            long period = mRefreshScheduler.onResponse(response,
+                    ((VehiclesLoader) loader).getLastResponseBytes(), isPowerSaveMode());
+            Log.d(TAG, mRefreshScheduler.toString());
+            if (!mRefreshPaused) {
+                mVehicleRefreshHandler.postDelayed(mVehicleRefresh, period);
+            }
         }
 
         @Override
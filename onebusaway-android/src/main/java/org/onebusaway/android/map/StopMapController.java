@@ -20,12 +20,15 @@ import com.google.android.gms.common.api.GoogleApiClient;
 
 import org.onebusaway.android.app.Application;
 import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.elements.ObaReferences;
 import org.onebusaway.android.io.elements.ObaStop;
 import org.onebusaway.android.io.request.ObaStopsForLocationRequest;
 import org.onebusaway.android.io.request.ObaStopsForLocationResponse;
 import org.onebusaway.android.map.googlemapsv2.BaseMapFragment;
+import org.onebusaway.android.util.LocationUtils;
 import org.onebusaway.android.util.RegionUtils;
 
+import android.app.Activity;
 import android.location.Location;
 import android.os.Bundle;
 import android.text.TextUtils;
@@ -48,11 +51,21 @@ final class StopsRequest {
 
     private final double mZoomLevel;
 
+    private final StopTileCache.Bounds mBounds;
+
     StopsRequest(MapModeController.ObaMapView view) {
         mCenter = view.getMapCenterAsLocation();
         mLatSpan = view.getLatitudeSpanInDecDegrees();
         mLonSpan = view.getLongitudeSpanInDecDegrees();
         mZoomLevel = view.getZoomLevelAsFloat();
+        if (mCenter != null) {
+            mBounds = new StopTileCache.Bounds(mCenter.getLatitude() - mLatSpan / 2,
+                    mCenter.getLongitude() - mLonSpan / 2,
+                    mCenter.getLatitude() + mLatSpan / 2,
+                    mCenter.getLongitude() + mLonSpan / 2);
+        } else {
+            mBounds = null;
+        }
     }
 
     Location getCenter() {
@@ -70,6 +83,13 @@ final class StopsRequest {
     double getZoomLevel() {
         return mZoomLevel;
     }
+
+    /**
+     * @return the bounds of the viewport, or null if the map center isn't known
+     */
+    StopTileCache.Bounds getBounds() {
+        return mBounds;
+    }
 }
 
 final class StopsResponse {
@@ -78,19 +98,73 @@ final class StopsResponse {
 
     private final ObaStopsForLocationResponse mResponse;
 
+    private final StopTileCache.Result mCached;
+
     StopsResponse(StopsRequest req, ObaStopsForLocationResponse response) {
+        this(req, response, null);
+    }
+
+    /**
+     * @param req      the request
+     * @param response the server response, or null if the request was answered entirely from
+     *                 the stop cache
+     * @param cached   the stops from the stop cache, or null if the cache wasn't used
+     */
+    StopsResponse(StopsRequest req, ObaStopsForLocationResponse response,
+            StopTileCache.Result cached) {
         mRequest = req;
         mResponse = response;
+        mCached = cached;
     }
 
     StopsRequest getRequest() {
         return mRequest;
     }
 
+    /**
+     * @return the server response, or null if there wasn't one
+     */
     ObaStopsForLocationResponse getResponse() {
         return mResponse;
     }
 
+    /**
+     * @return true if the request was answered entirely from the stop cache
+     */
+    boolean isFromCache() {
+        return mResponse == null && mCached != null;
+    }
+
+    /**
+     * @return the stops to show on the map
+     */
+    List<ObaStop> getStops() {
+        if (mCached != null) {
+            return mCached.getStops();
+        }
+        return Arrays.asList(mResponse.getStops());
+    }
+
+    /**
+     * @return the references for the stops to show on the map
+     */
+    ObaReferences getRefs() {
+        if (mCached != null) {
+            return mCached.getRefs();
+        }
+        return mResponse;
+    }
+
+    /**
+     * @return true if not all stops within the request were returned
+     */
+    private boolean isIncomplete() {
+        if (mCached != null) {
+            return !mCached.isComplete();
+        }
+        return mResponse != null && mResponse.getLimitExceeded();
+    }
+
     /**
      * Returns true if newReq also fulfills response.
      */
@@ -99,35 +173,21 @@ final class StopsResponse {
             //Log.d(TAG, "No center");
             return false;
         }
-        if (!mRequest.getCenter().equals(newReq.getCenter())) {
-            //Log.d(TAG, "Center not the same");
+        if (newReq.getZoomLevel() < mRequest.getZoomLevel()) {
+            //Log.d(TAG, "Zooming out");
             return false;
         }
-        if (mResponse != null) {
-            if ((newReq.getZoomLevel() > mRequest.getZoomLevel()) &&
-                    mResponse.getLimitExceeded()) {
-                //Log.d(TAG, "Zooming in -- limit exceeded");
-                return false;
-            } else if (newReq.getZoomLevel() < mRequest.getZoomLevel()) {
-                //Log.d(TAG, "Zooming out");
-                return false;
-            }
+        if (mRequest.getCenter().equals(newReq.getCenter())) {
+            // If the new request is zoomed in and the current
+            // response is incomplete, then no.
+            return !(newReq.getZoomLevel() > mRequest.getZoomLevel() && isIncomplete());
         }
-        return true;
-
-        // Otherwise:
-
-        // If the new request's is zoomed in and the current
-        // response has limitExceeded, then no.
-
         // If the new request's lat/lon span is contained
         // entirely within the old one:
-        //  Then the new request is fulfilled IFF the old request's
-        //  limitExceeded == false.
-
-        // If the new request's lat/lon span is not contained
-        // entirely within the old one (fuzzy match)
-        //  FALSE
+        //  Then the new request is fulfilled IFF the old response
+        //  contained all stops in its span.
+        return newReq.getBounds() != null && mRequest.getBounds().contains(newReq.getBounds())
+                && !isIncomplete();
     }
 }
 
@@ -195,25 +255,38 @@ public class StopMapController extends BaseMapController implements
         }
 
     }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        // Persist the stops we've loaded so they're available after process death
+        Activity activity = mCallback.getActivity();
+        if (activity != null) {
+            StopTileCache.getInstance().saveAsync(activity.getCacheDir());
+        }
+    }
+
     @Override
     public void onLoadFinished(Loader<StopsResponse> loader,
                                StopsResponse _response) {
         mCallback.showProgress(false);
         final ObaStopsForLocationResponse response = _response.getResponse();
 
-        if (response == null) {
+        if (response == null && !_response.isFromCache()) {
             // Initial install can generate a null response if all is still ok, so do nothing (#615)
             return;
         }
 
-        if (response.getCode() != ObaApi.OBA_OK) {
-            BaseMapFragment.showMapError(response);
-            return;
-        }
+        if (response != null) {
+            if (response.getCode() != ObaApi.OBA_OK) {
+                BaseMapFragment.showMapError(response);
+                return;
+            }
 
-        if (response.getOutOfRange()) {
-            mCallback.notifyOutOfRange();
-            return;
+            if (response.getOutOfRange()) {
+                mCallback.notifyOutOfRange();
+                return;
+            }
         }
 
         //Workaround for https://github.com/OneBusAway/onebusaway-application-modules/issues/59
@@ -234,15 +307,14 @@ public class StopMapController extends BaseMapController implements
                         + ", long = " + myLocation.getLongitude());
             }
 
-            if (!inRegion && Arrays.asList(response.getStops()).isEmpty()) {
+            if (!inRegion && _response.getStops().isEmpty()) {
                 Log.d(TAG, "Device location is outside region range, notifying...");
                 mCallback.notifyOutOfRange();
                 return;
             }
         }
 
-        List<ObaStop> stops = Arrays.asList(response.getStops());
-        mCallback.showStops(stops, response);
+        mCallback.showStops(_response.getStops(), _response.getRefs());
     }
 
     @Override
@@ -285,14 +357,62 @@ public class StopMapController extends BaseMapController implements
                             "OBA REST API endpoint, aborting...");
                 return new StopsResponse(req, null);
             }
-            //Make OBA REST API call to the server and return result
-            ObaStopsForLocationResponse response =
-                    new ObaStopsForLocationRequest.Builder(getContext(),
-                            req.getCenter())
-                            .setSpan(req.getLatSpan(), req.getLonSpan())
-                            .build()
-                            .call();
-            return new StopsResponse(req, response);
+            StopTileCache cache = StopTileCache.getInstance();
+            cache.setServerKey(getServerKey());
+            cache.loadIfNeeded(getContext().getCacheDir());
+
+            StopTileCache.Result cached = null;
+            if (req.getBounds() != null) {
+                cached = cache.query(req.getBounds());
+            }
+            if (cached == null) {
+                // Zoomed too far out to use the stop cache - request the viewport
+                ObaStopsForLocationResponse response = requestStops(req.getCenter(),
+                        req.getLatSpan(), req.getLonSpan());
+                if (req.getBounds() != null) {
+                    cache.put(req.getBounds(), response);
+                }
+                return new StopsResponse(req, response);
+            }
+            if (cached.isComplete()) {
+                Log.d(TAG, "Stops for viewport served from stop cache");
+                return new StopsResponse(req, null, cached);
+            }
+
+            // Only request the tiles in the viewport that we don't already have
+            StopTileCache.Bounds missing = cached.getMissingBounds();
+            Location center = LocationUtils.makeLocation(missing.getCenterLat(),
+                    missing.getCenterLon());
+            ObaStopsForLocationResponse response = requestStops(center, missing.getLatSpan(),
+                    missing.getLonSpan());
+            if (response == null || response.getCode() != ObaApi.OBA_OK
+                    || response.getOutOfRange()) {
+                return new StopsResponse(req, response);
+            }
+            cache.put(missing, response);
+            return new StopsResponse(req, response, cache.query(req.getBounds()));
+        }
+
+        /**
+         * Make OBA REST API call to the server and return result
+         */
+        private ObaStopsForLocationResponse requestStops(Location center, double latSpan,
+                double lonSpan) {
+            return new ObaStopsForLocationRequest.Builder(getContext(), center)
+                    .setSpan(latSpan, lonSpan)
+                    .build()
+                    .call();
+        }
+
+        /**
+         * @return a key identifying the OBA server stops are currently loaded from
+         */
+        private static String getServerKey() {
+            String customApiUrl = Application.get().getCustomApiUrl();
+            if (!TextUtils.isEmpty(customApiUrl)) {
+                return customApiUrl;
+            }
+            return String.valueOf(Application.get().getCurrentRegion().getId());
         }
 
         @Override
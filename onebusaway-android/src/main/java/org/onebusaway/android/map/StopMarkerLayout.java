@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map;
+
+import org.onebusaway.android.io.elements.ObaStop;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which markers the map shows for a set of stops, independent of the map implementation.
+ *
+ * At {@link #MAX_CLUSTER_ZOOM} and below, stops are grouped into cells of a grid of
+ * {@link #CELL_SIZE_PX} map pixels, and a cell with more than one stop is shown as a single
+ * cluster marker.  Each marker has a key, so a map overlay can diff the markers it shows against
+ * a new layout and only add and remove the markers that changed.
+ *
+ * When there are more stops than the map should hold, {@link #selectEvictions} picks the stops
+ * that are farthest outside the viewport to drop, instead of starting over with an empty map.
+ */
+public final class StopMarkerLayout {
+
+    /**
+     * Highest zoom level at which nearby stops are clustered
+     */
+    public static final int MAX_CLUSTER_ZOOM = 14;
+
+    /**
+     * Edge length of a clustering grid cell, in pixels of 256 pixel map tiles
+     */
+    static final int CELL_SIZE_PX = 64;
+
+    /**
+     * When stops are evicted, enough are evicted to get back to this share of the maximum, so
+     * that every new response doesn't evict a few more stops
+     */
+    static final float EVICTION_LOW_WATER_MARK = 0.75f;
+
+    private static final String CLUSTER_KEY_PREFIX = "cluster:";
+
+    private StopMarkerLayout() {
+    }
+
+    /**
+     * A marker on the map - either a single stop, or a cluster of stops
+     */
+    public static final class Item {
+
+        private final String mKey;
+
+        private final List<ObaStop> mStops;
+
+        private final double mLatitude;
+
+        private final double mLongitude;
+
+        Item(String key, List<ObaStop> stops) {
+            mKey = key;
+            mStops = stops;
+            double lat = 0, lon = 0;
+            for (ObaStop stop : stops) {
+                lat += stop.getLatitude();
+                lon += stop.getLongitude();
+            }
+            mLatitude = lat / stops.size();
+            mLongitude = lon / stops.size();
+        }
+
+        /**
+         * @return the stop ID for a single stop, or a key for a cluster that changes if the
+         * number of stops in the cluster changes
+         */
+        public String getKey() {
+            return mKey;
+        }
+
+        public boolean isCluster() {
+            return mStops.size() > 1;
+        }
+
+        /**
+         * @return the stop of a single stop marker, or the first stop of a cluster
+         */
+        public ObaStop getStop() {
+            return mStops.get(0);
+        }
+
+        public List<ObaStop> getStops() {
+            return mStops;
+        }
+
+        public int size() {
+            return mStops.size();
+        }
+
+        /**
+         * @return the latitude of the stop, or the average latitude of the stops in a cluster
+         */
+        public double getLatitude() {
+            return mLatitude;
+        }
+
+        /**
+         * @return the longitude of the stop, or the average longitude of the stops in a cluster
+         */
+        public double getLongitude() {
+            return mLongitude;
+        }
+    }
+
+    /**
+     * Lays out the markers for the given stops
+     *
+     * @param stops          the stops to show
+     * @param zoom           the map zoom level
+     * @param excludedStopId ID of a stop that is always shown on its own, such as the focused
+     *                       stop, or null
+     * @return the markers to show
+     */
+    public static List<Item> layout(Collection<ObaStop> stops, float zoom,
+            String excludedStopId) {
+        List<Item> items = new ArrayList<>();
+        int level = (int) zoom;
+        if (level > MAX_CLUSTER_ZOOM) {
+            for (ObaStop stop : stops) {
+                items.add(new Item(stop.getId(), Collections.singletonList(stop)));
+            }
+            return items;
+        }
+
+        // Width of the world in pixels at this zoom level
+        double worldSize = 256.0 * (1 << level);
+        Map<Long, List<ObaStop>> cells = new LinkedHashMap<>();
+        for (ObaStop stop : stops) {
+            if (stop.getId().equals(excludedStopId)) {
+                items.add(new Item(stop.getId(), Collections.singletonList(stop)));
+                continue;
+            }
+            // Web Mercator pixel coordinates
+            double x = (stop.getLongitude() + 180) / 360 * worldSize;
+            double sinLat = Math.sin(Math.toRadians(stop.getLatitude()));
+            double y = (0.5 - Math.log((1 + sinLat) / (1 - sinLat)) / (4 * Math.PI)) * worldSize;
+            long cellX = (long) Math.floor(x / CELL_SIZE_PX);
+            long cellY = (long) Math.floor(y / CELL_SIZE_PX);
+            Long cell = (cellX << 32) | (cellY & 0xffffffffL);
+            List<ObaStop> cellStops = cells.get(cell);
+            if (cellStops == null) {
+                cellStops = new ArrayList<>();
+                cells.put(cell, cellStops);
+            }
+            cellStops.add(stop);
+        }
+
+        for (Map.Entry<Long, List<ObaStop>> entry : cells.entrySet()) {
+            List<ObaStop> cellStops = entry.getValue();
+            if (cellStops.size() == 1) {
+                items.add(new Item(cellStops.get(0).getId(), cellStops));
+            } else {
+                String key = CLUSTER_KEY_PREFIX + level + "/" + entry.getKey() + "/"
+                        + cellStops.size();
+                items.add(new Item(key, cellStops));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Picks the stops to drop from the map when it holds more than maxCount stops.  Stops that
+     * are farthest from the viewport are dropped first, and stops at the same distance in the
+     * order they are given, so callers should give the least recently used stops first.  Stops
+     * within the viewport are never dropped, so the map may still hold more than maxCount stops
+     * afterwards.
+     *
+     * @param stops       the stops on the map, least recently used first
+     * @param viewport    the visible area of the map
+     * @param maxCount    the most stops the map should hold
+     * @param keptStopId  ID of a stop that is never dropped, such as the focused stop, or null
+     * @return the IDs of the stops to drop
+     */
+    public static List<String> selectEvictions(Collection<ObaStop> stops,
+            StopTileCache.Bounds viewport, int maxCount, String keptStopId) {
+        if (stops.size() <= maxCount) {
+            return Collections.emptyList();
+        }
+        final Map<ObaStop, Double> distances = new LinkedHashMap<>();
+        for (ObaStop stop : stops) {
+            double distance = distanceFromViewport(stop, viewport);
+            if (distance > 0 && !stop.getId().equals(keptStopId)) {
+                distances.put(stop, distance);
+            }
+        }
+        List<ObaStop> candidates = new ArrayList<>(distances.keySet());
+        // A stable sort, so stops at the same distance stay least recently used first
+        Collections.sort(candidates, (a, b) -> Double.compare(distances.get(b),
+                distances.get(a)));
+
+        int count = Math.min(stops.size() - (int) (maxCount * EVICTION_LOW_WATER_MARK),
+                candidates.size());
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(candidates.get(i).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * @return the distance from the stop to the nearest edge of the viewport, in degrees of
+     * latitude, or 0 if the stop is within the viewport
+     */
+    static double distanceFromViewport(ObaStop stop, StopTileCache.Bounds viewport) {
+        double lat = stop.getLatitude();
+        double lon = stop.getLongitude();
+        double dLat = Math.max(0, Math.max(viewport.minLat - lat, lat - viewport.maxLat));
+        double dLon = Math.max(0, Math.max(viewport.minLon - lon, lon - viewport.maxLon))
+                * Math.cos(Math.toRadians(lat));
+        return Math.sqrt(dLat * dLat + dLon * dLon);
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.elements.ObaReferences;
+import org.onebusaway.android.io.elements.ObaReferencesElement;
+import org.onebusaway.android.io.elements.ObaRoute;
+import org.onebusaway.android.io.elements.ObaRouteElement;
+import org.onebusaway.android.io.elements.ObaStop;
+import org.onebusaway.android.io.elements.ObaStopElement;
+import org.onebusaway.android.io.request.ObaStopsForLocationResponse;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Spatial cache of the stops returned by stops-for-location requests, so that panning within or
+ * zooming into an area the user has already viewed can be answered without a network request.
+ *
+ * The world is divided into fixed-size latitude/longitude tiles.  Every stop in a response is
+ * indexed into the tile that contains it, and a tile is marked complete when it lies entirely
+ * within the bounds of a response that didn't exceed the server's result limit.  A viewport is
+ * answered locally when all tiles it overlaps are complete - otherwise only the bounding box of
+ * the incomplete tiles needs to be requested from the server.
+ *
+ * Tiles are evicted in least-recently-used order, complete tiles expire after
+ * {@link #MAX_AGE_MS}, and the cache can be saved to and restored from disk so it survives
+ * process death.
+ */
+public final class StopTileCache {
+
+    private static final String TAG = "StopTileCache";
+
+    /**
+     * Tile edge length, in decimal degrees (about 1.1 km north-south)
+     */
+    static final double TILE_SIZE_DEGREES = 0.01;
+
+    /**
+     * Viewports that overlap more tiles than this are zoomed too far out to be answered from the
+     * cache, because the server will probably truncate the results for them anyway
+     */
+    static final int MAX_TILES_PER_QUERY = 144;
+
+    /**
+     * Tolerance, in tiles, for bounds that were aligned to tile edges but picked up floating
+     * point error
+     */
+    private static final double EPSILON = 1E-6;
+
+    static final int MAX_CACHED_TILES = 2000;
+
+    /**
+     * How long a complete tile can be used before its stops are requested again
+     */
+    static final long MAX_AGE_MS = 24 * 60 * 60 * 1000;
+
+    private static final String CACHE_FILE = "stop_tiles.json";
+
+    /**
+     * Only (de)serializes fields, so getters like ObaStop.getLocation() aren't written to disk
+     */
+    private static final ObjectMapper mMapper = new ObjectMapper();
+
+    static {
+        mMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        mMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    }
+
+    private static class SingletonHolder {
+
+        public static final StopTileCache INSTANCE = new StopTileCache();
+    }
+
+    public static StopTileCache getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * A rectangular area, in decimal degrees
+     */
+    public static final class Bounds {
+
+        public final double minLat;
+
+        public final double minLon;
+
+        public final double maxLat;
+
+        public final double maxLon;
+
+        public Bounds(double minLat, double minLon, double maxLat, double maxLon) {
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+        }
+
+        public double getCenterLat() {
+            return (minLat + maxLat) / 2;
+        }
+
+        public double getCenterLon() {
+            return (minLon + maxLon) / 2;
+        }
+
+        public double getLatSpan() {
+            return maxLat - minLat;
+        }
+
+        public double getLonSpan() {
+            return maxLon - minLon;
+        }
+
+        boolean contains(Bounds other) {
+            return minLat <= other.minLat && minLon <= other.minLon
+                    && maxLat >= other.maxLat && maxLon >= other.maxLon;
+        }
+    }
+
+    /**
+     * The stops the cache holds for a viewport
+     */
+    public static final class Result {
+
+        private final List<ObaStop> mStops;
+
+        private final ObaReferences mRefs;
+
+        private final Bounds mMissing;
+
+        Result(List<ObaStop> stops, ObaReferences refs, Bounds missing) {
+            mStops = stops;
+            mRefs = refs;
+            mMissing = missing;
+        }
+
+        /**
+         * @return the cached stops in the tiles overlapping the viewport
+         */
+        public List<ObaStop> getStops() {
+            return mStops;
+        }
+
+        /**
+         * @return references for the routes serving the cached stops
+         */
+        public ObaReferences getRefs() {
+            return mRefs;
+        }
+
+        /**
+         * @return true if every tile overlapping the viewport is complete, and therefore no
+         * network request is needed
+         */
+        public boolean isComplete() {
+            return mMissing == null;
+        }
+
+        /**
+         * @return the bounding box of the incomplete tiles overlapping the viewport, aligned to
+         * tile edges, or null if the viewport is complete
+         */
+        public Bounds getMissingBounds() {
+            return mMissing;
+        }
+    }
+
+    private static final class Tile {
+
+        final LinkedHashMap<String, ObaStopElement> stops =
+                new LinkedHashMap<String, ObaStopElement>();
+
+        // Time this tile was completely fetched, or 0 if it is incomplete
+        long completeTime;
+
+        boolean isComplete(long now) {
+            return completeTime != 0 && now - completeTime < MAX_AGE_MS;
+        }
+    }
+
+    /**
+     * The on-disk format of the cache
+     */
+    static final class Snapshot {
+
+        String serverKey;
+
+        long[] completeTiles;
+
+        long[] completeTimes;
+
+        ObaStopElement[] stops;
+
+        ObaRouteElement[] routes;
+    }
+
+    private final LinkedHashMap<Long, Tile> mTiles =
+            new LinkedHashMap<Long, Tile>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                    if (size() > MAX_CACHED_TILES) {
+                        mTilesEvicted = true;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    // Routes serving the cached stops, pruned once tiles have been evicted
+    private final HashMap<String, ObaRouteElement> mRoutes =
+            new HashMap<String, ObaRouteElement>();
+
+    private boolean mTilesEvicted = false;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    // Identifies the OBA server the cached stops came from
+    private String mServerKey;
+
+    private boolean mLoaded = false;
+
+    /**
+     * Creates an empty cache.  The app shares the one from {@link #getInstance()}, so this is
+     * only used by tests.
+     */
+    public StopTileCache() {
+    }
+
+    /**
+     * Clears the cache if the stops in it came from a different OBA server
+     *
+     * @param serverKey identifies the current OBA server (e.g., region ID or custom API URL)
+     */
+    public synchronized void setServerKey(String serverKey) {
+        if (mServerKey != null && !mServerKey.equals(serverKey)) {
+            Log.d(TAG, "OBA server changed, clearing stop cache");
+            mTiles.clear();
+            mRoutes.clear();
+        }
+        mServerKey = serverKey;
+    }
+
+    /**
+     * Returns the cached stops for the viewport
+     *
+     * @param view the viewport
+     * @return the cached stops for the viewport, or null if the viewport is too large to be
+     * served from the cache
+     */
+    public synchronized Result query(Bounds view) {
+        int minRow = row(view.minLat);
+        int maxRow = row(view.maxLat);
+        int minCol = col(view.minLon);
+        int maxCol = col(view.maxLon);
+        if ((long) (maxRow - minRow + 1) * (maxCol - minCol + 1) > MAX_TILES_PER_QUERY) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        int missingMinRow = Integer.MAX_VALUE;
+        int missingMaxRow = Integer.MIN_VALUE;
+        int missingMinCol = Integer.MAX_VALUE;
+        int missingMaxCol = Integer.MIN_VALUE;
+        ArrayList<ObaStopElement> stops = new ArrayList<ObaStopElement>();
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                Tile tile = mTiles.get(key(row, col));
+                if (tile != null) {
+                    stops.addAll(tile.stops.values());
+                }
+                if (tile == null || !tile.isComplete(now)) {
+                    missingMinRow = Math.min(missingMinRow, row);
+                    missingMaxRow = Math.max(missingMaxRow, row);
+                    missingMinCol = Math.min(missingMinCol, col);
+                    missingMaxCol = Math.max(missingMaxCol, col);
+                }
+            }
+        }
+
+        Bounds missing = null;
+        if (missingMinRow != Integer.MAX_VALUE) {
+            missing = new Bounds(missingMinRow * TILE_SIZE_DEGREES,
+                    missingMinCol * TILE_SIZE_DEGREES,
+                    (missingMaxRow + 1) * TILE_SIZE_DEGREES,
+                    (missingMaxCol + 1) * TILE_SIZE_DEGREES);
+        }
+        return new Result(new ArrayList<ObaStop>(stops), buildRefs(stops), missing);
+    }
+
+    /**
+     * Adds the stops in a stops-for-location response to the cache
+     *
+     * @param requested the bounds that were requested from the server
+     * @param response  the server response
+     */
+    public synchronized void put(Bounds requested, ObaStopsForLocationResponse response) {
+        if (response == null || response.getCode() != ObaApi.OBA_OK
+                || response.getOutOfRange()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        if (!response.getLimitExceeded()) {
+            // The server returned every stop in the requested bounds, so the tiles entirely
+            // within them are now complete - replace their contents with the new stops
+            int minRow = (int) Math.ceil(requested.minLat / TILE_SIZE_DEGREES - EPSILON);
+            int maxRow = (int) Math.floor(requested.maxLat / TILE_SIZE_DEGREES + EPSILON) - 1;
+            int minCol = (int) Math.ceil(requested.minLon / TILE_SIZE_DEGREES - EPSILON);
+            int maxCol = (int) Math.floor(requested.maxLon / TILE_SIZE_DEGREES + EPSILON) - 1;
+            if ((long) (maxRow - minRow + 1) * (maxCol - minCol + 1) <= MAX_CACHED_TILES) {
+                for (int row = minRow; row <= maxRow; row++) {
+                    for (int col = minCol; col <= maxCol; col++) {
+                        Tile tile = getOrCreateTile(key(row, col));
+                        tile.stops.clear();
+                        tile.completeTime = now;
+                    }
+                }
+            }
+        }
+
+        for (ObaStop stop : response.getStops()) {
+            if (stop instanceof ObaStopElement) {
+                addStop((ObaStopElement) stop);
+            }
+        }
+        for (ObaRoute route : response.getRoutes()) {
+            if (route instanceof ObaRouteElement) {
+                mRoutes.put(route.getId(), (ObaRouteElement) route);
+            }
+        }
+        pruneRoutesIfNeeded();
+    }
+
+    /**
+     * Loads the cache from disk the first time it's called.  Should be called from a background
+     * thread.
+     *
+     * @param dir directory the cache file is stored in
+     */
+    public synchronized void loadIfNeeded(File dir) {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        File file = new File(dir, CACHE_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Snapshot snapshot = mMapper.readValue(file, Snapshot.class);
+            restore(snapshot);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't read stop cache: " + e);
+        }
+    }
+
+    /**
+     * Saves the cache to disk on a background thread
+     *
+     * @param dir directory the cache file is stored in
+     */
+    public void saveAsync(final File dir) {
+        final Snapshot snapshot;
+        synchronized (this) {
+            if (mTiles.isEmpty()) {
+                return;
+            }
+            snapshot = snapshot();
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File tmp = new File(dir, CACHE_FILE + ".tmp");
+                try {
+                    mMapper.writeValue(tmp, snapshot);
+                    if (!tmp.renameTo(new File(dir, CACHE_FILE))) {
+                        Log.e(TAG, "Couldn't rename stop cache file");
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Couldn't write stop cache: " + e);
+                }
+            }
+        });
+    }
+
+    synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.serverKey = mServerKey;
+        ArrayList<ObaStopElement> stops = new ArrayList<ObaStopElement>();
+        ArrayList<Long> complete = new ArrayList<Long>();
+        ArrayList<Long> times = new ArrayList<Long>();
+        for (Map.Entry<Long, Tile> entry : mTiles.entrySet()) {
+            stops.addAll(entry.getValue().stops.values());
+            if (entry.getValue().completeTime != 0) {
+                complete.add(entry.getKey());
+                times.add(entry.getValue().completeTime);
+            }
+        }
+        snapshot.completeTiles = new long[complete.size()];
+        snapshot.completeTimes = new long[times.size()];
+        for (int i = 0; i < complete.size(); i++) {
+            snapshot.completeTiles[i] = complete.get(i);
+            snapshot.completeTimes[i] = times.get(i);
+        }
+        snapshot.stops = stops.toArray(new ObaStopElement[stops.size()]);
+        Collection<ObaRouteElement> routes = mRoutes.values();
+        snapshot.routes = routes.toArray(new ObaRouteElement[routes.size()]);
+        return snapshot;
+    }
+
+    synchronized void restore(Snapshot snapshot) {
+        if (snapshot == null || (mServerKey != null && !mServerKey.equals(snapshot.serverKey))) {
+            return;
+        }
+        mServerKey = snapshot.serverKey;
+        long now = System.currentTimeMillis();
+        if (snapshot.completeTiles != null && snapshot.completeTimes != null) {
+            for (int i = 0; i < snapshot.completeTiles.length; i++) {
+                if (now - snapshot.completeTimes[i] < MAX_AGE_MS) {
+                    getOrCreateTile(snapshot.completeTiles[i]).completeTime =
+                            snapshot.completeTimes[i];
+                }
+            }
+        }
+        if (snapshot.stops != null) {
+            for (ObaStopElement stop : snapshot.stops) {
+                addStop(stop);
+            }
+        }
+        if (snapshot.routes != null) {
+            for (ObaRouteElement route : snapshot.routes) {
+                mRoutes.put(route.getId(), route);
+            }
+        }
+        pruneRoutesIfNeeded();
+    }
+
+    /**
+     * Drops the routes that don't serve any cached stop, if tiles have been evicted since the
+     * last time
+     */
+    private void pruneRoutesIfNeeded() {
+        if (!mTilesEvicted) {
+            return;
+        }
+        mTilesEvicted = false;
+        HashSet<String> routeIds = new HashSet<String>();
+        for (Tile tile : mTiles.values()) {
+            for (ObaStopElement stop : tile.stops.values()) {
+                if (stop.getRouteIds() != null) {
+                    Collections.addAll(routeIds, stop.getRouteIds());
+                }
+            }
+        }
+        mRoutes.keySet().retainAll(routeIds);
+    }
+
+    private void addStop(ObaStopElement stop) {
+        getOrCreateTile(key(row(stop.getLatitude()), col(stop.getLongitude())))
+                .stops.put(stop.getId(), stop);
+    }
+
+    private Tile getOrCreateTile(long key) {
+        Tile tile = mTiles.get(key);
+        if (tile == null) {
+            tile = new Tile();
+            mTiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Builds references containing the given stops and the routes that serve them
+     */
+    private ObaReferences buildRefs(List<ObaStopElement> stops) {
+        LinkedHashMap<String, ObaRouteElement> routes =
+                new LinkedHashMap<String, ObaRouteElement>();
+        for (ObaStopElement stop : stops) {
+            if (stop.getRouteIds() == null) {
+                continue;
+            }
+            for (String routeId : stop.getRouteIds()) {
+                ObaRouteElement route = mRoutes.get(routeId);
+                if (route != null) {
+                    routes.put(routeId, route);
+                }
+            }
+        }
+        return new ObaReferencesElement(stops.toArray(new ObaStopElement[stops.size()]),
+                routes.values().toArray(new ObaRouteElement[routes.size()]));
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / TILE_SIZE_DEGREES);
+    }
+
+    private static int col(double lon) {
+        return (int) Math.floor(lon / TILE_SIZE_DEGREES);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
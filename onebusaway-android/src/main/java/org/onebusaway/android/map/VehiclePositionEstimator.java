@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map;
+
+import org.onebusaway.android.io.elements.ObaShape;
+import org.onebusaway.android.io.elements.ShapeGeometry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates where real-time vehicles are between polls, by moving them forward along the route
+ * shapes (i.e., dead reckoning).
+ *
+ * Each fix is projected onto the nearest route shape, and the speed of the vehicle along that
+ * shape is estimated from consecutive fixes.  Vehicles are then advanced along the shape at that
+ * speed for at most MAX_EXTRAPOLATION_MS after the fix, and never past the end of the shape.
+ *
+ * Times passed to this class as "elapsed" are from SystemClock.elapsedRealtime(), and fix and
+ * server times are in milliseconds since the epoch, as reported by the server.  This class isn't
+ * thread-safe, and is meant to be used from the main thread.
+ */
+public class VehiclePositionEstimator {
+
+    /**
+     * Fixes farther than this (in meters) from every shape aren't extrapolated
+     */
+    private static final double MAX_SHAPE_DISTANCE = 50;
+
+    /**
+     * When matching a fix on the shape the vehicle was already on, positions more than this many
+     * meters behind the previous one are only used if nothing ahead of it is close enough.  This
+     * keeps vehicles on the right part of routes that loop back on themselves.
+     */
+    private static final double MAX_BACKWARD_DISTANCE = 100;
+
+    /**
+     * Speeds above this (in meters per second, roughly 125 km/h) are treated as GPS noise
+     */
+    private static final double MAX_SPEED = 35;
+
+    /**
+     * Weight of the newest speed sample when smoothing the speed between fixes
+     */
+    private static final double SPEED_SMOOTHING = 0.5;
+
+    /**
+     * Vehicles aren't moved further than this past their last fix, so a vehicle that stops
+     * without the server knowing doesn't keep going
+     */
+    private static final long MAX_EXTRAPOLATION_MS = TimeUnit.SECONDS.toMillis(45);
+
+    private static final double EARTH_RADIUS_METERS = 6371009;
+
+    /**
+     * An estimated vehicle position
+     */
+    public static final class Estimate {
+
+        private final double mLatitude;
+
+        private final double mLongitude;
+
+        private final float mBearing;
+
+        private final boolean mMoving;
+
+        Estimate(double latitude, double longitude, float bearing, boolean moving) {
+            mLatitude = latitude;
+            mLongitude = longitude;
+            mBearing = bearing;
+            mMoving = moving;
+        }
+
+        public double getLatitude() {
+            return mLatitude;
+        }
+
+        public double getLongitude() {
+            return mLongitude;
+        }
+
+        /**
+         * @return the direction of the shape at this position, where 0º is north, 90º is east,
+         * 180º is south, and 270º is west
+         */
+        public float getBearing() {
+            return mBearing;
+        }
+
+        /**
+         * @return true if the vehicle is being moved forward from its last fix, false if its
+         * speed isn't known yet or it has stopped
+         */
+        public boolean isMoving() {
+            return mMoving;
+        }
+    }
+
+    /**
+     * A route shape, in a local equirectangular projection so distances can be computed cheaply
+     */
+    private static final class Shape {
+
+        final double[] lat;
+
+        final double[] lon;
+
+        final double[] x;
+
+        final double[] y;
+
+        // Distance in meters from the start of the shape to each vertex
+        final double[] distance;
+
+        final double metersPerDegreeLon;
+
+        Shape(ShapeGeometry points) {
+            int n = points.size();
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            double latSum = 0;
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                // Drop repeated vertices, so every segment has a length and a direction
+                if (count > 0 && lat[count - 1] == points.getLatitude(i)
+                        && lon[count - 1] == points.getLongitude(i)) {
+                    continue;
+                }
+                lat[count] = points.getLatitude(i);
+                lon[count] = points.getLongitude(i);
+                latSum += lat[count];
+                count++;
+            }
+            this.lat = trim(lat, count);
+            this.lon = trim(lon, count);
+            x = new double[count];
+            y = new double[count];
+            distance = new double[count];
+            double metersPerDegree = Math.toRadians(EARTH_RADIUS_METERS);
+            metersPerDegreeLon = count > 0
+                    ? metersPerDegree * Math.cos(Math.toRadians(latSum / count)) : metersPerDegree;
+            for (int i = 0; i < count; i++) {
+                x[i] = this.lon[i] * metersPerDegreeLon;
+                y[i] = this.lat[i] * metersPerDegree;
+                if (i > 0) {
+                    distance[i] = distance[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+                }
+            }
+        }
+
+        double getLength() {
+            return distance.length > 0 ? distance[distance.length - 1] : 0;
+        }
+
+        private static double[] trim(double[] a, int length) {
+            if (a.length == length) {
+                return a;
+            }
+            double[] result = new double[length];
+            System.arraycopy(a, 0, result, 0, length);
+            return result;
+        }
+    }
+
+    /**
+     * The result of projecting a point onto a shape
+     */
+    private static final class Projection {
+
+        int shape = -1;
+
+        double distanceAlong;
+
+        double distanceSquared = Double.MAX_VALUE;
+    }
+
+    /**
+     * The last fix of a vehicle, and its estimated speed along the shape
+     */
+    private static final class Track {
+
+        final int shape;
+
+        final double distanceAlong;
+
+        final long fixTime;
+
+        // elapsedRealtime() at the time of the fix
+        final long fixElapsed;
+
+        // Meters per second, or 0 if unknown
+        final double speed;
+
+        Track(int shape, double distanceAlong, long fixTime, long fixElapsed, double speed) {
+            this.shape = shape;
+            this.distanceAlong = distanceAlong;
+            this.fixTime = fixTime;
+            this.fixElapsed = fixElapsed;
+            this.speed = speed;
+        }
+    }
+
+    private final ArrayList<Shape> mShapes = new ArrayList<>();
+
+    // activeTripId -> Track
+    private final HashMap<String, Track> mTracks = new HashMap<>();
+
+    /**
+     * Sets the shapes that vehicles travel along.  Any tracked vehicles are forgotten, since
+     * their positions were relative to the previous shapes.
+     *
+     * @param shapes the route shapes, which may be empty
+     */
+    public void setShapes(List<? extends ObaShape> shapes) {
+        mShapes.clear();
+        mTracks.clear();
+        for (ObaShape s : shapes) {
+            Shape shape = new Shape(s.getGeometry());
+            if (shape.x.length > 1) {
+                mShapes.add(shape);
+            }
+        }
+    }
+
+    /**
+     * Records a new real-time fix for a vehicle
+     *
+     * @param tripId     the activeTripId of the vehicle
+     * @param lat        latitude of the fix
+     * @param lon        longitude of the fix
+     * @param fixTime    server time of the fix
+     * @param serverTime server time when the response containing the fix was generated
+     * @param elapsed    elapsedRealtime() when the response was received
+     */
+    public void update(String tripId, double lat, double lon, long fixTime, long serverTime,
+            long elapsed) {
+        Track previous = mTracks.get(tripId);
+        if (previous != null && previous.fixTime == fixTime) {
+            // The vehicle hasn't reported a new position
+            return;
+        }
+        Projection p = project(lat, lon, previous);
+        if (p.distanceSquared > MAX_SHAPE_DISTANCE * MAX_SHAPE_DISTANCE) {
+            mTracks.remove(tripId);
+            return;
+        }
+
+        double speed = 0;
+        if (previous != null && previous.shape == p.shape && fixTime > previous.fixTime) {
+            double seconds = Math.max(1000, fixTime - previous.fixTime) / 1000.0;
+            double sample = (p.distanceAlong - previous.distanceAlong) / seconds;
+            if (sample < 0 || sample > MAX_SPEED) {
+                // Jitter or a bad fix
+                sample = 0;
+            }
+            speed = previous.speed > 0
+                    ? previous.speed + SPEED_SMOOTHING * (sample - previous.speed) : sample;
+        }
+        long fixAge = Math.max(0, serverTime - fixTime);
+        mTracks.put(tripId, new Track(p.shape, p.distanceAlong, fixTime, elapsed - fixAge, speed));
+    }
+
+    /**
+     * Stops estimating the position of a vehicle, e.g. because it no longer has real-time data
+     */
+    public void remove(String tripId) {
+        mTracks.remove(tripId);
+    }
+
+    /**
+     * Stops estimating the position of every vehicle that isn't in the provided set
+     */
+    public void retain(Set<String> tripIds) {
+        Iterator<String> iterator = mTracks.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!tripIds.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        mShapes.clear();
+        mTracks.clear();
+    }
+
+    /**
+     * Estimates the position of a vehicle
+     *
+     * @param tripId  the activeTripId of the vehicle
+     * @param elapsed elapsedRealtime() to estimate the position for
+     * @return the estimated position on the route shape, or null if the position of the vehicle
+     * can't be estimated
+     */
+    public Estimate estimate(String tripId, long elapsed) {
+        Track track = mTracks.get(tripId);
+        if (track == null) {
+            return null;
+        }
+        Shape shape = mShapes.get(track.shape);
+        long age = Math.min(Math.max(0, elapsed - track.fixElapsed), MAX_EXTRAPOLATION_MS);
+        double distanceAlong = Math.min(track.distanceAlong
+                + track.speed * age / 1000.0, shape.getLength());
+        boolean moving = track.speed > 0 && distanceAlong < shape.getLength();
+        return interpolate(shape, distanceAlong, moving);
+    }
+
+    /**
+     * Finds the closest point to lat/lon on the shapes, preferring positions on the same shape
+     * and ahead of the previous fix
+     */
+    private Projection project(double lat, double lon, Track previous) {
+        if (previous != null) {
+            Projection p = new Projection();
+            projectOnto(previous.shape, lat, lon,
+                    previous.distanceAlong - MAX_BACKWARD_DISTANCE, p);
+            if (p.distanceSquared <= MAX_SHAPE_DISTANCE * MAX_SHAPE_DISTANCE) {
+                return p;
+            }
+        }
+        Projection p = new Projection();
+        for (int i = 0; i < mShapes.size(); i++) {
+            projectOnto(i, lat, lon, 0, p);
+        }
+        return p;
+    }
+
+    /**
+     * Projects lat/lon onto the segments of a shape that end after minDistanceAlong, updating
+     * result if a closer point is found
+     */
+    private void projectOnto(int index, double lat, double lon, double minDistanceAlong,
+            Projection result) {
+        Shape shape = mShapes.get(index);
+        double px = lon * shape.metersPerDegreeLon;
+        double py = lat * Math.toRadians(EARTH_RADIUS_METERS);
+        for (int i = 1; i < shape.x.length; i++) {
+            if (shape.distance[i] < minDistanceAlong) {
+                continue;
+            }
+            double dx = shape.x[i] - shape.x[i - 1];
+            double dy = shape.y[i] - shape.y[i - 1];
+            double t = ((px - shape.x[i - 1]) * dx + (py - shape.y[i - 1]) * dy)
+                    / (dx * dx + dy * dy);
+            t = Math.max(0, Math.min(1, t));
+            double ex = shape.x[i - 1] + t * dx - px;
+            double ey = shape.y[i - 1] + t * dy - py;
+            double d2 = ex * ex + ey * ey;
+            if (d2 < result.distanceSquared) {
+                result.shape = index;
+                result.distanceSquared = d2;
+                result.distanceAlong = shape.distance[i - 1]
+                        + t * (shape.distance[i] - shape.distance[i - 1]);
+            }
+        }
+    }
+
+    private static Estimate interpolate(Shape shape, double distanceAlong, boolean moving) {
+        // Find the segment containing distanceAlong
+        int low = 1;
+        int high = shape.distance.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (shape.distance[mid] < distanceAlong) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int i = low;
+        double segment = shape.distance[i] - shape.distance[i - 1];
+        double t = Math.max(0, Math.min(1, (distanceAlong - shape.distance[i - 1]) / segment));
+        double lat = shape.lat[i - 1] + t * (shape.lat[i] - shape.lat[i - 1]);
+        double lon = shape.lon[i - 1] + t * (shape.lon[i] - shape.lon[i - 1]);
+        double bearing = Math.toDegrees(Math.atan2(shape.x[i] - shape.x[i - 1],
+                shape.y[i] - shape.y[i - 1]));
+        if (bearing < 0) {
+            bearing += 360;
+        }
+        return new Estimate(lat, lon, (float) bearing, moving);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.map;
+
+import org.onebusaway.android.io.elements.ObaTripDetails;
+import org.onebusaway.android.io.elements.ObaTripStatus;
+import org.onebusaway.android.io.elements.Status;
+import org.onebusaway.android.io.request.ObaTripsForRouteResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often the vehicles on the route map are refreshed.
+ *
+ * The refresh period follows how often the vehicles actually report new positions (from
+ * ObaTripStatus.getLastUpdateTime()), and backs off when a refresh brings no new positions, when
+ * there are no real-time vehicles at all, when a refresh fails, or when battery saver is on.
+ * Refreshes requested while one is already in progress are coalesced into it.
+ *
+ * The number of requests issued and skipped, and the bytes received, are counted so the load each
+ * route viewer puts on the server can be measured.  This class is meant to be used from the main
+ * thread.
+ */
+public class VehicleRefreshScheduler {
+
+    /**
+     * Period used until the vehicles have reported twice
+     */
+    public static final long DEFAULT_PERIOD = TimeUnit.SECONDS.toMillis(20);
+
+    /**
+     * Vehicles are never refreshed more often than this, even if they report more often
+     */
+    static final long MIN_PERIOD = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Longest period used for vehicles that are reporting, so markers moved along the route
+     * between refreshes (see VehiclePositionEstimator) are corrected before they stop
+     */
+    static final long MAX_PERIOD = TimeUnit.SECONDS.toMillis(40);
+
+    /**
+     * Longest period after backing off
+     */
+    static final long MAX_BACKOFF_PERIOD = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * Period when none of the vehicles have real-time data
+     */
+    static final long NO_REALTIME_PERIOD = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Vehicles usually report a little later than the observed period, so the refresh is delayed
+     * by this much to pick up the next report instead of just missing it
+     */
+    static final long REPORT_MARGIN = TimeUnit.SECONDS.toMillis(2);
+
+    private static final int MAX_BACKOFF_STEPS = 3;
+
+    // activeTripId -> last update time of the vehicle running it
+    private HashMap<String, Long> mLastUpdateTimes = new HashMap<>();
+
+    // Smoothed period between vehicle reports, or 0 if it isn't known yet
+    private long mObservedPeriod;
+
+    // Consecutive refreshes that returned no new vehicle positions, or failed
+    private int mUnchangedCount;
+
+    private long mPeriod = DEFAULT_PERIOD;
+
+    private boolean mRequestInProgress;
+
+    private int mRequestsIssued;
+
+    private int mRequestsSkipped;
+
+    private long mBytesReceived;
+
+    /**
+     * Called before refreshing the vehicles
+     *
+     * @return true if the refresh should be made, false if one is already in progress and this
+     * one should be skipped
+     */
+    public boolean startRequest() {
+        if (mRequestInProgress) {
+            mRequestsSkipped++;
+            return false;
+        }
+        mRequestInProgress = true;
+        mRequestsIssued++;
+        return true;
+    }
+
+    /**
+     * Records a successful refresh, and computes when the next one should be made
+     *
+     * @param response  the response to the refresh
+     * @param bytes     the size of the response
+     * @param powerSave true if battery saver is on
+     * @return the time to wait before the next refresh, in milliseconds
+     */
+    public long onResponse(ObaTripsForRouteResponse response, long bytes, boolean powerSave) {
+        mRequestInProgress = false;
+        mBytesReceived += bytes;
+
+        HashMap<String, Long> updateTimes = new HashMap<>();
+        ArrayList<Long> intervals = new ArrayList<>();
+        int newReports = 0;
+        for (ObaTripDetails trip : response.getTrips()) {
+            ObaTripStatus status = trip.getStatus();
+            if (status == null || !status.isPredicted() || status.getLastUpdateTime() <= 0
+                    || Status.CANCELED.equals(status.getStatus())) {
+                continue;
+            }
+            String tripId = status.getActiveTripId();
+            long updateTime = status.getLastUpdateTime();
+            updateTimes.put(tripId, updateTime);
+            Long previous = mLastUpdateTimes.get(tripId);
+            if (previous == null || updateTime > previous) {
+                newReports++;
+            }
+            if (previous != null && updateTime > previous) {
+                intervals.add(updateTime - previous);
+            }
+        }
+        mLastUpdateTimes = updateTimes;
+
+        if (!intervals.isEmpty()) {
+            Collections.sort(intervals);
+            long median = intervals.get(intervals.size() / 2);
+            mObservedPeriod = mObservedPeriod == 0 ? median : (mObservedPeriod + median) / 2;
+        }
+
+        long period;
+        if (updateTimes.isEmpty()) {
+            // This period is already backed off
+            mUnchangedCount = 0;
+            period = NO_REALTIME_PERIOD;
+        } else {
+            mUnchangedCount = newReports == 0 ? mUnchangedCount + 1 : 0;
+            period = mObservedPeriod != 0
+                    ? clamp(mObservedPeriod + REPORT_MARGIN, MIN_PERIOD, MAX_PERIOD)
+                    : DEFAULT_PERIOD;
+        }
+        return setPeriod(period, powerSave);
+    }
+
+    /**
+     * Records a failed refresh, and computes when the next one should be made
+     *
+     * @param powerSave true if battery saver is on
+     * @return the time to wait before the next refresh, in milliseconds
+     */
+    public long onError(boolean powerSave) {
+        mRequestInProgress = false;
+        mUnchangedCount++;
+        return setPeriod(mObservedPeriod != 0
+                ? clamp(mObservedPeriod, MIN_PERIOD, MAX_PERIOD) : DEFAULT_PERIOD, powerSave);
+    }
+
+    private long setPeriod(long period, boolean powerSave) {
+        // Double the period for each refresh that didn't bring anything new, then for battery saver
+        int steps = Math.min(mUnchangedCount, MAX_BACKOFF_STEPS) + (powerSave ? 1 : 0);
+        mPeriod = Math.min(period << steps, Math.max(period, MAX_BACKOFF_PERIOD));
+        return mPeriod;
+    }
+
+    /**
+     * @return the time to wait between refreshes, as computed after the last refresh
+     */
+    public long getPeriod() {
+        return mPeriod;
+    }
+
+    /**
+     * Forgets the vehicles seen so far, e.g. when a different route is shown.  The counters
+     * aren't reset.
+     */
+    public void reset() {
+        mLastUpdateTimes.clear();
+        mObservedPeriod = 0;
+        mUnchangedCount = 0;
+        mPeriod = DEFAULT_PERIOD;
+        mRequestInProgress = false;
+    }
+
+    public int getRequestsIssued() {
+        return mRequestsIssued;
+    }
+
+    public int getRequestsSkipped() {
+        return mRequestsSkipped;
+    }
+
+    public long getBytesReceived() {
+        return mBytesReceived;
+    }
+
+    @Override
+    public String toString() {
+        return "VehicleRefreshScheduler{period=" + mPeriod
+                + ", observedPeriod=" + mObservedPeriod
+                + ", unchanged=" + mUnchangedCount
+                + ", requestsIssued=" + mRequestsIssued
+                + ", requestsSkipped=" + mRequestsSkipped
+                + ", bytesReceived=" + mBytesReceived + "}";
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -56,6 +56,8 @@ public class NavigationCleanupWorker extends Worker {
 
         if (dir.exists()) {
             Log.d(TAG, "Directory exists");
+            // Convert the traces of trips that didn't end, so they aren't lost with the logs
+            NavigationTraceWriter.recoverTraces(dir);
             for (File file : dir.listFiles()) {
                 Date lastModified = new Date(file.lastModified());
                 Log.d(TAG, "File Last modified at - " + lastModified.toString());
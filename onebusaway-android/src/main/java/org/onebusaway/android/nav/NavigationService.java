@@ -98,6 +98,7 @@ public class NavigationService extends Service implements LocationHelper.Listene
 
     private NavigationServiceProvider mNavProvider;
     private File mLogFile = null;
+    private NavigationTraceWriter mTraceWriter = null;
 
     private long mFinishedTime;
 
@@ -185,6 +186,7 @@ public class NavigationService extends Service implements LocationHelper.Listene
     public void onDestroy() {
         Log.d(TAG, "Destroying Service.");
         mLocationHelper.unregisterListener(this);
+        finishLog();
         super.onDestroy();
 
         // Send Broadcast
@@ -219,6 +221,7 @@ public class NavigationService extends Service implements LocationHelper.Listene
                 mFinishedTime = System.currentTimeMillis();
             } else if (System.currentTimeMillis() - mFinishedTime >= 30000) {
                 ObaAnalytics.reportUiEvent(mFirebaseAnalytics, Application.get().getPlausibleInstance(), PlausibleAnalytics.REPORT_DESTINATION_REMINDER_EVENT_URL, getString(R.string.analytics_label_destination_reminder), getString(R.string.analytics_label_destination_reminder_variant_ended));
+                finishLog();
                 getUserFeedback();
                 stopSelf();
                 setupLogCleanupTask();
@@ -277,6 +280,7 @@ public class NavigationService extends Service implements LocationHelper.Listene
 
             if (mLogFile != null) {
                 FileUtils.write(mLogFile, header, false);
+                mTraceWriter = new NavigationTraceWriter(mLogFile);
             } else {
                 Log.e(TAG, "Failed to write to file - null file");
             }
@@ -286,38 +290,30 @@ public class NavigationService extends Service implements LocationHelper.Listene
     }
 
     private void writeToLog(Location l) {
-        try {
-            String nanoTime = "";
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-                nanoTime = Long.toString(l.getElapsedRealtimeNanos());
-            }
-
-            int satellites = 0;
-            if (l.getExtras() != null) {
-                satellites = l.getExtras().getInt("satellites", 0);
-            }
-
-            // mGetReadyFlag =mNavProvider.getGetReady();
-            //  mPullTheCordFlag = mNavProvider.getFinished();
-
-            // TODO: Add isMockProvider
-            String log = String.format(Locale.US, "%d,%s,%s,%s,%d,%f,%f,%f,%f,%f,%f,%d,%s\n",
-                    mCoordId, mNavProvider.getGetReady(), mNavProvider.getFinished(), nanoTime, l.getTime(),
-                    l.getLatitude(), l.getLongitude(), l.getAltitude(), l.getSpeed(),
-                    l.getBearing(), l.getAccuracy(), satellites, l.getProvider());
-
+        if (mTraceWriter == null) {
+            Log.e(TAG, "Failed to write to file");
+            return;
+        }
+        int satellites = 0;
+        if (l.getExtras() != null) {
+            satellites = l.getExtras().getInt("satellites", 0);
+        }
 
-            //Increments the id for each coordinate
-            mCoordId++;
+        // TODO: Add isMockProvider
+        mTraceWriter.append(mCoordId, mNavProvider.getGetReady(), mNavProvider.getFinished(), l,
+                satellites);
 
-            if (mLogFile != null && mLogFile.canWrite()) {
-                FileUtils.write(mLogFile, log, true);
-            } else {
-                Log.e(TAG, "Failed to write to file");
-            }
+        //Increments the id for each coordinate
+        mCoordId++;
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "File write failed: " + e.toString());
+    /**
+     * Writes out the GPS trace for this trip and converts it to the CSV log format
+     */
+    private void finishLog() {
+        if (mTraceWriter != null) {
+            mTraceWriter.finish();
+            mTraceWriter = null;
         }
     }
 
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.nav;
+
+import android.location.Location;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the GPS trace for a destination reminder trip.
+ *
+ * Location fixes are encoded into a reusable in-memory buffer and appended to a compact binary
+ * trace file on a background thread, either when the buffer fills up or every
+ * FLUSH_INTERVAL_MS, instead of opening and closing the CSV log for every fix.  When the trip
+ * ends the trace is synced to storage and converted to the CSV format described in
+ * DESTINATION_REMINDERS.md, which is appended to the CSV log file.
+ *
+ * If the app is killed during a trip, the trace is left next to the CSV log.  Such traces are
+ * converted by {@link #recoverTraces(File)}, which runs on the background thread of each new
+ * writer and from NavigationCleanupWorker.
+ */
+public class NavigationTraceWriter {
+
+    public static final String TAG = "NavigationTraceWriter";
+
+    public static final String TRACE_EXTENSION = ".trace";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int FLUSH_THRESHOLD = 12 * 1024;
+
+    private static final long FLUSH_INTERVAL_MS = 30 * 1000;
+
+    private static final int FLAG_GET_READY = 1;
+
+    private static final int FLAG_FINISHED = 1 << 1;
+
+    private static final int FLAG_HAS_NANOS = 1 << 2;
+
+    // Size of a record without the provider name
+    private static final int RECORD_SIZE = 4 + 1 + 8 + 8 + 8 * 3 + 4 * 3 + 4 + 2;
+
+    // Traces of writers in this process that haven't been converted yet.  Also guards the
+    // conversion of traces, so a trace is only converted once.
+    private static final Set<File> sActiveTraces = new HashSet<>();
+
+    private final File mCsvFile;
+
+    private final File mTraceFile;
+
+    private final ScheduledExecutorService mExecutor;
+
+    private final Object mLock = new Object();
+
+    // Guarded by mLock
+    private ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private boolean mFlushPending;
+
+    private boolean mFinished;
+
+    // Only accessed from mExecutor
+    private ByteBuffer mSpare = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private FileChannel mChannel;
+
+    // Provider names rarely change during a trip, so cache the encoded name
+    private String mLastProvider;
+
+    private byte[] mLastProviderBytes = new byte[0];
+
+    /**
+     * @param csvFile the CSV log file, which should already contain the trip header line.  The
+     *                binary trace is written next to it until the trip ends.
+     */
+    public NavigationTraceWriter(File csvFile) {
+        mCsvFile = csvFile;
+        mTraceFile = new File(csvFile.getParentFile(), csvFile.getName() + TRACE_EXTENSION)
+                .getAbsoluteFile();
+        synchronized (sActiveTraces) {
+            sActiveTraces.add(mTraceFile);
+        }
+        mExecutor = Executors.newSingleThreadScheduledExecutor();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recoverTraces(mCsvFile.getParentFile());
+            }
+        });
+        mExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a location fix to the trace.  This doesn't do any I/O on the calling thread.
+     *
+     * @param coordId    index of this fix within the trip
+     * @param getReady   true if the "get ready" alert has been issued
+     * @param finished   true if the "pull the cord" alert has been issued
+     * @param satellites number of satellites used for the fix
+     */
+    public void append(int coordId, boolean getReady, boolean finished, Location l,
+            int satellites) {
+        synchronized (mLock) {
+            if (mFinished) {
+                return;
+            }
+            String provider = l.getProvider() != null ? l.getProvider() : "";
+            if (!provider.equals(mLastProvider)) {
+                mLastProvider = provider;
+                mLastProviderBytes = provider.getBytes(UTF_8);
+            }
+            ensureCapacity(RECORD_SIZE + mLastProviderBytes.length);
+
+            int flags = FLAG_HAS_NANOS;
+            if (getReady) {
+                flags |= FLAG_GET_READY;
+            }
+            if (finished) {
+                flags |= FLAG_FINISHED;
+            }
+            mBuffer.putInt(coordId)
+                    .put((byte) flags)
+                    .putLong(l.getElapsedRealtimeNanos())
+                    .putLong(l.getTime())
+                    .putDouble(l.getLatitude())
+                    .putDouble(l.getLongitude())
+                    .putDouble(l.getAltitude())
+                    .putFloat(l.getSpeed())
+                    .putFloat(l.getBearing())
+                    .putFloat(l.getAccuracy())
+                    .putInt(satellites)
+                    .putShort((short) mLastProviderBytes.length)
+                    .put(mLastProviderBytes);
+
+            if (mBuffer.position() >= FLUSH_THRESHOLD && !mFlushPending) {
+                mFlushPending = true;
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Ends the trip - writes any buffered fixes, syncs the trace to storage and converts it to
+     * CSV on the background thread.  Later calls to append() are ignored.
+     */
+    public void finish() {
+        synchronized (mLock) {
+            if (mFinished) {
+                return;
+            }
+            mFinished = true;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+                try {
+                    if (mChannel != null) {
+                        mChannel.force(true);
+                        mChannel.close();
+                        mChannel = null;
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Couldn't sync trace: " + e);
+                }
+                synchronized (sActiveTraces) {
+                    sActiveTraces.remove(mTraceFile);
+                    convertAndDelete(mTraceFile, mCsvFile);
+                }
+            }
+        });
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Blocks until the trace has been written after a call to finish()
+     *
+     * @return true if the trace was written before the timeout expired
+     */
+    public boolean awaitFinish(long timeout, TimeUnit unit) throws InterruptedException {
+        return mExecutor.awaitTermination(timeout, unit);
+    }
+
+    private void ensureCapacity(int size) {
+        if (mBuffer.remaining() >= size) {
+            return;
+        }
+        // The background thread has fallen behind - grow rather than block the caller
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(mBuffer.capacity() * 2,
+                mBuffer.position() + size));
+        mBuffer.flip();
+        bigger.put(mBuffer);
+        mBuffer = bigger;
+    }
+
+    /**
+     * Swaps the active buffer with the spare and writes it out.  Only called on mExecutor.
+     */
+    private void flush() {
+        ByteBuffer full;
+        synchronized (mLock) {
+            mFlushPending = false;
+            if (mBuffer.position() == 0) {
+                return;
+            }
+            full = mBuffer;
+            mBuffer = mSpare;
+        }
+        full.flip();
+        try {
+            if (mChannel == null) {
+                mChannel = new FileOutputStream(mTraceFile, true).getChannel();
+            }
+            while (full.hasRemaining()) {
+                mChannel.write(full);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Trace write failed: " + e);
+        }
+        full.clear();
+        mSpare = full;
+    }
+
+    /**
+     * Converts the traces in the given directory that were left behind by writers that didn't
+     * finish, for example because the app was killed during a trip, and appends them to their
+     * CSV logs.  Traces that are still being written by this process are skipped.
+     *
+     * @param dir the directory of the CSV logs
+     */
+    public static void recoverTraces(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        synchronized (sActiveTraces) {
+            for (File trace : files) {
+                String name = trace.getName();
+                if (!trace.isFile() || !name.endsWith(TRACE_EXTENSION)
+                        || sActiveTraces.contains(trace.getAbsoluteFile())) {
+                    continue;
+                }
+                File csv = new File(dir, name.substring(0,
+                        name.length() - TRACE_EXTENSION.length()));
+                Log.d(TAG, "Recovering " + trace);
+                convertAndDelete(trace, csv);
+            }
+        }
+    }
+
+    /**
+     * Converts the trace to CSV and deletes it.  Must be called with sActiveTraces held.
+     */
+    private static void convertAndDelete(File traceFile, File csvFile) {
+        if (!traceFile.exists()) {
+            return;
+        }
+        if (!csvFile.exists()) {
+            // The trip header is missing, so the fixes can't be used
+            Log.e(TAG, "No log for " + traceFile);
+        } else {
+            try {
+                convertToCsv(traceFile, csvFile);
+            } catch (IOException e) {
+                // Keep the trace, so it can be recovered later
+                Log.e(TAG, "Couldn't convert " + traceFile + ": " + e);
+                return;
+            }
+        }
+        if (!traceFile.delete()) {
+            Log.e(TAG, "Couldn't delete " + traceFile);
+        }
+    }
+
+    /**
+     * Converts a binary trace to CSV lines (see DESTINATION_REMINDERS.md) and appends them to
+     * csvFile.  A truncated record at the end of the trace, for example if the app was killed
+     * while writing, is ignored.  If the conversion fails, csvFile is truncated back to its
+     * previous length, so converting the trace again doesn't duplicate the rows.
+     */
+    public static void convertToCsv(File traceFile, File csvFile) throws IOException {
+        long csvLength = csvFile.length();
+        boolean converted = false;
+        try {
+            appendCsv(traceFile, csvFile);
+            converted = true;
+        } finally {
+            if (!converted) {
+                truncate(csvFile, csvLength);
+            }
+        }
+    }
+
+    private static void truncate(File file, long length) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't truncate " + file + ": " + e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Couldn't close " + file + ": " + e);
+                }
+            }
+        }
+    }
+
+    private static void appendCsv(File traceFile, File csvFile) throws IOException {
+        DataInputStream in = null;
+        Writer out = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile)));
+            out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(csvFile, true), UTF_8));
+            byte[] providerBytes = new byte[64];
+            while (true) {
+                int coordId;
+                try {
+                    coordId = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    int flags = in.readByte();
+                    long nanos = in.readLong();
+                    long time = in.readLong();
+                    double lat = in.readDouble();
+                    double lon = in.readDouble();
+                    double alt = in.readDouble();
+                    float speed = in.readFloat();
+                    float bearing = in.readFloat();
+                    float accuracy = in.readFloat();
+                    int satellites = in.readInt();
+                    int providerLength = in.readShort() & 0xFFFF;
+                    if (providerLength > providerBytes.length) {
+                        providerBytes = new byte[providerLength];
+                    }
+                    in.readFully(providerBytes, 0, providerLength);
+                    String provider = new String(providerBytes, 0, providerLength, UTF_8);
+
+                    out.write(String.format(Locale.US,
+                            "%d,%s,%s,%s,%d,%f,%f,%f,%f,%f,%f,%d,%s\n",
+                            coordId, (flags & FLAG_GET_READY) != 0,
+                            (flags & FLAG_FINISHED) != 0,
+                            (flags & FLAG_HAS_NANOS) != 0 ? Long.toString(nanos) : "", time,
+                            lat, lon, alt, speed, bearing, accuracy, satellites, provider));
+                } catch (EOFException e) {
+                    Log.w(TAG, "Ignoring truncated record " + coordId + " in " + traceFile);
+                    break;
+                }
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}
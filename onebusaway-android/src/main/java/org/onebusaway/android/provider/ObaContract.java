@@ -29,18 +29,27 @@ import org.onebusaway.android.io.elements.ObaRegion;
 import org.onebusaway.android.io.elements.ObaRegionElement;
 import org.onebusaway.android.nav.model.PathLink;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.location.Location;
 import android.location.LocationManager;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.RemoteException;
 import android.provider.BaseColumns;
 import android.text.format.Time;
+import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * The contract between clients and the ObaProvider.
@@ -63,6 +72,61 @@ public final class ObaContract {
     /** The base URI for the Oba provider */
     public static final Uri AUTHORITY_URI = Uri.parse("content://" + AUTHORITY);
 
+    /**
+     * Provider method, for ContentResolver.call(), that updates the rows of a table with the
+     * given IDs and inserts the ones that don't exist yet, in one transaction with one change
+     * notification.  The arg is the content URI of the table (stops, routes or service alerts),
+     * and the extras hold the values below.
+     */
+    static final String METHOD_UPSERT = "upsert";
+
+    /** IDs of the rows to update or insert (String[]) */
+    static final String EXTRA_IDS = "ids";
+
+    /** Values for both updated and inserted rows (ContentValues) */
+    static final String EXTRA_VALUES = "values";
+
+    /** Values only for inserted rows (ContentValues) */
+    static final String EXTRA_INSERT_VALUES = "insert_values";
+
+    /** True to increment the use count and set the access time of updated rows (boolean) */
+    static final String EXTRA_MARK_AS_USED = "mark_as_used";
+
+    /**
+     * Updates the rows with the given IDs, and inserts the ones that don't exist yet, with a
+     * single provider call
+     *
+     * @param contentUri   the content URI of the table
+     * @param ids          the IDs of the rows
+     * @param values       values for both updated and inserted rows
+     * @param insertValues values only for inserted rows
+     * @param markAsUsed   true to increment the use count and set the access time of rows
+     *                     that are updated
+     */
+    private static void upsert(ContentResolver cr, Uri contentUri, String[] ids,
+            ContentValues values, ContentValues insertValues, boolean markAsUsed) {
+        Bundle extras = new Bundle();
+        extras.putStringArray(EXTRA_IDS, ids);
+        extras.putParcelable(EXTRA_VALUES, values);
+        extras.putParcelable(EXTRA_INSERT_VALUES, insertValues);
+        extras.putBoolean(EXTRA_MARK_AS_USED, markAsUsed);
+        cr.call(contentUri, METHOD_UPSERT, contentUri.toString(), extras);
+    }
+
+    /**
+     * @return the use count and access time for a newly inserted stop or route
+     */
+    private static ContentValues newUseValues(boolean markAsUsed) {
+        ContentValues values = new ContentValues();
+        if (markAsUsed) {
+            values.put(UserColumns.USE_COUNT, 1);
+            values.put(UserColumns.ACCESS_TIME, System.currentTimeMillis());
+        } else {
+            values.put(UserColumns.USE_COUNT, 0);
+        }
+        return values;
+    }
+
     protected interface StopsColumns {
 
         /**
@@ -701,37 +765,14 @@ public final class ObaContract {
                 ContentValues values,
                 boolean markAsUsed) {
             ContentResolver cr = Application.get().getContentResolver();
-            final Uri uri = Uri.withAppendedPath(CONTENT_URI, id);
-            Cursor c = cr.query(uri, new String[]{USE_COUNT}, null, null,
-                    null);
-            Uri result;
-            if (c != null && c.getCount() > 0) {
-                // Update
-                if (markAsUsed) {
-                    c.moveToFirst();
-                    int count = c.getInt(0);
-                    values.put(USE_COUNT, count + 1);
-                    values.put(ACCESS_TIME, System.currentTimeMillis());
-                }
-                cr.update(uri, values, null, null);
-                result = uri;
-            } else {
-                // Insert
-                if (markAsUsed) {
-                    values.put(USE_COUNT, 1);
-                    values.put(ACCESS_TIME, System.currentTimeMillis());
-                } else {
-                    values.put(USE_COUNT, 0);
-                }
-                values.put(_ID, id);
-                result = cr.insert(CONTENT_URI, values);
-            }
-            if (c != null) {
-                c.close();
-            }
-            return result;
+            upsert(cr, CONTENT_URI, new String[]{id}, values, newUseValues(markAsUsed),
+                    markAsUsed);
+            return Uri.withAppendedPath(CONTENT_URI, id);
         }
 
+        /** Selection of a stop by its ID */
+        public static final String ID_WHERE = _ID + "=?";
+
         public static boolean isFavorite(Context context, String stopId)
         {
             final String[] PROJECTION = {
@@ -739,7 +780,7 @@ public final class ObaContract {
             };
 
             ContentResolver cr = context.getContentResolver();
-            Cursor c = cr.query(CONTENT_URI, PROJECTION,_ID + "=?", new String[] {stopId}, null);
+            Cursor c = cr.query(CONTENT_URI, PROJECTION, ID_WHERE, new String[] {stopId}, null);
             if (c != null) {
                 try {
                     if (c.getCount() == 0) {
@@ -782,7 +823,7 @@ public final class ObaContract {
                     LONGITUDE
             };
 
-            Cursor c = cr.query(CONTENT_URI, PROJECTION,_ID + "=?", new String[] {id}, null);
+            Cursor c = cr.query(CONTENT_URI, PROJECTION, ID_WHERE, new String[] {id}, null);
             if (c != null) {
                 try {
                     if (c.getCount() == 0) {
@@ -827,35 +868,9 @@ public final class ObaContract {
                 ContentValues values,
                 boolean markAsUsed) {
             ContentResolver cr = context.getContentResolver();
-            final Uri uri = Uri.withAppendedPath(CONTENT_URI, id);
-            Cursor c = cr.query(uri, new String[]{USE_COUNT}, null, null,
-                    null);
-            Uri result;
-            if (c != null && c.getCount() > 0) {
-                // Update
-                if (markAsUsed) {
-                    c.moveToFirst();
-                    int count = c.getInt(0);
-                    values.put(USE_COUNT, count + 1);
-                    values.put(ACCESS_TIME, System.currentTimeMillis());
-                }
-                cr.update(uri, values, null, null);
-                result = uri;
-            } else {
-                // Insert
-                if (markAsUsed) {
-                    values.put(USE_COUNT, 1);
-                    values.put(ACCESS_TIME, System.currentTimeMillis());
-                } else {
-                    values.put(USE_COUNT, 0);
-                }
-                values.put(_ID, id);
-                result = cr.insert(CONTENT_URI, values);
-            }
-            if (c != null) {
-                c.close();
-            }
-            return result;
+            upsert(cr, CONTENT_URI, new String[]{id}, values, newUseValues(markAsUsed),
+                    markAsUsed);
+            return Uri.withAppendedPath(CONTENT_URI, id);
         }
 
         public static boolean markAsFavorite(Context context,
@@ -919,7 +934,8 @@ public final class ObaContract {
         public static final String CONTENT_DIR_TYPE
                 = "vnd.android.dir/" + BuildConfig.DATABASE_AUTHORITY + ".stoproutefilter";
 
-        private static final String FILTER_WHERE = STOP_ID + "=?";
+        /** Selection of the filter of a stop by the stop ID */
+        public static final String FILTER_WHERE = STOP_ID + "=?";
 
         /**
          * Gets the filter for the specified Stop ID.
@@ -962,19 +978,23 @@ public final class ObaContract {
                 return;
             }
             // First, delete any existing rows for this stop.
-            // Then, insert all of these rows.
-            // Should we put this in a transaction? We could,
-            // but it's not terribly important.
+            // Then, insert all of these rows, in the same transaction.
             final String[] selectionArgs = {stopId};
-            ContentResolver cr = context.getContentResolver();
-            cr.delete(CONTENT_URI, FILTER_WHERE, selectionArgs);
-
-            ContentValues args = new ContentValues();
-            args.put(STOP_ID, stopId);
+            ArrayList<ContentProviderOperation> ops = new ArrayList<ContentProviderOperation>();
+            ops.add(ContentProviderOperation.newDelete(CONTENT_URI)
+                    .withSelection(FILTER_WHERE, selectionArgs)
+                    .build());
             final int len = filter.size();
             for (int i = 0; i < len; ++i) {
-                args.put(ROUTE_ID, filter.get(i));
-                cr.insert(CONTENT_URI, args);
+                ops.add(ContentProviderOperation.newInsert(CONTENT_URI)
+                        .withValue(STOP_ID, stopId)
+                        .withValue(ROUTE_ID, filter.get(i))
+                        .build());
+            }
+            try {
+                context.getContentResolver().applyBatch(AUTHORITY, ops);
+            } catch (RemoteException | OperationApplicationException e) {
+                Log.e(TAG, "Couldn't save route filter for stop " + stopId + ": " + e);
             }
         }
     }
@@ -1021,6 +1041,9 @@ public final class ObaContract {
 
         public static final int DAY_ALL = DAY_WEEKDAY | DAY_SUN | DAY_SAT;
 
+        /** Selection of the reminders for a stop by the stop ID */
+        public static final String STOP_WHERE = STOP_ID + "=?";
+
         public static Uri buildUri(String tripId, String stopId) {
             return CONTENT_URI.buildUpon().appendPath(tripId)
                     .appendPath(stopId).build();
@@ -1162,6 +1185,10 @@ public final class ObaContract {
                     stopId, startTime);
         }
 
+        /** Selection of an alert by its trip ID, stop ID and start time */
+        public static final String TRIP_WHERE = TRIP_ID + "=? AND " + STOP_ID + "=? AND "
+                + START_TIME + "=?";
+
         public static Uri insertIfNotExists(ContentResolver cr,
                 String tripId,
                 String stopId,
@@ -1169,8 +1196,7 @@ public final class ObaContract {
             Uri result;
             Cursor c = cr.query(CONTENT_URI,
                     new String[]{_ID},
-                    String.format("%s=? AND %s=? AND %s=?",
-                            TRIP_ID, STOP_ID, START_TIME),
+                    TRIP_WHERE,
                     new String[]{tripId, stopId, String.valueOf(startTime)},
                     null);
             if (c != null && c.moveToNext()) {
@@ -1238,87 +1264,95 @@ public final class ObaContract {
             if (id == null) {
                 return null;
             }
+            insertOrUpdate(Collections.singletonList(id), values, markAsRead, hidden);
+            return Uri.withAppendedPath(CONTENT_URI, id);
+        }
+
+        /**
+         * Inserts or updates several alerts with a single provider call, e.g. all alerts of an
+         * arrivals response
+         *
+         * @param ids the IDs of the alerts
+         * @see #insertOrUpdate(String, ContentValues, boolean, Boolean)
+         */
+        public static void insertOrUpdate(Collection<String> ids,
+                ContentValues values,
+                boolean markAsRead,
+                Boolean hidden) {
+            insertOrUpdate(Application.get(), ids, values, markAsRead, hidden);
+        }
+
+        public static void insertOrUpdate(Context context,
+                Collection<String> ids,
+                ContentValues values,
+                boolean markAsRead,
+                Boolean hidden) {
+            if (ids.isEmpty()) {
+                return;
+            }
             if (values == null) {
                 values = new ContentValues();
             }
-            ContentResolver cr = Application.get().getContentResolver();
-            final Uri uri = Uri.withAppendedPath(CONTENT_URI, id);
-            Cursor c = cr.query(uri, new String[]{}, null, null, null);
-            Uri result;
-            if (c != null && c.getCount() > 0) {
-                // Update
-                if (markAsRead) {
-                    c.moveToFirst();
-                    values.put(MARKED_READ_TIME, System.currentTimeMillis());
-                }
-                if (hidden != null) {
-                    c.moveToFirst();
-                    if (hidden) {
-                        values.put(HIDDEN, 1);
-                    } else {
-                        values.put(HIDDEN, 0);
-                    }
-                }
-                if (values.size() != 0) {
-                    cr.update(uri, values, null, null);
-                }
-                result = uri;
-            } else {
-                // Insert
-                if (markAsRead) {
-                    values.put(MARKED_READ_TIME, System.currentTimeMillis());
-                }
-                if (hidden == null) {
-                    // If the user has selected to hide all alerts by default, mark this one as hidden when inserting
-                    boolean hideAllAlerts = Application.getPrefs()
-                            .getBoolean(Application.get().getResources()
-                                    .getString(R.string.preference_key_hide_alerts), false);
-                    if (hideAllAlerts) {
-                        hidden = true;
-                    }
-                }
-                if (hidden != null) {
-                    if (hidden) {
-                        values.put(HIDDEN, 1);
-                    } else {
-                        values.put(HIDDEN, 0);
-                    }
-                }
-                values.put(_ID, id);
-                result = cr.insert(CONTENT_URI, values);
+            if (markAsRead) {
+                values.put(MARKED_READ_TIME, System.currentTimeMillis());
             }
-            if (c != null) {
-                c.close();
+            if (hidden != null) {
+                values.put(HIDDEN, hidden ? 1 : 0);
             }
-            return result;
+            ContentValues insertValues = new ContentValues();
+            if (hidden == null) {
+                // If the user has selected to hide all alerts by default, mark new alerts as hidden
+                boolean hideAllAlerts = Application.getPrefs()
+                        .getBoolean(Application.get().getResources()
+                                .getString(R.string.preference_key_hide_alerts), false);
+                if (hideAllAlerts) {
+                    insertValues.put(HIDDEN, 1);
+                }
+            }
+            upsert(context.getContentResolver(), CONTENT_URI,
+                    ids.toArray(new String[ids.size()]), values, insertValues, false);
         }
 
         /**
-         * Returns true if this service alert (situation) has been previously hidden by the
-         * user, false it if has not
+         * Returns the service alerts (situations) among the given ones that have been previously
+         * hidden by the user, with a single query
          *
-         * @param situationId The ID of the situation (service alert)
-         * @return true if this service alert (situation) has been previously hidden by the user,
-         * false it if has not
-         */
-        public static boolean isHidden(String situationId) {
-            final String[] selection = {_ID, HIDDEN};
-            final String[] selectionArgs = {situationId, Integer.toString(1)};
-            final String WHERE = _ID + "=? AND " + HIDDEN + "=?";
-            ContentResolver cr = Application.get().getContentResolver();
-            Cursor c = cr.query(CONTENT_URI, selection, WHERE, selectionArgs, null);
-            boolean hidden;
-            if (c != null && c.getCount() > 0) {
-                hidden = true;
-            } else {
-                hidden = false;
+         * @param ids the IDs of the situations (service alerts)
+         * @return the IDs of the situations that have been hidden by the user
+         */
+        public static Set<String> getHidden(Context context, Collection<String> ids) {
+            Set<String> hidden = new HashSet<String>();
+            if (ids.isEmpty()) {
+                return hidden;
             }
+            ContentResolver cr = context.getContentResolver();
+            Cursor c = cr.query(CONTENT_URI, new String[]{_ID}, getHiddenWhere(ids.size()),
+                    ids.toArray(new String[ids.size()]), null);
             if (c != null) {
-                c.close();
+                try {
+                    while (c.moveToNext()) {
+                        hidden.add(c.getString(0));
+                    }
+                } finally {
+                    c.close();
+                }
             }
             return hidden;
         }
 
+        /**
+         * @param count the number of IDs
+         * @return the selection used by {@link #getHidden(Context, Collection)} for the given
+         * number of IDs
+         */
+        public static String getHiddenWhere(int count) {
+            StringBuilder where = new StringBuilder(HIDDEN + "=1 AND " + _ID + " IN (");
+            for (int i = 0; i < count; i++) {
+                where.append(i == 0 ? "?" : ",?");
+            }
+            return where.append(')').toString();
+        }
+
         /**
          * Marks all alerts as not hidden, and therefore visible
          *
@@ -1494,6 +1528,9 @@ public final class ObaContract {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
 
+        /** Selection of the bounds of a region by the region ID */
+        public static final String REGION_WHERE = REGION_ID + "=?";
+
         public static ObaRegionElement.Bounds[] getRegion(ContentResolver cr, int regionId) {
             final String[] PROJECTION = {
                     LATITUDE,
@@ -1501,9 +1538,8 @@ public final class ObaContract {
                     LAT_SPAN,
                     LON_SPAN
             };
-            Cursor c = cr.query(CONTENT_URI, PROJECTION,
-                    "(" + RegionBounds.REGION_ID + " = " + regionId + ")",
-                    null, null);
+            Cursor c = cr.query(CONTENT_URI, PROJECTION, REGION_WHERE,
+                    new String[]{String.valueOf(regionId)}, null);
             if (c != null) {
                 try {
                     ObaRegionElement.Bounds[] results = new ObaRegionElement.Bounds[c.getCount()];
@@ -1557,6 +1593,9 @@ public final class ObaContract {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
 
+        /** Selection of the Open311 servers of a region by the region ID */
+        public static final String REGION_WHERE = REGION_ID + "=?";
+
         public static ObaRegionElement.Open311Server[] getOpen311Server
                 (ContentResolver cr, int regionId) {
             final String[] PROJECTION = {
@@ -1564,9 +1603,8 @@ public final class ObaContract {
                     API_KEY,
                     BASE_URL
             };
-            Cursor c = cr.query(CONTENT_URI, PROJECTION,
-                    "(" + RegionOpen311Servers.REGION_ID + " = " + regionId + ")",
-                    null, null);
+            Cursor c = cr.query(CONTENT_URI, PROJECTION, REGION_WHERE,
+                    new String[]{String.valueOf(regionId)}, null);
             if (c != null) {
                 try {
                     ObaRegionElement.Open311Server[] results = new ObaRegionElement.Open311Server[c.getCount()];
@@ -1629,7 +1667,23 @@ public final class ObaContract {
                 = "vnd.android.dir/" + BuildConfig.DATABASE_AUTHORITY + ".routeheadsignfavorites";
 
         // String used to indicate that a route/headsign combination is a favorite for all stops
-        private static final String ALL_STOPS = "all";
+        static final String ALL_STOPS = "all";
+
+        /** Selection of the records of a route at a stop, for all headsigns */
+        public static final String ROUTE_STOP_WHERE = ROUTE_ID + "=? AND " + STOP_ID + "=?";
+
+        /** Selection of the records of a route and headsign at a stop */
+        public static final String ROUTE_HEADSIGN_STOP_WHERE =
+                ROUTE_ID + "=? AND " + HEADSIGN + "=? AND " + STOP_ID + "=?";
+
+        /** Selection of the records of a route */
+        public static final String ROUTE_WHERE = ROUTE_ID + "=?";
+
+        /** Selection of the records of a route and headsign */
+        public static final String ROUTE_HEADSIGN_WHERE = ROUTE_ID + "=? AND " + HEADSIGN + "=?";
+
+        /** Selection of the records of a route by their exclusion flag */
+        public static final String ROUTE_EXCLUDE_WHERE = ROUTE_ID + "=? AND " + EXCLUDE + "=?";
 
         /**
          * Set the specified route and headsign combination as a favorite, optionally for a specific
@@ -1651,12 +1705,7 @@ public final class ObaContract {
             if (context == null) {
                 return;
             }
-            final String WHERE;
-            if (headsign == null) {
-                WHERE = ROUTE_ID + "=? AND " + STOP_ID + "=?";
-            } else {
-                WHERE = ROUTE_ID + "=? AND " + HEADSIGN + "=? AND " + STOP_ID + "=?";
-            }
+            final String WHERE = headsign == null ? ROUTE_STOP_WHERE : ROUTE_HEADSIGN_STOP_WHERE;
 
             ContentResolver cr = context.getContentResolver();
             Uri routeUri = Uri.withAppendedPath(ObaContract.Routes.CONTENT_URI, routeId);
@@ -1701,13 +1750,15 @@ public final class ObaContract {
                     final String WHERE2;
                     if (headsign == null) {
                         selectionArgs2 = new String[] {routeId};
-                        WHERE2 = ROUTE_ID + "=?";
+                        WHERE2 = ROUTE_WHERE;
                     } else {
                         selectionArgs2 = new String[] {routeId, headsign};
-                        WHERE2 = ROUTE_ID + "=? AND " + HEADSIGN + "=?";
+                        WHERE2 = ROUTE_HEADSIGN_WHERE;
                     }
                     cr.delete(CONTENT_URI, WHERE2, selectionArgs2);
                 }
+                // The observer notification may not have arrived yet, and the index is read below
+                RouteHeadsignFavoritesIndex.getInstance().invalidate();
 
                 // If there are no more route/headsign combinations that are favorites for this route,
                 // then mark the route as not a favorite
@@ -1728,6 +1779,7 @@ public final class ObaContract {
                     cr.insert(CONTENT_URI, values);
                 }
             }
+            RouteHeadsignFavoritesIndex.getInstance().invalidate();
 
             StringBuilder analyticsEvent = new StringBuilder();
             if (favorite) {
@@ -1755,6 +1807,7 @@ public final class ObaContract {
         public static void clearAllFavorites(Context context) {
             ContentResolver cr = context.getContentResolver();
             cr.delete(CONTENT_URI, null, null);
+            RouteHeadsignFavoritesIndex.getInstance().invalidate();
         }
 
         /**
@@ -1769,50 +1822,7 @@ public final class ObaContract {
          */
         public static boolean isFavorite(String routeId, String headsign,
                 String stopId) {
-            if (headsign == null) {
-                headsign = "";
-            }
-            final String[] selection = {ROUTE_ID, HEADSIGN, STOP_ID, EXCLUDE};
-            final String[] selectionArgs = {routeId, headsign, stopId, Integer.toString(0)};
-            ContentResolver cr = Application.get().getContentResolver();
-            final String FILTER_WHERE_ALL_FIELDS = ROUTE_ID + "=? AND " + HEADSIGN + "=? AND "
-                    + STOP_ID + "=? AND " + EXCLUDE + "=?";
-            Cursor c = cr.query(CONTENT_URI, selection, FILTER_WHERE_ALL_FIELDS,
-                    selectionArgs, null);
-            boolean favorite;
-            if (c != null && c.getCount() > 0) {
-                favorite = true;
-            } else {
-                // Check again to see if the user has favorited this route/headsign combo for all stops
-                final String[] selectionArgs2 = {routeId, headsign, ALL_STOPS};
-                String WHERE_PARTIAL = ROUTE_ID + "=? AND " + HEADSIGN + "=? AND "
-                        + STOP_ID + "=?";
-                Cursor c2 = cr.query(CONTENT_URI, selection, WHERE_PARTIAL,
-                        selectionArgs2, null);
-                favorite = c2 != null && c2.getCount() > 0;
-                if (c2 != null) {
-                    c2.close();
-                }
-
-                if (favorite) {
-                    // Finally, make sure the user hasn't excluded this stop as a favorite
-                    final String[] selectionArgs3 = {routeId, headsign, stopId,
-                            Integer.toString(1)};
-                    Cursor c3 = cr.query(CONTENT_URI, selection, FILTER_WHERE_ALL_FIELDS,
-                            selectionArgs3, null);
-                    // If this query returns at least one record, it means the stop has been excluded as
-                    // a favorite (i.e., the user explicitly de-selected it)
-                    boolean isStopExcluded = c3 != null && c3.getCount() > 0;
-                    favorite = !isStopExcluded;
-                    if (c3 != null) {
-                        c3.close();
-                    }
-                }
-            }
-            if (c != null) {
-                c.close();
-            }
-            return favorite;
+            return RouteHeadsignFavoritesIndex.getInstance().isFavorite(routeId, headsign, stopId);
         }
 
         /**
@@ -1826,9 +1836,8 @@ public final class ObaContract {
         private static boolean isFavorite(Context context, String routeId) {
             final String[] selection = {ROUTE_ID, EXCLUDE};
             final String[] selectionArgs = {routeId, Integer.toString(0)};
-            final String WHERE = ROUTE_ID + "=? AND " + EXCLUDE + "=?";
             ContentResolver cr = context.getContentResolver();
-            Cursor c = cr.query(CONTENT_URI, selection, WHERE,
+            Cursor c = cr.query(CONTENT_URI, selection, ROUTE_EXCLUDE_WHERE,
                     selectionArgs, null);
             boolean favorite = false;
             if (c != null && c.getCount() > 0) {
@@ -1860,6 +1869,12 @@ public final class ObaContract {
         public static final String CONTENT_DIR_TYPE
                 = "vnd.android.dir/" + BuildConfig.DATABASE_AUTHORITY + ".navstops";
 
+        /** Selection of the stops of a navigation by the navigation ID */
+        public static final String NAV_WHERE = NAV_ID + "=?";
+
+        /** Sort order of the stops of a navigation */
+        public static final String SEQUENCE_ORDER = SEQUENCE + " ASC";
+
         public static Uri insert(Context context, Long startTime, Integer navId, Integer seqNum, String tripId, String destId, String beforeId) {
             // TODO: Delete there since there's only one active trip.
             ContentResolver cr = context.getContentResolver();
@@ -1925,7 +1940,7 @@ public final class ObaContract {
             };
 
             ContentResolver cr = context.getContentResolver();
-            Cursor c = cr.query(CONTENT_URI, PROJECTION, NAV_ID + "=?",new String[] { id }, null);
+            Cursor c = cr.query(CONTENT_URI, PROJECTION, NAV_WHERE, new String[] { id }, null);
             if (c != null) {
                 try {
                     if (c.getCount() == 0) {
@@ -1949,7 +1964,8 @@ public final class ObaContract {
                     START_TIME
             };
             ContentResolver cr = context.getContentResolver();
-            Cursor c = cr.query(CONTENT_URI, PROJECTION, NAV_ID + "=?", new String[]{navId}, SEQUENCE + " ASC");
+            Cursor c = cr.query(CONTENT_URI, PROJECTION, NAV_WHERE, new String[]{navId},
+                    SEQUENCE_ORDER);
             if (c != null) {
                 try {
                     PathLink[] results = new PathLink[c.getCount()];
@@ -17,12 +17,16 @@
  */
 package org.onebusaway.android.provider;
 
+import org.apache.commons.io.FileUtils;
 import org.onebusaway.android.BuildConfig;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
@@ -30,12 +34,21 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.provider.BaseColumns;
+import android.text.TextUtils;
 import android.util.Log;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ObaProvider extends ContentProvider {
 
@@ -49,10 +62,12 @@ public class ObaProvider extends ContentProvider {
 
     private class OpenHelper extends SQLiteOpenHelper {
 
-        private static final int DATABASE_VERSION = 33;
+        private static final int DATABASE_VERSION = 35;
 
         public OpenHelper(Context context) {
             super(context, DATABASE_NAME, null, DATABASE_VERSION);
+            // Let the UI read while stops, routes and alerts are written on background threads
+            setWriteAheadLoggingEnabled(true);
         }
 
         @Override
@@ -322,6 +337,20 @@ public class ObaProvider extends ContentProvider {
             if (oldVersion == 32){
                 db.execSQL("ALTER TABLE " + ObaContract.Regions.PATH +
                         " ADD COLUMN " + ObaContract.Regions.PLAUSIBLE_ANALYTICS_SERVER_URL + " VARCHAR DEFAULT NULL");
+                ++oldVersion;
+            }
+            if (oldVersion == 33) {
+                createIndexes(db);
+                ++oldVersion;
+            }
+            if (oldVersion == 34) {
+                // The recent lists sort by use count after access time
+                db.execSQL("DROP INDEX IF EXISTS " + ObaContract.Stops.PATH + "_"
+                        + ObaContract.Stops.ACCESS_TIME + "_idx");
+                db.execSQL("DROP INDEX IF EXISTS " + ObaContract.Routes.PATH + "_"
+                        + ObaContract.Routes.ACCESS_TIME + "_idx");
+                createIndexes(db);
+                ++oldVersion;
             }
         }
 
@@ -381,6 +410,53 @@ public class ObaProvider extends ContentProvider {
                             ");");
         }
 
+        /**
+         * Creates indexes for the lookups made by ObaContract and the lists of stops and routes.
+         * Stops, routes, service alerts and regions are already indexed by their primary keys.
+         */
+        private void createIndexes(SQLiteDatabase db) {
+            // Starred stops and routes in the current region, and recent stops and routes
+            createIndex(db, ObaContract.Stops.PATH,
+                    ObaContract.Stops.FAVORITE, ObaContract.Stops.REGION_ID);
+            createIndex(db, ObaContract.Stops.PATH,
+                    ObaContract.Stops.ACCESS_TIME, ObaContract.Stops.USE_COUNT);
+            createIndex(db, ObaContract.Routes.PATH,
+                    ObaContract.Routes.FAVORITE, ObaContract.Routes.REGION_ID);
+            createIndex(db, ObaContract.Routes.PATH,
+                    ObaContract.Routes.ACCESS_TIME, ObaContract.Routes.USE_COUNT);
+
+            createIndex(db, ObaContract.StopRouteFilters.PATH,
+                    ObaContract.StopRouteFilters.STOP_ID);
+
+            // Trip URIs and the trip_alerts_cleanup trigger look trips up by trip and stop
+            createIndex(db, ObaContract.Trips.PATH,
+                    ObaContract.Trips._ID, ObaContract.Trips.STOP_ID);
+            createIndex(db, ObaContract.Trips.PATH, ObaContract.Trips.STOP_ID);
+            createIndex(db, ObaContract.TripAlerts.PATH, ObaContract.TripAlerts.TRIP_ID,
+                    ObaContract.TripAlerts.STOP_ID, ObaContract.TripAlerts.START_TIME);
+
+            // Favorites are removed by route, headsign and stop, and checked by route and
+            // EXCLUDE, which the second index covers
+            createIndex(db, ObaContract.RouteHeadsignFavorites.PATH,
+                    ObaContract.RouteHeadsignFavorites.ROUTE_ID,
+                    ObaContract.RouteHeadsignFavorites.HEADSIGN,
+                    ObaContract.RouteHeadsignFavorites.STOP_ID);
+            createIndex(db, ObaContract.RouteHeadsignFavorites.PATH,
+                    ObaContract.RouteHeadsignFavorites.ROUTE_ID,
+                    ObaContract.RouteHeadsignFavorites.EXCLUDE);
+
+            createIndex(db, ObaContract.RegionBounds.PATH, ObaContract.RegionBounds.REGION_ID);
+            createIndex(db, ObaContract.RegionOpen311Servers.PATH,
+                    ObaContract.RegionOpen311Servers.REGION_ID);
+            createIndex(db, ObaContract.NavStops.PATH,
+                    ObaContract.NavStops.NAV_ID, ObaContract.NavStops.SEQUENCE);
+        }
+
+        private void createIndex(SQLiteDatabase db, String table, String... columns) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + table + "_" + TextUtils.join("_", columns)
+                    + "_idx ON " + table + " (" + TextUtils.join(", ", columns) + ");");
+        }
+
         private void dropTables(SQLiteDatabase db) {
             db.execSQL("DROP TABLE IF EXISTS " + ObaContract.StopRouteFilters.PATH);
             db.execSQL("DROP TABLE IF EXISTS " + ObaContract.Routes.PATH);
@@ -641,6 +717,9 @@ public class ObaProvider extends ContentProvider {
 
     private OpenHelper mOpenHelper;
 
+    // URIs changed by the batch being applied on this thread, notified once it is committed
+    private final ThreadLocal<Set<Uri>> mBatchChanges = new ThreadLocal<Set<Uri>>();
+
     public static File getDatabasePath(Context context) {
         return context.getDatabasePath(DATABASE_NAME);
     }
@@ -704,7 +783,7 @@ public class ObaProvider extends ContentProvider {
         db.beginTransaction();
         try {
             Uri result = insertInternal(db, uri, values);
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
             db.setTransactionSuccessful();
             return result;
         } finally {
@@ -727,7 +806,7 @@ public class ObaProvider extends ContentProvider {
         try {
             int result = updateInternal(db, uri, values, selection, selectionArgs);
             if (result > 0) {
-                getContext().getContentResolver().notifyChange(uri, null);
+                notifyChange(uri);
             }
             db.setTransactionSuccessful();
             return result;
@@ -743,7 +822,7 @@ public class ObaProvider extends ContentProvider {
         try {
             int result = deleteInternal(db, uri, selection, selectionArgs);
             if (result > 0) {
-                getContext().getContentResolver().notifyChange(uri, null);
+                notifyChange(uri);
             }
             db.setTransactionSuccessful();
             return result;
@@ -752,6 +831,175 @@ public class ObaProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Inserts all rows in a single database transaction, with one change notification
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        final SQLiteDatabase db = getDatabase();
+        db.beginTransaction();
+        try {
+            for (ContentValues row : values) {
+                insertInternal(db, uri, row);
+            }
+            if (values.length > 0) {
+                notifyChange(uri);
+            }
+            db.setTransactionSuccessful();
+            return values.length;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Applies all operations in a single database transaction, so a batch is committed (and
+     * synced to storage) once instead of once per operation.  Observers are notified once for
+     * each URI the batch changed, after it is committed.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = getDatabase();
+        Set<Uri> changes = new LinkedHashSet<Uri>();
+        ContentProviderResult[] results;
+        mBatchChanges.set(changes);
+        db.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mBatchChanges.remove();
+        }
+        for (Uri uri : changes) {
+            notifyChange(uri);
+        }
+        return results;
+    }
+
+    /**
+     * Handles {@link ObaContract#METHOD_UPSERT}, for stops, routes and service alerts
+     */
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (!ObaContract.METHOD_UPSERT.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+        Uri uri = Uri.parse(arg);
+        final String table;
+        switch (sUriMatcher.match(uri)) {
+            case STOPS:
+                table = ObaContract.Stops.PATH;
+                break;
+            case ROUTES:
+                table = ObaContract.Routes.PATH;
+                break;
+            case SERVICE_ALERTS:
+                table = ObaContract.ServiceAlerts.PATH;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown URI for upsert: " + uri);
+        }
+        String[] ids = extras.getStringArray(ObaContract.EXTRA_IDS);
+        ContentValues values = extras.getParcelable(ObaContract.EXTRA_VALUES);
+        ContentValues insertValues = extras.getParcelable(ObaContract.EXTRA_INSERT_VALUES);
+        boolean markAsUsed = extras.getBoolean(ObaContract.EXTRA_MARK_AS_USED);
+
+        final SQLiteDatabase db = getDatabase();
+        db.beginTransaction();
+        try {
+            if (upsertInternal(db, table, ids, values, insertValues, markAsUsed) > 0) {
+                notifyChange(uri);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return null;
+    }
+
+    /**
+     * Updates the rows with the given IDs, and inserts the ones that don't exist.  SQLite's
+     * INSERT ... ON CONFLICT DO UPDATE would do this in one statement, but it needs SQLite 3.24,
+     * which Android only ships from API 30.  The update is compiled once for all rows.
+     *
+     * @param values       values for both updated and inserted rows, or null
+     * @param insertValues values only for inserted rows, or null
+     * @param markAsUsed   true to increment the use count and set the access time of updated
+     *                     rows
+     * @return the number of rows that were updated or inserted
+     */
+    private int upsertInternal(SQLiteDatabase db, String table, String[] ids,
+            ContentValues values, ContentValues insertValues, boolean markAsUsed) {
+        if (values == null) {
+            values = new ContentValues();
+        }
+        StringBuilder set = new StringBuilder();
+        ArrayList<Object> args = new ArrayList<Object>();
+        for (String column : values.keySet()) {
+            set.append(set.length() == 0 ? "" : ", ").append(column).append("=?");
+            args.add(values.get(column));
+        }
+        if (markAsUsed) {
+            set.append(set.length() == 0 ? "" : ", ")
+                    .append(ObaContract.UserColumns.USE_COUNT).append('=')
+                    .append(ObaContract.UserColumns.USE_COUNT).append("+1, ")
+                    .append(ObaContract.UserColumns.ACCESS_TIME).append("=?");
+            args.add(System.currentTimeMillis());
+        }
+        SQLiteStatement update = null;
+        if (set.length() > 0) {
+            update = db.compileStatement("UPDATE " + table + " SET " + set + " WHERE "
+                    + BaseColumns._ID + "=?");
+            for (int i = 0; i < args.size(); i++) {
+                DatabaseUtils.bindObjectToProgram(update, i + 1, args.get(i));
+            }
+        }
+
+        int changed = 0;
+        try {
+            for (String id : ids) {
+                if (update != null) {
+                    update.bindString(args.size() + 1, id);
+                    if (update.executeUpdateDelete() > 0) {
+                        changed++;
+                        continue;
+                    }
+                } else if (DatabaseUtils.queryNumEntries(db, table, BaseColumns._ID + "=?",
+                        new String[]{id}) > 0) {
+                    // Nothing to update
+                    continue;
+                }
+                ContentValues row = new ContentValues(values);
+                if (insertValues != null) {
+                    row.putAll(insertValues);
+                }
+                row.put(BaseColumns._ID, id);
+                db.insertOrThrow(table, null, row);
+                changed++;
+            }
+        } finally {
+            if (update != null) {
+                update.close();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Notifies observers of a change, or if a batch is being applied on this thread, once the
+     * batch is committed
+     */
+    private void notifyChange(Uri uri) {
+        Set<Uri> batchChanges = mBatchChanges.get();
+        if (batchChanges != null) {
+            batchChanges.add(uri);
+        } else {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
     private Uri insertInternal(SQLiteDatabase db, Uri uri, ContentValues values) {
         final int match = sUriMatcher.match(uri);
         String id;
@@ -867,17 +1115,33 @@ public class ObaProvider extends ContentProvider {
     private Cursor queryInternal(SQLiteDatabase db,
                                  Uri uri, String[] projection, String selection,
                                  String[] selectionArgs, String sortOrder) {
-        final int match = sUriMatcher.match(uri);
-        final String limit = uri.getQueryParameter("limit");
+        return newQueryBuilder(uri).query(mDb, projection, selection, selectionArgs,
+                null, null, sortOrder, uri.getQueryParameter("limit"));
+    }
 
+    /**
+     * Returns the SQL that a query of the given URI runs, so its query plan can be checked
+     *
+     * @param uri a URI of ObaContract
+     * @param projection the columns to return
+     * @param selection the selection, which may contain ? placeholders
+     * @param sortOrder the sort order, or null for the default order
+     */
+    public static String buildQuery(Uri uri, String[] projection, String selection,
+            String sortOrder) {
+        return newQueryBuilder(uri).buildQuery(projection, selection, null, null,
+                sortOrder, uri.getQueryParameter("limit"));
+    }
+
+    private static SQLiteQueryBuilder newQueryBuilder(Uri uri) {
+        final int match = sUriMatcher.match(uri);
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
 
         switch (match) {
             case STOPS:
                 qb.setTables(ObaContract.Stops.PATH);
                 qb.setProjectionMap(sStopsProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case STOPS_ID:
                 qb.setTables(ObaContract.Stops.PATH);
@@ -885,14 +1149,12 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.Stops._ID);
                 qb.appendWhere("=");
                 qb.appendWhereEscapeString(uri.getLastPathSegment());
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case ROUTES:
                 qb.setTables(ObaContract.Routes.PATH);
                 qb.setProjectionMap(sRoutesProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case ROUTES_ID:
                 qb.setTables(ObaContract.Routes.PATH);
@@ -900,27 +1162,23 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.Routes._ID);
                 qb.appendWhere("=");
                 qb.appendWhereEscapeString(uri.getLastPathSegment());
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case TRIPS:
                 qb.setTables(ObaContract.Trips.PATH);
                 qb.setProjectionMap(sTripsProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case TRIPS_ID:
                 qb.setTables(ObaContract.Trips.PATH);
                 qb.setProjectionMap(sTripsProjectionMap);
                 qb.appendWhere(tripWhere(uri));
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case TRIP_ALERTS:
                 qb.setTables(ObaContract.TripAlerts.PATH);
                 qb.setProjectionMap(sTripAlertsProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case TRIP_ALERTS_ID:
                 qb.setTables(ObaContract.TripAlerts.PATH);
@@ -928,19 +1186,16 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.TripAlerts._ID);
                 qb.appendWhere("=");
                 qb.appendWhere(String.valueOf(ContentUris.parseId(uri)));
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case STOP_ROUTE_FILTERS:
                 qb.setTables(ObaContract.StopRouteFilters.PATH);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case SERVICE_ALERTS:
                 qb.setTables(ObaContract.ServiceAlerts.PATH);
                 qb.setProjectionMap(sServiceAlertsProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case SERVICE_ALERTS_ID:
                 qb.setTables(ObaContract.ServiceAlerts.PATH);
@@ -948,14 +1203,12 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.ServiceAlerts._ID);
                 qb.appendWhere("=");
                 qb.appendWhereEscapeString(uri.getLastPathSegment());
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case REGIONS:
                 qb.setTables(ObaContract.Regions.PATH);
                 qb.setProjectionMap(sRegionsProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case REGIONS_ID:
                 qb.setTables(ObaContract.Regions.PATH);
@@ -963,14 +1216,12 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.Regions._ID);
                 qb.appendWhere("=");
                 qb.appendWhere(String.valueOf(ContentUris.parseId(uri)));
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case REGION_BOUNDS:
                 qb.setTables(ObaContract.RegionBounds.PATH);
                 qb.setProjectionMap(sRegionBoundsProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case REGION_BOUNDS_ID:
                 qb.setTables(ObaContract.RegionBounds.PATH);
@@ -978,14 +1229,12 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.RegionBounds._ID);
                 qb.appendWhere("=");
                 qb.appendWhere(String.valueOf(ContentUris.parseId(uri)));
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case REGION_OPEN311_SERVERS:
                 qb.setTables(ObaContract.RegionOpen311Servers.PATH);
                 qb.setProjectionMap(sRegionOpen311ProjectionMap);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case REGION_OPEN311_SERVERS_ID:
                 qb.setTables(ObaContract.RegionOpen311Servers.PATH);
@@ -993,17 +1242,14 @@ public class ObaProvider extends ContentProvider {
                 qb.appendWhere(ObaContract.RegionOpen311Servers._ID);
                 qb.appendWhere("=");
                 qb.appendWhere(String.valueOf(ContentUris.parseId(uri)));
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
 
             case ROUTE_HEADSIGN_FAVORITES:
                 qb.setTables(ObaContract.RouteHeadsignFavorites.PATH);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
             case NAV_STOPS:
                 qb.setTables(ObaContract.NavStops.PATH);
-                return qb.query(mDb, projection, selection, selectionArgs,
-                        null, null, sortOrder, limit);
+                return qb;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
@@ -1174,7 +1420,7 @@ public class ObaProvider extends ContentProvider {
         return sb.toString();
     }
 
-    private String tripWhere(Uri uri) {
+    private static String tripWhere(Uri uri) {
         List<String> segments = uri.getPathSegments();
         StringBuilder sb = new StringBuilder();
         sb.append("(");
@@ -1189,7 +1435,7 @@ public class ObaProvider extends ContentProvider {
         return sb.toString();
     }
 
-    private SQLiteDatabase getDatabase() {
+    private synchronized SQLiteDatabase getDatabase() {
         if (mDb == null) {
             mDb = mOpenHelper.getWritableDatabase();
             // Initialize the insert helpers
@@ -1216,8 +1462,63 @@ public class ObaProvider extends ContentProvider {
     //
     // Closes the database
     //
-    public void closeDB() {
+    public synchronized void closeDB() {
         mOpenHelper.close();
         mDb = null;
     }
+
+    /**
+     * Copies the database to the given stream while the database stays open.  The database file
+     * and its write-ahead log are copied within a transaction, so no changes are committed while
+     * they are copied.  The log is then checkpointed into the copy, so the stream gets a single
+     * file with every change committed before the copy started.
+     *
+     * @throws IOException if the database couldn't be copied, or the copy of the log couldn't
+     *                     be checkpointed into it
+     */
+    public void copyDB(OutputStream out) throws IOException {
+        final SQLiteDatabase db = getDatabase();
+        File dbFile = new File(db.getPath());
+        File walFile = new File(db.getPath() + "-wal");
+        File copy = File.createTempFile("backup", ".db", dbFile.getParentFile());
+        File walCopy = new File(copy.getPath() + "-wal");
+        try {
+            db.beginTransactionNonExclusive();
+            try {
+                FileUtils.copyFile(dbFile, copy);
+                if (walFile.exists()) {
+                    FileUtils.copyFile(walFile, walCopy);
+                }
+            } finally {
+                db.endTransaction();
+            }
+
+            // Nothing else has the copy open, so the checkpoint can't be blocked
+            SQLiteDatabase copyDb;
+            try {
+                copyDb = SQLiteDatabase.openDatabase(copy.getPath(), null,
+                        SQLiteDatabase.OPEN_READWRITE);
+            } catch (SQLiteException e) {
+                throw new IOException("Couldn't open the copy of the database", e);
+            }
+            try {
+                Cursor c = copyDb.rawQuery("PRAGMA wal_checkpoint(FULL)", null);
+                try {
+                    if (c.moveToFirst() && c.getInt(0) != 0) {
+                        throw new IOException("Couldn't checkpoint the copy of the database");
+                    }
+                } finally {
+                    c.close();
+                }
+            } finally {
+                copyDb.close();
+            }
+            FileUtils.copyFile(copy, out);
+        } finally {
+            FileUtils.deleteQuietly(walCopy);
+            FileUtils.deleteQuietly(new File(copy.getPath() + "-shm"));
+            FileUtils.deleteQuietly(new File(copy.getPath() + "-journal"));
+            FileUtils.deleteQuietly(copy);
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.provider;
+
+import org.onebusaway.android.app.Application;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory copy of the route_headsign_favorites table, so that the favorite state of each
+ * arrival can be checked without querying the provider.
+ *
+ * The table is loaded with a single query the first time it's needed, and reloaded on the next
+ * lookup after ObaProvider reports a change to RouteHeadsignFavorites.CONTENT_URI.
+ */
+public final class RouteHeadsignFavoritesIndex {
+
+    /**
+     * The favorite state of a single route/headsign combination
+     */
+    private static class Entry {
+
+        // True if the route/headsign has been starred for all stops
+        boolean allStops;
+
+        // Stops where the route/headsign has been starred
+        final HashSet<String> included = new HashSet<>();
+
+        // Stops that have been unstarred after starring all stops
+        final HashSet<String> excluded = new HashSet<>();
+    }
+
+    private final ContentResolver mResolver;
+
+    // Bumped on every invalidation, so a load that races with a change isn't kept
+    private final AtomicInteger mVersion = new AtomicInteger();
+
+    // routeId -> headsign -> Entry, or null if the table needs to be read again
+    private volatile HashMap<String, HashMap<String, Entry>> mIndex;
+
+    private boolean mObserverRegistered;
+
+    private final ContentObserver mObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+
+    private static class SingletonHolder {
+
+        public static final RouteHeadsignFavoritesIndex INSTANCE =
+                new RouteHeadsignFavoritesIndex(Application.get().getContentResolver());
+    }
+
+    public static RouteHeadsignFavoritesIndex getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private RouteHeadsignFavoritesIndex(ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    /**
+     * Returns true if this combination of routeId and headsign is a favorite for this stop
+     * or all stops (and that stop is not excluded as a favorite), false if it is not
+     */
+    public boolean isFavorite(String routeId, String headsign, String stopId) {
+        if (headsign == null) {
+            headsign = "";
+        }
+        HashMap<String, Entry> headsigns = getIndex().get(routeId);
+        if (headsigns == null) {
+            return false;
+        }
+        Entry entry = headsigns.get(headsign);
+        if (entry == null) {
+            return false;
+        }
+        return entry.included.contains(stopId)
+                || (entry.allStops && !entry.excluded.contains(stopId));
+    }
+
+    /**
+     * Forces the table to be read again on the next lookup.  This only needs to be called
+     * directly when the database changes without a provider notification, or when a change
+     * must be visible before the notification is delivered.
+     */
+    public void invalidate() {
+        mVersion.incrementAndGet();
+        mIndex = null;
+    }
+
+    private HashMap<String, HashMap<String, Entry>> getIndex() {
+        HashMap<String, HashMap<String, Entry>> index = mIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (!mObserverRegistered) {
+                mResolver.registerContentObserver(ObaContract.RouteHeadsignFavorites.CONTENT_URI,
+                        true, mObserver);
+                mObserverRegistered = true;
+            }
+            index = mIndex;
+            if (index != null) {
+                return index;
+            }
+            int version = mVersion.get();
+            index = load();
+            if (version == mVersion.get()) {
+                mIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private HashMap<String, HashMap<String, Entry>> load() {
+        HashMap<String, HashMap<String, Entry>> index = new HashMap<>();
+        Cursor c = mResolver.query(ObaContract.RouteHeadsignFavorites.CONTENT_URI,
+                new String[]{
+                        ObaContract.RouteHeadsignFavorites.ROUTE_ID,
+                        ObaContract.RouteHeadsignFavorites.HEADSIGN,
+                        ObaContract.RouteHeadsignFavorites.STOP_ID,
+                        ObaContract.RouteHeadsignFavorites.EXCLUDE
+                }, null, null, null);
+        if (c == null) {
+            return index;
+        }
+        try {
+            while (c.moveToNext()) {
+                String routeId = c.getString(0);
+                String headsign = c.getString(1);
+                String stopId = c.getString(2);
+                // Rows without a headsign never matched a route/headsign/stop lookup
+                if (routeId == null || headsign == null || stopId == null) {
+                    continue;
+                }
+                HashMap<String, Entry> headsigns = index.get(routeId);
+                if (headsigns == null) {
+                    headsigns = new HashMap<>();
+                    index.put(routeId, headsigns);
+                }
+                Entry entry = headsigns.get(headsign);
+                if (entry == null) {
+                    entry = new Entry();
+                    headsigns.put(headsign, entry);
+                }
+                boolean exclude = c.getInt(3) != 0;
+                if (ObaContract.RouteHeadsignFavorites.ALL_STOPS.equals(stopId)) {
+                    entry.allStops = true;
+                }
+                if (exclude) {
+                    entry.excluded.add(stopId);
+                } else {
+                    entry.included.add(stopId);
+                }
+            }
+        } finally {
+            c.close();
+        }
+        return index;
+    }
+}
@@ -33,14 +33,8 @@ public class TravelBehaviorConstants {
 
     public static final String RECOGNITION_REQUEST_CODE = "tbRecognitionRequestCode";
 
-    public static final String TRIP_PLAN_COUNTER = "tripPlanCounter";
-
-    public static final String ARRIVAL_LIST_COUNTER = "arrivalCounter";
-
     public static final String DEVICE_INFO_HASH = "deviceInfoHash";
 
-    public static final String DESTINATION_REMINDER_COUNTER = "destinationReminderCounter";
-
     public static final String FIREBASE_ACTIVITY_TRANSITION_FOLDER = "activity-transitions";
 
     public static final String FIREBASE_ARRIVAL_AND_DEPARTURE_FOLDER = "arrival-and-departures";
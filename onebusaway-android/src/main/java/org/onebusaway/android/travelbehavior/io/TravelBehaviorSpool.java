@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.travelbehavior.io;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An append-only file of travel behavior records (JSON strings) waiting to be uploaded.
+ *
+ * The file starts with a header of a random ID for the spool, the offset of the first record
+ * that hasn't been acknowledged yet (the head), and the sequence number of the chunk starting at
+ * the head.  It is followed by records that are each a 4 byte length and the deflate-compressed
+ * UTF-8 JSON.  Readers stream bounded chunks of records from the head, and acknowledging a chunk
+ * moves the head forward and increments the sequence number in a single write.  The acknowledged
+ * part of the file is only rewritten once it gets large, or dropped entirely when everything has
+ * been acknowledged.
+ *
+ * The spool ID and sequence number give each chunk an ID (see {@link Chunk#getId()}) that stays
+ * the same if the chunk is read again because it wasn't acknowledged, and is never used for a
+ * different chunk.  Uploading a chunk under its ID is therefore idempotent.
+ */
+public class TravelBehaviorSpool {
+
+    private static final String TAG = "TravelBehaviorSpool";
+
+    private static final String EXTENSION = ".spool";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Spool ID, head offset and sequence number
+    private static final int HEADER_SIZE = 24;
+
+    private static final int HEAD_OFFSET = 8;
+
+    // Guards against allocating a huge buffer for a corrupt length
+    private static final int MAX_RECORD_SIZE = 4 * 1024 * 1024;
+
+    // Size of the acknowledged part of the file that triggers a rewrite
+    private static final long COMPACT_THRESHOLD = 256 * 1024;
+
+    private static final Map<String, TravelBehaviorSpool> sSpools = new HashMap<>();
+
+    private final File mFile;
+
+    /**
+     * A chunk of records read from the head of the spool
+     */
+    public static class Chunk {
+
+        private final List<String> mRecords;
+
+        private final long mStartOffset;
+
+        private final long mEndOffset;
+
+        private final String mId;
+
+        private final long mSequence;
+
+        Chunk(List<String> records, long startOffset, long endOffset, long spoolId,
+                long sequence) {
+            mRecords = records;
+            mStartOffset = startOffset;
+            mEndOffset = endOffset;
+            mId = Long.toHexString(spoolId) + "-" + sequence;
+            mSequence = sequence;
+        }
+
+        /**
+         * @return the JSON records in this chunk, oldest first
+         */
+        public List<String> getRecords() {
+            return mRecords;
+        }
+
+        /**
+         * @return true if there was nothing left to read
+         */
+        public boolean isEmpty() {
+            return mStartOffset == mEndOffset;
+        }
+
+        /**
+         * @return an ID that is the same each time this chunk is read, until it is acknowledged,
+         * and that no other chunk of this spool has
+         */
+        public String getId() {
+            return mId;
+        }
+    }
+
+    /**
+     * Returns the spool for the given type of data, for example
+     * TravelBehaviorConstants.LOCAL_TRIP_PLAN_FOLDER
+     */
+    public static TravelBehaviorSpool get(Context context, String name) {
+        synchronized (sSpools) {
+            TravelBehaviorSpool spool = sSpools.get(name);
+            if (spool == null) {
+                spool = new TravelBehaviorSpool(new File(context.getFilesDir(), name + EXTENSION));
+                sSpools.put(name, spool);
+            }
+            return spool;
+        }
+    }
+
+    public TravelBehaviorSpool(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Appends a record to the end of the spool
+     */
+    public synchronized void append(String json) throws IOException {
+        byte[] data = compress(json);
+        RandomAccessFile raf = openForWrite();
+        try {
+            readHead(raf);
+            raf.seek(raf.length());
+            raf.writeInt(data.length);
+            raf.write(data);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Moves the JSON files written by older versions of the app from the given directory into
+     * the spool, and removes the directory
+     */
+    public synchronized void importLegacyFiles(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            try {
+                if (f.isFile()) {
+                    append(FileUtils.readFileToString(f, UTF_8));
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Couldn't import " + f + ": " + e);
+            }
+        }
+        FileUtils.deleteQuietly(dir);
+    }
+
+    /**
+     * Reads records from the head of the spool, up to maxRecords records or until at least
+     * maxBytes of JSON has been read.  The records stay in the spool until the chunk is passed to
+     * acknowledge().
+     */
+    public synchronized Chunk read(int maxRecords, int maxBytes) throws IOException {
+        if (!mFile.exists() || mFile.length() <= HEADER_SIZE) {
+            return new Chunk(Collections.<String>emptyList(), HEADER_SIZE, HEADER_SIZE, 0, 0);
+        }
+        long end = mFile.length();
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(mFile)));
+        try {
+            long spoolId = in.readLong();
+            long head = in.readLong();
+            long sequence = in.readLong();
+            if (head > end) {
+                // Killed while emptying the file, after truncating it - see acknowledge()
+                head = HEADER_SIZE;
+            }
+            long pos = head;
+            IOUtils.skipFully(in, head - HEADER_SIZE);
+
+            List<String> records = new ArrayList<>();
+            int bytes = 0;
+            while (pos < end && records.size() < maxRecords && bytes < maxBytes) {
+                if (pos + 4 > end) {
+                    Log.w(TAG, "Dropping truncated record at " + pos + " in " + mFile);
+                    pos = end;
+                    break;
+                }
+                int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_SIZE || pos + 4 + length > end) {
+                    // The app was killed while appending - nothing after this can be read
+                    Log.w(TAG, "Dropping corrupt record at " + pos + " in " + mFile);
+                    pos = end;
+                    break;
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                pos += 4 + length;
+                try {
+                    String json = decompress(data);
+                    records.add(json);
+                    bytes += json.length();
+                } catch (IOException e) {
+                    Log.e(TAG, "Skipping unreadable record: " + e);
+                }
+            }
+            return new Chunk(records, head, pos, spoolId, sequence);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Removes the records in the given chunk from the spool, after they have been uploaded
+     */
+    public synchronized void acknowledge(Chunk chunk) throws IOException {
+        if (chunk.isEmpty() || !mFile.exists()) {
+            return;
+        }
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            long head = readHead(raf);
+            if (head != chunk.mStartOffset || raf.readLong() != chunk.mSequence) {
+                Log.w(TAG, "Spool changed since chunk was read, not acknowledging");
+                return;
+            }
+            // Move the head and the sequence number forward together, so a chunk ID is never
+            // reused for different records
+            writeHead(raf, chunk.mEndOffset, chunk.mSequence + 1);
+            if (chunk.mEndOffset >= raf.length()) {
+                // Everything has been acknowledged.  If the app is killed after truncating,
+                // the head is past the end of the file, which is treated as an empty spool.
+                raf.setLength(HEADER_SIZE);
+                writeHead(raf, HEADER_SIZE, chunk.mSequence + 1);
+                return;
+            }
+        } finally {
+            raf.close();
+        }
+        if (chunk.mEndOffset - HEADER_SIZE >= COMPACT_THRESHOLD) {
+            compact(chunk.mEndOffset);
+        }
+    }
+
+    /**
+     * @return the size of the spool file in bytes
+     */
+    public synchronized long size() {
+        return mFile.length();
+    }
+
+    private RandomAccessFile openForWrite() throws IOException {
+        boolean create = !mFile.exists() || mFile.length() < HEADER_SIZE;
+        if (create && mFile.getParentFile() != null) {
+            mFile.getParentFile().mkdirs();
+        }
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        if (create) {
+            raf.setLength(0);
+            raf.writeLong(UUID.randomUUID().getMostSignificantBits());
+            raf.writeLong(HEADER_SIZE);
+            raf.writeLong(0);
+        }
+        return raf;
+    }
+
+    /**
+     * Reads the head offset, resetting it if the file was truncated after it was last written,
+     * and leaves the file pointer at the sequence number
+     */
+    private static long readHead(RandomAccessFile raf) throws IOException {
+        raf.seek(HEAD_OFFSET);
+        long head = raf.readLong();
+        if (head > raf.length()) {
+            long sequence = raf.readLong();
+            head = HEADER_SIZE;
+            writeHead(raf, head, sequence);
+        }
+        raf.seek(HEAD_OFFSET + 8);
+        return head;
+    }
+
+    private static void writeHead(RandomAccessFile raf, long head, long sequence)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(head);
+        out.writeLong(sequence);
+        raf.seek(HEAD_OFFSET);
+        raf.write(bytes.toByteArray());
+    }
+
+    /**
+     * Rewrites the spool without the acknowledged records before head
+     */
+    private void compact(long head) throws IOException {
+        File tmp = new File(mFile.getPath() + ".tmp");
+        DataInputStream in = new DataInputStream(new FileInputStream(mFile));
+        FileOutputStream fileOut = new FileOutputStream(tmp);
+        DataOutputStream out = new DataOutputStream(fileOut);
+        try {
+            long spoolId = in.readLong();
+            in.readLong();
+            long sequence = in.readLong();
+            out.writeLong(spoolId);
+            out.writeLong(HEADER_SIZE);
+            out.writeLong(sequence);
+            IOUtils.skipFully(in, head - HEADER_SIZE);
+            IOUtils.copy(in, out);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            in.close();
+            out.close();
+        }
+        if (!tmp.renameTo(mFile)) {
+            Log.e(TAG, "Couldn't replace " + mFile + " after compacting");
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    private static byte[] compress(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeflaterOutputStream out = new DeflaterOutputStream(bytes);
+        out.write(json.getBytes(UTF_8));
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static String decompress(byte[] data) throws IOException {
+        InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data));
+        try {
+            return IOUtils.toString(in, UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
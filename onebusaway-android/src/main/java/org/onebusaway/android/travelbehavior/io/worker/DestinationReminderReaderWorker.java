@@ -15,29 +15,20 @@
  */
 package org.onebusaway.android.travelbehavior.io.worker;
 
-import com.google.gson.Gson;
+import com.google.android.gms.tasks.Task;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.onebusaway.android.app.Application;
 import org.onebusaway.android.travelbehavior.constants.TravelBehaviorConstants;
 import org.onebusaway.android.travelbehavior.model.DestinationReminderData;
 import org.onebusaway.android.travelbehavior.utils.TravelBehaviorFirebaseIOUtils;
 
 import android.content.Context;
-import android.util.Log;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import androidx.annotation.NonNull;
-import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
-public class DestinationReminderReaderWorker extends Worker {
+public class DestinationReminderReaderWorker extends SpoolReaderWorker<DestinationReminderData> {
 
     private static final String TAG = "DestRemindReadWorker";
 
@@ -45,47 +36,29 @@ public class DestinationReminderReaderWorker extends Worker {
         super(context, workerParams);
     }
 
-    @NonNull
     @Override
-    public Result doWork() {
-        readAndPostDestinationReminderData();
-        return Result.success();
+    protected String getSpoolName() {
+        return TravelBehaviorConstants.LOCAL_DESTINATION_REMINDER_FOLDER;
     }
 
-    private void readAndPostDestinationReminderData() {
-        try {
-            File subFolder = new File(Application.get().getApplicationContext()
-                    .getFilesDir().getAbsolutePath() + File.separator +
-                    TravelBehaviorConstants.LOCAL_DESTINATION_REMINDER_FOLDER);
-
-            // If the directory does not exist do not read
-            if (subFolder == null || !subFolder.isDirectory()) return;
-
-            Collection<File> files = FileUtils.listFiles(subFolder, TrueFileFilter.INSTANCE,
-                    TrueFileFilter.INSTANCE);
-            Gson gson = new Gson();
-            if (files != null && !files.isEmpty()) {
-                List<DestinationReminderData> l = new ArrayList<>();
-                for (File f : files) {
-                    try {
-                        String jsonStr = FileUtils.readFileToString(f);
-                        DestinationReminderData destinationReminderData =
-                                gson.fromJson(jsonStr, DestinationReminderData.class);
-                        l.add(destinationReminderData);
-                    } catch (IOException e) {
-                        Log.e(TAG, e.toString());
-                    }
-                }
+    @Override
+    protected Class<DestinationReminderData> getDataClass() {
+        return DestinationReminderData.class;
+    }
 
-                FileUtils.cleanDirectory(subFolder);
+    @Override
+    protected boolean shouldUpload(DestinationReminderData data) {
+        return true;
+    }
 
-                String uid = getInputData().getString(TravelBehaviorConstants.USER_ID);
-                String recordId = getInputData().getString(TravelBehaviorConstants.RECORD_ID);
+    @Override
+    protected Task<Void> upload(List<DestinationReminderData> data, String uid,
+            String documentId) {
+        return TravelBehaviorFirebaseIOUtils.saveDestinationReminders(data, uid, documentId);
+    }
 
-                TravelBehaviorFirebaseIOUtils.saveDestinationReminders(l, uid, recordId);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, e.toString());
-        }
+    @Override
+    protected String getTag() {
+        return TAG;
     }
 }
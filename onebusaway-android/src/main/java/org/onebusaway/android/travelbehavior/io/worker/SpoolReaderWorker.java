@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.travelbehavior.io.worker;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import org.onebusaway.android.travelbehavior.constants.TravelBehaviorConstants;
+import org.onebusaway.android.travelbehavior.io.TravelBehaviorSpool;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Uploads the records saved in a {@link TravelBehaviorSpool} to Firebase in bounded chunks,
+ * removing each chunk from the spool once Firebase has accepted it.
+ *
+ * Each chunk is saved under its {@link TravelBehaviorSpool.Chunk#getId() chunk ID}, so a chunk
+ * that is uploaded again - after a retry, or because an upload timed out while Firebase still
+ * had it queued - replaces its earlier copy instead of a different chunk or adding a duplicate.
+ */
+public abstract class SpoolReaderWorker<T> extends Worker {
+
+    // Keep each Firebase document well below the 1 MB limit
+    private static final int MAX_RECORDS_PER_UPLOAD = 100;
+
+    private static final int MAX_CHARS_PER_UPLOAD = 512 * 1024;
+
+    private static final long UPLOAD_TIMEOUT_SECONDS = 60;
+
+    public SpoolReaderWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * @return the name of the spool, which is also the folder used by older versions of the app
+     */
+    protected abstract String getSpoolName();
+
+    protected abstract Class<T> getDataClass();
+
+    /**
+     * @return true if the record should be uploaded, false if it should be dropped
+     */
+    protected abstract boolean shouldUpload(T data);
+
+    protected abstract Task<Void> upload(List<T> data, String uid, String documentId);
+
+    protected abstract String getTag();
+
+    /**
+     * Uploads one chunk of records
+     */
+    public interface ChunkUploader {
+
+        /**
+         * @param documentId the ID of the chunk, to upload it under
+         * @param records    the JSON records in the chunk
+         */
+        void upload(String documentId, List<String> records) throws Exception;
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        TravelBehaviorSpool spool = TravelBehaviorSpool.get(context, getSpoolName());
+        File legacyFolder = new File(context.getFilesDir(), getSpoolName());
+        if (legacyFolder.isDirectory()) {
+            spool.importLegacyFiles(legacyFolder);
+        }
+
+        final String uid = getInputData().getString(TravelBehaviorConstants.USER_ID);
+        final Gson gson = new Gson();
+        try {
+            uploadAll(spool, MAX_RECORDS_PER_UPLOAD, MAX_CHARS_PER_UPLOAD,
+                    (documentId, records) -> {
+                        List<T> l = new ArrayList<>(records.size());
+                        for (String json : records) {
+                            try {
+                                T data = gson.fromJson(json, getDataClass());
+                                if (data != null && shouldUpload(data)) {
+                                    l.add(data);
+                                }
+                            } catch (JsonParseException e) {
+                                Log.e(getTag(), "Skipping unreadable record: " + e);
+                            }
+                        }
+                        if (!l.isEmpty()) {
+                            Tasks.await(upload(l, uid, documentId), UPLOAD_TIMEOUT_SECONDS,
+                                    TimeUnit.SECONDS);
+                        }
+                    });
+        } catch (Exception e) {
+            // Whatever wasn't acknowledged stays in the spool for the next attempt
+            Log.e(getTag(), "Upload failed: " + e);
+            return Result.retry();
+        }
+        return Result.success();
+    }
+
+    /**
+     * Uploads the spool chunk by chunk, acknowledging each chunk once it has been uploaded.  If
+     * an upload fails, the rest of the spool is left for the next call.
+     */
+    public static void uploadAll(TravelBehaviorSpool spool, int maxRecords, int maxChars,
+            ChunkUploader uploader) throws Exception {
+        while (true) {
+            TravelBehaviorSpool.Chunk chunk = spool.read(maxRecords, maxChars);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            uploader.upload(chunk.getId(), chunk.getRecords());
+            spool.acknowledge(chunk);
+        }
+    }
+}
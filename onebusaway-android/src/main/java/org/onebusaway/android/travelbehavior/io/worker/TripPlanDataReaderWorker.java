@@ -15,11 +15,8 @@
  */
 package org.onebusaway.android.travelbehavior.io.worker;
 
-import com.google.gson.Gson;
+import com.google.android.gms.tasks.Task;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.onebusaway.android.app.Application;
 import org.onebusaway.android.travelbehavior.constants.TravelBehaviorConstants;
 import org.onebusaway.android.travelbehavior.model.TripPlanData;
 import org.onebusaway.android.travelbehavior.utils.TravelBehaviorFirebaseIOUtils;
@@ -27,19 +24,13 @@ import org.onebusaway.android.travelbehavior.utils.TravelBehaviorFirebaseIOUtils
 import android.content.Context;
 import android.os.Build;
 import android.os.SystemClock;
-import android.util.Log;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import androidx.annotation.NonNull;
-import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
-public class TripPlanDataReaderWorker extends Worker {
+public class TripPlanDataReaderWorker extends SpoolReaderWorker<TripPlanData> {
 
     private static final String TAG = "TripPlanReadWorker";
 
@@ -47,56 +38,35 @@ public class TripPlanDataReaderWorker extends Worker {
         super(context, workerParams);
     }
 
-    @NonNull
     @Override
-    public Result doWork() {
-        readAndPostTripPlanData();
-        return Result.success();
+    protected String getSpoolName() {
+        return TravelBehaviorConstants.LOCAL_TRIP_PLAN_FOLDER;
     }
 
-    private void readAndPostTripPlanData() {
-        try {
-            File subFolder = new File(Application.get().getApplicationContext()
-                    .getFilesDir().getAbsolutePath() + File.separator +
-                    TravelBehaviorConstants.LOCAL_TRIP_PLAN_FOLDER);
-
-            // If the directory does not exist do not read
-            if (subFolder == null || !subFolder.isDirectory()) return;
-
-            Collection<File> files = FileUtils.listFiles(subFolder, TrueFileFilter.INSTANCE,
-                    TrueFileFilter.INSTANCE);
-            Gson gson = new Gson();
-            if (files != null && !files.isEmpty()) {
-                List<TripPlanData> l = new ArrayList<>();
-                for (File f : files) {
-                    try {
-                        String jsonStr = FileUtils.readFileToString(f);
-                        TripPlanData tripPlanData = gson.fromJson(jsonStr, TripPlanData.class);
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-                            if (SystemClock.elapsedRealtimeNanos() -  tripPlanData.getLocalElapsedRealtimeNanos() <
-                                    TravelBehaviorConstants.MOST_RECENT_DATA_THRESHOLD_NANO) {
-                                l.add(tripPlanData);
-                            }
-                        } else {
-                            if (System.currentTimeMillis() -  tripPlanData.getLocalSystemCurrMillis() <
-                                    TravelBehaviorConstants.MOST_RECENT_DATA_THRESHOLD_MILLIS) {
-                                l.add(tripPlanData);
-                            }
-                        }
-                    } catch (IOException e) {
-                        Log.e(TAG, e.toString());
-                    }
-                }
+    @Override
+    protected Class<TripPlanData> getDataClass() {
+        return TripPlanData.class;
+    }
 
-                FileUtils.cleanDirectory(subFolder);
+    @Override
+    protected boolean shouldUpload(TripPlanData data) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return SystemClock.elapsedRealtimeNanos() - data.getLocalElapsedRealtimeNanos() <
+                    TravelBehaviorConstants.MOST_RECENT_DATA_THRESHOLD_NANO;
+        } else {
+            return System.currentTimeMillis() - data.getLocalSystemCurrMillis() <
+                    TravelBehaviorConstants.MOST_RECENT_DATA_THRESHOLD_MILLIS;
+        }
+    }
 
-                String uid = getInputData().getString(TravelBehaviorConstants.USER_ID);
-                String recordId = getInputData().getString(TravelBehaviorConstants.RECORD_ID);
+    @Override
+    protected Task<Void> upload(List<TripPlanData> data, String uid,
+            String documentId) {
+        return TravelBehaviorFirebaseIOUtils.saveTripPlans(data, uid, documentId);
+    }
 
-                TravelBehaviorFirebaseIOUtils.saveTripPlans(l, uid, recordId);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, e.toString());
-        }
+    @Override
+    protected String getTag() {
+        return TAG;
     }
 }
@@ -15,6 +15,7 @@
  */
 package org.onebusaway.android.travelbehavior.utils;
 
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -74,13 +75,13 @@ public class TravelBehaviorFirebaseIOUtils {
                 });
     }
 
-    public static void saveArrivalsAndDepartures(List<ArrivalAndDepartureData> arrivalAndDepartureList,
+    public static Task<Void> saveArrivalsAndDepartures(List<ArrivalAndDepartureData> arrivalAndDepartureList,
                                                  String userId, String recordId) {
         DocumentReference document = TravelBehaviorFirebaseIOUtils.
                 getFirebaseDocReferenceByUserIdAndRecordId(userId, recordId,
                         TravelBehaviorConstants.FIREBASE_ARRIVAL_AND_DEPARTURE_FOLDER);
 
-        document.set(new ArrivalAndDepartureInfo(arrivalAndDepartureList)).
+        return document.set(new ArrivalAndDepartureInfo(arrivalAndDepartureList)).
                 addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         Log.d(TAG, "Arrivals and departure are saved with ID: " +
@@ -92,13 +93,13 @@ public class TravelBehaviorFirebaseIOUtils {
                 });
     }
 
-    public static void saveTripPlans(List<TripPlanData> tripPlanDataList,
+    public static Task<Void> saveTripPlans(List<TripPlanData> tripPlanDataList,
                                      String userId, String recordId) {
         DocumentReference document = TravelBehaviorFirebaseIOUtils.
                 getFirebaseDocReferenceByUserIdAndRecordId(userId, recordId,
                         TravelBehaviorConstants.FIREBASE_TRIP_PLAN_FOLDER);
 
-        document.set(new TripPlanInfo(tripPlanDataList)).
+        return document.set(new TripPlanInfo(tripPlanDataList)).
                 addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         Log.d(TAG, "Trip plans are saved with ID: " +
@@ -110,13 +111,13 @@ public class TravelBehaviorFirebaseIOUtils {
                 });
     }
 
-    public static void saveDestinationReminders(List<DestinationReminderData> reminderData,
+    public static Task<Void> saveDestinationReminders(List<DestinationReminderData> reminderData,
                                                 String userId, String recordId) {
         DocumentReference document = TravelBehaviorFirebaseIOUtils.
                 getFirebaseDocReferenceByUserIdAndRecordId(userId, recordId,
                         TravelBehaviorConstants.FIREBASE_DESTINATION_REMINDER_FOLDER);
 
-        document.set(new DestinationReminderInfo(reminderData)).
+        return document.set(new DestinationReminderInfo(reminderData)).
                 addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         Log.d(TAG, "Destination reminders are saved with ID: " +
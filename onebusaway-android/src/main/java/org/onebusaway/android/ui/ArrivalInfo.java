@@ -18,6 +18,7 @@ package org.onebusaway.android.ui;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.text.TextUtils;
 
 import org.onebusaway.android.R;
 import org.onebusaway.android.io.elements.ObaArrivalInfo;
@@ -69,6 +70,15 @@ public final class ArrivalInfo {
      */
     public ArrivalInfo(Context context, ObaArrivalInfo info, long now,
                        boolean includeArrivalDepartureInStatusLabel) {
+        // Check if the user has marked this routeId/headsign/stopId as a favorite
+        this(context, info, now, includeArrivalDepartureInStatusLabel,
+                ObaContract.RouteHeadsignFavorites
+                        .isFavorite(info.getRouteId(), info.getHeadsign(), info.getStopId()));
+    }
+
+    private ArrivalInfo(Context context, ObaArrivalInfo info, long now,
+                        boolean includeArrivalDepartureInStatusLabel,
+                        boolean isRouteAndHeadsignFavorite) {
         mInfo = info;
         // First, all times have to have to be converted to 'minutes'
         final long nowMins = now / ms_in_mins;
@@ -104,9 +114,7 @@ public final class ArrivalInfo {
                 scheduledMins, predictedMins, includeArrivalDepartureInStatusLabel);
         mTimeText = computeTimeLabel(context);
 
-        // Check if the user has marked this routeId/headsign/stopId as a favorite
-        mIsRouteAndHeadsignFavorite = ObaContract.RouteHeadsignFavorites
-                .isFavorite(info.getRouteId(), info.getHeadsign(), info.getStopId());
+        mIsRouteAndHeadsignFavorite = isRouteAndHeadsignFavorite;
 
         mNotifyText = computeNotifyText(context);
 
@@ -119,6 +127,22 @@ public final class ArrivalInfo {
         }
     }
 
+    /**
+     * Returns this arrival with its ETA and labels computed for a new time.  Whether the route
+     * and headsign is a favorite isn't looked up again, so this is much cheaper than converting
+     * the ObaArrivalInfo from scratch.
+     *
+     * @param now                                  current time in milliseconds
+     * @param includeArrivalDepartureInStatusLabel true if the arrival/departure label
+     *                                             should be included in the status label, false
+     *                                             if it should not
+     */
+    public ArrivalInfo retime(Context context, long now,
+                              boolean includeArrivalDepartureInStatusLabel) {
+        return new ArrivalInfo(context, mInfo, now, includeArrivalDepartureInStatusLabel,
+                mIsRouteAndHeadsignFavorite);
+    }
+
     /**
      * @param includeArrivalDeparture true if the arrival/departure label should be included, false
      *                                if it should not
@@ -399,4 +423,38 @@ public final class ArrivalInfo {
     public Status getStatus() {
         return mStatus;
     }
+
+    /**
+     * Returns true if this arrival would be displayed exactly the same as the given arrival,
+     * which may have been converted from a different response
+     *
+     * @return true if this arrival would be displayed exactly the same as the given arrival
+     */
+    boolean hasSameContent(ArrivalInfo other) {
+        if (this == other) {
+            return true;
+        }
+        ObaArrivalInfo a = mInfo;
+        ObaArrivalInfo b = other.mInfo;
+        return mEta == other.mEta
+                && mDisplayTime == other.mDisplayTime
+                && mColor == other.mColor
+                && mPredicted == other.mPredicted
+                && mIsRouteAndHeadsignFavorite == other.mIsRouteAndHeadsignFavorite
+                && mStatus == other.mStatus
+                && mHistoricalOccupancy == other.mHistoricalOccupancy
+                && mPredictedOccupancy == other.mPredictedOccupancy
+                && TextUtils.equals(mStatusText, other.mStatusText)
+                && TextUtils.equals(mTimeText, other.mTimeText)
+                && a.getStopSequence() == b.getStopSequence()
+                && a.getScheduledArrivalTime() == b.getScheduledArrivalTime()
+                && a.getScheduledDepartureTime() == b.getScheduledDepartureTime()
+                && a.getPredictedArrivalTime() == b.getPredictedArrivalTime()
+                && a.getPredictedDepartureTime() == b.getPredictedDepartureTime()
+                && TextUtils.equals(a.getTripId(), b.getTripId())
+                && TextUtils.equals(a.getRouteId(), b.getRouteId())
+                && TextUtils.equals(a.getShortName(), b.getShortName())
+                && TextUtils.equals(a.getHeadsign(), b.getHeadsign())
+                && TextUtils.equals(a.getVehicleId(), b.getVehicleId());
+    }
 }
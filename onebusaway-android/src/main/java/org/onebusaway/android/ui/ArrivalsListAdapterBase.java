@@ -15,13 +15,12 @@
  */
 package org.onebusaway.android.ui;
 
-import org.onebusaway.android.io.elements.ObaArrivalInfo;
 import org.onebusaway.android.util.ArrayAdapter;
 
 import android.content.ContentQueryMap;
 import android.content.Context;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Base adapter class for the various styles of arrivals lists
@@ -41,5 +40,45 @@ public abstract class ArrivalsListAdapterBase<T> extends ArrayAdapter<T> {
         notifyDataSetChanged();
     }
 
-    abstract public void setData(ObaArrivalInfo[] arrivals, ArrayList<String> routesFilter, long currentTime);
+    /**
+     * Returns true if the status labels for this style should say whether the vehicle is
+     * arriving or departing, false if they should not
+     *
+     * @return true if the status labels for this style should say whether the vehicle is
+     * arriving or departing, false if they should not
+     */
+    abstract public boolean includeArrivalDepartureInStatusLabel();
+
+    /**
+     * Sets the arrivals to be displayed
+     *
+     * @param arrivals arrivals sorted by ETA, converted with
+     *                 includeArrivalDepartureInStatusLabel().  The list isn't modified.  Null if
+     *                 there aren't any arrivals.
+     */
+    abstract public void setArrivals(List<ArrivalInfo> arrivals);
+
+    /**
+     * Returns true if the two items would be displayed exactly the same
+     */
+    abstract protected boolean hasSameContent(T oldItem, T newItem);
+
+    /**
+     * Replaces the items in the list, unless every row would be displayed exactly the same as it
+     * is now.  This keeps refreshes that don't change anything from rebinding the visible rows.
+     */
+    protected void setDataIfChanged(List<T> data) {
+        int count = getCount();
+        int newCount = data != null ? data.size() : 0;
+        if (count == newCount) {
+            int i = 0;
+            while (i < count && hasSameContent(getItem(i), data.get(i))) {
+                i++;
+            }
+            if (i == count) {
+                return;
+            }
+        }
+        setData(data);
+    }
 }
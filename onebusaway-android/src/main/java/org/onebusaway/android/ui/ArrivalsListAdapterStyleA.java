@@ -32,10 +32,9 @@ import org.onebusaway.android.io.elements.ObaArrivalInfo;
 import org.onebusaway.android.io.elements.OccupancyState;
 import org.onebusaway.android.io.elements.Status;
 import org.onebusaway.android.provider.ObaContract;
-import org.onebusaway.android.util.ArrivalInfoUtils;
 import org.onebusaway.android.util.UIUtils;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Original style of arrivals for OBA Android
@@ -46,22 +45,19 @@ public class ArrivalsListAdapterStyleA extends ArrivalsListAdapterBase<ArrivalIn
         super(context, R.layout.arrivals_list_item);
     }
 
-    /**
-     * Sets the data to be used with the adapter
-     *
-     * @param routesFilter routeIds to filter for
-     * @param currentTime  current time in milliseconds
-     */
-    public void setData(ObaArrivalInfo[] arrivals, ArrayList<String> routesFilter,
-            long currentTime) {
-        if (arrivals != null) {
-            ArrayList<ArrivalInfo> list =
-                    ArrivalInfoUtils.convertObaArrivalInfo(getContext(),
-                            arrivals, routesFilter, currentTime, false);
-            setData(list);
-        } else {
-            setData(null);
-        }
+    @Override
+    public boolean includeArrivalDepartureInStatusLabel() {
+        return false;
+    }
+
+    @Override
+    public void setArrivals(List<ArrivalInfo> arrivals) {
+        setDataIfChanged(arrivals);
+    }
+
+    @Override
+    protected boolean hasSameContent(ArrivalInfo oldItem, ArrivalInfo newItem) {
+        return oldItem.hasSameContent(newItem);
     }
 
     @Override
@@ -41,13 +41,13 @@ import org.onebusaway.android.io.elements.ObaArrivalInfo;
 import org.onebusaway.android.io.elements.OccupancyState;
 import org.onebusaway.android.io.elements.Status;
 import org.onebusaway.android.provider.ObaContract;
-import org.onebusaway.android.util.ArrivalInfoUtils;
 import org.onebusaway.android.util.UIUtils;
 import org.onebusaway.util.comparators.AlphanumComparator;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Styles of arrival times used by York Region Transit
@@ -68,18 +68,16 @@ public class ArrivalsListAdapterStyleB extends ArrivalsListAdapterBase<CombinedA
         mFragment = fragment;
     }
 
-    /**
-     * Sets the data to be used with the adapter
-     *
-     * @param routesFilter routeIds to filter for
-     * @param currentTime  current time in milliseconds
-     */
-    public void setData(ObaArrivalInfo[] arrivals, ArrayList<String> routesFilter,
-            long currentTime) {
+    @Override
+    public boolean includeArrivalDepartureInStatusLabel() {
+        return true;
+    }
+
+    @Override
+    public void setArrivals(List<ArrivalInfo> arrivals) {
         if (arrivals != null) {
-            ArrayList<ArrivalInfo> list =
-                    ArrivalInfoUtils.convertObaArrivalInfo(getContext(),
-                            arrivals, routesFilter, currentTime, true);
+            // Copy the list, since it's shared with the header
+            ArrayList<ArrivalInfo> list = new ArrayList<ArrivalInfo>(arrivals);
 
             // Sort list by route and headsign, in that order
             Collections.sort(list, new Comparator<ArrivalInfo>() {
@@ -122,13 +120,29 @@ public class ArrivalsListAdapterStyleB extends ArrivalsListAdapterBase<CombinedA
                 }
                 if (!cArrivalInfo.getArrivalInfoList().isEmpty()) {
                     newList.add(cArrivalInfo);
-                    setData(newList);
+                    setDataIfChanged(newList);
                     return;
                 }
             }
         }
         // If we get this far, we don't have any data to use
-        setData(null);
+        setDataIfChanged(null);
+    }
+
+    @Override
+    protected boolean hasSameContent(CombinedArrivalInfoStyleB oldItem,
+            CombinedArrivalInfoStyleB newItem) {
+        ArrayList<ArrivalInfo> oldList = oldItem.getArrivalInfoList();
+        ArrayList<ArrivalInfo> newList = newItem.getArrivalInfoList();
+        if (oldList.size() != newList.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            if (!oldList.get(i).hasSameContent(newList.get(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -81,7 +81,6 @@ import org.onebusaway.android.travelbehavior.TravelBehaviorManager;
 import org.onebusaway.android.ui.survey.SurveyManager;
 import org.onebusaway.android.io.request.survey.model.StudyResponse;
 import org.onebusaway.android.util.ArrayAdapterWithIcon;
-import org.onebusaway.android.util.ArrivalInfoUtils;
 import org.onebusaway.android.util.BuildFlavorUtils;
 import org.onebusaway.android.util.DBUtil;
 import org.onebusaway.android.util.FragmentUtils;
@@ -96,6 +95,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 //
 // We don't use the ListFragment because the support library's version of
@@ -179,6 +180,14 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
 
     ObaArrivalInfo[] mArrivalInfo;
 
+    // Arrivals converted for display, shared by the list and the header
+    private ArrivalsSnapshot mSnapshot;
+
+    // Incremented for each snapshot requested, so that older ones are dropped if they finish late
+    private int mSnapshotGeneration;
+
+    private static final ExecutorService sSnapshotExecutor = Executors.newSingleThreadExecutor();
+
     private FirebaseAnalytics mFirebaseAnalytics;
 
     private SurveyManager surveyManager;
@@ -563,10 +572,9 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
             // Reset the empty text just in case there is no data.
             setEmptyText(UIUtils.getNoArrivalsMessage(Application.get().getApplicationContext(),
                     minutesAfter, false, false));
-            mAdapter.setData(info, mRoutesFilter, System.currentTimeMillis());
-        }
-
-        if (mHeader != null) {
+            // The header is refreshed once the arrivals have been converted
+            updateArrivals(info, false);
+        } else if (mHeader != null) {
             mHeader.refresh();
         }
     }
@@ -574,7 +582,9 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
     @Override
     public void onLoaderReset(Loader<ObaArrivalInfoResponse> loader) {
         showProgress(false);
-        mAdapter.setData(null, mRoutesFilter, System.currentTimeMillis());
+        mSnapshotGeneration++;
+        mSnapshot = null;
+        mAdapter.setArrivals(null);
 
         mArrivalInfo = null;
 
@@ -669,11 +679,11 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
                 return false;
             }
             // Update the database to hide all currently active alerts at this stop
+            List<String> alertIds = new ArrayList<>(mSituationAlerts.size());
             for (SituationAlert alert : mSituationAlerts) {
-                ObaContract.ServiceAlerts
-                        .insertOrUpdate(alert.getId(), new ContentValues(), false,
-                                true);
+                alertIds.add(alert.getId());
             }
+            ObaContract.ServiceAlerts.insertOrUpdate(alertIds, new ContentValues(), false, true);
             refresh();
         }
         return false;
@@ -909,13 +919,10 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
      */
     @Override
     public ArrayList<ArrivalInfo> getArrivalInfo() {
-        ArrayList<ArrivalInfo> list = null;
-
-        if (mArrivalInfo != null) {
-            list = ArrivalInfoUtils.convertObaArrivalInfo(getActivity(), mArrivalInfo, mRoutesFilter,
-                    System.currentTimeMillis(), true);
+        if (mArrivalInfo == null || mSnapshot == null) {
+            return null;
         }
-        return list;
+        return mSnapshot.getHeaderArrivals();
     }
 
     /**
@@ -1539,13 +1546,62 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
                 // Nothing to refresh yet
                 return;
             }
-            mAdapter.setData(response.getArrivalInfo(), mRoutesFilter, System.currentTimeMillis());
-        }
-        if (mHeader != null) {
+            updateArrivals(response.getArrivalInfo(), true);
+        } else if (mHeader != null) {
             mHeader.refresh();
         }
     }
 
+    /**
+     * Converts the arrivals for display on a background thread, and then shows them in the list
+     * and the header.  If the current snapshot was built from the same arrivals and route
+     * filter, its arrivals are only re-timed for the current minute instead, unless force is
+     * true.
+     *
+     * @param force true if something else shown for each arrival may have changed (e.g., a
+     *              favorite), so the arrivals must be converted again
+     */
+    private void updateArrivals(final ObaArrivalInfo[] arrivals, boolean force) {
+        final long now = System.currentTimeMillis();
+        final boolean includeArrivalDeparture = mAdapter.includeArrivalDepartureInStatusLabel();
+        if (!force && mSnapshot != null
+                && mSnapshot.isFor(arrivals, mRoutesFilter, includeArrivalDeparture)) {
+            if (!mSnapshot.isCurrent(now)) {
+                mSnapshot = mSnapshot.retime(Application.get().getApplicationContext(), now);
+            }
+            // The adapter may have been replaced since the snapshot was built
+            mAdapter.setArrivals(mSnapshot.getListArrivals());
+            if (mHeader != null) {
+                mHeader.refresh();
+            }
+            return;
+        }
+        final int generation = ++mSnapshotGeneration;
+        final ArrayList<String> filter = mRoutesFilter != null
+                ? new ArrayList<>(mRoutesFilter) : null;
+        final Context context = Application.get().getApplicationContext();
+        sSnapshotExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ArrivalsSnapshot snapshot = ArrivalsSnapshot.build(context, arrivals,
+                        filter, now, includeArrivalDeparture);
+                mRefreshHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSnapshotGeneration || !isAdded()) {
+                            return;
+                        }
+                        mSnapshot = snapshot;
+                        mAdapter.setArrivals(snapshot.getListArrivals());
+                        if (mHeader != null) {
+                            mHeader.refresh();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
     private final Handler mRefreshHandler = new Handler();
 
     private final Runnable mRefresh = new Runnable() {
@@ -1599,7 +1655,7 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
             return new CursorLoader(getActivity(),
                     ObaContract.Trips.CONTENT_URI,
                     TRIPS_PROJECTION,
-                    ObaContract.Trips.STOP_ID + "=?",
+                    ObaContract.Trips.STOP_WHERE,
                     new String[]{mStopId},
                     null);
         }
@@ -1742,19 +1798,21 @@ public class ArrivalsListFragment extends ListFragment implements LoaderManager.
 
         mSituationAlerts = new ArrayList<>();
 
-        ContentValues values = new ContentValues();
+        // Make sure these situations are added to the database, in a single transaction
+        List<String> situationIds = new ArrayList<>(situations.size());
+        for (ObaSituation situation : situations) {
+            situationIds.add(situation.getId());
+        }
+        ObaContract.ServiceAlerts.insertOrUpdate(situationIds, new ContentValues(), false, null);
+        Set<String> hiddenIds = ObaContract.ServiceAlerts.getHidden(Application.get(),
+                situationIds);
 
         int hiddenCount = 0;
 
         for (ObaSituation situation : situations) {
-            values.clear();
-
-            // Make sure this situation is added to the database
-            ObaContract.ServiceAlerts.insertOrUpdate(situation.getId(), values, false, null);
-
             boolean isActive = UIUtils
                     .isActiveWindowForSituation(situation, System.currentTimeMillis());
-            boolean isHidden = ObaContract.ServiceAlerts.isHidden(situation.getId());
+            boolean isHidden = hiddenIds.contains(situation.getId());
 
             if (isActive && !isHidden) {
                 SituationAlert alert = new SituationAlert(situation);
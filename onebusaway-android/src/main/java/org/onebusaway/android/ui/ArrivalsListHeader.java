@@ -704,10 +704,7 @@ class ArrivalsListHeader {
                 // We have a non-negative ETA for at least one bus - fill the first arrival row
                 final int i1 = etaIndexes.get(0);
                 ObaArrivalInfo info1 = mArrivalInfo.get(i1).getInfo();
-                boolean isFavorite = ObaContract.RouteHeadsignFavorites.isFavorite(
-                        info1.getRouteId(),
-                        info1.getHeadsign(),
-                        info1.getStopId());
+                boolean isFavorite = mArrivalInfo.get(i1).isRouteAndHeadsignFavorite();
                 mEtaRouteFavorite1.setImageResource(isFavorite ?
                         R.drawable.focus_star_on :
                         R.drawable.focus_star_off);
@@ -776,10 +773,7 @@ class ArrivalsListHeader {
                 if (etaIndexes.size() >= 2) {
                     final int i2 = etaIndexes.get(1);
                     ObaArrivalInfo info2 = mArrivalInfo.get(i2).getInfo();
-                    boolean isFavorite2 = ObaContract.RouteHeadsignFavorites.isFavorite(
-                            info2.getRouteId(),
-                            info2.getHeadsign(),
-                            info2.getStopId());
+                    boolean isFavorite2 = mArrivalInfo.get(i2).isRouteAndHeadsignFavorite();
                     mEtaRouteFavorite2.setImageResource(isFavorite2 ?
                             R.drawable.focus_star_on :
                             R.drawable.focus_star_off);
@@ -1001,8 +995,7 @@ class ArrivalsListHeader {
 
             // Setup tapping on star for first row
             final ObaArrivalInfo info1 = mHeaderArrivalInfo.get(0).getInfo();
-            final boolean isRouteFavorite = ObaContract.RouteHeadsignFavorites.isFavorite(
-                    info1.getRouteId(), info1.getHeadsign(), info1.getStopId());
+            final boolean isRouteFavorite = mHeaderArrivalInfo.get(0).isRouteAndHeadsignFavorite();
             mEtaRouteFavorite1.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
@@ -1067,8 +1060,8 @@ class ArrivalsListHeader {
 
             // Setup tapping on star for second row
             final ObaArrivalInfo info2 = mHeaderArrivalInfo.get(1).getInfo();
-            final boolean isRouteFavorite2 = ObaContract.RouteHeadsignFavorites.isFavorite(
-                    info2.getRouteId(), info2.getHeadsign(), info2.getStopId());
+            final boolean isRouteFavorite2 =
+                    mHeaderArrivalInfo.get(1).isRouteAndHeadsignFavorite();
             mEtaRouteFavorite2.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
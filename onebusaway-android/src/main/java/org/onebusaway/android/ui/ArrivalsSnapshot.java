@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.ui;
+
+import org.onebusaway.android.io.elements.ObaArrivalInfo;
+import org.onebusaway.android.util.ArrivalInfoUtils;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+
+/**
+ * The arrivals from one response converted for display, shared by the arrivals list and its
+ * header.  Snapshots are built off the main thread and aren't modified afterwards, so the lists
+ * returned here must not be changed by callers.
+ */
+final class ArrivalsSnapshot {
+
+    private static final long MS_IN_MIN = 60 * 1000;
+
+    private final ObaArrivalInfo[] mSource;
+
+    private final ArrayList<String> mRoutesFilter;
+
+    private final long mMinute;
+
+    private final boolean mListIncludesArrivalDeparture;
+
+    private final ArrayList<ArrivalInfo> mHeaderArrivals;
+
+    private final ArrayList<ArrivalInfo> mListArrivals;
+
+    private ArrivalsSnapshot(ObaArrivalInfo[] source, ArrayList<String> routesFilter, long now,
+            boolean listIncludesArrivalDeparture, ArrayList<ArrivalInfo> headerArrivals,
+            ArrayList<ArrivalInfo> listArrivals) {
+        mSource = source;
+        mRoutesFilter = routesFilter;
+        mMinute = now / MS_IN_MIN;
+        mListIncludesArrivalDeparture = listIncludesArrivalDeparture;
+        mHeaderArrivals = headerArrivals;
+        mListArrivals = listArrivals;
+    }
+
+    /**
+     * Converts the arrivals for display.  The header always includes "arrival"/"departure" in
+     * the status labels, so the arrivals are only converted a second time if the list style
+     * doesn't.
+     *
+     * @param routesFilter routeIds to filter for, which must not be changed afterwards
+     * @param now          current time in milliseconds
+     */
+    static ArrivalsSnapshot build(Context context, ObaArrivalInfo[] arrivals,
+            ArrayList<String> routesFilter, long now, boolean listIncludesArrivalDeparture) {
+        ArrayList<ArrivalInfo> header = ArrivalInfoUtils.convertObaArrivalInfo(context,
+                arrivals, routesFilter, now, true);
+        ArrayList<ArrivalInfo> list = listIncludesArrivalDeparture ? header
+                : ArrivalInfoUtils.convertObaArrivalInfo(context, arrivals, routesFilter, now,
+                        false);
+        return new ArrivalsSnapshot(arrivals, routesFilter, now, listIncludesArrivalDeparture,
+                header, list);
+    }
+
+    /**
+     * Computes the ETAs and labels of this snapshot's arrivals for a new time, without
+     * converting the response again.  This is cheap enough to run on the main thread.
+     *
+     * @param now current time in milliseconds
+     */
+    ArrivalsSnapshot retime(Context context, long now) {
+        ArrayList<ArrivalInfo> header = ArrivalInfoUtils.retimeArrivalInfo(context,
+                mHeaderArrivals, now, true);
+        ArrayList<ArrivalInfo> list = mListIncludesArrivalDeparture ? header
+                : ArrivalInfoUtils.retimeArrivalInfo(context, mListArrivals, now, false);
+        return new ArrivalsSnapshot(mSource, mRoutesFilter, now, mListIncludesArrivalDeparture,
+                header, list);
+    }
+
+    /**
+     * @return true if this snapshot was built from the same response, filter and list style
+     */
+    boolean isFor(ObaArrivalInfo[] arrivals, ArrayList<String> routesFilter,
+            boolean listIncludesArrivalDeparture) {
+        return mSource == arrivals
+                && mListIncludesArrivalDeparture == listIncludesArrivalDeparture
+                && isSameFilter(mRoutesFilter, routesFilter);
+    }
+
+    /**
+     * @return true if this snapshot's ETAs were computed during the same minute as now
+     */
+    boolean isCurrent(long now) {
+        return mMinute == now / MS_IN_MIN;
+    }
+
+    /**
+     * @return arrivals sorted by ETA, with "arrival"/"departure" in the status labels
+     */
+    ArrayList<ArrivalInfo> getHeaderArrivals() {
+        return mHeaderArrivals;
+    }
+
+    /**
+     * @return arrivals sorted by ETA, with status labels for the list style
+     */
+    ArrayList<ArrivalInfo> getListArrivals() {
+        return mListArrivals;
+    }
+
+    private static boolean isSameFilter(ArrayList<String> a, ArrayList<String> b) {
+        boolean aEmpty = a == null || a.isEmpty();
+        boolean bEmpty = b == null || b.isEmpty();
+        if (aEmpty || bEmpty) {
+            return aEmpty == bEmpty;
+        }
+        return a.equals(b);
+    }
+}
@@ -73,10 +73,8 @@ public class MyStarredRoutesFragment extends MyRouteListFragmentBase {
         return new CursorLoader(getActivity(),
                 ObaContract.Routes.CONTENT_URI,
                 PROJECTION,
-                ObaContract.Routes.FAVORITE + "=1" +
-                        (Application.get().getCurrentRegion() == null ? "" : " AND " +
-                                QueryUtils.getRegionWhere(ObaContract.Routes.REGION_ID,
-                                        Application.get().getCurrentRegion().getId())),
+                QueryUtils.getStarredWhere(ObaContract.Routes.FAVORITE,
+                        ObaContract.Routes.REGION_ID, Application.get().getCurrentRegion()),
                 null, sortBy);
     }
 
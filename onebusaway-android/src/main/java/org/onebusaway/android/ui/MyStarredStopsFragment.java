@@ -70,10 +70,8 @@ public class MyStarredStopsFragment extends MyStopListFragmentBase {
         return new CursorLoader(getActivity(),
                 ObaContract.Stops.CONTENT_URI,
                 PROJECTION,
-                ObaContract.Stops.FAVORITE + "=1" +
-                        (Application.get().getCurrentRegion() == null ? "" : " AND " +
-                                QueryUtils.getRegionWhere(ObaContract.Stops.REGION_ID,
-                                        Application.get().getCurrentRegion().getId())),
+                QueryUtils.getStarredWhere(ObaContract.Stops.FAVORITE,
+                        ObaContract.Stops.REGION_ID, Application.get().getCurrentRegion()),
                 null, sortBy);
     }
 
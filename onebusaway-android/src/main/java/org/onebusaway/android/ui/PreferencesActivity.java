@@ -601,6 +601,8 @@ public class PreferencesActivity extends PreferenceActivity
                         getString(R.string.analytics_label_button_press_experimental_off),
                         null);
             }
+        } else if (key.equals(getString(R.string.preference_key_use_pooled_http_client))) {
+            Application.get().initConnectionFactory();
         } else if (key.equals(getString(R.string.preference_key_oba_api_url))) {
             // Change the region preference description to show we're not using a region
             changePreferenceSummary(key);
@@ -18,6 +18,7 @@ package org.onebusaway.android.ui;
 import org.onebusaway.android.R;
 import org.onebusaway.android.app.Application;
 import org.onebusaway.android.io.ObaApi;
+import org.onebusaway.android.io.elements.ObaRegion;
 import org.onebusaway.android.io.request.ObaRouteRequest;
 import org.onebusaway.android.io.request.ObaRouteResponse;
 import org.onebusaway.android.provider.ObaContract;
@@ -47,6 +48,9 @@ import androidx.loader.content.Loader;
  */
 public final class QueryUtils {
 
+    /** The number of stops or routes shown in the recent lists */
+    public static final String RECENT_LIMIT = "20";
+
     static protected CursorLoader newRecentQuery(
             final Context context,
             final Uri uri,
@@ -55,7 +59,7 @@ public final class QueryUtils {
             final String useCount) {
         // "Recently" means seven days in the past
         final long last = System.currentTimeMillis() - 7 * DateUtils.DAY_IN_MILLIS;
-        Uri limit = uri.buildUpon().appendQueryParameter("limit", "20").build();
+        Uri limit = uri.buildUpon().appendQueryParameter("limit", RECENT_LIMIT).build();
 
         String regionWhere = "";
         if (Application.get().getCurrentRegion() != null) {
@@ -69,17 +73,32 @@ public final class QueryUtils {
         return new CursorLoader(context,
                 limit,
                 projection,
-                "((" +
-                        accessTime + " IS NOT NULL AND " +
-                        accessTime + " > " + last +
-                        ") OR (" + useCount + " > 0))" + regionWhere,
+                getRecentWhere(accessTime, useCount, last) + regionWhere,
                 null,
-                accessTime + " desc, " +
-                        useCount + " desc"
+                getRecentSortOrder(accessTime, useCount)
         );
     }
 
-    static final class RouteList {
+    /**
+     * Returns the selection of the stops or routes that were accessed after the given time, or
+     * that were used at least once
+     */
+    public static String getRecentWhere(String accessTime, String useCount, long since) {
+        return "((" +
+                accessTime + " IS NOT NULL AND " +
+                accessTime + " > " + since +
+                ") OR (" + useCount + " > 0))";
+    }
+
+    /**
+     * Returns the sort order of the recent stops or routes, most recently accessed first
+     */
+    public static String getRecentSortOrder(String accessTime, String useCount) {
+        return accessTime + " desc, " +
+                useCount + " desc";
+    }
+
+    public static final class RouteList {
 
         public interface Columns {
 
@@ -141,7 +160,7 @@ public final class QueryUtils {
         }
     }
 
-    static final class StopList {
+    public static final class StopList {
 
         public interface Columns {
 
@@ -224,6 +243,20 @@ public final class QueryUtils {
                 " OR " + regionFieldName + " IS NULL)";
     }
 
+    /**
+     * Returns the selection of the starred stops or routes in the given region
+     *
+     * @param favoriteFieldName the column that marks a stop or route as starred
+     * @param regionFieldName the column with the region of a stop or route
+     * @param region the current region, or null to select the starred stops or routes of all
+     *               regions
+     */
+    public static String getStarredWhere(String favoriteFieldName, String regionFieldName,
+            ObaRegion region) {
+        return favoriteFieldName + "=1" +
+                (region == null ? "" : " AND " + getRegionWhere(regionFieldName, region.getId()));
+    }
+
     /**
      * Sets the given route and headsign and stop as a favorite, including checking to make sure that the
      * route has already been added to the local provider.  If this route/headsign should be marked
@@ -41,6 +41,7 @@ import com.sothree.slidinguppanel.SlidingUpPanelLayout;
 import org.onebusaway.android.R;
 import org.onebusaway.android.app.Application;
 import org.onebusaway.android.directions.tasks.TripRequest;
+import org.onebusaway.android.directions.util.JacksonConfig;
 import org.onebusaway.android.directions.util.OTPConstants;
 import org.onebusaway.android.directions.util.TripRequestBuilder;
 import org.onebusaway.android.io.ObaAnalytics;
@@ -55,7 +56,7 @@ import org.opentripplanner.api.ws.Message;
 import java.util.ArrayList;
 
 
-public class TripPlanActivity extends AppCompatActivity implements TripRequest.Callback,
+public class TripPlanActivity extends AppCompatActivity implements TripRequest.ItineraryCallback,
         TripResultsFragment.Listener, TripPlanFragment.Listener {
 
     private static final String TAG = "TripPlanActivity";
@@ -92,6 +93,9 @@ public class TripPlanActivity extends AppCompatActivity implements TripRequest.C
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        // Build the OTP response readers while the user fills in the trip
+        JacksonConfig.warmUp();
+
         setContentView(R.layout.activity_trip_plan);
 
         UIUtils.setupActionBar(this);
@@ -326,6 +330,37 @@ public class TripPlanActivity extends AppCompatActivity implements TripRequest.C
         startActivity(intent);
     }
 
+    @Override
+    public void onItineraryReceived(Itinerary itinerary, int index) {
+        // Show the itineraries while the rest of the plan is still being read.  The complete plan
+        // replaces them once onTripRequestComplete() is called.
+        if (!mRequestLoading || isFinishing() || getSupportFragmentManager().isStateSaved()) {
+            return;
+        }
+        Bundle bundle = mBuilder.getBundle();
+        ArrayList<Itinerary> itineraries = (ArrayList<Itinerary>) bundle
+                .getSerializable(OTPConstants.ITINERARIES);
+        if (index == 0) {
+            itineraries = new ArrayList<>();
+            bundle.putSerializable(OTPConstants.ITINERARIES, itineraries);
+        } else if (itineraries == null || itineraries.size() != index) {
+            // An earlier itinerary wasn't shown, so wait for the complete plan
+            return;
+        }
+        itineraries.add(itinerary);
+
+        if (index == 0) {
+            if (mProgressDialog != null) {
+                mProgressDialog.dismiss();
+            }
+            initResultsFragment();
+            mPanel.setEnabled(true);
+            mPanel.setPanelState(SlidingUpPanelLayout.PanelState.EXPANDED);
+        } else if (mResultsFragment != null) {
+            mResultsFragment.updateItineraries();
+        }
+    }
+
     @Override
     public void onTripRequestFailure(int errorCode, String url) {
         Intent intent = new Intent(this, TripPlanActivity.class)
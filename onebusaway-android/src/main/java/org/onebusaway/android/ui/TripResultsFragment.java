@@ -251,6 +251,19 @@ public class TripResultsFragment extends Fragment {
         initInfoAndMap(rank);
     }
 
+    /**
+     * Shows the itineraries added to the results since they were displayed, without changing
+     * the selected itinerary
+     */
+    public void updateItineraries() {
+        if (getView() == null) {
+            return;
+        }
+        for (int i = 0; i < mOptions.length; i++) {
+            mOptions[i].setItinerary(i);
+        }
+    }
+
     private String toDateFmt(long ms) {
         Date d = new Date(ms);
         String s = new SimpleDateFormat(OTPConstants.TRIP_RESULTS_TIME_STRING_FORMAT_SUMMARY, Locale.getDefault()).format(d);
@@ -314,6 +327,7 @@ public class TripResultsFragment extends Fragment {
 
             this.itinerary = trips.get(rank);
             this.rank = rank;
+            linearLayout.setVisibility(View.VISIBLE);
 
             String title = new DirectionsGenerator(itinerary.legs, getContext()).getItineraryTitle();
             String duration = ConversionUtils.getFormattedDurationTextNoSeconds(itinerary.duration, false, getContext());
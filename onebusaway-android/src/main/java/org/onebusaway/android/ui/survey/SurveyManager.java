@@ -406,13 +406,15 @@ public class SurveyManager extends SurveyViewUtils implements SurveyActionsListe
     public void onSurveyResponseReceived(StudyResponse response) {
         if (response == null) return;
         mStudyResponse = response;
-        curSurveyIndex = SurveyUtils.getCurrentSurveyIndex(response, context, isVisibleOnStops, currentStop);
+        SurveyDbHelper.getCompletedSurveyIds(context, completedSurveyIds -> {
+            curSurveyIndex = SurveyUtils.getCurrentSurveyIndex(response, completedSurveyIds, isVisibleOnStops, currentStop);
 
-        Log.d("CurSurveyIndex", curSurveyIndex + " ");
+            Log.d("CurSurveyIndex", curSurveyIndex + " ");
 
-        if (curSurveyIndex == -1) return;
-        curSurveyID = getCurrentSurvey().getId();
-        addSurveyView();
+            if (curSurveyIndex == -1) return;
+            curSurveyID = getCurrentSurvey().getId();
+            addSurveyView();
+        });
     }
 
     public void onSurveyResponseFail() {
@@ -32,6 +32,7 @@ class SurveyWebViewActivity : AppCompatActivity() {
     private lateinit var mGoogleApiClient: GoogleApiClient
     private var mStopID: String? = null
     private var mRouteIDList: ArrayList<String>? = null
+    private var mRecentStops: List<String> = emptyList()
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -55,10 +56,14 @@ class SurveyWebViewActivity : AppCompatActivity() {
         mStopID = intent.getStringExtra("stop_id")
         mRouteIDList  = intent.getStringArrayListExtra("route_ids") as? ArrayList<String> ?: arrayListOf()
         Log.d("Routes",mRouteIDList.toString())
-        val newURl = getEmbeddedLink(url, embeddedValuesList)
+        // Recent stops are read from the database, so build the link once they're available
+        RecentStopsManager.getRecentStops(this) { recentStops ->
+            mRecentStops = recentStops
+            val newURl = getEmbeddedLink(url, embeddedValuesList)
 
-        Log.d("ExternalSurveyData", embeddedValuesList.toString())
-        Log.d("ExternalSurveyURL", newURl)
+            Log.d("ExternalSurveyData", embeddedValuesList.toString())
+            Log.d("ExternalSurveyURL", newURl)
+        }
 
         webView.webViewClient = WebViewClient()
         webView.settings.javaScriptEnabled = true
@@ -199,8 +204,7 @@ class SurveyWebViewActivity : AppCompatActivity() {
      */
 
     private fun getRecentStops(): String {
-        val recentStops = RecentStopsManager.getRecentStops(this)
-        return recentStops.takeIf { it.isNotEmpty() }
+        return mRecentStops.takeIf { it.isNotEmpty() }
             ?.joinToString(separator = ",")
             ?: "NA"
     }
@@ -30,4 +30,7 @@ interface SurveysDao {
     @Query("SELECT COUNT(*) > 0 FROM surveys WHERE survey_id = :surveyId")
     suspend fun isSurveyIdExists(surveyId: Int): Boolean
 
+    @Query("SELECT survey_id FROM surveys")
+    suspend fun getAllSurveyIds(): List<Int>
+
 }
@@ -12,9 +12,7 @@ import org.onebusaway.android.ui.survey.entity.Survey
  */
 
 class SurveyRepository(context: Context) {
-    private val db: AppDatabase = Room.databaseBuilder(
-        context.applicationContext, AppDatabase::class.java, "study-survey-db"
-    ).build()
+    private val db: AppDatabase = getDatabase(context)
 
     private val studiesDao = db.studiesDao()
     private val surveysDao = db.surveysDao()
@@ -47,4 +45,22 @@ class SurveyRepository(context: Context) {
     suspend fun getAllSurveys(): List<Survey> {
         return surveysDao.getAllSurveys();
     }
+
+    suspend fun getCompletedSurveyIds(): List<Int> {
+        return surveysDao.getAllSurveyIds()
+    }
+
+    companion object {
+        @Volatile
+        private var INSTANCE: AppDatabase? = null
+
+        // Building the database is expensive, so every repository shares one instance
+        private fun getDatabase(context: Context): AppDatabase {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: Room.databaseBuilder(
+                    context.applicationContext, AppDatabase::class.java, "study-survey-db"
+                ).build().also { INSTANCE = it }
+            }
+        }
+    }
 }
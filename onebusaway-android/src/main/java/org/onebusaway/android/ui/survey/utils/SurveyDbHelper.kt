@@ -1,26 +1,48 @@
 package org.onebusaway.android.ui.survey.utils
 
 import android.content.Context
+import android.os.Handler
+import android.os.Looper
 import android.util.Log
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import org.onebusaway.android.io.request.survey.model.StudyResponse
 import org.onebusaway.android.ui.survey.entity.Study
 import org.onebusaway.android.ui.survey.entity.Survey
 import org.onebusaway.android.ui.survey.repository.SurveyRepository
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Utility class for handling operations related to surveys in the database.
  */
 class SurveyDbHelper {
 
+    /** Receives the IDs of the completed or skipped surveys, for callers written in Java. */
+    fun interface CompletedSurveysCallback {
+        fun onCompletedSurveyIds(surveyIds: Set<Int>)
+    }
+
     companion object {
         // Coroutine scope for performing background operations.
         private val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
 
+        private val mainHandler = Handler(Looper.getMainLooper())
+
+        // IDs of the surveys in the database, loaded once and then kept up to date when a survey
+        // is marked as completed or skipped
+        private val completedSurveyIds: MutableSet<Int> =
+            Collections.newSetFromMap(ConcurrentHashMap<Int, Boolean>())
+
+        @Volatile
+        private var completedSurveyIdsLoaded = false
+
+        private val loadMutex = Mutex()
+
         // Constants representing survey states.
         const val SURVEY_COMPLETED = 1
         const val SURVEY_SKIPPED = 2
@@ -40,6 +62,7 @@ class SurveyDbHelper {
                 curSurvey.study.id, curSurvey.study.name, curSurvey.study.description, true
             )
             val newSurvey = Survey(curSurvey.id, curSurvey.study.id, curSurvey.name, state)
+            completedSurveyIds.add(curSurvey.id)
 
             coroutineScope.launch {
                 try {
@@ -52,6 +75,45 @@ class SurveyDbHelper {
             }
         }
 
+        /**
+         * Returns the IDs of the completed or skipped surveys, reading them with a single query
+         * the first time this is called.
+         *
+         * @param context
+         * @return A read-only view of the survey IDs.
+         */
+        suspend fun getCompletedSurveyIds(context: Context): Set<Int> {
+            if (!completedSurveyIdsLoaded) {
+                loadMutex.withLock {
+                    if (!completedSurveyIdsLoaded) {
+                        try {
+                            completedSurveyIds.addAll(
+                                SurveyRepository(context).getCompletedSurveyIds()
+                            )
+                            completedSurveyIdsLoaded = true
+                        } catch (e: Exception) {
+                            e.printStackTrace()
+                        }
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(completedSurveyIds)
+        }
+
+        /**
+         * Loads the IDs of the completed or skipped surveys without blocking the calling thread.
+         *
+         * @param context
+         * @param callback Called on the main thread with the survey IDs.
+         */
+        @JvmStatic
+        fun getCompletedSurveyIds(context: Context, callback: CompletedSurveysCallback) {
+            coroutineScope.launch {
+                val surveyIds = getCompletedSurveyIds(context)
+                mainHandler.post { callback.onCompletedSurveyIds(surveyIds) }
+            }
+        }
+
         /**
          * Checks if a survey has been completed based on its ID.
          *
@@ -59,17 +121,8 @@ class SurveyDbHelper {
          * @param surveyId The ID of the survey to check.
          * @return True if the survey is completed, false otherwise.
          */
-        @JvmStatic
-        fun isSurveyCompleted(context: Context, surveyId: Int): Boolean {
-            val surveyRepo = SurveyRepository(context)
-            return runBlocking {
-                try {
-                    surveyRepo.checkSurveyCompleted(surveyId)
-                } catch (e: Exception) {
-                    e.printStackTrace()
-                    false
-                }
-            }
+        suspend fun isSurveyCompleted(context: Context, surveyId: Int): Boolean {
+            return getCompletedSurveyIds(context).contains(surveyId)
         }
     }
 }
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Utility class for managing and processing surveys within the application.
@@ -107,11 +108,11 @@ public class SurveyUtils {
      * Returns the index of the first uncompleted survey in the list, based on visibility settings.
      *
      * @param studyResponse   The study response containing the list of surveys.
-     * @param context         The context used to access local data.
+     * @param completedSurveyIds The IDs of the surveys that have been completed or skipped.
      * @param isVisibleOnStop Indicates whether the survey view is related to stops.
      * @return The zero-based index of the current survey, or -1 if all surveys are completed or filtered out.
      */
-    public static Integer getCurrentSurveyIndex(StudyResponse studyResponse, Context context, Boolean isVisibleOnStop, ObaStop currentStop) {
+    public static Integer getCurrentSurveyIndex(StudyResponse studyResponse, Set<Integer> completedSurveyIds, Boolean isVisibleOnStop, ObaStop currentStop) {
         List<StudyResponse.Surveys> surveys = studyResponse.getSurveys();
         if (surveys == null) return -1;
 
@@ -147,7 +148,7 @@ public class SurveyUtils {
                 if (!Boolean.TRUE.equals(showQuestionOnMaps)) continue;
             }
 
-            boolean isSurveyCompleted = SurveyDbHelper.isSurveyCompleted(context, survey.getId());
+            boolean isSurveyCompleted = completedSurveyIds.contains(survey.getId());
 
             if (Boolean.TRUE.equals(alwaysVisible)) {
                 if (Boolean.TRUE.equals(allowMultipleResponses)) {
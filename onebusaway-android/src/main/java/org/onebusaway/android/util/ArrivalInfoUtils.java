@@ -82,6 +82,31 @@ public class ArrivalInfoUtils {
         return result;
     }
 
+    /**
+     * Computes the ETAs and labels of arrivals that were already converted by
+     * convertObaArrivalInfo() for a new time, dropping any that are no longer shown
+     *
+     * @param arrivals                             arrivals sorted by ETA
+     * @param ms                                   current time in milliseconds
+     * @param includeArrivalDepartureInStatusLabel true if the arrival/departure label should be
+     *                                             included in the status label, false if it should
+     *                                             not
+     * @return ArrayList of arrival info to be used with the adapter
+     */
+    public static ArrayList<ArrivalInfo> retimeArrivalInfo(Context context,
+                                                           ArrayList<ArrivalInfo> arrivals, long ms,
+                                                           boolean includeArrivalDepartureInStatusLabel) {
+        ArrayList<ArrivalInfo> result = new ArrayList<ArrivalInfo>(arrivals.size());
+        for (ArrivalInfo arrival : arrivals) {
+            ArrivalInfo info = arrival.retime(context, ms, includeArrivalDepartureInStatusLabel);
+            if (shouldAddEta(info)) {
+                result.add(info);
+            }
+        }
+        // All ETAs move by the same amount, so the list is still sorted
+        return result;
+    }
+
     /**
      * Returns true if this ETA should be added based on the user preference for adding negative
      * arrival times, and false if it should not
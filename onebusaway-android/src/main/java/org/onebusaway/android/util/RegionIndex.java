@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.util;
+
+import org.onebusaway.android.io.elements.ObaRegion;
+
+import android.location.Location;
+
+import java.util.List;
+
+/**
+ * Precomputed geometry for a list of regions, so that region selection doesn't need to walk the
+ * region bounds objects (and allocate) every time the device location changes.
+ *
+ * For each region we keep the overall bounding box (the same span returned by
+ * {@link RegionUtils#getRegionSpan(ObaRegion, double[])}) and the centers of each of its bounds
+ * in flat arrays.  There are only a few dozen regions, so a flat scan of these arrays is cheaper
+ * here than building and walking a tree.
+ */
+public final class RegionIndex {
+
+    private final List<ObaRegion> mSource;
+
+    private final int mSourceSize;
+
+    private final ObaRegion[] mRegions;
+
+    // minLat, minLon, maxLat, maxLon for each region, in region order
+    private final double[] mBoxes;
+
+    // Offsets into mCenterLats/mCenterLons, mRegions.length + 1 entries
+    private final int[] mBoundOffsets;
+
+    private final double[] mCenterLats;
+
+    private final double[] mCenterLons;
+
+    private final float[] mDistance = new float[1];
+
+    /**
+     * A match returned from {@link #findClosest(double, double, boolean)}
+     */
+    public static final class Match {
+
+        private final ObaRegion mRegion;
+
+        private final float mDistance;
+
+        Match(ObaRegion region, float distance) {
+            mRegion = region;
+            mDistance = distance;
+        }
+
+        public ObaRegion getRegion() {
+            return mRegion;
+        }
+
+        /**
+         * @return distance to the center of the closest bound in the region, in meters
+         */
+        public float getDistance() {
+            return mDistance;
+        }
+    }
+
+    public RegionIndex(List<ObaRegion> regions) {
+        mSource = regions;
+        mSourceSize = regions.size();
+
+        int boundCount = 0;
+        for (ObaRegion region : regions) {
+            if (region.getBounds() != null) {
+                boundCount += region.getBounds().length;
+            }
+        }
+
+        mRegions = regions.toArray(new ObaRegion[mSourceSize]);
+        mBoxes = new double[mSourceSize * 4];
+        mBoundOffsets = new int[mSourceSize + 1];
+        mCenterLats = new double[boundCount];
+        mCenterLons = new double[boundCount];
+
+        int b = 0;
+        for (int i = 0; i < mSourceSize; i++) {
+            mBoundOffsets[i] = b;
+            double minLat = 90;
+            double minLon = 180;
+            double maxLat = -90;
+            double maxLon = -180;
+            ObaRegion.Bounds[] bounds = mRegions[i].getBounds();
+            if (bounds != null) {
+                for (ObaRegion.Bounds bound : bounds) {
+                    double latSpanHalf = bound.getLatSpan() / 2.0;
+                    double lonSpanHalf = bound.getLonSpan() / 2.0;
+                    minLat = Math.min(minLat, bound.getLat() - latSpanHalf);
+                    maxLat = Math.max(maxLat, bound.getLat() + latSpanHalf);
+                    minLon = Math.min(minLon, bound.getLon() - lonSpanHalf);
+                    maxLon = Math.max(maxLon, bound.getLon() + lonSpanHalf);
+                    mCenterLats[b] = bound.getLat();
+                    mCenterLons[b] = bound.getLon();
+                    b++;
+                }
+            }
+            mBoxes[i * 4] = minLat;
+            mBoxes[i * 4 + 1] = minLon;
+            mBoxes[i * 4 + 2] = maxLat;
+            mBoxes[i * 4 + 3] = maxLon;
+        }
+        mBoundOffsets[mSourceSize] = b;
+    }
+
+    /**
+     * @return true if this index was built from the provided list, and the list hasn't changed
+     * size since
+     */
+    public boolean isFor(List<ObaRegion> regions) {
+        return regions == mSource && regions.size() == mSourceSize;
+    }
+
+    /**
+     * Returns the usable region whose closest bound center is nearest to the given point
+     *
+     * @param checkUsable true if regions that fail {@link RegionUtils#isRegionUsable(ObaRegion)}
+     *                    should be skipped
+     * @return the closest region, or null if no region has bounds
+     */
+    public synchronized Match findClosest(double lat, double lon, boolean checkUsable) {
+        ObaRegion closest = null;
+        float minDist = Float.MAX_VALUE;
+        for (int i = 0; i < mRegions.length; i++) {
+            int start = mBoundOffsets[i];
+            int end = mBoundOffsets[i + 1];
+            if (start == end) {
+                continue;
+            }
+            if (checkUsable && !RegionUtils.isRegionUsable(mRegions[i])) {
+                continue;
+            }
+            for (int j = start; j < end; j++) {
+                Location.distanceBetween(lat, lon, mCenterLats[j], mCenterLons[j], mDistance);
+                if (mDistance[0] < minDist) {
+                    minDist = mDistance[0];
+                    closest = mRegions[i];
+                }
+            }
+        }
+        return closest != null ? new Match(closest, minDist) : null;
+    }
+
+    /**
+     * Fills results with the span of the given region, in the format used by
+     * {@link RegionUtils#getRegionSpan(ObaRegion, double[])}
+     *
+     * @return true if the region is in this index and results was filled, false otherwise
+     */
+    public boolean getSpan(ObaRegion region, double[] results) {
+        for (int i = 0; i < mRegions.length; i++) {
+            if (mRegions[i] == region) {
+                toSpan(mBoxes, i, results);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void toSpan(double[] boxes, int i, double[] results) {
+        double minLat = boxes[i * 4];
+        double minLon = boxes[i * 4 + 1];
+        double maxLat = boxes[i * 4 + 2];
+        double maxLon = boxes[i * 4 + 3];
+        results[0] = maxLat - minLat;
+        results[1] = maxLon - minLon;
+        results[2] = minLat + ((maxLat - minLat) / 2.0);
+        results[3] = minLon + ((maxLon - minLon) / 2.0);
+    }
+}
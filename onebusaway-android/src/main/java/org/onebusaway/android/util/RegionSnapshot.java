@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.util;
+
+import org.onebusaway.android.io.JacksonSerializer;
+import org.onebusaway.android.io.elements.ObaRegion;
+import org.onebusaway.android.io.elements.ObaRegionElement;
+
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+/**
+ * Keeps a copy of the current region, including its bounds and Open311 servers, in the
+ * preferences as JSON in the same format as the regions API.  At startup the region can then be
+ * restored with the preferences, which are read anyway, instead of with several queries to the
+ * regions tables.  The copy should be checked against the regions tables afterwards with
+ * {@link #matches(SharedPreferences, ObaRegion)}.
+ */
+public class RegionSnapshot {
+
+    // Change the version if the format of the snapshot changes, so old snapshots are ignored
+    private static final String PREFERENCE_KEY = "region_snapshot_v1";
+
+    private RegionSnapshot() {
+    }
+
+    /**
+     * Saves a snapshot of the given region, replacing any existing one
+     */
+    public static void save(SharedPreferences prefs, ObaRegion region) {
+        PreferenceUtils.saveString(prefs, PREFERENCE_KEY, toJson(region));
+    }
+
+    /**
+     * Removes the snapshot, e.g. when a custom API URL is used instead of a region
+     */
+    public static void clear(SharedPreferences prefs) {
+        prefs.edit().remove(PREFERENCE_KEY).apply();
+    }
+
+    /**
+     * Restores the saved region
+     *
+     * @param regionId the ID of the current region
+     * @return the saved region, or null if there isn't a snapshot of the given region
+     */
+    public static ObaRegion load(SharedPreferences prefs, long regionId) {
+        String json = prefs.getString(PREFERENCE_KEY, null);
+        if (TextUtils.isEmpty(json)) {
+            return null;
+        }
+        ObaRegionElement region = JacksonSerializer.getInstance()
+                .deserializeFromResponse(json, ObaRegionElement.class);
+        if (region == null || region.getId() != regionId || region.getObaBaseUrl() == null) {
+            return null;
+        }
+        return region;
+    }
+
+    /**
+     * @return true if the saved snapshot has the same contents as the given region
+     */
+    public static boolean matches(SharedPreferences prefs, ObaRegion region) {
+        return toJson(region).equals(prefs.getString(PREFERENCE_KEY, null));
+    }
+
+    private static String toJson(ObaRegion region) {
+        return JacksonSerializer.getInstance().serialize(region);
+    }
+}
@@ -26,19 +26,22 @@ import org.onebusaway.android.io.request.ObaRegionsRequest;
 import org.onebusaway.android.io.request.ObaRegionsResponse;
 import org.onebusaway.android.provider.ObaContract;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.location.Location;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.util.Log;
 
 import java.security.MessageDigest;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -62,6 +65,25 @@ public class RegionUtils {
 
     private static final int DISTANCE_LIMITER = 100;  // miles
 
+    // Index for the most recently loaded list of regions
+    private static volatile RegionIndex sRegionIndex;
+
+    // Span of the most recent region passed to isLocationWithinRegion(), which is almost always
+    // the current region.  Regions are immutable, so this is keyed on identity.
+    private static volatile RegionSpan sLastRegionSpan;
+
+    private static final class RegionSpan {
+
+        final ObaRegion region;
+
+        final double[] span;
+
+        RegionSpan(ObaRegion region, double[] span) {
+            this.region = region;
+            this.span = span;
+        }
+    }
+
     /**
      * Get the closest region from a list of regions and a given location
      *
@@ -81,46 +103,37 @@ public class RegionUtils {
         if (loc == null) {
             return null;
         }
-        float minDist = Float.MAX_VALUE;
-        ObaRegion closestRegion = null;
-        Float distToRegion;
-
-        NumberFormat fmt = NumberFormat.getInstance();
-        if (fmt instanceof DecimalFormat) {
-            ((DecimalFormat) fmt).setMaximumFractionDigits(1);
+        RegionIndex.Match match = getRegionIndex(regions)
+                .findClosest(loc.getLatitude(), loc.getLongitude(), true);
+        if (match == null) {
+            Log.d(TAG, "Couldn't find a usable region close to " + loc.getLatitude() + ","
+                    + loc.getLongitude());
+            return null;
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Region '" + match.getRegion().getName() + "' is closest to "
+                    + loc.getLatitude() + "," + loc.getLongitude() + " at "
+                    + Math.round(match.getDistance() * METERS_TO_MILES) + " miles");
         }
-        double miles;
-
-        Log.d(TAG, "Finding region closest to " + loc.getLatitude() + "," + loc.getLongitude());
-
-        for (ObaRegion region : regions) {
-            if (!isRegionUsable(region)) {
-                Log.d(TAG,
-                        "Excluding '" + region.getName() + "' from 'closest region' consideration");
-                continue;
-            }
 
-            distToRegion = getDistanceAway(region, loc.getLatitude(), loc.getLongitude());
-            if (distToRegion == null) {
-                Log.e(TAG, "Couldn't measure distance to region '" + region.getName() + "'");
-                continue;
-            }
-            miles = distToRegion * METERS_TO_MILES;
-            Log.d(TAG, "Region '" + region.getName() + "' is " + fmt.format(miles) + " miles away");
-            if (distToRegion < minDist) {
-                closestRegion = region;
-                minDist = distToRegion;
-            }
+        if (enforceThreshold && match.getDistance() * METERS_TO_MILES >= DISTANCE_LIMITER) {
+            return null;
         }
+        return match.getRegion();
+    }
 
-        if (enforceThreshold) {
-            if (minDist * METERS_TO_MILES < DISTANCE_LIMITER) {
-                return closestRegion;
-            } else {
-                return null;
-            }
+    /**
+     * Returns the spatial index for the given list of regions, reusing the index built when the
+     * regions were last loaded or saved if it was built from the same list
+     */
+    static RegionIndex getRegionIndex(List<ObaRegion> regions) {
+        RegionIndex index = sRegionIndex;
+        if (index != null && index.isFor(regions)) {
+            return index;
         }
-        return closestRegion;
+        index = new RegionIndex(regions);
+        sRegionIndex = index;
+        return index;
     }
 
     /**
@@ -277,9 +290,17 @@ public class RegionUtils {
      * @return true if the location is within the region, false if it is not
      */
     public static boolean isLocationWithinRegion(Location location, ObaRegion region) {
-        double[] regionSpan = new double[4];
-        getRegionSpan(region, regionSpan);
-        return isLocationWithinRegion(location, regionSpan);
+        RegionSpan cached = sLastRegionSpan;
+        if (cached == null || cached.region != region) {
+            double[] regionSpan = new double[4];
+            RegionIndex index = sRegionIndex;
+            if (index == null || !index.getSpan(region, regionSpan)) {
+                getRegionSpan(region, regionSpan);
+            }
+            cached = new RegionSpan(region, regionSpan);
+            sLastRegionSpan = cached;
+        }
+        return isLocationWithinRegion(location, cached.span);
     }
 
     /**
@@ -345,6 +366,7 @@ public class RegionUtils {
             results = RegionUtils.getRegionsFromProvider(context);
             if (results != null) {
                 Log.d(TAG, "Retrieved regions from database.");
+                getRegionIndex(results);
                 return results;
             }
             Log.d(TAG, "Regions list retrieved from database was null.");
@@ -359,6 +381,7 @@ public class RegionUtils {
                 results = RegionUtils.getRegionsFromProvider(context);
                 if (results != null) {
                     Log.d(TAG, "Retrieved regions from database.");
+                    getRegionIndex(results);
                     return results;
                 } else {
                     Log.d(TAG, "Regions list retrieved from database was null.");
@@ -385,6 +408,7 @@ public class RegionUtils {
 
         //If the region info came from the server or local resource file, we need to save it to the local provider
         RegionUtils.saveToProvider(context, results);
+        getRegionIndex(results);
         return results;
     }
 
@@ -673,44 +697,115 @@ public class RegionUtils {
     //
     // Saving
     //
+    /**
+     * Saves the usable regions in the provided list to the local provider, replacing what is
+     * currently stored.  Only regions whose content has changed are rewritten, and all changes
+     * are applied in a single transaction.
+     */
     public synchronized static void saveToProvider(Context context, List<ObaRegion> regions) {
-        // Delete all the existing regions
-        ContentResolver cr = context.getContentResolver();
-        cr.delete(ObaContract.Regions.CONTENT_URI, null, null);
-        // Should be a no-op?
-        cr.delete(ObaContract.RegionBounds.CONTENT_URI, null, null);
-        // Delete all existing open311 endpoints
-        cr.delete(ObaContract.RegionOpen311Servers.CONTENT_URI, null, null);
+        HashMap<Long, ObaRegion> existing = new HashMap<>();
+        ArrayList<ObaRegion> saved = getRegionsFromProvider(context);
+        if (saved != null) {
+            for (ObaRegion region : saved) {
+                existing.put(region.getId(), region);
+            }
+        }
 
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
         for (ObaRegion region : regions) {
             if (!isRegionUsable(region)) {
                 Log.d(TAG, "Skipping insert of '" + region.getName() + "' to provider...");
                 continue;
             }
-
-            cr.insert(ObaContract.Regions.CONTENT_URI, toContentValues(region));
-            Log.d(TAG, "Saved region '" + region.getName() + "' to provider");
-            long regionId = region.getId();
-            // Bulk insert the bounds
-            ObaRegion.Bounds[] bounds = region.getBounds();
-            if (bounds != null) {
-                ContentValues[] values = new ContentValues[bounds.length];
-                for (int i = 0; i < bounds.length; ++i) {
-                    values[i] = toContentValues(regionId, bounds[i]);
+            ObaRegion old = existing.remove(region.getId());
+            if (old != null) {
+                if (isSameContent(old, region)) {
+                    continue;
                 }
-                cr.bulkInsert(ObaContract.RegionBounds.CONTENT_URI, values);
+                addDeleteOperations(ops, region.getId());
             }
+            addInsertOperations(ops, region);
+            Log.d(TAG, "Saving region '" + region.getName() + "' to provider");
+        }
+        // Anything left is no longer in the list, or is no longer usable
+        for (Long regionId : existing.keySet()) {
+            addDeleteOperations(ops, regionId);
+        }
 
-            ObaRegion.Open311Server[] open311Servers = region.getOpen311Servers();
+        if (ops.isEmpty()) {
+            Log.d(TAG, "Regions in provider are up to date");
+            return;
+        }
+        try {
+            context.getContentResolver().applyBatch(ObaContract.AUTHORITY, ops);
+        } catch (RemoteException | OperationApplicationException e) {
+            Log.e(TAG, "Couldn't save regions to provider: " + e);
+        }
+    }
 
-            if (open311Servers != null) {
-                ContentValues[] values = new ContentValues[open311Servers.length];
-                for (int i = 0; i < open311Servers.length; ++i) {
-                    values[i] = toContentValues(regionId, open311Servers[i]);
-                }
-                cr.bulkInsert(ObaContract.RegionOpen311Servers.CONTENT_URI, values);
-            }
+    private static void addDeleteOperations(ArrayList<ContentProviderOperation> ops,
+            long regionId) {
+        String[] args = new String[]{String.valueOf(regionId)};
+        ops.add(ContentProviderOperation.newDelete(ObaContract.RegionBounds.CONTENT_URI)
+                .withSelection(ObaContract.RegionBounds.REGION_ID + "=?", args)
+                .build());
+        ops.add(ContentProviderOperation.newDelete(ObaContract.RegionOpen311Servers.CONTENT_URI)
+                .withSelection(ObaContract.RegionOpen311Servers.REGION_ID + "=?", args)
+                .build());
+        ops.add(ContentProviderOperation.newDelete(
+                ContentUris.withAppendedId(ObaContract.Regions.CONTENT_URI, regionId))
+                .build());
+    }
+
+    private static void addInsertOperations(ArrayList<ContentProviderOperation> ops,
+            ObaRegion region) {
+        ops.add(ContentProviderOperation.newInsert(ObaContract.Regions.CONTENT_URI)
+                .withValues(toContentValues(region))
+                .build());
+        for (ContentValues values : toBoundsValues(region)) {
+            ops.add(ContentProviderOperation.newInsert(ObaContract.RegionBounds.CONTENT_URI)
+                    .withValues(values)
+                    .build());
+        }
+        for (ContentValues values : toOpen311Values(region)) {
+            ops.add(ContentProviderOperation
+                    .newInsert(ObaContract.RegionOpen311Servers.CONTENT_URI)
+                    .withValues(values)
+                    .build());
+        }
+    }
+
+    /**
+     * @return true if the two regions would be stored with exactly the same rows in the provider
+     */
+    private static boolean isSameContent(ObaRegion a, ObaRegion b) {
+        return toContentValues(a).equals(toContentValues(b))
+                && toBoundsValues(a).equals(toBoundsValues(b))
+                && toOpen311Values(a).equals(toOpen311Values(b));
+    }
+
+    private static List<ContentValues> toBoundsValues(ObaRegion region) {
+        ObaRegion.Bounds[] bounds = region.getBounds();
+        if (bounds == null) {
+            return Collections.emptyList();
         }
+        List<ContentValues> values = new ArrayList<>(bounds.length);
+        for (ObaRegion.Bounds bound : bounds) {
+            values.add(toContentValues(region.getId(), bound));
+        }
+        return values;
+    }
+
+    private static List<ContentValues> toOpen311Values(ObaRegion region) {
+        ObaRegion.Open311Server[] open311Servers = region.getOpen311Servers();
+        if (open311Servers == null) {
+            return Collections.emptyList();
+        }
+        List<ContentValues> values = new ArrayList<>(open311Servers.length);
+        for (ObaRegion.Open311Server server : open311Servers) {
+            values.add(toContentValues(region.getId(), server));
+        }
+        return values;
     }
 
     private static ContentValues toContentValues(ObaRegion region) {
@@ -4,12 +4,15 @@ import com.google.transit.realtime.GtfsRealtime;
 
 import org.onebusaway.android.R;
 import org.onebusaway.android.app.Application;
+import org.onebusaway.android.database.widealerts.AlertsRepository;
+import org.onebusaway.android.io.ObaOkHttpConnectionFactory;
 
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
-import java.net.URL;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -23,10 +26,23 @@ public class GtfsAlerts {
     private static final Set<String> fetchedRegions = new HashSet<>();
     private final Context mContext;
 
+    private GtfsAlertsFeedClient mFeedClient;
+
     public GtfsAlerts(Context context) {
         mContext = context;
     }
 
+    private synchronized GtfsAlertsFeedClient getFeedClient() {
+        if (mFeedClient == null) {
+            mFeedClient = new GtfsAlertsFeedClient(
+                    ObaOkHttpConnectionFactory.getInstance().getClient(),
+                    mContext.getSharedPreferences(GtfsAlertsFeedClient.PREFS_NAME,
+                            Context.MODE_PRIVATE),
+                    new File(mContext.getCacheDir(), GtfsAlertsFeedClient.PREFS_NAME));
+        }
+        return mFeedClient;
+    }
+
     /**
      * Fetches GTFS alerts from a specified URL and processes them.
      *
@@ -45,9 +61,10 @@ public class GtfsAlerts {
         Log.d(TAG, "fetchAlerts for region: " + regionId);
         new Thread(() -> {
             try {
-                URL url = new URL(pathUrl);
-                GtfsRealtime.FeedMessage feed = GtfsRealtime.FeedMessage.parseFrom(url.openStream());
-                processAlerts(feed.getEntityList(), callback);
+                List<GtfsRealtime.FeedEntity> alerts = getFeedClient().fetch(pathUrl);
+                if (alerts != null) {
+                    processAlerts(alerts, callback);
+                }
                 fetchedRegions.add(regionId);
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching GTFS alert data for region: " + regionId, e);
@@ -63,8 +80,24 @@ public class GtfsAlerts {
      * @param callback The callback to handle each alert.
      */
     public void processAlerts(List<GtfsRealtime.FeedEntity> alerts, GtfsAlertCallBack callback) {
+        // Filter on the alert contents first, so the read alerts are only loaded if needed
+        final List<GtfsRealtime.FeedEntity> candidates = new ArrayList<>();
         for (GtfsRealtime.FeedEntity entity : alerts) {
-            if (!GtfsAlertsHelper.isValidEntity(mContext, entity)) {
+            if (GtfsAlertsHelper.isCandidateEntity(entity)) {
+                candidates.add(entity);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        AlertsRepository.getReadAlertIds(mContext,
+                readAlertIds -> processCandidates(candidates, readAlertIds, callback));
+    }
+
+    private void processCandidates(List<GtfsRealtime.FeedEntity> candidates,
+                                   Set<String> readAlertIds, GtfsAlertCallBack callback) {
+        for (GtfsRealtime.FeedEntity entity : candidates) {
+            if (readAlertIds.contains(entity.getId())) {
                 continue;
             }
             GtfsRealtime.Alert alert = entity.getAlert();
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2026 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.android.widealerts;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.google.transit.realtime.GtfsRealtime;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Fetches GTFS-realtime alerts feeds so that polling an unchanged feed costs almost nothing.
+ *
+ * The alerts received from each URL are saved to a file, and the ETag, Last-Modified and feed
+ * header timestamp of the last feed are saved in the preferences.  The validators are only used
+ * to make conditional requests while the saved alerts can be read, so after a restart an
+ * unchanged feed returns the saved alerts, and DIFFERENTIAL feeds are applied to them.  If the
+ * server still sends the feed and its header timestamp hasn't changed, only the header is parsed.
+ */
+public class GtfsAlertsFeedClient {
+
+    private static final String TAG = "GtfsAlertsFeedClient";
+
+    public static final String PREFS_NAME = "gtfs_alerts_feed";
+
+    private static final String KEY_ETAG = ".etag";
+
+    private static final String KEY_LAST_MODIFIED = ".last_modified";
+
+    private static final String KEY_TIMESTAMP = ".timestamp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+
+    private final OkHttpClient mClient;
+
+    private final SharedPreferences mPrefs;
+
+    private final File mDir;
+
+    // Feed URL -> current alerts by entity ID
+    private final Map<String, LinkedHashMap<String, GtfsRealtime.FeedEntity>> mAlerts =
+            new HashMap<>();
+
+    /**
+     * @param prefs The preferences to save the validators of the feeds in.
+     * @param dir   The directory to save the alerts of the feeds in.
+     */
+    public GtfsAlertsFeedClient(OkHttpClient client, SharedPreferences prefs, File dir) {
+        mClient = client;
+        mPrefs = prefs;
+        mDir = dir;
+    }
+
+    /**
+     * Fetches an alerts feed.  This does network I/O, so it must not be called on the main
+     * thread.
+     *
+     * @param url The URL of the feed.
+     * @return The current alert entities in the feed, also if the feed hasn't changed since it
+     * was last fetched.
+     */
+    public List<GtfsRealtime.FeedEntity> fetch(String url) throws IOException {
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                // Conditional requests are made here, rather than by the HTTP cache
+                .cacheControl(NO_STORE);
+        // Without the saved alerts, an unchanged feed couldn't be returned
+        List<GtfsRealtime.FeedEntity> saved = getSavedAlerts(url);
+        if (saved != null) {
+            String etag = mPrefs.getString(url + KEY_ETAG, null);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            String lastModified = mPrefs.getString(url + KEY_LAST_MODIFIED, null);
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+        }
+
+        Response response = mClient.newCall(request.build()).execute();
+        try {
+            if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED && saved != null) {
+                Log.d(TAG, "Alerts not modified: " + url);
+                return saved;
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("Server returned HTTP response code: " + response.code()
+                        + " for URL: " + url);
+            }
+            byte[] body = response.body().bytes();
+
+            SharedPreferences.Editor editor = mPrefs.edit();
+            putOrRemove(editor, url + KEY_ETAG, response.header("ETag"));
+            putOrRemove(editor, url + KEY_LAST_MODIFIED, response.header("Last-Modified"));
+
+            GtfsRealtime.FeedHeader header = readHeader(body);
+            long timestamp = header != null ? header.getTimestamp() : 0;
+            if (saved != null && timestamp != 0
+                    && timestamp == mPrefs.getLong(url + KEY_TIMESTAMP, 0)) {
+                Log.d(TAG, "Alerts timestamp unchanged: " + url);
+                editor.apply();
+                return saved;
+            }
+            GtfsRealtime.FeedMessage feed = GtfsRealtime.FeedMessage.parseFrom(body);
+            List<GtfsRealtime.FeedEntity> alerts = apply(url, feed);
+            // Save the alerts before the validators, so the validators are never used with
+            // older alerts
+            save(url, feed.getHeader(), alerts);
+            editor.putLong(url + KEY_TIMESTAMP, timestamp);
+            editor.apply();
+            return alerts;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Applies a feed to the alerts kept for its URL - a FULL_DATASET feed replaces them, and a
+     * DIFFERENTIAL feed adds, replaces or deletes the entities it contains.
+     *
+     * @return The current alert entities in the feed.
+     */
+    synchronized List<GtfsRealtime.FeedEntity> apply(String url, GtfsRealtime.FeedMessage feed) {
+        LinkedHashMap<String, GtfsRealtime.FeedEntity> alerts = mAlerts.get(url);
+        boolean differential = feed.getHeader().getIncrementality()
+                == GtfsRealtime.FeedHeader.Incrementality.DIFFERENTIAL;
+        if (alerts == null || !differential) {
+            alerts = new LinkedHashMap<>();
+            mAlerts.put(url, alerts);
+        }
+        for (GtfsRealtime.FeedEntity entity : feed.getEntityList()) {
+            if (entity.getIsDeleted()) {
+                alerts.remove(entity.getId());
+            } else if (entity.hasAlert()) {
+                alerts.put(entity.getId(), entity);
+            }
+        }
+        return new ArrayList<>(alerts.values());
+    }
+
+    /**
+     * @return The alerts received from the URL in this process, or else the alerts saved to the
+     * file for the URL, or null if there aren't any
+     */
+    private synchronized List<GtfsRealtime.FeedEntity> getSavedAlerts(String url) {
+        LinkedHashMap<String, GtfsRealtime.FeedEntity> alerts = mAlerts.get(url);
+        if (alerts != null) {
+            return new ArrayList<>(alerts.values());
+        }
+        File file = getFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                return apply(url, GtfsRealtime.FeedMessage.parseFrom(in));
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't read saved alerts for " + url + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the current alerts of the URL as a FULL_DATASET feed
+     */
+    private void save(String url, GtfsRealtime.FeedHeader header,
+            List<GtfsRealtime.FeedEntity> alerts) {
+        GtfsRealtime.FeedMessage feed = GtfsRealtime.FeedMessage.newBuilder()
+                .setHeader(header.toBuilder().setIncrementality(
+                        GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET))
+                .addAllEntity(alerts)
+                .build();
+        File file = getFile(url);
+        File tmp = new File(mDir, file.getName() + ".tmp");
+        try {
+            mDir.mkdirs();
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                feed.writeTo(out);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Couldn't rename " + tmp);
+            }
+        } catch (IOException e) {
+            // Without the saved alerts the validators aren't used, so the next fetch is a full one
+            Log.e(TAG, "Couldn't save alerts for " + url + ": " + e);
+            file.delete();
+            tmp.delete();
+        }
+    }
+
+    private File getFile(String url) {
+        return new File(mDir, UUID.nameUUIDFromBytes(url.getBytes(UTF_8)) + ".pb");
+    }
+
+    /**
+     * Parses only the header of a serialized FeedMessage, which is normally its first field
+     *
+     * @return The feed header, or null if the message doesn't have one.
+     */
+    static GtfsRealtime.FeedHeader readHeader(byte[] message) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(message);
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag)
+                    == GtfsRealtime.FeedMessage.HEADER_FIELD_NUMBER) {
+                return GtfsRealtime.FeedHeader.parseFrom(in.readBytes());
+            }
+            in.skipField(tag);
+        }
+        return null;
+    }
+
+    private static void putOrRemove(SharedPreferences.Editor editor, String key, String value) {
+        if (value != null) {
+            editor.putString(key, value);
+        } else {
+            editor.remove(key);
+        }
+    }
+}
@@ -88,13 +88,15 @@ public class GtfsAlertsHelper {
 
 
     /**
-     * Checks if the entity is valid based on agency-wide, severity, and start date criteria.
+     * Checks if the entity is valid based on agency-wide, severity, and start date criteria,
+     * without checking whether it has been read.  The cheapest checks are done first.
      *
      * @param entity The GTFS entity.
      * @return True if the alert is valid, false otherwise.
      */
-    public static boolean isValidEntity(Context context, GtfsRealtime.FeedEntity entity) {
-        return isAgencyWideAlert(entity.getAlert()) && isHighSeverity(entity.getAlert()) && isStartDateWithin24Hours(entity.getAlert()) && !isAlertRead(context, entity);
+    public static boolean isCandidateEntity(GtfsRealtime.FeedEntity entity) {
+        GtfsRealtime.Alert alert = entity.getAlert();
+        return isHighSeverity(alert) && isStartDateWithin24Hours(alert) && isAgencyWideAlert(alert);
     }
 
     /**
@@ -129,23 +131,14 @@ public class GtfsAlertsHelper {
      * @return True if the start date is within the last 24 hours, false otherwise.
      */
     public static boolean isStartDateWithin24Hours(GtfsRealtime.Alert alert) {
+        if (alert.getActivePeriodCount() == 0) {
+            return false;
+        }
         long currentTime = System.currentTimeMillis();
         long startTime = alert.getActivePeriod(0).getStart() * 1000L;
         return (currentTime - startTime) <= 24 * 60 * 60 * 1000L;
     }
 
-    /**
-     * Checks if the alert has already been read.
-     *
-     * @param context The context to access the database.
-     * @param entity  The GTFS alert entity to check.
-     * @return True if the alert exists in the database, false otherwise.
-     */
-
-    public static boolean isAlertRead(Context context, GtfsRealtime.FeedEntity entity) {
-        return AlertsRepository.isAlertExists(context, entity.getId());
-    }
-
     /**
      * Marks the alert as read by inserting it into the database.
      *